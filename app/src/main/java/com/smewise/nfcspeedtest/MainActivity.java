@@ -4,74 +4,223 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import android.app.PendingIntent;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.graphics.Color;
 import android.nfc.FormatException;
 import android.nfc.NdefMessage;
 import android.nfc.NdefRecord;
 import android.nfc.NfcAdapter;
 import android.nfc.Tag;
-import android.nfc.tech.IsoDep;
 import android.nfc.tech.MifareClassic;
-import android.nfc.tech.Ndef;
-import android.nfc.tech.NfcA;
-import android.nfc.tech.NfcB;
-import android.nfc.tech.NfcF;
-import android.nfc.tech.NfcV;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
-import android.text.method.ScrollingMovementMethod;
 import android.util.Log;
 import android.view.View;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
 import android.widget.AdapterView;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.ScrollView;
 import android.widget.Spinner;
+import android.widget.Switch;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import java.io.ByteArrayOutputStream;
+import com.smewise.nfcspeedtest.analytics.Dimension;
+import com.smewise.nfcspeedtest.analytics.MeasurementAnalytics;
+import com.smewise.nfcspeedtest.analytics.MeasurementQuery;
+import com.smewise.nfcspeedtest.apdu.ApduChannel;
+import com.smewise.nfcspeedtest.apdu.script.ApduScript;
+import com.smewise.nfcspeedtest.apdu.script.ApduScriptParser;
+import com.smewise.nfcspeedtest.apdu.script.ScriptRun;
+import com.smewise.nfcspeedtest.bench.BenchOperation;
+import com.smewise.nfcspeedtest.bench.BenchOperations;
+import com.smewise.nfcspeedtest.bench.NdefSweep;
+import com.smewise.nfcspeedtest.bench.SoakBenchmark;
+import com.smewise.nfcspeedtest.bench.SoakConfig;
+import com.smewise.nfcspeedtest.bench.SoakResult;
+import com.smewise.nfcspeedtest.bench.SweepConfig;
+import com.smewise.nfcspeedtest.bench.SweepResult;
+import com.smewise.nfcspeedtest.codec.HexCodec;
+import com.smewise.nfcspeedtest.discovery.DiscoveryMode;
+import com.smewise.nfcspeedtest.discovery.FirstByteStats;
+import com.smewise.nfcspeedtest.discovery.ReaderModeConfig;
+import com.smewise.nfcspeedtest.discovery.TagDiscovery;
+import com.smewise.nfcspeedtest.felica.FeliCaClient;
+import com.smewise.nfcspeedtest.iso15693.Iso15693Memory;
+import com.smewise.nfcspeedtest.iso15693.SystemInfo;
+import com.smewise.nfcspeedtest.log.ResultLogAdapter;
+import com.smewise.nfcspeedtest.mifare.KeyDictionary;
+import com.smewise.nfcspeedtest.ndef.NdefFormatException;
+import com.smewise.nfcspeedtest.ndef.NdefMessageView;
+import com.smewise.nfcspeedtest.ndef.NdefRecordView;
+import com.smewise.nfcspeedtest.mifare.KeyResolver;
+import com.smewise.nfcspeedtest.mifare.MifareDump;
+import com.smewise.nfcspeedtest.mifare.MifareDumpEngine;
+import com.smewise.nfcspeedtest.mifare.SectorKey;
+import com.smewise.nfcspeedtest.mifare.SectorKeyCache;
+import com.smewise.nfcspeedtest.provision.PayloadQueue;
+import com.smewise.nfcspeedtest.provision.ProvisioningPayload;
+import com.smewise.nfcspeedtest.provision.ProvisioningStats;
+import com.smewise.nfcspeedtest.replay.RecordingTagEndpoint;
+import com.smewise.nfcspeedtest.replay.TagTrace;
+import com.smewise.nfcspeedtest.retry.AdaptiveTimeouts;
+import com.smewise.nfcspeedtest.retry.ResilientTagEndpoint;
+import com.smewise.nfcspeedtest.retry.RetryPolicy;
+import com.smewise.nfcspeedtest.retry.RetryStats;
+import com.smewise.nfcspeedtest.log.ResultRingBuffer;
+import com.smewise.nfcspeedtest.session.SessionContext;
+import com.smewise.nfcspeedtest.session.TagJob;
+import com.smewise.nfcspeedtest.session.TagPipeline;
+import com.smewise.nfcspeedtest.session.TagSession;
+import com.smewise.nfcspeedtest.store.MeasurementCursor;
+import com.smewise.nfcspeedtest.store.MeasurementExport;
+import com.smewise.nfcspeedtest.store.MeasurementOp;
+import com.smewise.nfcspeedtest.store.MeasurementRecord;
+import com.smewise.nfcspeedtest.store.MeasurementStore;
+import com.smewise.nfcspeedtest.store.StoreConfig;
+import com.smewise.nfcspeedtest.codec.HexFormatException;
+import com.smewise.nfcspeedtest.trace.LatencyTracer;
+import com.smewise.nfcspeedtest.trace.Phase;
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+import com.smewise.nfcspeedtest.trace.TracingTagEndpoint;
+import com.smewise.nfcspeedtest.transport.AndroidTagEndpoint;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.NfcBTransport;
+import com.smewise.nfcspeedtest.transport.NfcFTransport;
+import com.smewise.nfcspeedtest.transport.NfcVTransport;
+import com.smewise.nfcspeedtest.transport.TagEndpoint;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+import com.smewise.nfcspeedtest.transport.TagTech;
+import com.smewise.nfcspeedtest.transport.sim.LatencyModel;
+import com.smewise.nfcspeedtest.transport.sim.SimType2Tag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+import com.smewise.nfcspeedtest.type2.Type2Memory;
+import com.smewise.nfcspeedtest.type2.Type2Version;
+import com.smewise.nfcspeedtest.verify.BlockDevice;
+import com.smewise.nfcspeedtest.verify.BlockDevices;
+import com.smewise.nfcspeedtest.verify.DeltaReport;
+import com.smewise.nfcspeedtest.verify.DeltaWriter;
+import com.smewise.nfcspeedtest.verify.ImageCache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.Arrays;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
 
 public class MainActivity extends AppCompatActivity {
     private NfcAdapter nfcAdapter;
     private PendingIntent pendingIntent;
-    private TextView tvResults;
+    private ResultLogAdapter resultLog;
     private TextView tvNfcStatus;
     private EditText etWriteData;
     private Button btnWrite;
-    private boolean writeMode = false;
-    private String dataToWrite = "";
+    // 以下三個欄位由 UI 設定、I/O 執行緒讀取
+    private volatile boolean writeMode = false;
+    private volatile String dataToWrite = "";
+    // 下一次靠卡改為 MIFARE Classic 整張卡讀取
+    private volatile boolean dumpMode = false;
+    private volatile boolean soakMode = false;
+    private volatile boolean sweepMode = false;
+    // 批次寫入：載入後維持待命，每次靠卡寫入下一筆預先編碼的內容，直到長按停止或全部寫完
+    private volatile PayloadQueue provisioning;
+    private volatile String provisioningTech = "NDEF";
+    private final ProvisioningStats provisioningStats = new ProvisioningStats();
+    // 寫入改走 DeltaWriter：只寫差異區塊並讀回驗證
+    private volatile boolean verifiedWrite = false;
+    // 錄下每次靠卡的所有指令與回應（.nftr），可在 JVM 內以 ReplayTagEndpoint 重播
+    private volatile boolean recordTrace = false;
     private TextView tvTechList;
     private Spinner spinnerTechType;
-    private String selectedTechType = "NDEF"; // 默認NDEF
+    private volatile String selectedTechType = "NDEF"; // 默認NDEF
 
     // 固定測試用參數
-    private byte serviceCode1 = 0x0B; // Felica 常見可寫入 service code（請依標籤支援調整）
-    private byte blockNumber = 0x00;  // 要寫入的 block 編號
+    // service code 為 16 bits，以 int 保存避免截斷
+    private int serviceCode1 = 0x000B; // Felica 常見可寫入 service code（請依標籤支援調整）
+    private int blockNumber = 0;  // 要寫入的 block 編號
     //private byte[] dataToWriteNfcF = new byte[]{ /* NFC-F data */ };
     //private byte[] dataToWriteNfcV = new byte[]{ /* NFC-B data */ };
-    private byte[] dataToWriteNfcF = new byte[]{
+    // 兩者長度都可為區塊大小的任意倍數，一次以多區塊指令寫入
+    private volatile byte[] dataToWriteNfcF = new byte[]{
+            0x01, 0x02, 0x03, 0x04,
+            0x05, 0x06, 0x07, 0x08,
+            0x09, 0x0A, 0x0B, 0x0C,
+            0x0D, 0x0E, 0x0F, 0x10
+    };
+    private volatile byte[] dataToWriteNfcV = new byte[]{ 0x01, 0x02, 0x03, 0x04 }; // 每個區塊 4 字節
+    private static final byte[] DATA_TO_WRITE_MIFARE = {
             0x01, 0x02, 0x03, 0x04,
             0x05, 0x06, 0x07, 0x08,
             0x09, 0x0A, 0x0B, 0x0C,
             0x0D, 0x0E, 0x0F, 0x10
     };
-    private byte[] dataToWriteNfcV = new byte[]{ 0x01, 0x02, 0x03, 0x04 }; // 每個區塊 4 字節
 
     private static final String TAG = "NFCTest";
+    private static final int RESULT_LOG_CAPACITY = 1024;
+    private static final int NFCV_MIN_BLOCK_SIZE = 4;
+    private static final int FELICA_MAX_SERVICES = 16;
+    private static final int ISO_DEP_TIMEOUT_MS = 1000;
+    private static final int FELICA_MAX_BLOCKS_PER_SERVICE = 64;
+    // MIME / External record 顯示的 payload 位元組數
+    private static final int NDEF_PREVIEW_BYTES = 16;
+
+    // 各階段延遲量測（System.nanoTime）
+    private final LatencyTracer tracer = new LatencyTracer();
+    // 各技術、各指令的逾時依量到的延遲調整，跨靠卡累積；暫時性錯誤重試，標籤遺失後立即中止
+    private final AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(new RetryPolicy());
+    private final RetryStats retryStats = new RetryStats();
+    private long pausedAtNanos;
+    // 所有 NFC I/O 在同一條 I/O 執行緒上依序執行
+    private TagPipeline pipeline;
+    // MIFARE Classic 金鑰字典與各卡各區段的金鑰快取，在 I/O 執行緒載入
+    private volatile KeyResolver keyResolver;
+    private static final String MIFARE_KEYS_FILE = "mifare_keys.txt";
+    private static final String MIFARE_KEY_CACHE_FILE = "mifare_key_cache.txt";
+    private static final String MIFARE_DUMP_DIR = "dumps";
+    // IsoDep 卡片腳本：啟動時在 I/O 執行緒編譯一次，每個腳本配一個重複使用的 ScriptRun
+    private volatile List<ScriptRun> apduScripts;
+    // 量測紀錄庫在 I/O 執行緒開啟；紀錄容器只在 I/O 執行緒（publish 階段）使用
+    private volatile MeasurementStore measurements;
+    private final MeasurementRecord measurement = new MeasurementRecord();
+    private final MeasurementAnalytics analytics = new MeasurementAnalytics();
+    // 最近驗證寫入過的標籤影像，重新編碼同一張卡時省略寫入前的讀取
+    private final ImageCache imageCache = new ImageCache();
+    private static final String APDU_SCRIPTS_FILE = "apdu_scripts.txt";
+    private static final String PROVISION_FILE = "provision.txt";
+    // 連續量測：暖機不列入統計，逐次紀錄另存 CSV
+    private static final int SOAK_ITERATIONS = 200;
+    private static final int SOAK_WARMUP = 10;
+    private static final String BENCH_DIR = "bench";
+    private static final String MEASUREMENT_DIR = "measurements";
+    private static final String TRACE_DIR = "traces";
+    private static final long MEASUREMENT_FLUSH_TIMEOUT_MS = 5000;
+    // NDEF 容量掃描：訊息大小間隔與每點重複次數
+    private static final int SWEEP_MIN_SIZE = 16;
+    private static final int SWEEP_STEP = 64;
+    private static final int SWEEP_REPEATS = 3;
+    private static final byte[] SIM_TAG_UID = {0x04, 0x51, 0x7A, 0x12, 0x34, 0x56, (byte) 0x80};
+    // 前台調度 / Reader Mode 切換，以及兩者的首位元組時間比較
+    private TagDiscovery discovery;
+    private final FirstByteStats firstByteStats = new FirstByteStats();
+    private Switch swReaderMode;
+    private CheckBox cbSkipNdefCheck;
+    private CheckBox cbVerifiedWrite;
+    private CheckBox cbRecordTrace;
+    private EditText etPresenceDelay;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -80,18 +229,30 @@ public class MainActivity extends AppCompatActivity {
         getWindow().setStatusBarColor(Color.GRAY);
 
         // 初始化UI元件
-        tvResults = findViewById(R.id.tvResults);
         tvNfcStatus = findViewById(R.id.tvNfcStatus);
         etWriteData = findViewById(R.id.etWriteData);
         btnWrite = findViewById(R.id.btnWrite);
         tvTechList = findViewById(R.id.tvTechList);
         spinnerTechType = findViewById(R.id.spinnerTechType);
-        tvResults.setMovementMethod(new ScrollingMovementMethod()); // 讓 TextView 可以滾動
+        swReaderMode = findViewById(R.id.swReaderMode);
+        cbSkipNdefCheck = findViewById(R.id.cbSkipNdefCheck);
+        cbVerifiedWrite = findViewById(R.id.cbVerifiedWrite);
+        cbRecordTrace = findViewById(R.id.cbRecordTrace);
+        etPresenceDelay = findViewById(R.id.etPresenceDelay);
+        // 結果紀錄：固定容量環形緩衝區 + RecyclerView，每個 frame 最多更新一次
+        resultLog = new ResultLogAdapter(new ResultRingBuffer(RESULT_LOG_CAPACITY), tracer);
+        resultLog.attach(findViewById(R.id.rvResults));
+        appendResult("等待 NFC 讀取/寫入操作...");
+        pipeline = new TagPipeline(resultLog::append);
+        pipeline.execute(this::loadMifareKeys);
+        pipeline.execute(this::openMeasurementStore);
+        pipeline.execute(this::loadApduScripts);
         spinnerTechType.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
                 String[] techTypes = getResources().getStringArray(R.array.nfc_tech_types);
                 selectedTechType = techTypes[position];
+                applyReaderModeConfig();
             }
 
             @Override
@@ -122,6 +283,22 @@ public class MainActivity extends AppCompatActivity {
                 this, 0,
                 new Intent(this, getClass()).addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP),
                 PendingIntent.FLAG_MUTABLE);
+        discovery = new TagDiscovery(this, nfcAdapter, pendingIntent, tracer.getClock(),
+                (readerTag, discoveredAt) -> startSession(readerTag, tracer.newSession(discoveredAt), DiscoveryMode.READER_MODE));
+        applyReaderModeConfig();
+        swReaderMode.setOnCheckedChangeListener((button, checked) -> {
+            discovery.setMode(checked ? DiscoveryMode.READER_MODE : DiscoveryMode.FOREGROUND_DISPATCH);
+            applyReaderModeConfig();
+            appendResult("偵測方式: " + discovery.getMode().label()
+                    + (checked ? " (" + discovery.getConfig().describe() + ")" : ""));
+        });
+        cbSkipNdefCheck.setOnCheckedChangeListener((button, checked) -> applyReaderModeConfig());
+        cbVerifiedWrite.setOnCheckedChangeListener((button, checked) -> verifiedWrite = checked);
+        cbRecordTrace.setOnCheckedChangeListener((button, checked) -> recordTrace = checked);
+        etPresenceDelay.setOnEditorActionListener((view, actionId, event) -> {
+            applyReaderModeConfig();
+            return false;
+        });
 
         // 寫入按鈕點擊事件
         btnWrite.setOnClickListener(v -> {
@@ -130,21 +307,121 @@ public class MainActivity extends AppCompatActivity {
                 Toast.makeText(MainActivity.this, "請輸入要寫入的數據", Toast.LENGTH_SHORT).show();
                 return;
             }
+            if (!parseHexWriteData()) {
+                return;
+            }
             writeMode = true;
             tvNfcStatus.setText("NFC狀態: 準備寫入數據，請靠近NFC標籤");
             Toast.makeText(MainActivity.this, "重新靠卡以寫入數據", Toast.LENGTH_SHORT).show();
 
         });
+
+        // 批次寫入：載入 provision.txt 並預先編碼，之後每次靠卡自動寫入下一筆；長按停止並顯示統計
+        Button btnProvision = findViewById(R.id.btnProvision);
+        btnProvision.setOnClickListener(v -> {
+            final String tech = selectedTechType;
+            pipeline.execute(() -> loadProvisioning(tech));
+        });
+        btnProvision.setOnLongClickListener(v -> {
+            provisioning = null;
+            tvNfcStatus.setText("NFC狀態: 批次寫入已停止");
+            appendResult(provisioningStats.summary());
+            return true;
+        });
+
+        // MIFARE Classic 整張卡讀取，結果另存 .mfd
+        Button btnMifareDump = findViewById(R.id.btnMifareDump);
+        btnMifareDump.setOnClickListener(v -> {
+            dumpMode = true;
+            tvNfcStatus.setText("NFC狀態: 準備完整讀取 MIFARE Classic，請靠近標籤");
+        });
+
+        // 連續量測：下一次靠卡時持卡重複執行；先按寫入再按此鍵則量測寫入。長按改用模擬標籤量測整條管線
+        Button btnSoak = findViewById(R.id.btnSoak);
+        btnSoak.setOnClickListener(v -> {
+            soakMode = true;
+            tvNfcStatus.setText("NFC狀態: 準備連續量測 " + soakConfig().describe() + "，請將標籤放好不要移動");
+        });
+        btnSoak.setOnLongClickListener(v -> {
+            soakSimulated();
+            return true;
+        });
+
+        // NDEF 容量掃描：下一次靠卡時以各種 record 由小到大寫入並讀回，結束後還原原本內容
+        Button btnNdefSweep = findViewById(R.id.btnNdefSweep);
+        btnNdefSweep.setOnClickListener(v -> {
+            sweepMode = true;
+            tvNfcStatus.setText("NFC狀態: 準備 NDEF 容量掃描，請將標籤放好不要移動");
+        });
+
+        // 延遲統計：點擊顯示各階段 p50/p95/p99，長按清除
+        Button btnLatencyStats = findViewById(R.id.btnLatencyStats);
+        btnLatencyStats.setOnClickListener(v -> appendResult(tracer.summary() + firstByteStats.summary()
+                + (keyResolver == null ? "" : keyResolver.summary())
+                + adaptiveTimeouts.summary() + retryStats.summary()
+                + analytics.summary(Dimension.TAG_MODEL, new MeasurementQuery())));
+        btnLatencyStats.setOnLongClickListener(v -> {
+            tracer.reset();
+            firstByteStats.reset();
+            adaptiveTimeouts.reset();
+            retryStats.reset();
+            pipeline.getProfiles().clear(); // 卡片探測快取一併清除，下次靠卡重新探測
+            if (keyResolver != null) {
+                keyResolver.resetCounters();
+            }
+            Toast.makeText(MainActivity.this, "已清除延遲統計與卡片快取", Toast.LENGTH_SHORT).show();
+            return true;
+        });
+
+        // 量測紀錄：點擊匯出 CSV，長按匯出 JSON
+        Button btnMeasurements = findViewById(R.id.btnMeasurements);
+        btnMeasurements.setOnClickListener(v -> exportMeasurements(false));
+        btnMeasurements.setOnLongClickListener(v -> {
+            exportMeasurements(true);
+            return true;
+        });
+    }
+
+    // FeliCa / NFC-V 寫入的資料以十六進位輸入，長度需為區塊大小的倍數，可一次寫入多個區塊
+    private boolean parseHexWriteData() {
+        if ("NFC-F (FeliCa)".equals(selectedTechType)) {
+            byte[] data = parseBlockData(FeliCaClient.BLOCK_SIZE);
+            if (data != null) {
+                dataToWriteNfcF = data;
+            }
+            return data != null;
+        } else if ("NFC-V".equals(selectedTechType)) {
+            // 實際區塊大小在靠卡後由 Get System Info 確認
+            byte[] data = parseBlockData(NFCV_MIN_BLOCK_SIZE);
+            if (data != null) {
+                dataToWriteNfcV = data;
+            }
+            return data != null;
+        }
+        return true;
+    }
+
+    private byte[] parseBlockData(int blockSize) {
+        try {
+            int length = HexCodec.parsedLength(dataToWrite);
+            if (length == 0 || length % blockSize != 0) {
+                Toast.makeText(this, "需要 " + blockSize + " bytes 倍數的十六進位資料，目前為 " + length + " bytes",
+                        Toast.LENGTH_SHORT).show();
+                return null;
+            }
+            return HexCodec.parse(dataToWrite);
+        } catch (HexFormatException e) {
+            Toast.makeText(this, "十六進位格式錯誤: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return null;
+        }
     }
 
     @Override
     protected void onResume() {
         super.onResume();
         if (nfcAdapter != null && nfcAdapter.isEnabled()) {
-            // 啟用前台調度以處理NFC標籤
-            IntentFilter tagDetected = new IntentFilter(NfcAdapter.ACTION_TAG_DISCOVERED);
-            IntentFilter[] filters = new IntentFilter[]{tagDetected};
-            nfcAdapter.enableForegroundDispatch(this, pendingIntent, filters, null);
+            // 依目前選擇啟用前台調度或 Reader Mode
+            discovery.enable();
             tvNfcStatus.setText("NFC狀態: 已就緒，請靠近NFC標籤");
         }
     }
@@ -152,9 +429,18 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onPause() {
         super.onPause();
-        if (nfcAdapter != null) {
-            nfcAdapter.disableForegroundDispatch(this);
+        if (discovery != null) {
+            discovery.disable();
         }
+        pipeline.execute(this::saveMifareKeys);
+        pausedAtNanos = tracer.now();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        pipeline.execute(this::closeMeasurementStore);
+        pipeline.close();
     }
 
     @Override
@@ -162,22 +448,139 @@ public class MainActivity extends AppCompatActivity {
         super.onNewIntent(intent);
         Tag tag = intent.getParcelableExtra(NfcAdapter.EXTRA_TAG);
         if (tag != null) {
-            detectTagTechnologies(tag);  // 新增：檢測所有支援的技術
-            if (writeMode) {
-                // 寫入模式
-                writeTag(tag);
-            } else {
-                // 讀取模式
-                readTag(tag);
-                long startTime = System.currentTimeMillis();
-                readMifareClassicBlock(tag, 0, 1, System.currentTimeMillis()); // 假設要讀取 區段 0 中的第 1 區塊（也就是 Block 01）
+            // 整個流程共用同一個起點；foreground dispatch 會先 onPause 再 onNewIntent，兩者間隔即 Intent 傳遞時間
+            SessionTrace trace = tracer.newSession();
+            if (pausedAtNanos != 0) {
+                trace.add(Phase.INTENT_DELIVERY, pausedAtNanos, trace.getStartNanos() - pausedAtNanos);
+                pausedAtNanos = 0;
+            }
+            startSession(tag, trace, DiscoveryMode.FOREGROUND_DISPATCH);
+        }
+    }
 
+    // Reader Mode 參數：依選擇的技術只輪詢需要的 RF 技術
+    private void applyReaderModeConfig() {
+        if (discovery == null) {
+            return;
+        }
+        ReaderModeConfig config = new ReaderModeConfig()
+                .setSkipNdefCheck(cbSkipNdefCheck.isChecked());
+        switch (selectedTechType) {
+            case "NFC-A (MIFARE)":
+                config.poll(TagTech.NFC_A);
+                break;
+            case "NFC-B":
+                config.poll(TagTech.NFC_B);
+                break;
+            case "NFC-F (FeliCa)":
+                config.poll(TagTech.NFC_F);
+                break;
+            case "NFC-V":
+                config.poll(TagTech.NFC_V);
+                break;
+            default:
+                config.pollAll();
+        }
+        String delay = etPresenceDelay.getText().toString().trim();
+        if (!delay.isEmpty()) {
+            try {
+                config.setPresenceCheckDelay(Integer.parseInt(delay));
+            } catch (NumberFormatException e) {
+                Toast.makeText(this, "presence 檢查間隔需為整數 ms", Toast.LENGTH_SHORT).show();
             }
         }
+        discovery.setConfig(config);
+    }
+
+    // 兩種偵測方式共用的入口；可能在 UI 執行緒（onNewIntent）或 binder 執行緒（Reader Mode）呼叫
+    private void startSession(Tag tag, SessionTrace trace, DiscoveryMode mode) {
+        // 錄製層放在最內層，記下的耗時不含階段追蹤本身的開銷；階段追蹤在最外層，耗時包含重試
+        final RecordingTagEndpoint recorder = recordTrace
+                ? new RecordingTagEndpoint(new AndroidTagEndpoint(tag), tracer.getClock()) : null;
+        final ResilientTagEndpoint resilient = new ResilientTagEndpoint(
+                recorder != null ? recorder : new AndroidTagEndpoint(tag), adaptiveTimeouts, retryStats, tracer.getClock());
+        TagEndpoint endpoint = new TracingTagEndpoint(resilient, trace);
+        final boolean write = writeMode;
+        final boolean dumpAll = dumpMode;
+        final boolean soak = soakMode;
+        final boolean sweep = sweepMode;
+        // 批次寫入維持待命，不像單次寫入只針對下一次靠卡
+        final PayloadQueue provision = dumpAll || soak || sweep ? null : provisioning;
+        writeMode = false; // 寫入只針對下一次靠卡
+        dumpMode = false;
+        soakMode = false;
+        sweepMode = false;
+        // 交給 I/O 執行緒，UI 執行緒不等待 transceive；新標籤會取消尚未完成的前一次工作
+        pipeline.submit(endpoint, trace, new TagJob() {
+            private MifareDump dump;
+            private SoakResult soakResult;
+            private SweepResult sweepResult;
+            private int provisionedBytes;
+
+            @Override
+            protected void detect(SessionContext session) {
+                long detectStart = trace.start();
+                detectTagTechnologies(endpoint);  // 新增：檢測所有支援的技術
+                trace.end(Phase.TECH_DETECT, detectStart);
+            }
+
+            @Override
+            protected void exchange(SessionContext session) throws IOException {
+                TagSession tags = session.tags();
+                if (soak) {
+                    soakResult = runSoak(session, write);
+                } else if (sweep) {
+                    sweepResult = runNdefSweep(session);
+                } else if (provision != null) {
+                    provisionedBytes = provisionTag(tags, trace, provision);
+                } else if (write) {
+                    // 寫入模式
+                    writeTag(tags, trace);
+                } else if (dumpAll) {
+                    dump = dumpMifareClassic(tags);
+                } else {
+                    // 讀取模式；同一條連線沿用到 MIFARE 讀取，已知不是 MIFARE 的卡直接略過
+                    readTag(session, resilient);
+                    session.checkCancelled();
+                    if (!tags.isKnown() || tags.shouldTry(TagTech.MIFARE_CLASSIC)) {
+                        readMifareClassicBlock(tags, 0, 1, trace); // 假設要讀取 區段 0 中的第 1 區塊（也就是 Block 01）
+                    }
+                }
+            }
+
+            @Override
+            protected void decode(SessionContext session) {
+                if (dump != null) {
+                    publishMifareDump(dump);
+                }
+                if (soakResult != null) {
+                    publishSoak(soakResult);
+                }
+                if (sweepResult != null) {
+                    publishSweep(sweepResult);
+                }
+            }
+
+            @Override
+            protected void publish(SessionContext session) {
+                long total = trace.finish();
+                MeasurementOp op = soak ? MeasurementOp.SOAK : sweep ? MeasurementOp.SWEEP
+                        : provision != null ? MeasurementOp.PROVISION
+                        : write ? MeasurementOp.WRITE : dumpAll ? MeasurementOp.MIFARE_DUMP : MeasurementOp.READ;
+                recordMeasurement(session, op, total,
+                        soakResult == null ? provisionedBytes : (int) soakResult.getTotalBytes());
+                long firstByte = firstByteStats.record(mode, trace);
+                session.publish("階段耗時: " + trace.breakdown()
+                        + (firstByte < 0 ? "" : "\n首位元組時間 (" + mode.label() + "): " + formatNanos(firstByte)));
+                if (recorder != null) {
+                    saveTagTrace(recorder.getTrace());
+                }
+            }
+        });
     }
 
     // 新增方法：檢測標籤支援的所有技術
-    private void detectTagTechnologies(Tag tag) {
+    private void detectTagTechnologies(TagEndpoint tag) {
         StringBuilder techs = new StringBuilder("支援的技術:\n");
         String[] techList = tag.getTechList();
 
@@ -185,32 +588,47 @@ public class MainActivity extends AppCompatActivity {
             techs.append("- ").append(tech.substring(tech.lastIndexOf('.') + 1)).append("\n");
         }
 
-        tvTechList.setText(techs.toString());
+        String text = techs.toString();
+        runOnUiThread(() -> tvTechList.setText(text));
     }
 
-    private void readTag(Tag tag) {
-        long startTime = System.currentTimeMillis();
+    private void readTag(SessionContext session, ResilientTagEndpoint resilient) throws TagLostException {
+        TagSession tags = session.tags();
+        SessionTrace trace = session.trace();
 
         // 顯示標籤基本信息
-        appendResult("檢測到標籤\nUID: " + bytesToHex(tag.getId()));
+        appendResult("檢測到標籤\nUID: " + HexCodec.toDisplayHex(tags.getId())
+                + (tags.isKnown() ? "\n已知卡片，只讀取: " + tags.getKnownProfile().describeUseful() : ""));
 
-        // 嘗試用多種技術讀取
+        // 嘗試用多種技術讀取；tech list 已解析成 bitmask，已知的卡只讀上次有結果的技術
         try {
-            if (Arrays.asList(tag.getTechList()).contains(Ndef.class.getName())) {
-                readNdefTag(tag, startTime);
+            if (tags.shouldTry(TagTech.NDEF)) {
+                readNdefTag(tags, trace);
             }
-            if (Arrays.asList(tag.getTechList()).contains(NfcA.class.getName())) {
-                readNfcATag(tag, startTime);
+            // 各技術自行處理錯誤；標籤已移開就不再嘗試剩下的技術
+            session.checkCancelled();
+            resilient.checkPresent();
+            if (tags.has(TagTech.NFC_A) && tags.shouldTry(TagTech.NFC_A, TagTech.ISO_DEP)) {
+                readNfcATag(tags, trace);
             }
-            if (Arrays.asList(tag.getTechList()).contains(NfcB.class.getName())) {
-                readNfcBTag(tag, startTime);
+            session.checkCancelled();
+            resilient.checkPresent();
+            if (tags.shouldTry(TagTech.NFC_B)) {
+                readNfcBTag(tags, trace);
             }
-            if (Arrays.asList(tag.getTechList()).contains(NfcF.class.getName())) {
-                readNfcFTag(tag, startTime);
+            session.checkCancelled();
+            resilient.checkPresent();
+            if (tags.has(TagTech.NFC_F) && tags.shouldTry(TagTech.NFC_F, TagTech.ISO_DEP)) {
+                readNfcFTag(tags, trace);
             }
-            if (Arrays.asList(tag.getTechList()).contains(NfcV.class.getName())) {
-                readNfcVTag(tag, startTime);
+            session.checkCancelled();
+            resilient.checkPresent();
+            if (tags.shouldTry(TagTech.NFC_V)) {
+                readNfcVTag(tags, trace);
             }
+            resilient.checkPresent();
+        } catch (CancellationException | TagLostException e) {
+            throw e;
         } catch (Exception e) {
             appendResult("讀取過程中發生錯誤: " + e.getMessage());
             Log.w(TAG,"讀取過程中發生錯誤: ");
@@ -218,111 +636,127 @@ public class MainActivity extends AppCompatActivity {
     }
 
 
-    // 在背景執行緒中執行讀取任務，並自動捕獲異常、更新 UI，如果發生錯誤，要顯示的錯誤訊息前綴
-    private void startReadThread(Runnable task, String errorMessage) {
-        new Thread(() -> {
-            try {
-                task.run(); // 執行讀取任務（例如 readNfcATag）
-            } catch (Exception e) {
-                // 捕獲異常，並在主線程更新 UI 顯示錯誤訊息
-                runOnUiThread(() -> appendResult(errorMessage + ": " + e.getMessage()));
-            }
-        }).start();
-    }
-
     // NDEF 標籤讀取 (原有方法改進)
-    private void readNdefTag(Tag tag, long startTime) {
-        Ndef ndef = Ndef.get(tag);
+    private void readNdefTag(TagSession tags, SessionTrace trace) {
         try {
-            ndef.connect();
-            NdefMessage ndefMessage = ndef.getNdefMessage();
-            long duration = System.currentTimeMillis() - startTime;
-
-            if (ndefMessage != null) {
-                NdefRecord[] records = ndefMessage.getRecords();
-                for (NdefRecord record : records) {
-                    if (record.getTnf() == NdefRecord.TNF_WELL_KNOWN &&
-                            Arrays.equals(record.getType(), NdefRecord.RTD_TEXT)) {
-
-                        try {
-                            byte[] payload = record.getPayload();
-
-                            // 解析文字資料
-                            String textEncoding = ((payload[0] & 0x80) == 0) ? "UTF-8" : "UTF-16";
-                            int langCodeLen = payload[0] & 0x3F;
-                            String text = new String(payload, 1 + langCodeLen, payload.length - 1 - langCodeLen, textEncoding);
-
-                            appendResult("NDEF 讀取成功 - 耗時: " + duration + "ms\n內容: " + text);
-
-                        } catch (Exception e) {
-                            appendResult("NDEF 資料解析錯誤: " + e.getMessage());
-                            Log.w(TAG,"NDEF 資料解析錯誤: ");
-                        }
-                    } else {
-                        appendResult("NDEF 記錄不是文字格式");
-                        Log.w(TAG,"NDEF 記錄不是文字格式");
-                    }
+            NdefTransport ndef = tags.ndef();
+            byte[] rawMessage = ndef.readNdefMessage();
+            if (rawMessage == null) {
+                return;
+            }
+            tags.markUseful(TagTech.NDEF);
+            // 直接在原始位元組上走訪 record，只解碼要顯示的欄位
+            long parseStart = trace.start();
+            StringBuilder sb = new StringBuilder(128 + rawMessage.length);
+            try {
+                NdefRecordView record = NdefMessageView.wrap(rawMessage).records();
+                while (record.next()) {
+                    sb.append("\n記錄 ").append(record.index() + 1).append(": ");
+                    appendNdefRecord(sb, record);
                 }
+            } catch (NdefFormatException e) {
+                sb.append("\nNDEF 資料解析錯誤: ").append(e.getMessage());
             }
+            trace.end(Phase.PARSE, parseStart);
+            appendResult("NDEF 讀取成功 - 耗時: " + trace.formatElapsed() + "，" + rawMessage.length + " bytes" + sb);
         } catch (Exception e) {
             appendResult("NDEF讀取錯誤: " + e.getMessage());
-        } finally {
-            try { ndef.close(); } catch (IOException e) { e.printStackTrace(); }
+        }
+    }
+
+    private static void appendNdefRecord(StringBuilder sb, NdefRecordView record) {
+        if (record.isText()) {
+            sb.append("文字 (").append(record.textLanguage()).append("): ").append(record.text());
+        } else if (record.isUri()) {
+            sb.append("URI: ").append(record.uri());
+        } else if (record.isSmartPoster()) {
+            sb.append("Smart Poster");
+            NdefRecordView inner = record.smartPoster().records();
+            while (inner.next()) {
+                if (inner.isUri()) {
+                    sb.append("\n  URI: ").append(inner.uri());
+                } else if (inner.isText()) {
+                    sb.append("\n  標題 (").append(inner.textLanguage()).append("): ").append(inner.text());
+                } else {
+                    sb.append("\n  ").append(inner.type()).append(", ").append(inner.payloadLength()).append(" bytes");
+                }
+            }
+        } else {
+            if (record.isMime()) {
+                sb.append("MIME ").append(record.mimeType());
+            } else if (record.isExternal()) {
+                sb.append("External ").append(record.externalType());
+            } else {
+                sb.append("TNF ").append(record.tnf()).append(' ').append(record.type());
+            }
+            sb.append(", ").append(record.payloadLength()).append(" bytes");
+            ByteBuffer payload = record.payload();
+            byte[] head = new byte[Math.min(NDEF_PREVIEW_BYTES, payload.remaining())];
+            payload.get(head);
+            if (head.length > 0) {
+                HexCodec.encode(head, 0, head.length, sb.append(": "), ' ');
+                if (record.payloadLength() > head.length) {
+                    sb.append(" …");
+                }
+            }
+        }
+        if (record.idLength() > 0) {
+            sb.append(" [ID ").append(record.id()).append(']');
+        }
+        if (record.isChunked()) {
+            sb.append(" [分 ").append(record.chunkCount()).append(" 段]");
         }
     }
 
     // 新增：NFC-A (ISO 14443-3A) 標籤讀取
-    private void readNfcATag(Tag tag, long startTime) {
+    private void readNfcATag(TagSession tags, SessionTrace trace) {
         // 先判斷是否支援 IsoDep
-        if (Arrays.asList(tag.getTechList()).contains(IsoDep.class.getName())) {
-            readEasyCardWithIsoDep(tag, startTime);
+        if (tags.has(TagTech.ISO_DEP)) {
+            readIsoDepCard(tags, trace);
             return;
         }
 
         // 不支援 IsoDep 才使用 NfcA
-        NfcA nfca = NfcA.get(tag);
         try {
-            nfca.connect();
+            NfcATransport nfca = tags.nfcA();
             byte[] atqa = nfca.getAtqa();
             byte[] sak = new byte[]{(byte)nfca.getSak()};
-            byte[] uid = tag.getId();
-            long duration = System.currentTimeMillis() - startTime;
+            byte[] uid = tags.getId();
+            tags.markUseful(TagTech.NFC_A);
 
-            appendResult("NFC-A 讀取成功 - 耗時: " + duration + "ms\n" +
-                    "UID: " + bytesToHex(uid) + "\n" +
-                    "ATQA: " + bytesToHex(atqa) + "\n" +
-                    "SAK: " + bytesToHex(sak) + "\n");
+            String type2 = tags.has(TagTech.MIFARE_ULTRALIGHT) ? readType2Memory(tags, nfca) : "";
 
-            // 檢查是否支援 IsoDep（如悠遊卡等金融票證）
-            String[] techList = tag.getTechList();
-            for (String tech : techList) {
-                Log.d("NFC_TAG", "支援技術: " + tech);
-            }
+            appendResult("NFC-A 讀取成功 - 耗時: " + trace.formatElapsed() + "\n" +
+                    "UID: " + HexCodec.toDisplayHex(uid) + "\n" +
+                    "ATQA: " + HexCodec.toDisplayHex(atqa) + "\n" +
+                    "SAK: " + HexCodec.toDisplayHex(sak) + "\n" + type2);
 
         } catch (IOException e) {
             appendResult("NFC-A 讀取錯誤: " + e.getMessage());
-        } finally {
-            try { nfca.close(); } catch (IOException e) { e.printStackTrace(); }
         }
     }
 
-    // 多組金鑰輪試
-    private static final byte[][] COMMON_KEYS = {
-            MifareClassic.KEY_DEFAULT, // FF FF FF FF FF FF
-            {(byte) 0xA0, (byte) 0xA1, (byte) 0xA2, (byte) 0xA3, (byte) 0xA4, (byte) 0xA5},
-            {(byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00},
-            {(byte) 0xD3, (byte) 0xF7, (byte) 0xD3, (byte) 0xF7, (byte) 0xD3, (byte) 0xF7} // 一些悠遊卡/一卡通可能用這組
-    };
-    private boolean authenticateWithKnownKeys(MifareClassic mifare, int sectorIndex) throws IOException {
-        for (byte[] key : COMMON_KEYS) {
-            if (mifare.authenticateSectorWithKeyA(sectorIndex, key)) {
-                return true;
-            }
-            if (mifare.authenticateSectorWithKeyB(sectorIndex, key)) {
-                return true;
+    // Type 2 (NTAG / Ultralight)：辨識晶片並自行解析 CC/TLV 讀 NDEF，可和上面 Ndef 讀取的耗時直接比較
+    private String readType2Memory(TagSession tags, NfcATransport nfca) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        Type2Memory memory = new Type2Memory(nfca, tracer.getClock());
+        try {
+            Type2Version version = memory.getVersion();
+            if (version != null) {
+                tags.setModel(version.getModel());
             }
+            sb.append("晶片: ").append(version != null ? version.getModel() : "不支援 GET_VERSION").append('\n');
+            long start = tracer.getClock().nanoTime();
+            byte[] message = memory.readNdefMessage();
+            long elapsed = tracer.getClock().nanoTime() - start;
+            sb.append(String.format("Type 2 直接讀取 NDEF: %d bytes，%.2f ms\n",
+                    message == null ? 0 : message.length, elapsed / 1_000_000.0));
+        } catch (TagLostException e) {
+            throw e;
+        } catch (IOException e) {
+            sb.append("Type 2 讀取錯誤: ").append(e.getMessage()).append('\n');
         }
-        return false;
+        return sb.append(memory.summary()).toString();
     }
 
     // 讀取特定區塊區段 呼叫方式:
@@ -332,41 +766,30 @@ public class MainActivity extends AppCompatActivity {
     super.onNewIntent(intent);
     Tag tag = intent.getParcelableExtra(NfcAdapter.EXTRA_TAG);
     if (tag != null) {
-        long startTime = System.currentTimeMillis();
-        readMifareClassicBlock(tag, 0, 1, System.currentTimeMillis()); // 假設要讀取 區段 0 中的第 1 區塊（也就是 Block 01）
+        SessionTrace trace = tracer.newSession();
+        readMifareClassicBlock(tag, 0, 1, trace); // 假設要讀取 區段 0 中的第 1 區塊（也就是 Block 01）
         }
     }
      */
-    private void readMifareClassicBlock(Tag tag, int sectorIndex, int blockInSector, long startTime) {
-        MifareClassic mifare = MifareClassic.get(tag);
-        if (mifare == null) {
+    private void readMifareClassicBlock(TagSession tags, int sectorIndex, int blockInSector, SessionTrace trace) {
+        if (!tags.has(TagTech.MIFARE_CLASSIC)) {
             //appendResult("此標籤不支援 MIFARE Classic");
-            runOnUiThread(() -> appendResult("此標籤不支援 MIFARE Classic"));
+            appendResult("此標籤不支援 MIFARE Classic");
+            return;
+        }
+        KeyResolver resolver = keyResolver;
+        if (resolver == null) {
+            appendResult("MIFARE 金鑰字典尚未載入");
             return;
         }
 
         try {
-            mifare.connect();
-
-            // 嘗試多組 Key A / Key B 認證
-            boolean auth = false;
-            byte[] usedKey = null;
-            String usedKeyType = "";
-            for (byte[] key : COMMON_KEYS) {
-                if (mifare.authenticateSectorWithKeyA(sectorIndex, key)) {
-                    auth = true;
-                    usedKey = key;
-                    usedKeyType = "Key A";
-                    break;
-                } else if (mifare.authenticateSectorWithKeyB(sectorIndex, key)) {
-                    auth = true;
-                    usedKey = key;
-                    usedKeyType = "Key B";
-                    break;
-                }
-            }
+            MifareClassicTransport mifare = tags.mifareClassic();
 
-            if (!auth) {
+            // 先用此卡此區段快取的金鑰，再依命中次數排序的字典嘗試 Key A / Key B
+            SectorKey sectorKey = resolver.authenticate(mifare, tags.getId(), sectorIndex);
+
+            if (sectorKey == null) {
                 appendResult("區段 " + sectorIndex + " 認證失敗（未匹配任何金鑰）");
                 return;
             }
@@ -376,498 +799,844 @@ public class MainActivity extends AppCompatActivity {
 
             // 讀取區塊資料
             byte[] data = mifare.readBlock(blockIndex);
-            long duration = System.currentTimeMillis() - startTime;
+            tags.markUseful(TagTech.MIFARE_CLASSIC);
+            tags.setModel(mifareModel(mifare));
 
             /*appendResult(String.format(
-                    "MIFARE Classic 區塊讀取成功\n耗時: %dms\n區段: %02d 區塊: %02d (全域 %02d)\n" +
+                    "MIFARE Classic 區塊讀取成功\n耗時: %s\n區段: %02d 區塊: %02d (全域 %02d)\n" +
                             "使用金鑰: %s (%s)\n資料: %s",
-                    duration, sectorIndex, blockInSector, blockIndex,
-                    bytesToHex(usedKey), usedKeyType, bytesToHex(data)
+                    trace.formatElapsed(), sectorIndex, blockInSector, blockIndex,
+                    HexCodec.toDisplayHex(sectorKey.getKey()), "Key " + sectorKey.getType(), HexCodec.toDisplayHex(data)
             ));*/
 
             // 改為不顯示金鑰
             appendResult(String.format(
-                    "MIFARE Classic 區塊讀取成功\n耗時: %dms\n區段: %02d 區塊: %02d (全域 %02d)\n" +
+                    "MIFARE Classic 區塊讀取成功\n耗時: %s\n區段: %02d 區塊: %02d (全域 %02d)\n" +
                             "資料: %s",
-                    duration, sectorIndex, blockInSector, blockIndex,
-                    bytesToHex(data)
+                    trace.formatElapsed(), sectorIndex, blockInSector, blockIndex,
+                    HexCodec.toDisplayHex(data)
             ));
 
         } catch (IOException e) {
             //appendResult("讀取錯誤: " + e.getMessage());
-            runOnUiThread(() -> appendResult("讀取錯誤: " + e.getMessage()));
-        } finally {
-            try {
-                mifare.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            appendResult("讀取錯誤: " + e.getMessage());
         }
     }
 
-    // 讀取全部區塊區段 呼叫方式:
-    /*
-    @Override
-    protected void onNewIntent(Intent intent) {
-    super.onNewIntent(intent);
-    Tag tag = intent.getParcelableExtra(NfcAdapter.EXTRA_TAG);
-    if (tag != null) {
-        long startTime = System.currentTimeMillis();
-        allReadMifareClassicBlock(tag, startTime);
+    // MIFARE Classic 整張卡讀取：只把資料讀進映像，文字與 .mfd 在連線關閉後的解碼階段產生
+    private MifareDump dumpMifareClassic(TagSession tags) throws IOException {
+        if (!tags.has(TagTech.MIFARE_CLASSIC)) {
+            appendResult("此標籤不支援 MIFARE Classic");
+            return null;
+        }
+        KeyResolver resolver = keyResolver;
+        if (resolver == null) {
+            appendResult("MIFARE 金鑰字典尚未載入");
+            return null;
         }
+        MifareDump dump = new MifareDumpEngine(resolver, tracer.getClock())
+                .dump(tags.mifareClassic(), tags.getId());
+        tags.markUseful(TagTech.MIFARE_CLASSIC);
+        tags.setModel(mifareModel(tags.mifareClassic()));
+        return dump;
     }
-     */
-    private void allReadMifareClassicBlock(Tag tag, long startTime) {
-        MifareClassic mifare = MifareClassic.get(tag);
-        if (mifare == null) {
-            appendResult("此標籤不支援 MIFARE Classic");
-            return;
+
+    // 例如 "MIFARE Classic 1K"；Mini 為 320 bytes
+    private static String mifareModel(MifareClassicTransport mifare) {
+        int size = mifare.getSize();
+        return size < 1024 ? "MIFARE Classic Mini" : "MIFARE Classic " + size / 1024 + "K";
+    }
+
+    private static SoakConfig soakConfig() {
+        return new SoakConfig().setIterations(SOAK_ITERATIONS).setWarmup(SOAK_WARMUP);
+    }
+
+    // 依選擇的技術與標籤實際支援的技術挑選量測操作；寫入只支援 NDEF 與 NFC-V
+    private BenchOperation chooseSoakOperation(TagSession tags, boolean write) {
+        String type = selectedTechType;
+        boolean auto = !"NDEF".equals(type) && !"NFC-A (MIFARE)".equals(type)
+                && !"NFC-F (FeliCa)".equals(type) && !"NFC-V".equals(type);
+        if (write) {
+            if ((auto || "NDEF".equals(type)) && tags.has(TagTech.NDEF)) {
+                NdefRecord record = NdefRecord.createTextRecord("en", dataToWrite);
+                return BenchOperations.ndefWrite(new NdefMessage(new NdefRecord[]{record}).toByteArray());
+            }
+            if ((auto || "NFC-V".equals(type)) && tags.has(TagTech.NFC_V)) {
+                return BenchOperations.nfcVWriteBlocks(blockNumber, dataToWriteNfcV, tracer.getClock());
+            }
+            return null;
+        }
+        if ((auto || "NDEF".equals(type)) && tags.has(TagTech.NDEF)) {
+            return BenchOperations.ndefRead();
+        }
+        List<ScriptRun> runs = apduScripts;
+        if (!"NDEF".equals(type) && !"NFC-V".equals(type) && tags.has(TagTech.ISO_DEP) && runs != null) {
+            return BenchOperations.isoDepScript(runs, tracer.getClock());
         }
+        if ((auto || "NFC-A (MIFARE)".equals(type)) && tags.has(TagTech.MIFARE_CLASSIC) && keyResolver != null) {
+            return BenchOperations.mifareReadBlock(keyResolver, 1);
+        }
+        if ("NFC-A (MIFARE)".equals(type) && tags.has(TagTech.MIFARE_ULTRALIGHT)) {
+            // 和選 NDEF 時的 Ndef 讀取比較：同一張標籤、同樣的訊息，只差在讀取路徑
+            return BenchOperations.type2NdefRead(tracer.getClock());
+        }
+        if ((auto || "NFC-V".equals(type)) && tags.has(TagTech.NFC_V)) {
+            return BenchOperations.nfcVReadBlocks(blockNumber, 1, tracer.getClock());
+        }
+        return null;
+    }
 
-        try {
-            mifare.connect();
-            int sectorCount = mifare.getSectorCount();
-            long duration = System.currentTimeMillis() - startTime;
+    private SoakResult runSoak(SessionContext session, boolean write) {
+        BenchOperation operation = chooseSoakOperation(session.tags(), write);
+        if (operation == null) {
+            appendResult("此標籤沒有可連續量測的操作（" + selectedTechType + (write ? " 寫入" : " 讀取") + "）");
+            return null;
+        }
+        appendResult("連續量測開始: " + operation.label() + "，" + soakConfig().describe());
+        return new SoakBenchmark(tracer.getClock())
+                .run(session.tags(), operation, soakConfig(), session::isCancelled);
+    }
 
-            StringBuilder result = new StringBuilder();
-            result.append("MIFARE Classic 讀取成功 - 耗時: ").append(duration).append("ms\n");
-            result.append("共有 ").append(sectorCount).append(" 個區段\n");
+    // 模擬 NTAG215（即時延遲模型），不需要實體標籤即可量測 I/O 執行緒、追蹤與結果輸出的額外負擔
+    private void soakSimulated() {
+        SimType2Tag sim = new SimType2Tag(SimType2Tag.Model.NTAG215, SIM_TAG_UID,
+                SimulatedLink.realTime(LatencyModel.linear(500_000, 75_000)));
+        SessionTrace trace = tracer.newSession();
+        TagEndpoint endpoint = new TracingTagEndpoint(sim, trace);
+        String text = etWriteData.getText().toString();
+        byte[] message = new NdefMessage(new NdefRecord[]{NdefRecord.createTextRecord("en", text)}).toByteArray();
+        appendResult("模擬標籤連續量測: NTAG215, " + soakConfig().describe());
+        pipeline.submit(endpoint, trace, new TagJob() {
+            private SoakResult result;
 
-            for (int sector = 0; sector < sectorCount; sector++) {
-                boolean auth = mifare.authenticateSectorWithKeyA(sector, MifareClassic.KEY_DEFAULT);
-                if (!auth) {
-                    result.append("區段 ").append(sector).append(": 驗證失敗\n");
-                    continue;
+            @Override
+            protected void exchange(SessionContext session) throws IOException {
+                session.tags().ndef().writeNdefMessage(message);
+                result = new SoakBenchmark(tracer.getClock())
+                        .run(session.tags(), BenchOperations.ndefRead(), soakConfig(), session::isCancelled);
+            }
+
+            @Override
+            protected void decode(SessionContext session) {
+                if (result != null) {
+                    publishSoak(result);
                 }
+            }
 
-                int blockCount = mifare.getBlockCountInSector(sector);
-                int blockIndex = mifare.sectorToBlock(sector);
+            @Override
+            protected void publish(SessionContext session) {
+                trace.finish();
+            }
+        });
+    }
 
-                for (int block = 0; block < blockCount; block++) {
-                    byte[] data = mifare.readBlock(blockIndex);
-                    result.append(String.format("區段 %02d 區塊 %02d: %s\n",
-                            sector, block, bytesToHex(data)));
-                    blockIndex++;
+    private void publishSoak(SoakResult result) {
+        StringBuilder text = new StringBuilder(result.summary()).append('\n');
+        if (result.getCount() > 0) {
+            File file = newBenchFile("soak");
+            if (file == null) {
+                text.append("CSV 儲存失敗: 無法建立目錄");
+            } else {
+                try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                    result.writeCsv(out);
+                    text.append("CSV: ").append(file.getAbsolutePath());
+                } catch (IOException e) {
+                    text.append("CSV 儲存失敗: ").append(e.getMessage());
                 }
             }
+        }
+        appendResult(text.toString());
+    }
 
-            appendResult(result.toString());
+    private SweepResult runNdefSweep(SessionContext session) throws IOException {
+        NdefTransport ndef = session.tags().ndef();
+        if (ndef == null) {
+            appendResult("此標籤不支援 NDEF，無法進行容量掃描");
+            return null;
+        }
+        SweepConfig config = new SweepConfig().setMinSize(SWEEP_MIN_SIZE).setStep(SWEEP_STEP).setRepeats(SWEEP_REPEATS);
+        appendResult("NDEF 容量掃描開始: " + ndef.getType() + "，容量 " + ndef.getMaxSize() + " bytes，" + config.describe());
+        return new NdefSweep(tracer.getClock()).run(ndef, config, session::isCancelled);
+    }
 
+    private void publishSweep(SweepResult result) {
+        StringBuilder text = new StringBuilder(result.summary()).append('\n');
+        File file = newBenchFile("ndef_sweep");
+        if (file == null) {
+            text.append("CSV 儲存失敗: 無法建立目錄");
+        } else {
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                result.writeCsv(out);
+                text.append("CSV: ").append(file.getAbsolutePath());
+            } catch (IOException e) {
+                text.append("CSV 儲存失敗: ").append(e.getMessage());
+            }
+        }
+        appendResult(text.toString());
+    }
+
+    // 先串流讀取既有紀錄重建統計，之後每筆新紀錄增量更新
+    private void openMeasurementStore() {
+        File dir = new File(getFilesDir(), MEASUREMENT_DIR);
+        try {
+            if (dir.isDirectory()) {
+                analytics.merge(MeasurementAnalytics.rebuild(dir));
+            }
+            measurements = new MeasurementStore(dir, new StoreConfig().setDeviceModel(Build.MODEL));
         } catch (IOException e) {
-            appendResult("MIFARE 讀取錯誤: " + e.getMessage());
-        } finally {
+            appendResult("量測紀錄庫開啟失敗: " + e.getMessage());
+        }
+    }
+
+    private void closeMeasurementStore() {
+        MeasurementStore store = measurements;
+        measurements = null;
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                Log.w(TAG, "量測紀錄庫關閉失敗", e);
+            }
+        }
+    }
+
+    // 每次靠卡一筆紀錄；只複製到佇列，不等待寫檔
+    private void recordMeasurement(SessionContext session, MeasurementOp op, long totalNanos, int bytes) {
+        TagSession tags = session.tags();
+        Exception failure = session.getFailure();
+        MeasurementRecord r = measurement.clear().setOp(op).setPhases(session.trace(), totalNanos);
+        r.timestampMillis = System.currentTimeMillis();
+        r.uidHash = MeasurementRecord.uidHash(tags.getId());
+        r.techMask = tags.getTechMask();
+        r.setTech(primaryTech(tags));
+        r.setTagModel(tags.getModel());
+        r.bytes = bytes;
+        r.result = failure == null ? MeasurementRecord.RESULT_OK
+                : failure instanceof TagLostException ? MeasurementRecord.RESULT_TAG_LOST : MeasurementRecord.RESULT_ERROR;
+        analytics.accept(r, Build.MODEL);
+        MeasurementStore store = measurements;
+        if (store != null) {
+            store.append(r);
+        }
+    }
+
+    // 有讀到資料的技術中編號最小者，都沒有時取標籤支援的第一個技術
+    private static TagTech primaryTech(TagSession tags) {
+        int mask = tags.getUsefulMask() != 0 ? tags.getUsefulMask() : tags.getTechMask();
+        return mask == 0 ? null : TagTech.values()[Integer.numberOfTrailingZeros(mask)];
+    }
+
+    // 串流匯出，不經過 NFC I/O 執行緒，匯出期間靠卡不受影響
+    private void exportMeasurements(boolean json) {
+        MeasurementStore store = measurements;
+        if (store == null) {
+            appendResult("量測紀錄庫尚未開啟");
+            return;
+        }
+        new Thread(() -> {
+            File file = newBenchFile("measurements", json ? ".json" : ".csv");
+            if (file == null) {
+                appendResult("量測紀錄匯出失敗: 無法建立目錄");
+                return;
+            }
             try {
-                mifare.close();
+                store.flush(MEASUREMENT_FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                long count;
+                try (MeasurementCursor cursor = store.cursor();
+                     Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                    count = json ? MeasurementExport.writeJson(cursor, out) : MeasurementExport.writeCsv(cursor, out);
+                }
+                appendResult(store.summary() + "匯出 " + count + " 筆: " + file.getAbsolutePath());
             } catch (IOException e) {
-                e.printStackTrace();
+                appendResult("量測紀錄匯出失敗: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+        }, "measurement-export").start();
+    }
+
+    private File newBenchFile(String prefix) {
+        return newBenchFile(prefix, ".csv");
+    }
+
+    // 量測結果放在 App 外部檔案目錄（無法使用時改用內部目錄）；目錄建立失敗回傳 null
+    private File newBenchFile(String prefix, String suffix) {
+        File dir = getExternalFilesDir(BENCH_DIR);
+        if (dir == null) {
+            dir = new File(getFilesDir(), BENCH_DIR);
         }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return null;
+        }
+        return new File(dir, prefix + "_" + System.currentTimeMillis() + suffix);
     }
 
+    // 工作階段結束後才寫檔，不影響量到的時間
+    private void saveTagTrace(TagTrace tagTrace) {
+        File dir = getExternalFilesDir(TRACE_DIR);
+        if (dir == null) {
+            dir = new File(getFilesDir(), TRACE_DIR);
+        }
+        File file = new File(dir, HexCodec.toHex(tagTrace.getUid()) + "_" + tagTrace.getRecordedAtMillis()
+                + TagTrace.FILE_SUFFIX);
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("無法建立目錄 " + dir);
+            }
+            tagTrace.save(file);
+            appendResult(tagTrace.summary() + "已儲存 trace: " + file.getAbsolutePath() + " (" + file.length() + " bytes)");
+        } catch (IOException e) {
+            appendResult("trace 儲存失敗: " + e.getMessage());
+        }
+    }
+
+    private void publishMifareDump(MifareDump dump) {
+        StringBuilder result = new StringBuilder(dump.summary()).append('\n');
+        File dir = getExternalFilesDir(MIFARE_DUMP_DIR);
+        if (dir == null) {
+            dir = new File(getFilesDir(), MIFARE_DUMP_DIR);
+        }
+        File file = new File(dir, HexCodec.toHex(dump.getUid()) + "_" + System.currentTimeMillis() + ".mfd");
+        if (dir.isDirectory() || dir.mkdirs()) {
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                dump.writeMfd(out);
+                result.append("已儲存: ").append(file.getAbsolutePath()).append('\n');
+            } catch (IOException e) {
+                result.append(".mfd 儲存失敗: ").append(e.getMessage()).append('\n');
+            }
+        } else {
+            result.append(".mfd 儲存失敗: 無法建立 ").append(dir.getAbsolutePath()).append('\n');
+        }
+        appendResult(dump.appendBlocks(result).toString());
+    }
 
     // NFC-B (ISO 14443-3B) 標籤讀取
-    private void readNfcBTag(Tag tag, long startTime) {
-        NfcB nfcb = NfcB.get(tag);
+    private void readNfcBTag(TagSession tags, SessionTrace trace) {
         try {
-            nfcb.connect();
+            NfcBTransport nfcb = tags.nfcB();
             byte[] appData = nfcb.getApplicationData();
             byte[] protInfo = nfcb.getProtocolInfo();
-            byte[] uid = tag.getId();
-            long duration = System.currentTimeMillis() - startTime;
+            byte[] uid = tags.getId();
+            tags.markUseful(TagTech.NFC_B);
 
-            appendResult("NFC-B 讀取成功 - 耗時: " + duration + "ms\n" +
-                    "UID: " + bytesToHex(uid) + "\n" +
-                    "應用數據: " + bytesToHex(appData) + "\n" +
-                    "協議信息: " + bytesToHex(protInfo) + "\n");
+            appendResult("NFC-B 讀取成功 - 耗時: " + trace.formatElapsed() + "\n" +
+                    "UID: " + HexCodec.toDisplayHex(uid) + "\n" +
+                    "應用數據: " + HexCodec.toDisplayHex(appData) + "\n" +
+                    "協議信息: " + HexCodec.toDisplayHex(protInfo) + "\n");
 
         } catch (IOException e) {
             appendResult("NFC-B 讀取錯誤: " + e.getMessage());
-        } finally {
-            try { nfcb.close(); } catch (IOException e) { e.printStackTrace(); }
         }
     }
 
-    // NFCA  + IsoDep 讀取悠遊卡餘額範例
-    private void readEasyCardWithIsoDep(Tag tag, long startTime) {
-        IsoDep iso = IsoDep.get(tag);
-        if (iso == null) {
+    // IsoDep 卡片：依序執行預先編譯的 APDU 腳本，第一個成功的腳本即為此卡的卡種
+    private void readIsoDepCard(TagSession tags, SessionTrace trace) {
+        if (!tags.has(TagTech.ISO_DEP)) {
             appendResult("不支援 IsoDep 進階通訊");
             return;
         }
+        List<ScriptRun> runs = apduScripts;
+        if (runs == null || runs.isEmpty()) {
+            appendResult("沒有可用的 APDU 腳本");
+            return;
+        }
         try {
-            iso.connect();
-
-            // 1. 選擇悠遊卡應用（用於羊城通的例子：PAY.TICL）
-            byte[] selectCmd = hexStringToByteArray("00A40400085041592E5449434C00");
-            byte[] selectResp = iso.transceive(selectCmd);
-            if (!endsWith90OK(selectResp)) {
-                appendResult("Select AID 失敗: " + bytesToHex(selectResp));
-                return;
+            // APDU 通道：設定逾時，每個步驟自動處理 61xx / 6Cxx
+            ApduChannel channel = new ApduChannel(tags.isoDep(), ISO_DEP_TIMEOUT_MS);
+            ScriptRun last = null;
+            for (ScriptRun run : runs) {
+                last = run;
+                if (run.getScript().run(channel, tracer.getClock(), run)) {
+                    break;
+                }
             }
-
-            // 2. 讀取餘額（Response: Data + SW1 SW2，其中 SW1SW2 = 9000）
-            byte[] balanceCmd = hexStringToByteArray("805C000204");
-            byte[] balanceResp = iso.transceive(balanceCmd);
-            if (!endsWith90OK(balanceResp)) {
-                appendResult("讀取餘額失敗: " + bytesToHex(balanceResp));
-                return;
+            long parseStart = trace.start();
+            StringBuilder sb = new StringBuilder(256);
+            last.appendTo(sb);
+            trace.end(Phase.PARSE, parseStart);
+            if (last.isOk()) {
+                tags.markUseful(TagTech.ISO_DEP);
+                tags.setModel(last.getScript().getName());
             }
-
-            // 擷取前面 N bytes 為餘額資料
-            int balanceValue = ByteBuffer.wrap(balanceResp, 0, balanceResp.length - 2)
-                    .getInt(); // 4 bytes 餘額
-            long duration = System.currentTimeMillis() - startTime;
-
-            appendResult(
-                    "悠遊卡讀取成功 - 耗時: " + duration + "ms\n" +
-                            "餘額: " + balanceValue / 100.0 + " 元"
-            );
-
+            sb.append("耗時: ").append(trace.formatElapsed());
+            appendResult(sb.toString());
         } catch (IOException e) {
             appendResult("IsoDep 讀取失敗: " + e.getMessage());
-        } finally {
-            try { iso.close(); } catch (IOException ignored) {}
         }
     }
 
     // 新增：NFC-F (FeliCa) 標籤讀取
-    private void readNfcFTag(Tag tag, long startTime) {
+    private void readNfcFTag(TagSession tags, SessionTrace trace) {
         // 先判斷是否支援 IsoDep
-        if (Arrays.asList(tag.getTechList()).contains(IsoDep.class.getName())) {
-            readEasyCardWithIsoDep(tag, startTime);
+        if (tags.has(TagTech.ISO_DEP)) {
+            readIsoDepCard(tags, trace);
             return;
         }
 
         // 不支援 IsoDep 才使用 NfcA
-        NfcF nfcf = NfcF.get(tag);
         try {
-            nfcf.connect();
+            NfcFTransport nfcf = tags.nfcF();
             byte[] id = nfcf.getManufacturer();
             byte[] systemCode = nfcf.getSystemCode();
-            byte[] uid = tag.getId();
-            long duration = System.currentTimeMillis() - startTime;
-
-            appendResult("NFC-F 讀取成功 - 耗時: " + duration + "ms\n" +
-                    "UID: " + bytesToHex(uid) + "\n" +
-                    "製造商: " + bytesToHex(id) + "\n" +
-                    "系統代碼: " + bytesToHex(systemCode) + "\n");
+            byte[] uid = tags.getId();
+            tags.markUseful(TagTech.NFC_F);
+            tags.setModel("FeliCa " + HexCodec.toHex(systemCode));
 
-            // 檢查是否支援 IsoDep（如悠遊卡等金融票證）
-            String[] techList = tag.getTechList();
-            for (String tech : techList) {
-                Log.d("NFC_TAG", "支援技術: " + tech);
+            StringBuilder result = new StringBuilder();
+            result.append("NFC-F 讀取成功 - 耗時: ").append(trace.formatElapsed()).append("\n")
+                    .append("UID: ").append(HexCodec.toDisplayHex(uid)).append("\n")
+                    .append("製造商: ").append(HexCodec.toDisplayHex(id)).append("\n")
+                    .append("系統代碼: ").append(HexCodec.toDisplayHex(systemCode)).append("\n");
+
+            // 列舉服務，免加密的服務以批次 Read Without Encryption 讀出
+            FeliCaClient felica = new FeliCaClient(nfcf, uid, tracer.getClock());
+            for (int code : felica.searchServiceCodes(FELICA_MAX_SERVICES)) {
+                result.append(String.format("服務 %04X: ", code));
+                if (!FeliCaClient.isWithoutEncryption(code)) {
+                    result.append("需認證\n");
+                    continue;
+                }
+                byte[] content = felica.readService(code, FELICA_MAX_BLOCKS_PER_SERVICE);
+                result.append(content.length / FeliCaClient.BLOCK_SIZE).append(" 區塊 ");
+                HexCodec.encode(content, result, ' ').append('\n');
             }
+            appendResult(result.append(felica.summary()).toString());
 
         } catch (IOException e) {
             appendResult("NFC-F 讀取錯誤: " + e.getMessage());
-        } finally {
-            try { nfcf.close(); } catch (IOException e) { e.printStackTrace(); }
         }
     }
 
     // 新增：NFC-V (ISO 15693) 標籤讀取
-    private void readNfcVTag(Tag tag, long startTime) {
-        NfcV nfcv = NfcV.get(tag);
+    private void readNfcVTag(TagSession tags, SessionTrace trace) {
         try {
-            nfcv.connect();
+            NfcVTransport nfcv = tags.nfcV();
 
             byte[] dsfId = new byte[]{nfcv.getDsfId()}; // ✅ 修正這行
             byte[] respFlags = new byte[]{nfcv.getResponseFlags()};
-            byte[] uid = tag.getId();
-            long duration = System.currentTimeMillis() - startTime;
+            byte[] uid = tags.getId();
+
+            // 整個記憶體以多區塊指令讀取，不支援時自動改用單區塊
+            Iso15693Memory memory = new Iso15693Memory(nfcv, uid, tracer.getClock());
+            SystemInfo info = memory.getSystemInfo();
+            byte[] content = memory.readAll();
+            tags.markUseful(TagTech.NFC_V);
 
-            appendResult("NFC-V 讀取成功 - 耗時: " + duration + "ms\n" +
-                    "UID: " + bytesToHex(uid) + "\n" +
-                    "DSFID: " + bytesToHex(dsfId) + "\n" +
-                    "響應標誌: " + bytesToHex(respFlags) + "\n");
+            StringBuilder result = new StringBuilder();
+            result.append("NFC-V 讀取成功 - 耗時: ").append(trace.formatElapsed()).append("\n")
+                    .append("UID: ").append(HexCodec.toDisplayHex(uid)).append("\n")
+                    .append("DSFID: ").append(HexCodec.toDisplayHex(dsfId)).append("\n")
+                    .append("響應標誌: ").append(HexCodec.toDisplayHex(respFlags)).append("\n")
+                    .append("記憶體: ").append(info).append("，每批 ").append(memory.getReadChunk()).append(" 區塊\n")
+                    .append(memory.summary())
+                    .append("內容: ");
+            HexCodec.encode(content, result, ' ');
+            appendResult(result.toString());
         } catch (IOException e) {
             appendResult("NFC-V 讀取錯誤: " + e.getMessage());
-        } finally {
-            try {
-                nfcv.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
-    }
-
-    // 輔助方法：字節數組轉十六進制字符串
-    private static String bytesToHex(byte[] bytes) {
-        if (bytes == null) return "null";
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02X ", b));
         }
-        return sb.toString().trim();
     }
 
-    // 輔助工具
-    private boolean endsWith90OK(byte[] resp) {
-        int len = resp.length;
-        return len >= 2 && resp[len - 2] == (byte)0x90 && resp[len - 1] == (byte)0x00;
-    }
-
-    private byte[] hexStringToByteArray(String hex) {
-        int len = hex.length();
-        byte[] data = new byte[len/2];
-        for (int i=0; i < len; i+=2)
-            data[i/2] = (byte)((Character.digit(hex.charAt(i),16) << 4)
-                    + Character.digit(hex.charAt(i+1),16));
-        return data;
-    }
-
-    // 設置寫入方法及錯誤處理
-    private void writeTag(Tag tag) {
-        long startTime = System.currentTimeMillis();
+    // 設置寫入方法及錯誤處理；失敗（含標籤移開）往外拋，工作階段才會記錄為失敗
+    private void writeTag(TagSession tag, SessionTrace trace) throws IOException {
 
         try {
             // 根據選擇的技術類型調用對應寫入方法
             switch (selectedTechType) {
                 case "NDEF":
-                    writeNdefTag(tag, startTime);
+                    writeNdefTag(tag, trace);
                     break;
                 case "NFC-A (MIFARE)":
-                    writeNfcATag(tag, startTime);
+                    writeNfcATag(tag, trace);
                     break;
                 case "NFC-B":
-                    writeNfcBTag(tag, startTime);
+                    writeNfcBTag(tag, trace);
                     break;
                 case "NFC-F (FeliCa)":
-                    writeNfcFTag(tag, serviceCode1,blockNumber,dataToWriteNfcF,startTime);
+                    writeNfcFTag(tag, serviceCode1,blockNumber,dataToWriteNfcF, trace);
                     break;
                 case "NFC-V":
-                    writeNfcVTag(tag, blockNumber, dataToWriteNfcV, startTime);
+                    writeNfcVTag(tag, blockNumber, dataToWriteNfcV, trace);
                     break;
                 default:
-                    autoDetectAndWrite(tag, startTime);
+                    autoDetectAndWrite(tag, trace);
             }
-            writeMode = false; // 重置寫入模式
-            tvNfcStatus.setText("NFC狀態: 寫入完成");
+            runOnUiThread(() -> tvNfcStatus.setText("NFC狀態: 寫入完成"));
         } catch (IOException e) {
-            appendResult("寫入錯誤: " + e.getMessage());
-            Toast.makeText(this, "寫入失敗: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            // 錯誤訊息由 TagPipeline 輸出
+            runOnUiThread(() -> Toast.makeText(this, "寫入失敗: " + e.getMessage(), Toast.LENGTH_LONG).show());
+            throw e;
         } catch (FormatException e) {
-            appendResult("格式錯誤: " + e.getMessage());
-            Toast.makeText(this, "格式錯誤: " + e.getMessage(), Toast.LENGTH_LONG).show();
-        } finally {
-            writeMode = false; // 確保寫入模式被重置
+            runOnUiThread(() -> Toast.makeText(this, "格式錯誤: " + e.getMessage(), Toast.LENGTH_LONG).show());
+            throw new IOException("格式錯誤: " + e.getMessage(), e);
         }
     }
 
 
     // NDEF寫入 (原有方法改進)
-    private void writeNdefTag(Tag tag, long startTime) throws IOException, FormatException {
-        Ndef ndef = Ndef.get(tag);
-        if (ndef == null) throw new IOException("標籤不支持NDEF格式");
-
-        ndef.connect();
-        try {
-            if (!ndef.isWritable()) throw new IOException("標籤不可寫");
+    private void writeNdefTag(TagSession tag, SessionTrace trace) throws IOException, FormatException {
+        NdefRecord record = NdefRecord.createTextRecord("en", dataToWrite);
+        NdefMessage message = new NdefMessage(new NdefRecord[]{record});
+        if (verifiedWrite && tag.has(TagTech.MIFARE_ULTRALIGHT)) {
+            // Type 2 直接以頁面為單位比對，只寫入改變的頁面
+            Type2Memory memory = new Type2Memory(tag.nfcA(), tracer.getClock());
+            appendDeltaReport(newDeltaWriter().writeType2Ndef(memory, tag.getId(), message.toByteArray()), trace);
+            return;
+        }
 
-            NdefRecord record = NdefRecord.createTextRecord("en", dataToWrite);
-            NdefMessage message = new NdefMessage(new NdefRecord[]{record});
+        NdefTransport ndef = tag.ndef();
+        if (ndef == null) throw new IOException("標籤不支持NDEF格式");
+        if (!ndef.isWritable()) throw new IOException("標籤不可寫");
+        if (verifiedWrite) {
+            appendDeltaReport(newDeltaWriter().writeNdef(ndef, message.toByteArray()), trace);
+            return;
+        }
 
-            // 精確測量寫入時間
-            long connectTime = System.currentTimeMillis() - startTime;
-            long writeStart = System.currentTimeMillis();
-            ndef.writeNdefMessage(message);
-            long writeDuration = System.currentTimeMillis() - writeStart;
-            long totalDuration = System.currentTimeMillis() - startTime;
+        // 精確測量寫入時間（連線與寫入由 TracingTagEndpoint 記錄）
+        ndef.writeNdefMessage(message.toByteArray());
 
-            appendResult("NDEF寫入成功\n" +
-                    "連接時間: " + connectTime + "ms\n" +
-                    "純寫入時間: " + writeDuration + "ms\n" +
-                    "總耗時: " + totalDuration + "ms\n" +
-                    "數據: " + dataToWrite);
-        } finally {
-            ndef.close();
-        }
+        appendResult("NDEF寫入成功\n" +
+                "連接時間: " + formatNanos(trace.totalNanos(Phase.CONNECT)) + "\n" +
+                "純寫入時間: " + formatNanos(trace.totalNanos(Phase.TRANSCEIVE)) + "\n" +
+                "總耗時: " + trace.formatElapsed() + "\n" +
+                "數據: " + dataToWrite);
     }
 
 
     // NFC-A寫入 (MIFARE Classic示例)
-    private void writeNfcATag(Tag tag, long startTime) throws IOException {
+    private void writeNfcATag(TagSession tag, SessionTrace trace) throws IOException {
 
-        MifareClassic mifare = MifareClassic.get(tag);
-        mifare.connect();
+        MifareClassicTransport mifare = tag.mifareClassic();
+        if (mifare == null) throw new IOException("不是 MIFARE Classic 標籤");
 
         int sector = 0;      // Area 00
         int blockInSector = 1; // Block 01 in Area 00
         int blockIndex = mifare.sectorToBlock(sector) + blockInSector; // ➜ blockIndex = 1
+        KeyResolver resolver = keyResolver;
+        if (verifiedWrite && resolver != null) {
+            appendDeltaReport(newDeltaWriter().write(BlockDevices.mifareClassic(mifare, resolver, tag.getId()),
+                    tag.getId(), blockIndex, DATA_TO_WRITE_MIFARE), trace);
+            return;
+        }
         // 驗證 Sector 0 的金鑰（通常是預設 keyA）
         boolean auth = mifare.authenticateSectorWithKeyA(sector, MifareClassic.KEY_DEFAULT);
         if (!auth) throw new IOException("身份驗證失敗");
 
-        try {
-
-            byte[] data = {
-                    0x01, 0x02, 0x03, 0x04,
-                    0x05, 0x06, 0x07, 0x08,
-                    0x09, 0x0A, 0x0B, 0x0C,
-                    0x0D, 0x0E, 0x0F, 0x10
-            };
+        long writeStart = trace.start();
+        mifare.writeBlock(blockIndex, DATA_TO_WRITE_MIFARE);
+        long writeDuration = trace.start() - writeStart;
 
-            long writeStart = System.currentTimeMillis();
-            mifare.writeBlock(blockIndex, data);
-            long writeDuration = System.currentTimeMillis() - writeStart;
-
-            appendResult("MIFARE Classic 寫入成功\n" +
-                    "寫入時間: " + writeDuration + "ms\n" +
-                    "Block: " + blockIndex +
-                    "\nArea: " + sector);
-        } finally {
-            mifare.close();
-        }
+        appendResult("MIFARE Classic 寫入成功\n" +
+                "寫入時間: " + formatNanos(writeDuration) + "\n" +
+                "Block: " + blockIndex +
+                "\nArea: " + sector);
     }
 
     // NFC-B寫入示例
-    private void writeNfcBTag(Tag tag, long startTime) throws IOException {
-        NfcB nfcb = NfcB.get(tag);
+    private void writeNfcBTag(TagSession tag, SessionTrace trace) throws IOException {
+        NfcBTransport nfcb = tag.nfcB();
         if (nfcb == null) throw new IOException("不是NFC-B標籤");
 
-        nfcb.connect();
-        try {
-            // ISO 14443-4示例指令
-            byte[] cmd = {
-                    (byte)0x00,  // PCB
-                    (byte)0x01,  // CID
-                    (byte)0x02, (byte)0x03, (byte)0x04 // 自定義數據
-            };
+        // ISO 14443-4示例指令
+        byte[] cmd = {
+                (byte)0x00,  // PCB
+                (byte)0x01,  // CID
+                (byte)0x02, (byte)0x03, (byte)0x04 // 自定義數據
+        };
 
-            long writeStart = System.currentTimeMillis();
-            byte[] response = nfcb.transceive(cmd);
-            long duration = System.currentTimeMillis() - startTime;
+        byte[] response = nfcb.transceive(cmd);
 
-            appendResult("NFC-B寫入成功\n總耗時: " + duration + "ms\n" +
-                    "響應: " + bytesToHex(response));
-        } finally {
-            nfcb.close();
-        }
+        appendResult("NFC-B寫入成功\n總耗時: " + trace.formatElapsed() + "\n" +
+                "響應: " + HexCodec.toDisplayHex(response));
     }
 
     // 新增：NFC-F (FeliCa) 標籤寫入
     /*
     這是一個範例寫入，目前沒有樣本標籤可以測試寫入
     1. serviceCode1 是目標服務的 service code，需要根據標籤支援的服務設定。
-    2. dataToWriteNfcF 必須是 16 bytes（Felica block 大小）。
+    2. dataToWriteNfcF 必須是 16 bytes（Felica block 大小）的倍數，會從 blockNumber 開始連續寫入。
     3. 並非所有 Felica 標籤都允許寫入，也可能有加密保護，無法使用 Write Without Encryption。
     4. 若需要使用加密方式，需依標籤規格實作加密認證程序。
      */
-    private void writeNfcFTag(Tag tag, byte serviceCode1, byte blockNumber, byte[] dataToWriteNfcF, long startTime) {
-        NfcF nfcf = NfcF.get(tag);
-        try {
-            nfcf.connect();
+    private void writeNfcFTag(TagSession tag, int serviceCode1, int blockNumber, byte[] dataToWriteNfcF, SessionTrace trace)
+            throws IOException {
+        NfcFTransport nfcf = tag.nfcF();
+        if (nfcf == null) throw new IOException("不是NFC-F標籤");
+
+        FeliCaClient felica = new FeliCaClient(nfcf, tag.getId(), tracer.getClock());
+        if (!felica.hasService(serviceCode1)) {
+            throw new IOException(String.format("卡片沒有服務 %04X", serviceCode1));
+        }
+
+        if (verifiedWrite) {
+            appendDeltaReport(newDeltaWriter().write(BlockDevices.felica(felica, serviceCode1),
+                    tag.getId(), blockNumber, dataToWriteNfcF), trace);
+            return;
+        }
 
-            byte[] id = tag.getId();
+        // Write Without Encryption (0x08)，每個指令放入卡片允許的最多區塊
+        int blocks = dataToWriteNfcF.length / FeliCaClient.BLOCK_SIZE;
+        long writeStart = trace.start();
+        felica.write(serviceCode1, blockNumber, dataToWriteNfcF, 0, blocks);
+        long writeDuration = trace.start() - writeStart;
 
-            // 建構 Write Without Encryption 指令 (0x08)
-            ByteArrayOutputStream cmd = new ByteArrayOutputStream();
-            cmd.write(0); // placeholder for length
-            cmd.write(0x08); // Write Without Encryption
-            cmd.write(id); // IDm
-            cmd.write(1); // Number of services
-            cmd.write((byte)(serviceCode1 & 0xFF));
-            cmd.write((byte)((serviceCode1 >> 8) & 0xFF)); // Little-endian
+        appendResult("NFC-F 寫入成功 - 總耗時: " + trace.formatElapsed() + "，寫入耗時: " + formatNanos(writeDuration)
+                + "\n" + blocks + " 區塊\n" + felica.summary());
+    }
+
+    // 新增：NFC-V (ISO 15693) 標籤寫入
 
-            cmd.write(1); // Number of blocks
-            cmd.write(0x80); // Block List Element with 2-byte block number
-            cmd.write(0x00); // Block number (first block, for example)
+    private void writeNfcVTag(TagSession tag, int blockNumber, byte[] dataToWriteNfcV, SessionTrace trace)
+            throws IOException {
+        NfcVTransport nfcv = tag.nfcV();
+        if (nfcv == null) throw new IOException("不是NFC-V標籤");
+
+        // 定址模式的 UID 直接使用 getId()：Android 回傳的已是 frame 需要的 LSB 在前順序，不可反轉
+        Iso15693Memory memory = new Iso15693Memory(nfcv, tag.getId(), tracer.getClock());
+        int blockSize = memory.getSystemInfo().getBlockSize();
+        if (dataToWriteNfcV.length % blockSize != 0) {
+            throw new IOException("資料長度需為區塊大小 " + blockSize + " bytes 的倍數");
+        }
 
-            cmd.write(dataToWriteNfcF); // 16 bytes of data to write
+        if (verifiedWrite) {
+            appendDeltaReport(newDeltaWriter().write(BlockDevices.nfcV(memory),
+                    tag.getId(), blockNumber, dataToWriteNfcV), trace);
+            return;
+        }
 
-            byte[] command = cmd.toByteArray();
-            command[0] = (byte) command.length; // set length
+        int blocks = dataToWriteNfcV.length / blockSize;
+        long writeStart = trace.start();
+        memory.write(blockNumber, dataToWriteNfcV, 0, blocks);
+        long writeDuration = trace.start() - writeStart;
 
-            long writeStart = System.currentTimeMillis();
-            byte[] response = nfcf.transceive(command);
-            long duration = System.currentTimeMillis() - startTime;
-            long writeDuration = System.currentTimeMillis() - writeStart;
+        appendResult("NFC-V 寫入成功 - 總耗時: " + trace.formatElapsed() + "，寫入耗時: " + formatNanos(writeDuration)
+                + "\n" + blocks + " 區塊，" + memory.getStrategy().label() + "，每批 " + memory.getWriteChunk() + " 區塊\n"
+                + memory.summary());
+    }
 
-            appendResult("NFC-F 寫入成功 - 總耗時: " + duration + "ms，寫入耗時: " + writeDuration + "ms");
 
+    // 批次寫入的資料檔：優先使用外部檔案目錄（可用 adb push 放入），否則用內部目錄；在 I/O 執行緒預先編碼全部內容
+    private void loadProvisioning(String tech) {
+        int blockSize;
+        switch (tech) {
+            case "NFC-A (MIFARE)":
+                blockSize = MifareClassicTransport.BLOCK_SIZE;
+                break;
+            case "NFC-F (FeliCa)":
+                blockSize = FeliCaClient.BLOCK_SIZE;
+                break;
+            case "NFC-V":
+                blockSize = NFCV_MIN_BLOCK_SIZE;
+                break;
+            case "NFC-B":
+                appendResult("批次寫入不支援 NFC-B");
+                return;
+            default:
+                blockSize = PayloadQueue.NDEF;
+        }
+        File dir = getExternalFilesDir(null);
+        File file = dir != null && new File(dir, PROVISION_FILE).exists()
+                ? new File(dir, PROVISION_FILE) : new File(getFilesDir(), PROVISION_FILE);
+        try (Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            long start = tracer.now();
+            PayloadQueue queue = PayloadQueue.parse(in, blockSize);
+            long elapsed = tracer.now() - start;
+            provisioningTech = tech;
+            provisioningStats.reset();
+            provisioning = queue;
+            ProvisioningPayload first = queue.peek();
+            appendResult("批次寫入已載入 " + queue.size() + " 筆（" + tech + "），預先編碼耗時 " + formatNanos(elapsed)
+                    + "\n" + file.getAbsolutePath());
+            runOnUiThread(() -> tvNfcStatus.setText("NFC狀態: 批次寫入，請靠卡 #1 " + first.getLabel()));
         } catch (IOException e) {
-            appendResult("NFC-F 寫入錯誤: " + e.getMessage());
-        } finally {
-            try { nfcf.close(); } catch (IOException e) { e.printStackTrace(); }
+            appendResult("批次寫入載入失敗 (" + file.getAbsolutePath() + "): " + e.getMessage());
         }
     }
 
-    // 新增：NFC-V (ISO 15693) 標籤寫入
-
-    private void writeNfcVTag(Tag tag, int blockNumber, byte[] dataToWriteNfcV, long startTime) {
-        NfcV nfcv = NfcV.get(tag);
+    // 批次寫入一張標籤：內容已在載入時編碼好，這裡只做寫入；寫入成功才前進到下一筆，回傳寫入的 bytes
+    private int provisionTag(TagSession tag, SessionTrace trace, PayloadQueue queue) throws IOException {
+        ProvisioningPayload payload = queue.peek();
+        if (payload == null) {
+            appendResult("批次寫入已全部完成\n" + provisioningStats.summary());
+            return 0;
+        }
+        int previous = queue.writtenIndex(tag.getId());
+        if (previous >= 0) {
+            provisioningStats.recordDuplicate(trace.getStartNanos(), tracer.now());
+            appendResult("此標籤已寫入第 " + (previous + 1) + " 筆，略過");
+            return 0;
+        }
         try {
-            nfcv.connect();
-            byte[] uid = tag.getId();
+            DeltaReport report = writePayload(tag, provisioningTech, queue.getBlockSize(), payload.getData());
+            if (report != null && !report.isVerified()) {
+                throw new IOException("讀回內容與寫入資料不一致\n" + report.summary());
+            }
+        } catch (IOException | RuntimeException e) {
+            provisioningStats.recordFailed(trace.getStartNanos(), tracer.now());
+            throw e;
+        }
+        long end = tracer.now();
+        queue.commit(payload, tag.getId());
+        provisioningStats.recordWritten(trace.getStartNanos(), end);
+
+        ProvisioningPayload next = queue.peek();
+        appendResult(String.format("批次寫入 #%d/%d %s - %s，%.1f 張/分",
+                payload.getIndex() + 1, queue.size(), payload.getLabel(),
+                formatNanos(end - trace.getStartNanos()), provisioningStats.recentTagsPerMinute()));
+        runOnUiThread(() -> tvNfcStatus.setText(next == null ? "NFC狀態: 批次寫入完成"
+                : "NFC狀態: 批次寫入，請靠卡 #" + (next.getIndex() + 1) + " " + next.getLabel()));
+        if (next == null) {
+            provisioning = null;
+            appendResult(provisioningStats.summary());
+        }
+        return payload.getData().length;
+    }
 
-            if (dataToWriteNfcV.length != 4) {
-                appendResult("NFC-V 寫入錯誤: 每個 block 只能寫入 4 bytes 資料");
-                return;
+    // 寫入預先編碼的內容；驗證寫入時回傳 DeltaReport，否則回傳 null
+    private DeltaReport writePayload(TagSession tag, String tech, int blockSize, byte[] data) throws IOException {
+        if (blockSize == PayloadQueue.NDEF) {
+            if (verifiedWrite && tag.has(TagTech.MIFARE_ULTRALIGHT)) {
+                return newDeltaWriter().writeType2Ndef(new Type2Memory(tag.nfcA(), tracer.getClock()), tag.getId(), data);
             }
+            NdefTransport ndef = tag.ndef();
+            if (ndef == null) throw new IOException("標籤不支持NDEF格式");
+            if (verifiedWrite) {
+                return newDeltaWriter().writeNdef(ndef, data);
+            }
+            ndef.writeNdefMessage(data);
+            return null;
+        }
 
-            // 構造 Write Single Block 命令（0x21）
-            // 標準格式：[flags][command][UID (8 bytes)][block number][data (4 bytes)]
-            ByteArrayOutputStream cmd = new ByteArrayOutputStream();
-            cmd.write(0x22); // Flags: Addressed (0x20) + high data rate (0x02)
-            cmd.write(0x21); // Command: Write Single Block (0x21)
-            for (int i = uid.length - 1; i >= 0; i--) {
-                cmd.write(uid[i]); // UID 是 little-endian，要反轉
+        BlockDevice device;
+        int firstBlock = blockNumber;
+        switch (tech) {
+            case "NFC-A (MIFARE)": {
+                MifareClassicTransport mifare = tag.mifareClassic();
+                KeyResolver resolver = keyResolver;
+                if (mifare == null) throw new IOException("不是 MIFARE Classic 標籤");
+                if (resolver == null) throw new IOException("MIFARE 金鑰字典尚未載入");
+                device = BlockDevices.mifareClassic(mifare, resolver, tag.getId());
+                firstBlock = 1; // 與單次寫入相同，從 Sector 0 Block 1 開始
+                break;
+            }
+            case "NFC-F (FeliCa)": {
+                NfcFTransport nfcf = tag.nfcF();
+                if (nfcf == null) throw new IOException("不是NFC-F標籤");
+                device = BlockDevices.felica(new FeliCaClient(nfcf, tag.getId(), tracer.getClock()), serviceCode1);
+                break;
             }
-            cmd.write(blockNumber); // Block number
-            cmd.write(dataToWriteNfcV); // 4 bytes of data
+            default: {
+                NfcVTransport nfcv = tag.nfcV();
+                if (nfcv == null) throw new IOException("不是NFC-V標籤");
+                device = BlockDevices.nfcV(new Iso15693Memory(nfcv, tag.getId(), tracer.getClock()));
+            }
+        }
+        if (verifiedWrite) {
+            return newDeltaWriter().write(device, tag.getId(), firstBlock, data);
+        }
+        int size = device.blockSize();
+        if (data.length % size != 0) {
+            throw new IOException("資料長度需為區塊大小 " + size + " bytes 的倍數");
+        }
+        device.write(firstBlock, data.length / size, data, 0);
+        return null;
+    }
 
-            byte[] command = cmd.toByteArray();
+    private DeltaWriter newDeltaWriter() {
+        return new DeltaWriter(imageCache, tracer.getClock());
+    }
 
-            long writeStart = System.currentTimeMillis();
-            byte[] response = nfcv.transceive(command);
-            long writeDuration = System.currentTimeMillis() - writeStart;
-            long totalDuration = System.currentTimeMillis() - startTime;
+    private void appendDeltaReport(DeltaReport report, SessionTrace trace) {
+        appendResult("驗證寫入" + (report.isVerified() ? "成功" : "失敗") + " - 總耗時: " + trace.formatElapsed()
+                + "，RF: " + formatNanos(report.getTotalNanos()) + "\n" + report.summary());
+        if (!report.isVerified()) {
+            runOnUiThread(() -> Toast.makeText(this, "寫入驗證失敗：讀回內容與寫入資料不一致", Toast.LENGTH_LONG).show());
+        }
+    }
 
-            // 通常 response[0] == 0x00 代表成功
-            if (response != null && response.length > 0 && response[0] == 0x00) {
-                appendResult("NFC-V 寫入成功 - 總耗時: " + totalDuration + "ms，寫入耗時: " + writeDuration + "ms");
-            } else {
-                appendResult("NFC-V 寫入失敗 - 回應碼異常");
-            }
+    // 自動檢測並選擇合適的寫入方法
+    private void autoDetectAndWrite(TagSession tag, SessionTrace trace) throws IOException, FormatException {
+        if (tag.has(TagTech.NDEF)) {
+            writeNdefTag(tag, trace);
+        } else if (tag.has(TagTech.NFC_A)) {
+            writeNfcATag(tag, trace);
+        } else if (tag.has(TagTech.NFC_B)) {
+            writeNfcBTag(tag, trace);
+        } else if (tag.has(TagTech.NFC_F)) {
+            writeNfcFTag(tag, serviceCode1, blockNumber, dataToWriteNfcF, trace);
+        } else if (tag.has(TagTech.NFC_V)) {
+            writeNfcVTag(tag, blockNumber, dataToWriteNfcV, trace);
+        } else {
+            throw new IOException("無法自動確定合適的寫入技術");
+        }
+    }
 
+    // 金鑰字典：App 檔案目錄有自訂字典時優先使用，否則用內建 assets；接著讀回上次的命中次數與金鑰快取
+    private void loadMifareKeys() {
+        KeyDictionary dictionary;
+        File custom = new File(getFilesDir(), MIFARE_KEYS_FILE);
+        try (Reader in = new InputStreamReader(custom.exists() ? new FileInputStream(custom) : getAssets().open(MIFARE_KEYS_FILE),
+                StandardCharsets.UTF_8)) {
+            dictionary = KeyDictionary.parse(in);
         } catch (IOException e) {
-            appendResult("NFC-V 寫入錯誤: " + e.getMessage());
-        } finally {
-            try {
-                nfcv.close();
+            appendResult("金鑰字典載入失敗，只使用預設金鑰: " + e.getMessage());
+            dictionary = new KeyDictionary(Collections.singletonList(MifareClassic.KEY_DEFAULT));
+        }
+        KeyResolver resolver = new KeyResolver(dictionary, new SectorKeyCache());
+        File cache = new File(getFilesDir(), MIFARE_KEY_CACHE_FILE);
+        if (cache.exists()) {
+            try (Reader in = new InputStreamReader(new FileInputStream(cache), StandardCharsets.UTF_8)) {
+                resolver.readFrom(in);
             } catch (IOException e) {
-                e.printStackTrace();
+                Log.w(TAG, "金鑰快取讀取失敗", e);
             }
         }
+        keyResolver = resolver;
     }
 
+    // APDU 腳本：App 檔案目錄有自訂腳本時優先使用，否則用內建 assets
+    private void loadApduScripts() {
+        File custom = new File(getFilesDir(), APDU_SCRIPTS_FILE);
+        try (Reader in = new InputStreamReader(custom.exists() ? new FileInputStream(custom) : getAssets().open(APDU_SCRIPTS_FILE),
+                StandardCharsets.UTF_8)) {
+            List<ApduScript> scripts = ApduScriptParser.parse(in);
+            List<ScriptRun> runs = new ArrayList<>(scripts.size());
+            for (ApduScript script : scripts) {
+                runs.add(script.newRun());
+            }
+            apduScripts = runs;
+        } catch (IOException e) {
+            appendResult("APDU 腳本載入失敗: " + e.getMessage());
+        }
+    }
 
-    // 自動檢測並選擇合適的寫入方法
-    private void autoDetectAndWrite(Tag tag, long startTime) throws IOException, FormatException {
-        String[] techList = tag.getTechList();
-
-        if (Arrays.asList(techList).contains(Ndef.class.getName())) {
-            writeNdefTag(tag, startTime);
-        } else if (Arrays.asList(techList).contains(NfcA.class.getName())) {
-            writeNfcATag(tag, startTime);
-        } else if (Arrays.asList(techList).contains(NfcB.class.getName())) {
-            writeNfcBTag(tag, startTime);
-        } else if (Arrays.asList(techList).contains(NfcF.class.getName())) {
-            writeNfcFTag(tag, serviceCode1, blockNumber, dataToWriteNfcF, startTime);
-        } else if (Arrays.asList(techList).contains(NfcV.class.getName())) {
-            writeNfcVTag(tag, blockNumber, dataToWriteNfcV, startTime);
-        } else {
-            throw new IOException("無法自動確定合適的寫入技術");
+    // 先寫到暫存檔再改名，避免寫到一半被中斷時毀損快取
+    private void saveMifareKeys() {
+        KeyResolver resolver = keyResolver;
+        if (resolver == null) {
+            return;
+        }
+        File target = new File(getFilesDir(), MIFARE_KEY_CACHE_FILE);
+        File temp = new File(getFilesDir(), MIFARE_KEY_CACHE_FILE + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            resolver.writeTo(out);
+        } catch (IOException e) {
+            Log.w(TAG, "金鑰快取儲存失敗", e);
+            return;
+        }
+        if (!temp.renameTo(target)) {
+            Log.w(TAG, "金鑰快取儲存失敗: 無法取代 " + target);
         }
     }
 
     private void appendResult(final String text) {
-        // 確保UI更新在主線程執行
-        new Handler(Looper.getMainLooper()).post(() -> {
-            String timestamp = new SimpleDateFormat("HH:mm:ss", Locale.getDefault()).format(new Date());
-            String currentText = tvResults.getText().toString();
-            String newText = timestamp + ": " + text + "\n" + currentText;
-            tvResults.setText(newText);
-        });
+        // 任何執行緒皆可呼叫；從 append 到畫面實際更新記為畫面更新時間
+        resultLog.append(text);
+    }
+
+    private static String formatNanos(long nanos) {
+        StringBuilder sb = new StringBuilder(12);
+        SessionTrace.appendMillis(sb, nanos);
+        return sb.toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,128 @@
+package com.smewise.nfcspeedtest.discovery;
+
+import android.nfc.NfcAdapter;
+import android.os.Bundle;
+
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import java.util.EnumSet;
+
+/**
+ * enableReaderMode 的參數：要輪詢的技術、是否略過平台的 NDEF 檢查，以及 presence check 間隔。
+ * 只輪詢需要的技術可以縮短每一輪 polling loop。
+ */
+public class ReaderModeConfig {
+    public static final int DEFAULT_PRESENCE_CHECK_DELAY = -1;
+
+    private final EnumSet<TagTech> techs = EnumSet.noneOf(TagTech.class);
+    private boolean skipNdefCheck = true;
+    private boolean noPlatformSounds;
+    private int presenceCheckDelayMs = DEFAULT_PRESENCE_CHECK_DELAY;
+
+    // 沒有指定任何技術時輪詢 A/B/F/V 全部
+    public ReaderModeConfig poll(TagTech tech) {
+        techs.add(tech);
+        return this;
+    }
+
+    public ReaderModeConfig pollAll() {
+        techs.clear();
+        return this;
+    }
+
+    public ReaderModeConfig setSkipNdefCheck(boolean skipNdefCheck) {
+        this.skipNdefCheck = skipNdefCheck;
+        return this;
+    }
+
+    public ReaderModeConfig setNoPlatformSounds(boolean noPlatformSounds) {
+        this.noPlatformSounds = noPlatformSounds;
+        return this;
+    }
+
+    // 單位 ms，DEFAULT_PRESENCE_CHECK_DELAY 使用平台預設值
+    public ReaderModeConfig setPresenceCheckDelay(int delayMs) {
+        this.presenceCheckDelayMs = delayMs;
+        return this;
+    }
+
+    public boolean isSkipNdefCheck() {
+        return skipNdefCheck;
+    }
+
+    public int getPresenceCheckDelay() {
+        return presenceCheckDelayMs;
+    }
+
+    public int flags() {
+        int flags = 0;
+        if (techs.isEmpty()) {
+            flags = NfcAdapter.FLAG_READER_NFC_A | NfcAdapter.FLAG_READER_NFC_B
+                    | NfcAdapter.FLAG_READER_NFC_F | NfcAdapter.FLAG_READER_NFC_V;
+        }
+        for (TagTech tech : techs) {
+            flags |= flagOf(tech);
+        }
+        if (skipNdefCheck) {
+            flags |= NfcAdapter.FLAG_READER_SKIP_NDEF_CHECK;
+        }
+        if (noPlatformSounds) {
+            flags |= NfcAdapter.FLAG_READER_NO_PLATFORM_SOUNDS;
+        }
+        return flags;
+    }
+
+    static int flagOf(TagTech tech) {
+        switch (tech) {
+            case NFC_A:
+            case MIFARE_CLASSIC:
+            case MIFARE_ULTRALIGHT:
+                return NfcAdapter.FLAG_READER_NFC_A;
+            case NFC_B:
+                return NfcAdapter.FLAG_READER_NFC_B;
+            case NFC_F:
+                return NfcAdapter.FLAG_READER_NFC_F;
+            case NFC_V:
+                return NfcAdapter.FLAG_READER_NFC_V;
+            case ISO_DEP:
+                return NfcAdapter.FLAG_READER_NFC_A | NfcAdapter.FLAG_READER_NFC_B;
+            default:
+                // NDEF 可能出現在任何技術上
+                return NfcAdapter.FLAG_READER_NFC_A | NfcAdapter.FLAG_READER_NFC_B
+                        | NfcAdapter.FLAG_READER_NFC_F | NfcAdapter.FLAG_READER_NFC_V;
+        }
+    }
+
+    // 沒有額外參數時回傳 null
+    public Bundle extras() {
+        if (presenceCheckDelayMs == DEFAULT_PRESENCE_CHECK_DELAY) {
+            return null;
+        }
+        Bundle extras = new Bundle();
+        extras.putInt(NfcAdapter.EXTRA_READER_PRESENCE_CHECK_DELAY, presenceCheckDelayMs);
+        return extras;
+    }
+
+    // 例如 "NFC_A, 略過 NDEF 檢查, presence 250ms"
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        if (techs.isEmpty()) {
+            sb.append("A/B/F/V");
+        } else {
+            for (TagTech tech : techs) {
+                if (sb.length() > 0) sb.append('/');
+                sb.append(tech.name());
+            }
+        }
+        if (skipNdefCheck) {
+            sb.append(", 略過 NDEF 檢查");
+        }
+        sb.append(", presence ");
+        if (presenceCheckDelayMs == DEFAULT_PRESENCE_CHECK_DELAY) {
+            sb.append("預設");
+        } else {
+            sb.append(presenceCheckDelayMs).append("ms");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package com.smewise.nfcspeedtest.discovery;
+
+import android.app.Activity;
+import android.app.PendingIntent;
+import android.content.IntentFilter;
+import android.nfc.NfcAdapter;
+import android.nfc.Tag;
+
+import com.smewise.nfcspeedtest.trace.NanoClock;
+
+/**
+ * 在前台調度與 Reader Mode 之間切換標籤偵測方式。
+ * 前台調度的標籤仍由 Activity.onNewIntent 接收；Reader Mode 的標籤在 binder 執行緒回呼 Listener。
+ * enable/disable 需在 UI 執行緒的 onResume/onPause 呼叫。
+ */
+public class TagDiscovery {
+
+    public interface Listener {
+        // 在 binder 執行緒呼叫；discoveredAtNanos 為進入回呼的時間
+        void onReaderModeTag(Tag tag, long discoveredAtNanos);
+    }
+
+    private final Activity activity;
+    private final NfcAdapter adapter;
+    private final PendingIntent pendingIntent;
+    private final NanoClock clock;
+    private final Listener listener;
+    private final NfcAdapter.ReaderCallback readerCallback;
+
+    private DiscoveryMode mode = DiscoveryMode.FOREGROUND_DISPATCH;
+    private ReaderModeConfig config = new ReaderModeConfig();
+    private boolean enabled;
+
+    public TagDiscovery(Activity activity, NfcAdapter adapter, PendingIntent pendingIntent,
+                        NanoClock clock, Listener listener) {
+        this.activity = activity;
+        this.adapter = adapter;
+        this.pendingIntent = pendingIntent;
+        this.clock = clock;
+        this.listener = listener;
+        this.readerCallback = tag -> this.listener.onReaderModeTag(tag, this.clock.nanoTime());
+    }
+
+    public DiscoveryMode getMode() {
+        return mode;
+    }
+
+    public ReaderModeConfig getConfig() {
+        return config;
+    }
+
+    // 執行中切換時立即以新的方式重新啟用
+    public void setMode(DiscoveryMode mode) {
+        if (this.mode == mode) {
+            return;
+        }
+        boolean wasEnabled = enabled;
+        disable();
+        this.mode = mode;
+        if (wasEnabled) {
+            enable();
+        }
+    }
+
+    public void setConfig(ReaderModeConfig config) {
+        this.config = config;
+        if (enabled && mode == DiscoveryMode.READER_MODE) {
+            // enableReaderMode 可直接以新參數覆蓋
+            adapter.enableReaderMode(activity, readerCallback, config.flags(), config.extras());
+        }
+    }
+
+    public void enable() {
+        if (enabled) {
+            return;
+        }
+        if (mode == DiscoveryMode.READER_MODE) {
+            adapter.enableReaderMode(activity, readerCallback, config.flags(), config.extras());
+        } else {
+            IntentFilter tagDetected = new IntentFilter(NfcAdapter.ACTION_TAG_DISCOVERED);
+            IntentFilter[] filters = new IntentFilter[]{tagDetected};
+            adapter.enableForegroundDispatch(activity, pendingIntent, filters, null);
+        }
+        enabled = true;
+    }
+
+    public void disable() {
+        if (!enabled) {
+            return;
+        }
+        if (mode == DiscoveryMode.READER_MODE) {
+            adapter.disableReaderMode(activity);
+        } else {
+            adapter.disableForegroundDispatch(activity);
+        }
+        enabled = false;
+    }
+}
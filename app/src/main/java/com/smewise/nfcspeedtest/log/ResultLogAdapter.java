@@ -0,0 +1,151 @@
+package com.smewise.nfcspeedtest.log;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.smewise.nfcspeedtest.R;
+import com.smewise.nfcspeedtest.trace.LatencyTracer;
+import com.smewise.nfcspeedtest.trace.Phase;
+
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 以 RecyclerView 顯示 ResultRingBuffer，最新的在最上面。
+ * append 可在任何執行緒呼叫；畫面每一個 frame 最多更新一次（postOnAnimation），
+ * 只綁定可見的項目，因此紀錄再多也不影響輸入與靠卡的反應速度。
+ */
+public class ResultLogAdapter extends RecyclerView.Adapter<ResultLogAdapter.Holder> {
+    private final ResultRingBuffer log;
+    private final LatencyTracer tracer;
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+    private final ResultRingBuffer.Entry scratch = new ResultRingBuffer.Entry();
+    private final StringBuilder line = new StringBuilder(256);
+    private final TimeZone timeZone = TimeZone.getDefault();
+    private final Runnable flush = this::flush;
+
+    private volatile RecyclerView recyclerView;
+    // 以下只在 UI 執行緒存取
+    private long renderedEnd;
+    private int itemCount;
+
+    static final class Holder extends RecyclerView.ViewHolder {
+        final TextView text;
+
+        Holder(View itemView) {
+            super(itemView);
+            text = (TextView) itemView;
+        }
+    }
+
+    public ResultLogAdapter(ResultRingBuffer log, LatencyTracer tracer) {
+        this.log = log;
+        this.tracer = tracer;
+    }
+
+    public void attach(RecyclerView view) {
+        LinearLayoutManager layoutManager = new LinearLayoutManager(view.getContext());
+        view.setLayoutManager(layoutManager);
+        view.setItemAnimator(null);
+        view.setAdapter(this);
+        recyclerView = view;
+        requestFrame();
+    }
+
+    // 任何執行緒皆可呼叫
+    public void append(String text) {
+        log.append(text, System.currentTimeMillis(), tracer.now());
+        requestFrame();
+    }
+
+    private void requestFrame() {
+        RecyclerView view = recyclerView;
+        if (view != null && frameScheduled.compareAndSet(false, true)) {
+            view.postOnAnimation(flush);
+        }
+    }
+
+    // 在下一個 frame 把這段期間新增的紀錄一次通知給 RecyclerView
+    private void flush() {
+        frameScheduled.set(false);
+        long end = log.publishedEnd(renderedEnd);
+        if (end == renderedEnd) {
+            return;
+        }
+        int capacity = log.capacity();
+        long firstNew = Math.max(renderedEnd, end - capacity);
+        int inserted = (int) (end - firstNew);
+        int newCount = (int) Math.min(end, capacity);
+        int removed = itemCount + inserted - newCount;
+        renderedEnd = end;
+        itemCount = newCount;
+        if (inserted >= capacity) {
+            notifyDataSetChanged();
+        } else {
+            notifyItemRangeInserted(0, inserted);
+            if (removed > 0) {
+                notifyItemRangeRemoved(newCount, removed);
+            }
+        }
+
+        // 從 append 到實際顯示的時間
+        long now = tracer.now();
+        for (long seq = firstNew; seq < end; seq++) {
+            if (log.read(seq, scratch)) {
+                tracer.record(Phase.UI_RENDER, now - scratch.appendNanos);
+            }
+        }
+
+        RecyclerView view = recyclerView;
+        LinearLayoutManager layoutManager = (LinearLayoutManager) view.getLayoutManager();
+        if (layoutManager != null && layoutManager.findFirstVisibleItemPosition() <= 0) {
+            view.scrollToPosition(0);
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    @NonNull
+    @Override
+    public Holder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_result, parent, false);
+        return new Holder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull Holder holder, int position) {
+        long seq = renderedEnd - 1 - position;
+        if (!log.read(seq, scratch)) {
+            holder.text.setText("");
+            return;
+        }
+        line.setLength(0);
+        appendClockTime(line, scratch.wallTimeMillis + timeZone.getOffset(scratch.wallTimeMillis));
+        line.append(": ").append(scratch.text);
+        holder.text.setText(line.toString());
+    }
+
+    // HH:mm:ss，取代每筆紀錄 new SimpleDateFormat
+    private static void appendClockTime(StringBuilder sb, long localMillis) {
+        long secondsOfDay = Math.floorMod(localMillis / 1000, 86400L);
+        appendTwoDigits(sb, (int) (secondsOfDay / 3600));
+        sb.append(':');
+        appendTwoDigits(sb, (int) (secondsOfDay / 60 % 60));
+        sb.append(':');
+        appendTwoDigits(sb, (int) (secondsOfDay % 60));
+    }
+
+    private static void appendTwoDigits(StringBuilder sb, int value) {
+        if (value < 10) sb.append('0');
+        sb.append(value);
+    }
+}
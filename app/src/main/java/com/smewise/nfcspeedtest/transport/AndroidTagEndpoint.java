@@ -0,0 +1,462 @@
+package com.smewise.nfcspeedtest.transport;
+
+import android.nfc.FormatException;
+import android.nfc.NdefMessage;
+import android.nfc.Tag;
+import android.nfc.tech.IsoDep;
+import android.nfc.tech.MifareClassic;
+import android.nfc.tech.Ndef;
+import android.nfc.tech.NfcA;
+import android.nfc.tech.NfcB;
+import android.nfc.tech.NfcF;
+import android.nfc.tech.NfcV;
+import android.nfc.tech.TagTechnology;
+
+import java.io.IOException;
+import java.util.EnumSet;
+
+// 以 android.nfc.Tag 為後端的 TagEndpoint
+public class AndroidTagEndpoint implements TagEndpoint {
+    private final Tag tag;
+    private final EnumSet<TagTech> techs = EnumSet.noneOf(TagTech.class);
+
+    public AndroidTagEndpoint(Tag tag) {
+        this.tag = tag;
+        for (String className : tag.getTechList()) {
+            TagTech tech = TagTech.fromClassName(className);
+            if (tech != null) {
+                techs.add(tech);
+            }
+        }
+    }
+
+    public Tag getTag() {
+        return tag;
+    }
+
+    @Override
+    public byte[] getId() {
+        return tag.getId();
+    }
+
+    @Override
+    public String[] getTechList() {
+        return tag.getTechList();
+    }
+
+    @Override
+    public boolean supports(TagTech tech) {
+        return techs.contains(tech);
+    }
+
+    @Override
+    public NdefTransport ndef() {
+        Ndef ndef = Ndef.get(tag);
+        return ndef == null ? null : new AndroidNdef(ndef);
+    }
+
+    @Override
+    public NfcATransport nfcA() {
+        NfcA nfca = NfcA.get(tag);
+        return nfca == null ? null : new AndroidNfcA(nfca);
+    }
+
+    @Override
+    public NfcBTransport nfcB() {
+        NfcB nfcb = NfcB.get(tag);
+        return nfcb == null ? null : new AndroidNfcB(nfcb);
+    }
+
+    @Override
+    public NfcFTransport nfcF() {
+        NfcF nfcf = NfcF.get(tag);
+        return nfcf == null ? null : new AndroidNfcF(nfcf);
+    }
+
+    @Override
+    public NfcVTransport nfcV() {
+        NfcV nfcv = NfcV.get(tag);
+        return nfcv == null ? null : new AndroidNfcV(nfcv);
+    }
+
+    @Override
+    public IsoDepTransport isoDep() {
+        IsoDep iso = IsoDep.get(tag);
+        return iso == null ? null : new AndroidIsoDep(iso);
+    }
+
+    @Override
+    public MifareClassicTransport mifareClassic() {
+        MifareClassic mifare = MifareClassic.get(tag);
+        return mifare == null ? null : new AndroidMifareClassic(mifare);
+    }
+
+    // 將 Android 的 TagLostException 轉成本套件的例外，讓上層不需區分後端
+    static IOException translate(IOException e) {
+        if (e instanceof android.nfc.TagLostException) {
+            return new TagLostException(e.getMessage(), e);
+        }
+        return e;
+    }
+
+    private abstract static class Base<T extends TagTechnology> implements TagTransport {
+        final T tech;
+        private final TagTech type;
+
+        Base(T tech, TagTech type) {
+            this.tech = tech;
+            this.type = type;
+        }
+
+        @Override
+        public TagTech tech() {
+            return type;
+        }
+
+        @Override
+        public void connect() throws IOException {
+            try {
+                tech.connect();
+            } catch (IOException e) {
+                throw translate(e);
+            }
+        }
+
+        @Override
+        public boolean isConnected() {
+            return tech.isConnected();
+        }
+
+        @Override
+        public byte[] transceive(byte[] data) throws IOException {
+            try {
+                return doTransceive(data);
+            } catch (IOException e) {
+                throw translate(e);
+            }
+        }
+
+        abstract byte[] doTransceive(byte[] data) throws IOException;
+
+        @Override
+        public void setTimeout(int timeoutMs) {
+            // 預設不支援
+        }
+
+        @Override
+        public int getTimeout() {
+            return 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            tech.close();
+        }
+    }
+
+    private static final class AndroidNdef extends Base<Ndef> implements NdefTransport {
+        AndroidNdef(Ndef ndef) {
+            super(ndef, TagTech.NDEF);
+        }
+
+        @Override
+        byte[] doTransceive(byte[] data) throws IOException {
+            throw new IOException("Ndef 不支援 transceive");
+        }
+
+        @Override
+        public int getMaxTransceiveLength() {
+            return 0;
+        }
+
+        @Override
+        public String getType() {
+            return tech.getType();
+        }
+
+        @Override
+        public int getMaxSize() {
+            return tech.getMaxSize();
+        }
+
+        @Override
+        public boolean isWritable() {
+            return tech.isWritable();
+        }
+
+        @Override
+        public byte[] readNdefMessage() throws IOException {
+            try {
+                NdefMessage message = tech.getNdefMessage();
+                return message == null ? null : message.toByteArray();
+            } catch (FormatException e) {
+                throw new IOException("NDEF 格式錯誤: " + e.getMessage(), e);
+            } catch (IOException e) {
+                throw translate(e);
+            }
+        }
+
+        @Override
+        public void writeNdefMessage(byte[] message) throws IOException {
+            try {
+                tech.writeNdefMessage(new NdefMessage(message));
+            } catch (FormatException e) {
+                throw new IOException("NDEF 格式錯誤: " + e.getMessage(), e);
+            } catch (IOException e) {
+                throw translate(e);
+            }
+        }
+    }
+
+    private static final class AndroidNfcA extends Base<NfcA> implements NfcATransport {
+        AndroidNfcA(NfcA nfca) {
+            super(nfca, TagTech.NFC_A);
+        }
+
+        @Override
+        byte[] doTransceive(byte[] data) throws IOException {
+            return tech.transceive(data);
+        }
+
+        @Override
+        public int getMaxTransceiveLength() {
+            return tech.getMaxTransceiveLength();
+        }
+
+        @Override
+        public void setTimeout(int timeoutMs) {
+            tech.setTimeout(timeoutMs);
+        }
+
+        @Override
+        public int getTimeout() {
+            return tech.getTimeout();
+        }
+
+        @Override
+        public byte[] getAtqa() {
+            return tech.getAtqa();
+        }
+
+        @Override
+        public short getSak() {
+            return tech.getSak();
+        }
+    }
+
+    private static final class AndroidNfcB extends Base<NfcB> implements NfcBTransport {
+        AndroidNfcB(NfcB nfcb) {
+            super(nfcb, TagTech.NFC_B);
+        }
+
+        @Override
+        byte[] doTransceive(byte[] data) throws IOException {
+            return tech.transceive(data);
+        }
+
+        @Override
+        public int getMaxTransceiveLength() {
+            return tech.getMaxTransceiveLength();
+        }
+
+        @Override
+        public byte[] getApplicationData() {
+            return tech.getApplicationData();
+        }
+
+        @Override
+        public byte[] getProtocolInfo() {
+            return tech.getProtocolInfo();
+        }
+    }
+
+    private static final class AndroidNfcF extends Base<NfcF> implements NfcFTransport {
+        AndroidNfcF(NfcF nfcf) {
+            super(nfcf, TagTech.NFC_F);
+        }
+
+        @Override
+        byte[] doTransceive(byte[] data) throws IOException {
+            return tech.transceive(data);
+        }
+
+        @Override
+        public int getMaxTransceiveLength() {
+            return tech.getMaxTransceiveLength();
+        }
+
+        @Override
+        public void setTimeout(int timeoutMs) {
+            tech.setTimeout(timeoutMs);
+        }
+
+        @Override
+        public int getTimeout() {
+            return tech.getTimeout();
+        }
+
+        @Override
+        public byte[] getManufacturer() {
+            return tech.getManufacturer();
+        }
+
+        @Override
+        public byte[] getSystemCode() {
+            return tech.getSystemCode();
+        }
+    }
+
+    private static final class AndroidNfcV extends Base<NfcV> implements NfcVTransport {
+        AndroidNfcV(NfcV nfcv) {
+            super(nfcv, TagTech.NFC_V);
+        }
+
+        @Override
+        byte[] doTransceive(byte[] data) throws IOException {
+            return tech.transceive(data);
+        }
+
+        @Override
+        public int getMaxTransceiveLength() {
+            return tech.getMaxTransceiveLength();
+        }
+
+        @Override
+        public byte getDsfId() {
+            return tech.getDsfId();
+        }
+
+        @Override
+        public byte getResponseFlags() {
+            return tech.getResponseFlags();
+        }
+    }
+
+    private static final class AndroidIsoDep extends Base<IsoDep> implements IsoDepTransport {
+        AndroidIsoDep(IsoDep iso) {
+            super(iso, TagTech.ISO_DEP);
+        }
+
+        @Override
+        byte[] doTransceive(byte[] data) throws IOException {
+            return tech.transceive(data);
+        }
+
+        @Override
+        public int getMaxTransceiveLength() {
+            return tech.getMaxTransceiveLength();
+        }
+
+        @Override
+        public void setTimeout(int timeoutMs) {
+            tech.setTimeout(timeoutMs);
+        }
+
+        @Override
+        public int getTimeout() {
+            return tech.getTimeout();
+        }
+
+        @Override
+        public boolean isExtendedLengthApduSupported() {
+            return tech.isExtendedLengthApduSupported();
+        }
+
+        @Override
+        public byte[] getHistoricalBytes() {
+            return tech.getHistoricalBytes();
+        }
+    }
+
+    private static final class AndroidMifareClassic extends Base<MifareClassic> implements MifareClassicTransport {
+        AndroidMifareClassic(MifareClassic mifare) {
+            super(mifare, TagTech.MIFARE_CLASSIC);
+        }
+
+        @Override
+        byte[] doTransceive(byte[] data) throws IOException {
+            return tech.transceive(data);
+        }
+
+        @Override
+        public int getMaxTransceiveLength() {
+            return tech.getMaxTransceiveLength();
+        }
+
+        @Override
+        public void setTimeout(int timeoutMs) {
+            tech.setTimeout(timeoutMs);
+        }
+
+        @Override
+        public int getTimeout() {
+            return tech.getTimeout();
+        }
+
+        @Override
+        public int getSize() {
+            return tech.getSize();
+        }
+
+        @Override
+        public int getSectorCount() {
+            return tech.getSectorCount();
+        }
+
+        @Override
+        public int getBlockCount() {
+            return tech.getBlockCount();
+        }
+
+        @Override
+        public int getBlockCountInSector(int sectorIndex) {
+            return tech.getBlockCountInSector(sectorIndex);
+        }
+
+        @Override
+        public int sectorToBlock(int sectorIndex) {
+            return tech.sectorToBlock(sectorIndex);
+        }
+
+        @Override
+        public int blockToSector(int blockIndex) {
+            return tech.blockToSector(blockIndex);
+        }
+
+        @Override
+        public boolean authenticateSectorWithKeyA(int sectorIndex, byte[] key) throws IOException {
+            try {
+                return tech.authenticateSectorWithKeyA(sectorIndex, key);
+            } catch (IOException e) {
+                throw translate(e);
+            }
+        }
+
+        @Override
+        public boolean authenticateSectorWithKeyB(int sectorIndex, byte[] key) throws IOException {
+            try {
+                return tech.authenticateSectorWithKeyB(sectorIndex, key);
+            } catch (IOException e) {
+                throw translate(e);
+            }
+        }
+
+        @Override
+        public byte[] readBlock(int blockIndex) throws IOException {
+            try {
+                return tech.readBlock(blockIndex);
+            } catch (IOException e) {
+                throw translate(e);
+            }
+        }
+
+        @Override
+        public void writeBlock(int blockIndex, byte[] data) throws IOException {
+            try {
+                tech.writeBlock(blockIndex, data);
+            } catch (IOException e) {
+                throw translate(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.smewise.nfcspeedtest.discovery;
+
+import android.nfc.NfcAdapter;
+
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReaderModeConfigTest {
+    private static final int ALL_TECHS = NfcAdapter.FLAG_READER_NFC_A | NfcAdapter.FLAG_READER_NFC_B
+            | NfcAdapter.FLAG_READER_NFC_F | NfcAdapter.FLAG_READER_NFC_V;
+
+    @Test
+    public void defaultsPollEverythingAndSkipNdefCheck() {
+        ReaderModeConfig config = new ReaderModeConfig();
+        assertEquals(ALL_TECHS | NfcAdapter.FLAG_READER_SKIP_NDEF_CHECK, config.flags());
+        assertEquals(ReaderModeConfig.DEFAULT_PRESENCE_CHECK_DELAY, config.getPresenceCheckDelay());
+        assertTrue(config.describe().startsWith("A/B/F/V"));
+    }
+
+    @Test
+    public void selectedTechsOnly() {
+        ReaderModeConfig config = new ReaderModeConfig()
+                .poll(TagTech.NFC_F)
+                .setSkipNdefCheck(false)
+                .setPresenceCheckDelay(250);
+        assertEquals(NfcAdapter.FLAG_READER_NFC_F, config.flags());
+        assertEquals("NFC_F, presence 250ms", config.describe());
+
+        config.poll(TagTech.ISO_DEP);
+        assertEquals(NfcAdapter.FLAG_READER_NFC_A | NfcAdapter.FLAG_READER_NFC_B | NfcAdapter.FLAG_READER_NFC_F,
+                config.flags());
+    }
+}
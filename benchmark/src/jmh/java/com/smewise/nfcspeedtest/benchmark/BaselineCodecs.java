@@ -0,0 +1,110 @@
+package com.smewise.nfcspeedtest.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MainActivity 中每次靠卡都會執行的編碼/解析程式，逐字複製作為基準。
+ * MainActivity 的實作是 private 且依賴 Android，無法直接在 JVM 上量測；修改 MainActivity 時這裡保持原樣，
+ * 以便比較優化前後的差異。
+ */
+final class BaselineCodecs {
+
+    private BaselineCodecs() {
+    }
+
+    // MainActivity.bytesToHex
+    static String bytesToHex(byte[] bytes) {
+        if (bytes == null) return "null";
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02X ", b));
+        }
+        return sb.toString().trim();
+    }
+
+    // MainActivity.hexStringToByteArray
+    static byte[] hexStringToByteArray(String hex) {
+        int len = hex.length();
+        byte[] data = new byte[len/2];
+        for (int i=0; i < len; i+=2)
+            data[i/2] = (byte)((Character.digit(hex.charAt(i),16) << 4)
+                    + Character.digit(hex.charAt(i+1),16));
+        return data;
+    }
+
+    // MainActivity.readNdefTag 中 RTD_TEXT payload 的解析（payload 已由 NdefRecord.getPayload() 複製出來）
+    static String decodeTextPayload(byte[] payload) throws UnsupportedEncodingException {
+        String textEncoding = ((payload[0] & 0x80) == 0) ? "UTF-8" : "UTF-16";
+        int langCodeLen = payload[0] & 0x3F;
+        return new String(payload, 1 + langCodeLen, payload.length - 1 - langCodeLen, textEncoding);
+    }
+
+    // MainActivity.allReadMifareClassicBlock 中每個區塊的輸出格式
+    static String formatMifareBlock(int sector, int block, byte[] data) {
+        return String.format("區段 %02d 區塊 %02d: %s\n", sector, block, bytesToHex(data));
+    }
+
+    // MainActivity.writeNfcFTag 的 Write Without Encryption 指令組裝
+    static byte[] buildFelicaWrite(byte[] id, byte serviceCode1, byte[] dataToWriteNfcF) throws IOException {
+        ByteArrayOutputStream cmd = new ByteArrayOutputStream();
+        cmd.write(0); // placeholder for length
+        cmd.write(0x08); // Write Without Encryption
+        cmd.write(id); // IDm
+        cmd.write(1); // Number of services
+        cmd.write((byte)(serviceCode1 & 0xFF));
+        cmd.write((byte)((serviceCode1 >> 8) & 0xFF)); // Little-endian
+
+        cmd.write(1); // Number of blocks
+        cmd.write(0x80); // Block List Element with 2-byte block number
+        cmd.write(0x00); // Block number (first block, for example)
+
+        cmd.write(dataToWriteNfcF); // 16 bytes of data to write
+
+        byte[] command = cmd.toByteArray();
+        command[0] = (byte) command.length; // set length
+        return command;
+    }
+
+    // MainActivity.writeNfcVTag 的 Write Single Block 指令組裝
+    static byte[] buildNfcVWrite(byte[] uid, int blockNumber, byte[] dataToWriteNfcV) throws IOException {
+        ByteArrayOutputStream cmd = new ByteArrayOutputStream();
+        cmd.write(0x22); // Flags: Addressed (0x20) + high data rate (0x02)
+        cmd.write(0x21); // Command: Write Single Block (0x21)
+        for (int i = uid.length - 1; i >= 0; i--) {
+            cmd.write(uid[i]); // UID 是 little-endian，要反轉
+        }
+        cmd.write(blockNumber); // Block number
+        cmd.write(dataToWriteNfcV); // 4 bytes of data
+        return cmd.toByteArray();
+    }
+
+    /**
+     * android.nfc.NdefMessage(byte[]) 的解析方式：每個 record 的 type / id / payload 各複製一份，
+     * readNdefTag 再呼叫 getPayload() 又複製一次（只處理未分段的 record）。
+     */
+    static List<byte[]> parseNdefPayloadCopies(byte[] message) {
+        List<byte[]> payloads = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        boolean last = false;
+        while (!last) {
+            int flag = buffer.get();
+            last = (flag & 0x40) != 0;
+            int typeLength = buffer.get() & 0xFF;
+            int payloadLength = (flag & 0x10) != 0 ? buffer.get() & 0xFF : buffer.getInt();
+            int idLength = (flag & 0x08) != 0 ? buffer.get() & 0xFF : 0;
+            byte[] type = new byte[typeLength];
+            byte[] id = new byte[idLength];
+            byte[] payload = new byte[payloadLength];
+            buffer.get(type);
+            buffer.get(id);
+            buffer.get(payload);
+            payloads.add(payload.clone());
+        }
+        return payloads;
+    }
+}
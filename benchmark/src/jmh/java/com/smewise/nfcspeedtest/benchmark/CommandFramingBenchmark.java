@@ -0,0 +1,29 @@
+package com.smewise.nfcspeedtest.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+// writeNfcFTag / writeNfcVTag 以 ByteArrayOutputStream 組裝指令的成本
+@State(Scope.Benchmark)
+public class CommandFramingBenchmark {
+
+    final byte[] idm = {0x01, 0x2E, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66};
+    final byte[] uid = {(byte) 0xE0, 0x04, 0x01, 0x50, 0x11, 0x22, 0x33, 0x44};
+    final byte[] felicaData = {
+            0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08,
+            0x09, 0x0A, 0x0B, 0x0C, 0x0D, 0x0E, 0x0F, 0x10};
+    final byte[] nfcvData = {0x01, 0x02, 0x03, 0x04};
+
+    @Benchmark
+    public byte[] felicaWriteWithoutEncryption() throws IOException {
+        return BaselineCodecs.buildFelicaWrite(idm, (byte) 0x0B, felicaData);
+    }
+
+    @Benchmark
+    public byte[] nfcvWriteSingleBlock() throws IOException {
+        return BaselineCodecs.buildNfcVWrite(uid, 0, nfcvData);
+    }
+}
@@ -0,0 +1,75 @@
+package com.smewise.nfcspeedtest.benchmark;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+// bytesToHex / hexStringToByteArray：4、7 bytes 為 UID，16 bytes 為一個 MIFARE 區塊，1024 bytes 為 1K 卡完整內容
+@State(Scope.Benchmark)
+public class HexBenchmark {
+
+    @Param({"4", "7", "16", "1024"})
+    int size;
+
+    byte[] bytes;
+    String hex;
+    String displayHex;
+    StringBuilder reusedBuilder;
+    byte[] reusedBytes;
+
+    @Setup
+    public void setup() {
+        bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        hex = BaselineCodecs.bytesToHex(bytes).replace(" ", "");
+        displayHex = BaselineCodecs.bytesToHex(bytes);
+        reusedBuilder = new StringBuilder(size * 3);
+        reusedBytes = new byte[size];
+    }
+
+    @Benchmark
+    public String bytesToHex() {
+        return BaselineCodecs.bytesToHex(bytes);
+    }
+
+    @Benchmark
+    public byte[] hexStringToByteArray() {
+        return BaselineCodecs.hexStringToByteArray(hex);
+    }
+
+    @Benchmark
+    public String tableToDisplayHex() {
+        return HexCodec.toDisplayHex(bytes);
+    }
+
+    // 寫入重複使用的 StringBuilder，不產生 String
+    @Benchmark
+    public StringBuilder tableEncodeIntoBuilder() {
+        reusedBuilder.setLength(0);
+        return HexCodec.encode(bytes, reusedBuilder, ' ');
+    }
+
+    @Benchmark
+    public byte[] tableDecode() {
+        return HexCodec.decode(hex);
+    }
+
+    @Benchmark
+    public byte[] tableDecodeIntoBuffer() {
+        HexCodec.decode(hex, 0, hex.length(), reusedBytes, 0);
+        return reusedBytes;
+    }
+
+    // etWriteData 的驗證式解析（允許空白分隔）
+    @Benchmark
+    public byte[] tableParseDisplayHex() {
+        HexCodec.parse(displayHex, reusedBytes, 0);
+        return reusedBytes;
+    }
+}
@@ -0,0 +1,58 @@
+package com.smewise.nfcspeedtest.benchmark;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+// allReadMifareClassicBlock 產生整張卡文字輸出的成本（1K = 64 區塊，4K = 256 區塊）
+@State(Scope.Benchmark)
+public class MifareDumpFormatBenchmark {
+
+    @Param({"64", "256"})
+    int blocks;
+
+    byte[][] data;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        data = new byte[blocks][16];
+        for (byte[] block : data) {
+            random.nextBytes(block);
+        }
+    }
+
+    @Benchmark
+    public String formatDump() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < blocks; i++) {
+            int sector = i < 128 ? i / 4 : 32 + (i - 128) / 16;
+            int block = i < 128 ? i % 4 : (i - 128) % 16;
+            result.append(BaselineCodecs.formatMifareBlock(sector, block, data[i]));
+        }
+        return result.toString();
+    }
+
+    // MainActivity 改用 HexCodec 後的寫法
+    @Benchmark
+    public String formatDumpTable() {
+        StringBuilder result = new StringBuilder(blocks * 64);
+        for (int i = 0; i < blocks; i++) {
+            int sector = i < 128 ? i / 4 : 32 + (i - 128) / 16;
+            int block = i < 128 ? i % 4 : (i - 128) % 16;
+            result.append("區段 ");
+            if (sector < 10) result.append('0');
+            result.append(sector).append(" 區塊 ");
+            if (block < 10) result.append('0');
+            result.append(block).append(": ");
+            HexCodec.encode(data[i], result, ' ').append('\n');
+        }
+        return result.toString();
+    }
+}
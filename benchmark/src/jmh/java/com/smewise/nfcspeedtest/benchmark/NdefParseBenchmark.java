@@ -0,0 +1,61 @@
+package com.smewise.nfcspeedtest.benchmark;
+
+import com.smewise.nfcspeedtest.ndef.NdefFormat;
+import com.smewise.nfcspeedtest.ndef.NdefMessageView;
+import com.smewise.nfcspeedtest.ndef.NdefRecordView;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// 讀取 MIME record（vCard / 小圖片）的 payload：NdefMessage 式的逐欄複製 vs. NdefMessageView 的原地檢視
+@State(Scope.Benchmark)
+public class NdefParseBenchmark {
+
+    // 200 bytes 約為一張簡短 vCard，860 bytes 接近 NTAG216 上限，8000 bytes 為 IsoDep Type 4 標籤上的小圖片
+    @Param({"200", "860", "8000"})
+    int payloadLength;
+
+    byte[] message;
+    NdefRecordView reusedCursor;
+
+    @Setup
+    public void setup() {
+        byte[] payload = new byte[payloadLength];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        message = NdefFormat.singleRecord(NdefFormat.TNF_MIME_MEDIA, NdefFormat.ascii("text/vcard"), null, payload);
+        reusedCursor = new NdefRecordView();
+    }
+
+    @Benchmark
+    public int copyPayloads() {
+        List<byte[]> payloads = BaselineCodecs.parseNdefPayloadCopies(message);
+        return payloads.get(0).length;
+    }
+
+    @Benchmark
+    public int viewPayload() {
+        NdefRecordView record = reusedCursor.reset(NdefMessageView.wrap(message));
+        record.next();
+        ByteBuffer payload = record.payload();
+        return payload.remaining() + (record.isMime() ? 1 : 0);
+    }
+
+    // 只走訪標頭判斷類型與長度，不讀取 payload
+    @Benchmark
+    public int viewHeaders() {
+        NdefRecordView record = reusedCursor.reset(NdefMessageView.wrap(message));
+        int total = 0;
+        while (record.next()) {
+            total += record.payloadLength();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,49 @@
+package com.smewise.nfcspeedtest.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// readNdefTag 的 RTD_TEXT 解析；copyAndDecode 另外包含 NdefRecord.getPayload() 的複製成本
+@State(Scope.Benchmark)
+public class NdefTextBenchmark {
+
+    // 32 bytes 為一般短文字，137 bytes 為 NTAG213 容量上限，860 bytes 接近 NTAG216 上限
+    @Param({"32", "137", "860"})
+    int textLength;
+
+    @Param({"UTF-8", "UTF-16"})
+    String encoding;
+
+    byte[] payload;
+
+    @Setup
+    public void setup() {
+        char[] chars = new char[textLength];
+        Arrays.fill(chars, 'a');
+        Charset charset = Charset.forName(encoding);
+        byte[] text = new String(chars).getBytes(charset);
+        byte[] lang = "en".getBytes(StandardCharsets.US_ASCII);
+        payload = new byte[1 + lang.length + text.length];
+        payload[0] = (byte) (("UTF-16".equals(encoding) ? 0x80 : 0x00) | lang.length);
+        System.arraycopy(lang, 0, payload, 1, lang.length);
+        System.arraycopy(text, 0, payload, 1 + lang.length, text.length);
+    }
+
+    @Benchmark
+    public String decode() throws UnsupportedEncodingException {
+        return BaselineCodecs.decodeTextPayload(payload);
+    }
+
+    @Benchmark
+    public String copyAndDecode() throws UnsupportedEncodingException {
+        return BaselineCodecs.decodeTextPayload(payload.clone());
+    }
+}
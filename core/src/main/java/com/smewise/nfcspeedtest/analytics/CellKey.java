@@ -0,0 +1,72 @@
+package com.smewise.nfcspeedtest.analytics;
+
+import com.smewise.nfcspeedtest.store.MeasurementOp;
+import com.smewise.nfcspeedtest.store.MeasurementRecord;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+// 統計格的鍵：技術 × 操作 × 標籤型號 × 手機型號
+final class CellKey {
+    final int tech;
+    final int opCode;
+    final String tagModel;
+    final String device;
+    private final int hash;
+
+    CellKey(int tech, int opCode, String tagModel, String device) {
+        this.tech = tech;
+        this.opCode = opCode;
+        this.tagModel = tagModel;
+        this.device = device;
+        this.hash = ((tech * 31 + opCode) * 31 + tagModel.hashCode()) * 31 + device.hashCode();
+    }
+
+    static CellKey of(MeasurementRecord record, String device) {
+        return new CellKey(record.tech, record.opCode, record.tagModel(), device == null ? "" : device);
+    }
+
+    TagTech tagTech() {
+        return tech >= 0 && tech < TagTech.values().length ? TagTech.values()[tech] : null;
+    }
+
+    MeasurementOp op() {
+        return MeasurementOp.fromCode(opCode);
+    }
+
+    // 顯示用的維度值；未知時為 "未知"
+    String value(Dimension dimension) {
+        switch (dimension) {
+            case TECH: {
+                TagTech t = tagTech();
+                return t == null ? "未知" : t.simpleName();
+            }
+            case OPERATION: {
+                MeasurementOp op = op();
+                return op == null ? "操作 " + opCode : op.label();
+            }
+            case TAG_MODEL:
+                return tagModel.isEmpty() ? "未知" : tagModel;
+            case DEVICE:
+                return device.isEmpty() ? "未知" : device;
+            default:
+                throw new IllegalArgumentException(String.valueOf(dimension));
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CellKey)) {
+            return false;
+        }
+        CellKey other = (CellKey) o;
+        return tech == other.tech && opCode == other.opCode
+                && tagModel.equals(other.tagModel) && device.equals(other.device);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,19 @@
+package com.smewise.nfcspeedtest.analytics;
+
+// 分組比較的維度
+public enum Dimension {
+    TECH("技術"),
+    OPERATION("操作"),
+    TAG_MODEL("標籤型號"),
+    DEVICE("手機型號");
+
+    private final String label;
+
+    Dimension(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
@@ -0,0 +1,95 @@
+package com.smewise.nfcspeedtest.analytics;
+
+import com.smewise.nfcspeedtest.store.MeasurementCursor;
+import com.smewise.nfcspeedtest.store.MeasurementRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 依 技術 × 操作 × 標籤型號 × 手機型號 分格累計的量測統計。
+ * 每格一組可合併的直方圖，新紀錄以 accept 增量更新；也可以串流讀取紀錄庫重建，記憶體只與格數有關。
+ * 查詢只合併符合條件的格子，與紀錄數無關。accept 與查詢可在不同執行緒同時進行。
+ */
+public class MeasurementAnalytics {
+    private final ConcurrentHashMap<CellKey, MeasurementStats> cells = new ConcurrentHashMap<>();
+
+    public void accept(MeasurementRecord record, String device) {
+        cell(CellKey.of(record, device)).accept(record);
+    }
+
+    private MeasurementStats cell(CellKey key) {
+        MeasurementStats stats = cells.get(key);
+        return stats != null ? stats : cells.computeIfAbsent(key, k -> new MeasurementStats());
+    }
+
+    // 串流讀取整個紀錄庫；手機型號取自各 segment 的標頭
+    public static MeasurementAnalytics rebuild(File dir) throws IOException {
+        MeasurementAnalytics analytics = new MeasurementAnalytics();
+        try (MeasurementCursor cursor = MeasurementCursor.open(dir)) {
+            while (cursor.next()) {
+                analytics.accept(cursor.record(), cursor.deviceModel());
+            }
+        }
+        return analytics;
+    }
+
+    // 合併另一份統計（例如另一支手機的紀錄庫）
+    public void merge(MeasurementAnalytics other) {
+        for (Map.Entry<CellKey, MeasurementStats> e : other.cells.entrySet()) {
+            cell(e.getKey()).merge(e.getValue());
+        }
+    }
+
+    public int cellCount() {
+        return cells.size();
+    }
+
+    public void reset() {
+        cells.clear();
+    }
+
+    // 符合條件的所有格子合併後的統計
+    public MeasurementStats query(MeasurementQuery query) {
+        MeasurementStats result = new MeasurementStats();
+        for (Map.Entry<CellKey, MeasurementStats> e : cells.entrySet()) {
+            if (query.matches(e.getKey())) {
+                result.merge(e.getValue());
+            }
+        }
+        return result;
+    }
+
+    // 依某個維度分組，例如同樣條件下比較各標籤型號
+    public SortedMap<String, MeasurementStats> groupBy(Dimension dimension, MeasurementQuery query) {
+        SortedMap<String, MeasurementStats> groups = new TreeMap<>();
+        for (Map.Entry<CellKey, MeasurementStats> e : cells.entrySet()) {
+            if (!query.matches(e.getKey())) {
+                continue;
+            }
+            String value = e.getKey().value(dimension);
+            MeasurementStats group = groups.get(value);
+            if (group == null) {
+                group = new MeasurementStats();
+                groups.put(value, group);
+            }
+            group.merge(e.getValue());
+        }
+        return groups;
+    }
+
+    public String summary(Dimension dimension, MeasurementQuery query) {
+        StringBuilder sb = new StringBuilder("量測紀錄依").append(dimension.label())
+                .append("（").append(query.describe()).append("）\n");
+        for (Map.Entry<String, MeasurementStats> e : groupBy(dimension, query).entrySet()) {
+            sb.append(e.getKey()).append(": ");
+            e.getValue().appendSummary(sb);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
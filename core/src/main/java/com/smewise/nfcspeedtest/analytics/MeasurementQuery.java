@@ -0,0 +1,63 @@
+package com.smewise.nfcspeedtest.analytics;
+
+import com.smewise.nfcspeedtest.store.MeasurementOp;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+/**
+ * 查詢條件，未設定的維度不過濾，例如 NTAG215 上的 NDEF 寫入：
+ * <pre>
+ * new MeasurementQuery().tech(TagTech.NDEF).op(MeasurementOp.WRITE).tagModel("NTAG215")
+ * </pre>
+ */
+public class MeasurementQuery {
+    private TagTech tech;
+    private MeasurementOp op;
+    private String tagModel;
+    private String device;
+
+    public MeasurementQuery tech(TagTech tech) {
+        this.tech = tech;
+        return this;
+    }
+
+    public MeasurementQuery op(MeasurementOp op) {
+        this.op = op;
+        return this;
+    }
+
+    public MeasurementQuery tagModel(String tagModel) {
+        this.tagModel = tagModel;
+        return this;
+    }
+
+    public MeasurementQuery device(String device) {
+        this.device = device;
+        return this;
+    }
+
+    boolean matches(CellKey key) {
+        return (tech == null || key.tech == tech.ordinal())
+                && (op == null || key.opCode == op.code())
+                && (tagModel == null || key.tagModel.equals(tagModel))
+                && (device == null || key.device.equals(device));
+    }
+
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        append(sb, tech == null ? null : tech.simpleName());
+        append(sb, op == null ? null : op.label());
+        append(sb, tagModel);
+        append(sb, device);
+        return sb.length() == 0 ? "全部" : sb.toString();
+    }
+
+    private static void append(StringBuilder sb, String value) {
+        if (value == null) {
+            return;
+        }
+        if (sb.length() > 0) {
+            sb.append(" / ");
+        }
+        sb.append(value);
+    }
+}
@@ -0,0 +1,123 @@
+package com.smewise.nfcspeedtest.analytics;
+
+import com.smewise.nfcspeedtest.store.MeasurementRecord;
+import com.smewise.nfcspeedtest.trace.LatencyHistogram;
+import com.smewise.nfcspeedtest.trace.Phase;
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 一組紀錄的計數與延遲分布。延遲只統計成功的紀錄；各階段的直方圖在第一次出現該階段時才配置。
+ * 直方圖與計數皆為 lock-free，可一邊 accept 一邊查詢；merge 可合併不同手機或不同時段的結果。
+ */
+public class MeasurementStats {
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong tagLost = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final AtomicReferenceArray<LatencyHistogram> phases =
+            new AtomicReferenceArray<>(Phase.values().length);
+
+    public void accept(MeasurementRecord record) {
+        count.incrementAndGet();
+        if (record.result == MeasurementRecord.RESULT_TAG_LOST) {
+            tagLost.incrementAndGet();
+            return;
+        }
+        if (record.result != MeasurementRecord.RESULT_OK) {
+            errors.incrementAndGet();
+            return;
+        }
+        bytes.addAndGet(record.bytes);
+        total.record(record.totalNanos);
+        for (int i = 0; i < MeasurementRecord.PHASE_COUNT; i++) {
+            long nanos = record.phaseNanos[i];
+            if (nanos > 0) {
+                phaseHistogram(i).record(nanos);
+            }
+        }
+    }
+
+    public void merge(MeasurementStats other) {
+        count.addAndGet(other.count.get());
+        errors.addAndGet(other.errors.get());
+        tagLost.addAndGet(other.tagLost.get());
+        bytes.addAndGet(other.bytes.get());
+        total.merge(other.total);
+        for (int i = 0; i < phases.length(); i++) {
+            LatencyHistogram h = other.phases.get(i);
+            if (h != null) {
+                phaseHistogram(i).merge(h);
+            }
+        }
+    }
+
+    private LatencyHistogram phaseHistogram(int index) {
+        LatencyHistogram h = phases.get(index);
+        if (h == null) {
+            phases.compareAndSet(index, null, new LatencyHistogram());
+            h = phases.get(index);
+        }
+        return h;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSuccesses() {
+        return total.getCount();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getTagLost() {
+        return tagLost.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public double errorRate() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) (errors.get() + tagLost.get()) / n;
+    }
+
+    // 整次靠卡的延遲分布（只含成功的紀錄）
+    public LatencyHistogram total() {
+        return total;
+    }
+
+    // 某個階段的延遲分布，沒有資料時回傳 null
+    public LatencyHistogram phase(Phase phase) {
+        return phases.get(phase.ordinal());
+    }
+
+    // percentile 介於 0~100；phase 為 null 時查整體
+    public long getPercentile(Phase phase, double percentile) {
+        LatencyHistogram h = phase == null ? total : phases.get(phase.ordinal());
+        return h == null ? 0 : h.getPercentile(percentile);
+    }
+
+    // 例如 "n=120 p50=12.345ms p95=… p99=… 失敗 2 / 移開 1"
+    public void appendSummary(StringBuilder sb) {
+        sb.append("n=").append(count.get());
+        if (total.getCount() > 0) {
+            sb.append(" p50=");
+            SessionTrace.appendMillis(sb, total.getPercentile(50));
+            sb.append(" p95=");
+            SessionTrace.appendMillis(sb, total.getPercentile(95));
+            sb.append(" p99=");
+            SessionTrace.appendMillis(sb, total.getPercentile(99));
+        }
+        if (errors.get() > 0 || tagLost.get() > 0) {
+            sb.append(" 失敗 ").append(errors.get()).append(" / 移開 ").append(tagLost.get());
+        }
+    }
+}
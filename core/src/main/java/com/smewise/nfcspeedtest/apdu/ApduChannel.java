@@ -0,0 +1,232 @@
+package com.smewise.nfcspeedtest.apdu;
+
+import com.smewise.nfcspeedtest.transport.IsoDepTransport;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * ISO-DEP 上的 APDU 通道：
+ * 卡片與手機都支援時使用延伸長度 APDU，一次往返可傳送整個檔案；
+ * 自動處理 61xx（以 GET RESPONSE 取回剩餘資料）與 6Cxx（以正確的 Le 重送）；
+ * 大筆寫入以 command chaining 分段；READ BINARY 可連續讀入自動擴充的 buffer。
+ * 建立時設定 IsoDep 逾時。只在 NFC I/O 執行緒使用。
+ */
+public class ApduChannel {
+    public static final int DEFAULT_TIMEOUT_MS = 1000;
+
+    public static final int INS_SELECT = 0xA4;
+    public static final int INS_READ_BINARY = 0xB0;
+    public static final int INS_GET_RESPONSE = 0xC0;
+    public static final int INS_UPDATE_BINARY = 0xD6;
+
+    public static final int SW_WRONG_LENGTH = 0x6700;
+    public static final int SW_WRONG_OFFSET = 0x6B00;
+
+    // READ BINARY 的 P1P2 只有 15 bits 可表示偏移量
+    public static final int MAX_BINARY_OFFSET = 0x7FFF;
+    // 防止卡片無限回傳 61xx
+    private static final int MAX_GET_RESPONSE = 256;
+
+    private final IsoDepTransport iso;
+    private final boolean extended;
+    private final int maxTransceive;
+
+    private long commands;
+    private long getResponses;
+    private long resends;
+    private long bytesSent;
+    private long bytesReceived;
+
+    public ApduChannel(IsoDepTransport iso) {
+        this(iso, DEFAULT_TIMEOUT_MS);
+    }
+
+    public ApduChannel(IsoDepTransport iso, int timeoutMs) {
+        this.iso = iso;
+        this.extended = iso.isExtendedLengthApduSupported();
+        this.maxTransceive = iso.getMaxTransceiveLength();
+        iso.setTimeout(timeoutMs);
+    }
+
+    public boolean isExtended() {
+        return extended;
+    }
+
+    // 單一指令可攜帶的最大資料長度（header 4 + Lc + Le 不能超過最大傳輸長度）
+    public int maxCommandData() {
+        return extended
+                ? Math.min(CommandApdu.MAX_EXTENDED_LC, maxTransceive - 9)
+                : Math.min(CommandApdu.MAX_SHORT_LC, maxTransceive - 6);
+    }
+
+    // 單一指令可要求的最大回應長度
+    public int maxResponseData() {
+        return extended
+                ? Math.min(CommandApdu.MAX_EXTENDED_NE, maxTransceive - 2)
+                : CommandApdu.MAX_SHORT_NE;
+    }
+
+    public ResponseApdu transmit(CommandApdu command) throws IOException {
+        ResponseApdu response = exchange(command);
+        if (response.getSw1() == 0x6C) {
+            // Le 錯誤：以卡片指定的長度重送一次
+            resends++;
+            response = exchange(command.withNe(lengthOf(response.getSw2(), CommandApdu.MAX_SHORT_NE)));
+        }
+        if (response.getSw1() == 0x61) {
+            response = collectResponse(command.getCla(), response);
+        }
+        return response;
+    }
+
+    // 61xx：剩餘資料以 GET RESPONSE 取回並串接
+    private ResponseApdu collectResponse(int cla, ResponseApdu first) throws IOException {
+        byte[] data = first.getData();
+        int length = data.length;
+        ResponseApdu response = first;
+        for (int i = 0; response.getSw1() == 0x61; i++) {
+            if (i == MAX_GET_RESPONSE) {
+                throw new ApduException("GET RESPONSE 次數過多", response.getSw());
+            }
+            getResponses++;
+            int ne = lengthOf(response.getSw2(), CommandApdu.MAX_SHORT_NE);
+            // GET RESPONSE 沿用原指令的邏輯通道（CLA 低 2 bits）
+            response = exchange(new CommandApdu(cla & 0x03, INS_GET_RESPONSE, 0, 0, null, ne));
+            byte[] part = response.getData();
+            if (length + part.length > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + part.length));
+            }
+            System.arraycopy(part, 0, data, length, part.length);
+            length += part.length;
+        }
+        return new ResponseApdu(length == data.length ? data : Arrays.copyOf(data, length), response.getSw());
+    }
+
+    /**
+     * 資料超過單一指令上限時以 command chaining 分段送出（CLA 的 0x10 位元），
+     * 中間各段都必須回應 9000，回傳最後一段的回應。
+     */
+    public ResponseApdu transmitChained(int cla, int ins, int p1, int p2, byte[] data, int ne) throws IOException {
+        int max = maxCommandData();
+        if (data.length <= max) {
+            return transmit(new CommandApdu(cla, ins, p1, p2, data, ne));
+        }
+        int offset = 0;
+        while (data.length - offset > max) {
+            byte[] apdu = CommandApdu.encode(cla | CommandApdu.CLA_CHAINING, ins, p1, p2, data, offset, max, 0,
+                    extended && max > CommandApdu.MAX_SHORT_LC);
+            ResponseApdu response = exchange(apdu);
+            if (!response.isOk()) {
+                throw new ApduException(String.format("chaining 第 %d bytes 處 SW %04X", offset, response.getSw()),
+                        response.getSw());
+            }
+            offset += max;
+        }
+        return transmit(new CommandApdu(cla, ins, p1, p2, Arrays.copyOfRange(data, offset, data.length), ne));
+    }
+
+    public ResponseApdu selectAid(byte[] aid) throws IOException {
+        return transmit(new CommandApdu(0x00, INS_SELECT, 0x04, 0x00, aid, CommandApdu.MAX_SHORT_NE));
+    }
+
+    // 以檔案 ID 選取 EF，不要求 FCI
+    public ResponseApdu selectFile(int fileId) throws IOException {
+        return transmit(new CommandApdu(0x00, INS_SELECT, 0x00, 0x0C,
+                new byte[]{(byte) (fileId >> 8), (byte) fileId}, 0));
+    }
+
+    public ResponseApdu readBinary(int offset, int ne) throws IOException {
+        checkOffset(offset);
+        return transmit(new CommandApdu(0x00, INS_READ_BINARY, offset >> 8, offset, null, ne));
+    }
+
+    /**
+     * 從 offset 開始連續讀取目前選取的檔案，直到檔案結尾或讀滿 maxLength。
+     * 每次要求最大回應長度（延伸長度時一次可讀完整個檔案），資料直接寫入自動擴充的 buffer。
+     */
+    public byte[] readBinaryFully(int offset, int maxLength) throws IOException {
+        int chunk = maxResponseData();
+        byte[] buffer = new byte[Math.min(maxLength, chunk)];
+        int length = 0;
+        while (length < maxLength && offset + length <= MAX_BINARY_OFFSET) {
+            int want = Math.min(chunk, maxLength - length);
+            ResponseApdu response = readBinary(offset + length, want);
+            if (response.getSw() == SW_WRONG_OFFSET && length > 0) {
+                // 上一次剛好讀到檔案結尾
+                break;
+            }
+            if (!response.isSuccessOrWarning()) {
+                throw new ApduException(String.format("READ BINARY 偏移 %d SW %04X", offset + length,
+                        response.getSw()), response.getSw());
+            }
+            byte[] part = response.getData();
+            if (length + part.length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.min(maxLength, Math.max(buffer.length * 2, length + part.length)));
+            }
+            int n = Math.min(part.length, buffer.length - length);
+            System.arraycopy(part, 0, buffer, length, n);
+            length += n;
+            if (part.length < want) {
+                break;
+            }
+        }
+        return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+    }
+
+    // 大筆資料以 chaining 送出，卡片在最後一段才寫入
+    public ResponseApdu updateBinary(int offset, byte[] data) throws IOException {
+        checkOffset(offset);
+        return transmitChained(0x00, INS_UPDATE_BINARY, offset >> 8, offset, data, 0);
+    }
+
+    private static void checkOffset(int offset) {
+        if (offset < 0 || offset > MAX_BINARY_OFFSET) {
+            throw new IllegalArgumentException("偏移量超出 15 bits: " + offset);
+        }
+    }
+
+    private static int lengthOf(int sw2, int zeroMeans) {
+        return sw2 == 0 ? zeroMeans : sw2;
+    }
+
+    private ResponseApdu exchange(CommandApdu command) throws IOException {
+        if (command.needsExtended() && !extended) {
+            throw new IllegalArgumentException("卡片或手機不支援延伸長度 APDU");
+        }
+        return exchange(command.encode());
+    }
+
+    private ResponseApdu exchange(byte[] apdu) throws IOException {
+        commands++;
+        bytesSent += apdu.length;
+        byte[] raw = iso.transceive(apdu);
+        bytesReceived += raw == null ? 0 : raw.length;
+        return ResponseApdu.parse(raw);
+    }
+
+    public long getCommands() {
+        return commands;
+    }
+
+    public long getGetResponses() {
+        return getResponses;
+    }
+
+    public long getResends() {
+        return resends;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public String summary() {
+        return String.format("APDU: %d 指令（GET RESPONSE %d、重送 %d），送出 %d bytes，收到 %d bytes%s\n",
+                commands, getResponses, resends, bytesSent, bytesReceived, extended ? "，延伸長度" : "");
+    }
+}
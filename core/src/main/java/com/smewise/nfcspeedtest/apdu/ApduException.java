@@ -0,0 +1,17 @@
+package com.smewise.nfcspeedtest.apdu;
+
+import java.io.IOException;
+
+// 卡片回傳非預期的狀態字（SW1 SW2）
+public class ApduException extends IOException {
+    private final int sw;
+
+    public ApduException(String message, int sw) {
+        super(message);
+        this.sw = sw;
+    }
+
+    public int getSw() {
+        return sw;
+    }
+}
@@ -0,0 +1,160 @@
+package com.smewise.nfcspeedtest.apdu;
+
+import java.util.Arrays;
+
+/**
+ * ISO 7816-4 command APDU：CLA INS P1 P2 [Lc data] [Le]。
+ * Ne（預期回應長度）為 0 代表不送 Le；短格式 Ne 最大 256，延伸格式最大 65536。
+ */
+public final class CommandApdu {
+    public static final int MAX_SHORT_LC = 255;
+    public static final int MAX_SHORT_NE = 256;
+    public static final int MAX_EXTENDED_LC = 65535;
+    public static final int MAX_EXTENDED_NE = 65536;
+    // CLA 的 chaining 位元：後面還有指令
+    public static final int CLA_CHAINING = 0x10;
+
+    private final int cla;
+    private final int ins;
+    private final int p1;
+    private final int p2;
+    private final byte[] data;
+    private final int ne;
+
+    public CommandApdu(int cla, int ins, int p1, int p2, byte[] data, int ne) {
+        this.cla = cla & 0xFF;
+        this.ins = ins & 0xFF;
+        this.p1 = p1 & 0xFF;
+        this.p2 = p2 & 0xFF;
+        this.data = data == null ? new byte[0] : data;
+        if (ne < 0 || ne > MAX_EXTENDED_NE) {
+            throw new IllegalArgumentException("Ne 超出範圍: " + ne);
+        }
+        this.ne = ne;
+    }
+
+    public int getCla() {
+        return cla;
+    }
+
+    public int getIns() {
+        return ins;
+    }
+
+    public int getP1() {
+        return p1;
+    }
+
+    public int getP2() {
+        return p2;
+    }
+
+    public byte[] getData() {
+        return data.clone();
+    }
+
+    public int getNc() {
+        return data.length;
+    }
+
+    public int getNe() {
+        return ne;
+    }
+
+    // 需要延伸格式才能表示的 Lc / Le
+    public boolean needsExtended() {
+        return data.length > MAX_SHORT_LC || ne > MAX_SHORT_NE;
+    }
+
+    public CommandApdu withNe(int newNe) {
+        return new CommandApdu(cla, ins, p1, p2, data, newNe);
+    }
+
+    public byte[] encode() {
+        return encode(cla, ins, p1, p2, data, 0, data.length, ne, needsExtended());
+    }
+
+    /**
+     * 直接從原始資料區段組出 APDU，不需先複製 data。
+     */
+    public static byte[] encode(int cla, int ins, int p1, int p2, byte[] data, int offset, int length,
+                                int ne, boolean extended) {
+        if (!extended && (length > MAX_SHORT_LC || ne > MAX_SHORT_NE)) {
+            throw new IllegalArgumentException("短格式 APDU 無法表示 Lc=" + length + " Ne=" + ne);
+        }
+        int lcLength = length == 0 ? 0 : (extended ? 3 : 1);
+        int leLength = ne == 0 ? 0 : (extended ? (length == 0 ? 3 : 2) : 1);
+        byte[] apdu = new byte[4 + lcLength + length + leLength];
+        apdu[0] = (byte) cla;
+        apdu[1] = (byte) ins;
+        apdu[2] = (byte) p1;
+        apdu[3] = (byte) p2;
+        int pos = 4;
+        if (length > 0) {
+            if (extended) {
+                apdu[pos++] = 0;
+                apdu[pos++] = (byte) (length >> 8);
+            }
+            apdu[pos++] = (byte) length;
+            System.arraycopy(data, offset, apdu, pos, length);
+            pos += length;
+        }
+        if (ne > 0) {
+            if (extended) {
+                if (length == 0) {
+                    apdu[pos++] = 0;
+                }
+                // 65536 編碼為 00 00
+                apdu[pos++] = (byte) (ne >> 8);
+            }
+            // 短格式 256 編碼為 00
+            apdu[pos] = (byte) ne;
+        }
+        return apdu;
+    }
+
+    // 解析 APDU（模擬卡片使用），格式錯誤時回傳 null
+    public static CommandApdu parse(byte[] apdu) {
+        if (apdu.length < 4) {
+            return null;
+        }
+        int cla = apdu[0], ins = apdu[1], p1 = apdu[2], p2 = apdu[3];
+        if (apdu.length == 4) {
+            return new CommandApdu(cla, ins, p1, p2, null, 0);
+        }
+        int b4 = apdu[4] & 0xFF;
+        if (apdu.length == 5) {
+            return new CommandApdu(cla, ins, p1, p2, null, b4 == 0 ? MAX_SHORT_NE : b4);
+        }
+        if (b4 != 0) {
+            int lc = b4;
+            if (apdu.length == 5 + lc) {
+                return new CommandApdu(cla, ins, p1, p2, Arrays.copyOfRange(apdu, 5, 5 + lc), 0);
+            }
+            if (apdu.length == 6 + lc) {
+                int le = apdu[5 + lc] & 0xFF;
+                return new CommandApdu(cla, ins, p1, p2, Arrays.copyOfRange(apdu, 5, 5 + lc),
+                        le == 0 ? MAX_SHORT_NE : le);
+            }
+            return null;
+        }
+        // 延伸格式
+        int value = (apdu[5] & 0xFF) << 8 | (apdu[6] & 0xFF);
+        if (apdu.length == 7) {
+            return new CommandApdu(cla, ins, p1, p2, null, value == 0 ? MAX_EXTENDED_NE : value);
+        }
+        int lc = value;
+        if (lc == 0) {
+            return null;
+        }
+        if (apdu.length == 7 + lc) {
+            return new CommandApdu(cla, ins, p1, p2, Arrays.copyOfRange(apdu, 7, 7 + lc), 0);
+        }
+        if (apdu.length == 9 + lc) {
+            int le = (apdu[7 + lc] & 0xFF) << 8 | (apdu[8 + lc] & 0xFF);
+            return new CommandApdu(cla, ins, p1, p2, Arrays.copyOfRange(apdu, 7, 7 + lc),
+                    le == 0 ? MAX_EXTENDED_NE : le);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.smewise.nfcspeedtest.apdu;
+
+import java.util.Arrays;
+
+// response APDU：資料 + SW1 SW2
+public final class ResponseApdu {
+    public static final int SW_OK = 0x9000;
+
+    private final byte[] data;
+    private final int sw;
+
+    public ResponseApdu(byte[] data, int sw) {
+        this.data = data;
+        this.sw = sw & 0xFFFF;
+    }
+
+    public static ResponseApdu parse(byte[] response) throws ApduException {
+        if (response == null || response.length < 2) {
+            throw new ApduException("回應長度不足 2 bytes", 0);
+        }
+        int n = response.length;
+        return new ResponseApdu(Arrays.copyOf(response, n - 2),
+                (response[n - 2] & 0xFF) << 8 | (response[n - 1] & 0xFF));
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getSw() {
+        return sw;
+    }
+
+    public int getSw1() {
+        return sw >> 8;
+    }
+
+    public int getSw2() {
+        return sw & 0xFF;
+    }
+
+    public boolean isOk() {
+        return sw == SW_OK;
+    }
+
+    // 9000 或 62xx/63xx 警告（資料仍有效）
+    public boolean isSuccessOrWarning() {
+        int sw1 = getSw1();
+        return sw == SW_OK || sw1 == 0x62 || sw1 == 0x63;
+    }
+
+    public ResponseApdu check() throws ApduException {
+        if (!isOk()) {
+            throw new ApduException(String.format("SW %04X", sw), sw);
+        }
+        return this;
+    }
+}
@@ -0,0 +1,166 @@
+package com.smewise.nfcspeedtest.apdu.script;
+
+import com.smewise.nfcspeedtest.apdu.ApduChannel;
+import com.smewise.nfcspeedtest.apdu.ApduException;
+import com.smewise.nfcspeedtest.apdu.CommandApdu;
+import com.smewise.nfcspeedtest.apdu.ResponseApdu;
+import com.smewise.nfcspeedtest.trace.NanoClock;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 編譯後的 APDU 腳本：每個步驟的指令已預先解析成 CommandApdu，SW 規則已轉成 mask/value，
+ * 跳躍目標已轉成步驟索引。每個步驟經 ApduChannel 送出，61xx / 6Cxx 在步驟內處理完畢，
+ * 執行時只做整數比對；回應（資料 + SW）存入 ScriptRun，欄位等到輸出結果時才解碼。
+ * 編譯後不可變，可在多次靠卡間共用。
+ */
+public final class ApduScript {
+    // 防止 goto 形成無窮迴圈
+    public static final int MAX_EXECUTED_STEPS = 64;
+
+    static final int ACTION_NEXT = 0;
+    static final int ACTION_GOTO = 1;
+    static final int ACTION_END = 2;
+    static final int ACTION_FAIL = 3;
+
+    private static final byte[] NO_RESPONSE = new byte[0];
+
+    static final class Rule {
+        final int mask;
+        final int value;
+        final int action;
+        final int target;
+        final String message;
+
+        Rule(int mask, int value, int action, int target, String message) {
+            this.mask = mask;
+            this.value = value;
+            this.action = action;
+            this.target = target;
+            this.message = message;
+        }
+    }
+
+    static final class Step {
+        final String label;
+        final CommandApdu command;
+        final Rule[] rules;
+
+        Step(String label, CommandApdu command, Rule[] rules) {
+            this.label = label;
+            this.command = command;
+            this.rules = rules;
+        }
+
+        Rule match(int sw) {
+            for (Rule rule : rules) {
+                if ((sw & rule.mask) == rule.value) {
+                    return rule;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final String id;
+    private final String name;
+    private final Step[] steps;
+    private final ScriptField[] fields;
+
+    ApduScript(String id, String name, Step[] steps, ScriptField[] fields) {
+        this.id = id;
+        this.name = name;
+        this.steps = steps;
+        this.fields = fields;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getStepCount() {
+        return steps.length;
+    }
+
+    public String getStepLabel(int step) {
+        return steps[step].label;
+    }
+
+    public int getFieldCount() {
+        return fields.length;
+    }
+
+    public ScriptField getField(int index) {
+        return fields[index];
+    }
+
+    // 配置此腳本專用的執行結果，可重複使用
+    public ScriptRun newRun() {
+        return new ScriptRun(this);
+    }
+
+    /**
+     * 依序執行步驟，成功走到結尾或 end 時回傳 true；SW 不符任何規則或遇到 fail 時回傳 false。
+     * 每個步驟的延遲包含 GET RESPONSE 與 6Cxx 重送。RF 錯誤（含標籤移開）直接拋出。
+     */
+    public boolean run(ApduChannel channel, NanoClock clock, ScriptRun run) throws IOException {
+        if (run.script() != this) {
+            throw new IllegalArgumentException("ScriptRun 屬於其他腳本");
+        }
+        run.reset();
+        int step = 0;
+        while (step < steps.length) {
+            if (run.getExecutedCount() == MAX_EXECUTED_STEPS) {
+                run.fail(step, "超過 " + MAX_EXECUTED_STEPS + " 個步驟");
+                return false;
+            }
+            Step s = steps[step];
+            long start = clock.nanoTime();
+            ResponseApdu response;
+            try {
+                response = channel.transmit(s.command);
+            } catch (ApduException e) {
+                // 回應不足 2 bytes 或 GET RESPONSE 過多：記為此步驟失敗
+                run.record(step, NO_RESPONSE, -1, clock.nanoTime() - start);
+                run.fail(step, e.getSw() == 0 ? null : e.getMessage());
+                return false;
+            }
+            int sw = response.getSw();
+            run.record(step, withSw(response), sw, clock.nanoTime() - start);
+            Rule rule = s.match(sw);
+            if (rule == null) {
+                run.fail(step, null);
+                return false;
+            }
+            switch (rule.action) {
+                case ACTION_GOTO:
+                    step = rule.target;
+                    break;
+                case ACTION_END:
+                    step = steps.length;
+                    break;
+                case ACTION_FAIL:
+                    run.fail(step, rule.message);
+                    return false;
+                default:
+                    step++;
+            }
+        }
+        run.succeed();
+        return true;
+    }
+
+    // 欄位 offset 以回應資料開頭起算，SW 接在資料後面
+    private static byte[] withSw(ResponseApdu response) {
+        byte[] data = response.getData();
+        byte[] raw = Arrays.copyOf(data, data.length + 2);
+        raw[data.length] = (byte) (response.getSw() >> 8);
+        raw[data.length + 1] = (byte) response.getSw();
+        return raw;
+    }
+}
@@ -0,0 +1,269 @@
+package com.smewise.nfcspeedtest.apdu.script;
+
+import com.smewise.nfcspeedtest.apdu.CommandApdu;
+import com.smewise.nfcspeedtest.codec.HexCodec;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 編譯 APDU 腳本檔。每行一個指令，# 之後為註解：
+ * <pre>
+ * script &lt;id&gt; &lt;名稱&gt;
+ * step &lt;標籤&gt; &lt;APDU 十六進位&gt;
+ * sw &lt;SW，可用 X 當萬用字元&gt; [next | end | goto &lt;標籤&gt; | fail &lt;訊息&gt;]
+ * field &lt;名稱&gt; &lt;hex|uint|int|uintle|bcd|ascii&gt; &lt;offset&gt; &lt;length&gt; [/除數] [單位]
+ * end
+ * </pre>
+ * sw 與 field 屬於前一個 step；沒有 sw 規則的步驟只接受 9000。
+ * 格式錯誤時拋出 IOException 並指出行號。
+ */
+public final class ApduScriptParser {
+    private static final int SW_OK = 0x9000;
+
+    private ApduScriptParser() {
+    }
+
+    public static List<ApduScript> parse(Reader reader) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        List<ApduScript> scripts = new ArrayList<>();
+        Builder current = null;
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            String text = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            String[] tokens = text.split("\\s+", 3);
+            String keyword = tokens[0];
+            try {
+                if ("script".equals(keyword)) {
+                    if (current != null) {
+                        throw error(lineNumber, "上一個腳本缺少 end");
+                    }
+                    require(tokens, 2, lineNumber);
+                    current = new Builder(tokens[1], tokens.length > 2 ? tokens[2] : tokens[1]);
+                } else if (current == null) {
+                    throw error(lineNumber, "指令 " + keyword + " 不在 script 區塊內");
+                } else if ("step".equals(keyword)) {
+                    require(tokens, 3, lineNumber);
+                    current.step(tokens[1], HexCodec.parse(tokens[2]), lineNumber);
+                } else if ("sw".equals(keyword)) {
+                    require(tokens, 2, lineNumber);
+                    current.rule(tokens[1], tokens.length > 2 ? tokens[2] : "next", lineNumber);
+                } else if ("field".equals(keyword)) {
+                    require(tokens, 3, lineNumber);
+                    current.field(tokens[1], tokens[2].split("\\s+"), lineNumber);
+                } else if ("end".equals(keyword)) {
+                    scripts.add(current.build(lineNumber));
+                    current = null;
+                } else {
+                    throw error(lineNumber, "未知的指令 " + keyword);
+                }
+            } catch (IllegalArgumentException e) {
+                throw error(lineNumber, e.getMessage());
+            }
+        }
+        if (current != null) {
+            throw error(lineNumber, "腳本 " + current.id + " 缺少 end");
+        }
+        return scripts;
+    }
+
+    static IOException error(int lineNumber, String message) {
+        return new IOException("第 " + lineNumber + " 行: " + message);
+    }
+
+    private static void require(String[] tokens, int count, int lineNumber) throws IOException {
+        if (tokens.length < count) {
+            throw error(lineNumber, tokens[0] + " 參數不足");
+        }
+    }
+
+    private static final class PendingRule {
+        final int mask;
+        final int value;
+        final int action;
+        final String argument;
+        final int lineNumber;
+
+        PendingRule(int mask, int value, int action, String argument, int lineNumber) {
+            this.mask = mask;
+            this.value = value;
+            this.action = action;
+            this.argument = argument;
+            this.lineNumber = lineNumber;
+        }
+    }
+
+    private static final class PendingStep {
+        final String label;
+        final CommandApdu command;
+        final List<PendingRule> rules = new ArrayList<>();
+
+        PendingStep(String label, CommandApdu command) {
+            this.label = label;
+            this.command = command;
+        }
+    }
+
+    private static final class Builder {
+        final String id;
+        final String name;
+        final List<PendingStep> steps = new ArrayList<>();
+        final Map<String, Integer> labels = new HashMap<>();
+        final List<ScriptField> fields = new ArrayList<>();
+
+        Builder(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        void step(String label, byte[] command, int lineNumber) throws IOException {
+            if (command.length < 4) {
+                throw error(lineNumber, "APDU 至少需要 4 bytes");
+            }
+            CommandApdu apdu = CommandApdu.parse(command);
+            if (apdu == null) {
+                throw error(lineNumber, "APDU 的 Lc / Le 與長度不符");
+            }
+            if (labels.put(label, steps.size()) != null) {
+                throw error(lineNumber, "重複的步驟標籤 " + label);
+            }
+            steps.add(new PendingStep(label, apdu));
+        }
+
+        private PendingStep last(int lineNumber) throws IOException {
+            if (steps.isEmpty()) {
+                throw error(lineNumber, "需先定義 step");
+            }
+            return steps.get(steps.size() - 1);
+        }
+
+        void rule(String pattern, String actionText, int lineNumber) throws IOException {
+            if (pattern.length() != 4) {
+                throw error(lineNumber, "SW 需為 4 個十六進位字元: " + pattern);
+            }
+            int mask = 0;
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                char c = pattern.charAt(i);
+                mask <<= 4;
+                value <<= 4;
+                if (c == 'X' || c == 'x') {
+                    continue;
+                }
+                int nibble = Character.digit(c, 16);
+                if (nibble < 0) {
+                    throw error(lineNumber, "SW 格式錯誤: " + pattern);
+                }
+                mask |= 0xF;
+                value |= nibble;
+            }
+            String[] parts = actionText.split("\\s+", 2);
+            String argument = parts.length > 1 ? parts[1] : null;
+            int action;
+            switch (parts[0]) {
+                case "next":
+                    action = ApduScript.ACTION_NEXT;
+                    break;
+                case "end":
+                    action = ApduScript.ACTION_END;
+                    break;
+                case "goto":
+                    if (argument == null) {
+                        throw error(lineNumber, "goto 需要目標標籤");
+                    }
+                    action = ApduScript.ACTION_GOTO;
+                    break;
+                case "fail":
+                    action = ApduScript.ACTION_FAIL;
+                    break;
+                default:
+                    throw error(lineNumber, "未知的動作 " + parts[0]);
+            }
+            last(lineNumber).rules.add(new PendingRule(mask, value, action, argument, lineNumber));
+        }
+
+        void field(String fieldName, String[] args, int lineNumber) throws IOException {
+            last(lineNumber);
+            if (args.length < 3) {
+                throw error(lineNumber, "field 需要型別、offset 與 length");
+            }
+            FieldType type = FieldType.fromKeyword(args[0]);
+            if (type == null) {
+                throw error(lineNumber, "未知的欄位型別 " + args[0]);
+            }
+            int offset;
+            int length;
+            try {
+                offset = Integer.parseInt(args[1]);
+                length = Integer.parseInt(args[2]);
+            } catch (NumberFormatException e) {
+                throw error(lineNumber, "offset / length 需為整數");
+            }
+            boolean integer = type != FieldType.HEX && type != FieldType.ASCII;
+            if (offset < 0 || length < 1 || (integer && length > (type == FieldType.BCD ? 9 : 8))) {
+                throw error(lineNumber, "欄位範圍不合法");
+            }
+            long divisor = 1;
+            String unit = null;
+            int next = 3;
+            if (args.length > next && args[next].startsWith("/")) {
+                try {
+                    divisor = Long.parseLong(args[next].substring(1));
+                } catch (NumberFormatException e) {
+                    throw error(lineNumber, "除數需為整數: " + args[next]);
+                }
+                if (divisor <= 0) {
+                    throw error(lineNumber, "除數需大於 0");
+                }
+                next++;
+            }
+            if (args.length > next) {
+                unit = args[next];
+            }
+            fields.add(new ScriptField(fieldName, steps.size() - 1, type, offset, length, divisor, unit));
+        }
+
+        ApduScript build(int lineNumber) throws IOException {
+            if (steps.isEmpty()) {
+                throw error(lineNumber, "腳本 " + id + " 沒有任何 step");
+            }
+            ApduScript.Step[] compiled = new ApduScript.Step[steps.size()];
+            for (int i = 0; i < compiled.length; i++) {
+                PendingStep step = steps.get(i);
+                ApduScript.Rule[] rules;
+                if (step.rules.isEmpty()) {
+                    rules = new ApduScript.Rule[]{
+                            new ApduScript.Rule(0xFFFF, SW_OK, ApduScript.ACTION_NEXT, -1, null)};
+                } else {
+                    rules = new ApduScript.Rule[step.rules.size()];
+                    for (int r = 0; r < rules.length; r++) {
+                        PendingRule rule = step.rules.get(r);
+                        int target = -1;
+                        if (rule.action == ApduScript.ACTION_GOTO) {
+                            Integer index = labels.get(rule.argument);
+                            if (index == null) {
+                                throw error(rule.lineNumber, "找不到步驟標籤 " + rule.argument);
+                            }
+                            target = index;
+                        }
+                        rules[r] = new ApduScript.Rule(rule.mask, rule.value, rule.action, target,
+                                rule.action == ApduScript.ACTION_FAIL ? rule.argument : null);
+                    }
+                }
+                compiled[i] = new ApduScript.Step(step.label, step.command, rules);
+            }
+            return new ApduScript(id, name, compiled, fields.toArray(new ScriptField[0]));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.smewise.nfcspeedtest.apdu.script;
+
+// 回應欄位的解碼方式
+public enum FieldType {
+    HEX("hex"),
+    // big-endian 無號整數
+    UINT("uint"),
+    // big-endian 有號整數
+    INT("int"),
+    // little-endian 無號整數
+    UINT_LE("uintle"),
+    BCD("bcd"),
+    ASCII("ascii");
+
+    private final String keyword;
+
+    FieldType(String keyword) {
+        this.keyword = keyword;
+    }
+
+    public String keyword() {
+        return keyword;
+    }
+
+    public static FieldType fromKeyword(String keyword) {
+        for (FieldType type : values()) {
+            if (type.keyword.equals(keyword)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
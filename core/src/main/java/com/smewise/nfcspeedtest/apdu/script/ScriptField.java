@@ -0,0 +1,109 @@
+package com.smewise.nfcspeedtest.apdu.script;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+
+/**
+ * 回應欄位：第 step 步回應資料（不含 SW）中 [offset, offset + length) 的位元組。
+ * 編譯時決定位置，執行時不解碼；只有輸出結果時才轉成文字。
+ */
+public final class ScriptField {
+    private final String name;
+    private final int step;
+    private final FieldType type;
+    private final int offset;
+    private final int length;
+    private final long divisor;
+    private final String unit;
+
+    ScriptField(String name, int step, FieldType type, int offset, int length, long divisor, String unit) {
+        this.name = name;
+        this.step = step;
+        this.type = type;
+        this.offset = offset;
+        this.length = length;
+        this.divisor = divisor;
+        this.unit = unit;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public FieldType getType() {
+        return type;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    // 回應資料不足時回傳 false
+    boolean fits(byte[] response) {
+        return response != null && offset + length <= response.length - 2;
+    }
+
+    // 整數型別的值；呼叫前需先確認 fits
+    long longValue(byte[] response) {
+        long value = 0;
+        switch (type) {
+            case UINT_LE:
+                for (int i = length - 1; i >= 0; i--) {
+                    value = value << 8 | (response[offset + i] & 0xFF);
+                }
+                return value;
+            case INT:
+                value = response[offset];
+                for (int i = 1; i < length; i++) {
+                    value = value << 8 | (response[offset + i] & 0xFF);
+                }
+                return value;
+            case BCD:
+                for (int i = 0; i < length; i++) {
+                    int b = response[offset + i] & 0xFF;
+                    value = value * 100 + (b >> 4) * 10 + (b & 0x0F);
+                }
+                return value;
+            default:
+                for (int i = 0; i < length; i++) {
+                    value = value << 8 | (response[offset + i] & 0xFF);
+                }
+                return value;
+        }
+    }
+
+    StringBuilder appendValue(StringBuilder sb, byte[] response) {
+        if (!fits(response)) {
+            return sb.append('—');
+        }
+        switch (type) {
+            case HEX:
+                HexCodec.encode(response, offset, length, sb, ' ');
+                break;
+            case ASCII:
+                for (int i = 0; i < length; i++) {
+                    int c = response[offset + i] & 0xFF;
+                    sb.append(c >= 0x20 && c < 0x7F ? (char) c : '.');
+                }
+                break;
+            default:
+                long value = longValue(response);
+                if (divisor == 1) {
+                    sb.append(value);
+                } else {
+                    sb.append(value / (double) divisor);
+                }
+        }
+        if (unit != null) {
+            sb.append(' ').append(unit);
+        }
+        return sb;
+    }
+}
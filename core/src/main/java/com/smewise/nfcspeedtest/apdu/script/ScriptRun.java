@@ -0,0 +1,146 @@
+package com.smewise.nfcspeedtest.apdu.script;
+
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+
+import java.util.Arrays;
+
+/**
+ * 一次腳本執行的結果：每個步驟最後一次的原始回應、SW 與累計延遲，以及實際執行的步驟順序。
+ * 陣列在建立時依腳本大小配置，reset 後重複使用。
+ */
+public final class ScriptRun {
+    private final ApduScript script;
+    private final byte[][] responses;
+    private final int[] sw;
+    private final long[] stepNanos;
+    private final int[] order = new int[ApduScript.MAX_EXECUTED_STEPS];
+    private int executed;
+    private int responseBytes;
+    private boolean ok;
+    private int failedStep = -1;
+    private String failMessage;
+
+    ScriptRun(ApduScript script) {
+        this.script = script;
+        this.responses = new byte[script.getStepCount()][];
+        this.sw = new int[script.getStepCount()];
+        this.stepNanos = new long[script.getStepCount()];
+    }
+
+    ApduScript script() {
+        return script;
+    }
+
+    void reset() {
+        Arrays.fill(responses, null);
+        Arrays.fill(sw, -1);
+        Arrays.fill(stepNanos, 0);
+        executed = 0;
+        responseBytes = 0;
+        ok = false;
+        failedStep = -1;
+        failMessage = null;
+    }
+
+    void record(int step, byte[] response, int statusWord, long nanos) {
+        responses[step] = response;
+        sw[step] = statusWord;
+        stepNanos[step] += nanos;
+        order[executed++] = step;
+        responseBytes += response.length;
+    }
+
+    void fail(int step, String message) {
+        failedStep = step;
+        failMessage = message;
+    }
+
+    void succeed() {
+        ok = true;
+    }
+
+    public ApduScript getScript() {
+        return script;
+    }
+
+    public boolean isOk() {
+        return ok;
+    }
+
+    public int getExecutedCount() {
+        return executed;
+    }
+
+    public int getExecutedStep(int index) {
+        return order[index];
+    }
+
+    public int getFailedStep() {
+        return failedStep;
+    }
+
+    public int getSw(int step) {
+        return sw[step];
+    }
+
+    public long getStepNanos(int step) {
+        return stepNanos[step];
+    }
+
+    // 本次執行所有回應（含 SW）的總長度
+    public int getResponseBytes() {
+        return responseBytes;
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for (long nanos : stepNanos) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    // 欄位的整數值；步驟未執行或回應不足時回傳 defaultValue
+    public long longValue(ScriptField field, long defaultValue) {
+        byte[] response = responses[field.getStep()];
+        if (!field.fits(response) || field.getType() == FieldType.HEX || field.getType() == FieldType.ASCII) {
+            return defaultValue;
+        }
+        return field.longValue(response);
+    }
+
+    public String failureMessage() {
+        if (ok || failedStep < 0) {
+            return null;
+        }
+        String label = script.getStepLabel(failedStep);
+        if (failMessage != null) {
+            return label + ": " + failMessage;
+        }
+        return sw[failedStep] < 0 ? label + ": 回應長度不足" : String.format("%s: 非預期的 SW %04X", label, sw[failedStep]);
+    }
+
+    // 欄位與每步延遲；只在輸出時呼叫
+    public StringBuilder appendTo(StringBuilder sb) {
+        sb.append(script.getName());
+        if (!ok) {
+            sb.append(" 失敗 - ").append(failureMessage()).append('\n');
+        } else {
+            sb.append(" 讀取成功\n");
+            for (int i = 0; i < script.getFieldCount(); i++) {
+                ScriptField field = script.getField(i);
+                sb.append(field.getName()).append(": ");
+                field.appendValue(sb, responses[field.getStep()]).append('\n');
+            }
+        }
+        sb.append("步驟延遲:");
+        for (int step = 0; step < stepNanos.length; step++) {
+            if (sw[step] < 0 && stepNanos[step] == 0) {
+                continue;
+            }
+            sb.append(' ').append(script.getStepLabel(step)).append(' ');
+            SessionTrace.appendMillis(sb, stepNanos[step]);
+        }
+        return sb.append('\n');
+    }
+}
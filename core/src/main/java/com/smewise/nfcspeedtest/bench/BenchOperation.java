@@ -0,0 +1,19 @@
+package com.smewise.nfcspeedtest.bench;
+
+import com.smewise.nfcspeedtest.session.TagSession;
+
+import java.io.IOException;
+
+/**
+ * 連續量測中重複執行的單一操作。prepare 在量測前呼叫一次且不計時（例如選擇腳本、讀取系統資訊），
+ * run 每次執行一次操作並回傳實際傳輸的資料量（bytes）。只在 I/O 執行緒使用。
+ */
+public interface BenchOperation {
+
+    String label();
+
+    default void prepare(TagSession tags) throws IOException {
+    }
+
+    int run(TagSession tags) throws IOException;
+}
@@ -0,0 +1,249 @@
+package com.smewise.nfcspeedtest.bench;
+
+import com.smewise.nfcspeedtest.apdu.ApduChannel;
+import com.smewise.nfcspeedtest.apdu.script.ScriptRun;
+import com.smewise.nfcspeedtest.iso15693.Iso15693Memory;
+import com.smewise.nfcspeedtest.mifare.KeyResolver;
+import com.smewise.nfcspeedtest.mifare.SectorKey;
+import com.smewise.nfcspeedtest.session.TagSession;
+import com.smewise.nfcspeedtest.trace.NanoClock;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.NfcVTransport;
+import com.smewise.nfcspeedtest.type2.Type2Memory;
+import com.smewise.nfcspeedtest.type2.Type2Version;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 各技術常用的連續量測操作。每個操作在 prepare 完成一次性的工作，run 只做要量測的那次存取。
+ */
+public final class BenchOperations {
+
+    private BenchOperations() {
+    }
+
+    private static <T> T require(T transport, String tech) throws IOException {
+        if (transport == null) {
+            throw new IOException("標籤不支援 " + tech);
+        }
+        return transport;
+    }
+
+    public static BenchOperation ndefRead() {
+        return new BenchOperation() {
+            @Override
+            public String label() {
+                return "NDEF 讀取";
+            }
+
+            @Override
+            public int run(TagSession tags) throws IOException {
+                byte[] message = require(tags.ndef(), "NDEF").readNdefMessage();
+                return message == null ? 0 : message.length;
+            }
+        };
+    }
+
+    public static BenchOperation ndefWrite(byte[] message) {
+        byte[] data = message.clone();
+        return new BenchOperation() {
+            @Override
+            public String label() {
+                return "NDEF 寫入 " + data.length + " bytes";
+            }
+
+            @Override
+            public void prepare(TagSession tags) throws IOException {
+                NdefTransport ndef = require(tags.ndef(), "NDEF");
+                if (!ndef.isWritable()) {
+                    throw new IOException("NDEF 標籤為唯讀");
+                }
+                if (data.length > ndef.getMaxSize()) {
+                    throw new IOException("資料超過標籤容量 " + ndef.getMaxSize() + " bytes");
+                }
+            }
+
+            @Override
+            public int run(TagSession tags) throws IOException {
+                require(tags.ndef(), "NDEF").writeNdefMessage(data);
+                return data.length;
+            }
+        };
+    }
+
+    // 每次都重新認證再讀取，與一般靠卡讀取一個區塊的流程相同
+    public static BenchOperation mifareReadBlock(KeyResolver keys, int block) {
+        return new BenchOperation() {
+            private byte[] uid;
+
+            @Override
+            public String label() {
+                return "MIFARE Classic 讀取 Block " + block;
+            }
+
+            @Override
+            public void prepare(TagSession tags) throws IOException {
+                MifareClassicTransport mifare = require(tags.mifareClassic(), "MIFARE Classic");
+                if (block < 0 || block >= mifare.getBlockCount()) {
+                    throw new IOException("Block " + block + " 超出範圍");
+                }
+                uid = tags.getId();
+            }
+
+            @Override
+            public int run(TagSession tags) throws IOException {
+                MifareClassicTransport mifare = require(tags.mifareClassic(), "MIFARE Classic");
+                SectorKey key = keys.authenticate(mifare, uid, mifare.blockToSector(block));
+                if (key == null) {
+                    throw new IOException("區段 " + mifare.blockToSector(block) + " 認證失敗");
+                }
+                return mifare.readBlock(block).length;
+            }
+        };
+    }
+
+    public static BenchOperation nfcVReadBlocks(int firstBlock, int blockCount, NanoClock clock) {
+        return new Iso15693Operation(firstBlock, blockCount, null, clock);
+    }
+
+    // data 長度需為區塊大小的倍數，於 prepare 時依 Get System Info 檢查
+    public static BenchOperation nfcVWriteBlocks(int firstBlock, byte[] data, NanoClock clock) {
+        return new Iso15693Operation(firstBlock, 0, data.clone(), clock);
+    }
+
+    private static final class Iso15693Operation implements BenchOperation {
+        private final int firstBlock;
+        private final byte[] writeData;
+        private final NanoClock clock;
+        private int blockCount;
+        private byte[] buffer;
+        private Iso15693Memory memory;
+
+        Iso15693Operation(int firstBlock, int blockCount, byte[] writeData, NanoClock clock) {
+            this.firstBlock = firstBlock;
+            this.blockCount = blockCount;
+            this.writeData = writeData;
+            this.clock = clock;
+        }
+
+        @Override
+        public String label() {
+            return (writeData == null ? "NFC-V 讀取 " : "NFC-V 寫入 ") + "Block " + firstBlock;
+        }
+
+        @Override
+        public void prepare(TagSession tags) throws IOException {
+            NfcVTransport nfcv = require(tags.nfcV(), "NFC-V");
+            memory = new Iso15693Memory(nfcv, tags.getId(), clock);
+            int blockSize = memory.getSystemInfo().getBlockSize();
+            if (writeData != null) {
+                if (writeData.length == 0 || writeData.length % blockSize != 0) {
+                    throw new IOException("寫入資料需為 " + blockSize + " bytes 的倍數");
+                }
+                blockCount = writeData.length / blockSize;
+            } else {
+                buffer = new byte[blockCount * blockSize];
+            }
+            if (firstBlock < 0 || firstBlock + blockCount > memory.getSystemInfo().getBlockCount()) {
+                throw new IOException("區塊範圍超出標籤記憶體");
+            }
+        }
+
+        @Override
+        public int run(TagSession tags) throws IOException {
+            // 錯誤後由 TagSession 重新連線，memory 仍持有同一個 transport
+            require(tags.nfcV(), "NFC-V");
+            if (writeData != null) {
+                memory.write(firstBlock, writeData, 0, blockCount);
+                return writeData.length;
+            }
+            memory.read(firstBlock, blockCount, buffer, 0);
+            return buffer.length;
+        }
+    }
+
+    // 以 FAST_READ 與 CC/TLV 解析直接讀 NDEF，與 ndefRead() 量測同一份訊息的兩種讀取路徑
+    public static BenchOperation type2NdefRead(NanoClock clock) {
+        return new BenchOperation() {
+            private Type2Memory memory;
+            private Type2Version version;
+
+            @Override
+            public String label() {
+                return "Type 2 NDEF 讀取" + (version == null ? "" : " (" + version.getModel() + ")");
+            }
+
+            @Override
+            public void prepare(TagSession tags) throws IOException {
+                memory = new Type2Memory(require(tags.nfcA(), "NFC-A"), clock);
+                version = memory.getVersion();
+                memory.readCapabilityContainer();
+            }
+
+            @Override
+            public int run(TagSession tags) throws IOException {
+                require(tags.nfcA(), "NFC-A");
+                byte[] message = memory.readNdefMessage();
+                return message == null ? 0 : message.length;
+            }
+        };
+    }
+
+    public static BenchOperation isoDepSelect(byte[] aid) {
+        byte[] name = aid.clone();
+        return new BenchOperation() {
+            private ApduChannel channel;
+
+            @Override
+            public String label() {
+                return "IsoDep SELECT";
+            }
+
+            @Override
+            public void prepare(TagSession tags) throws IOException {
+                channel = new ApduChannel(require(tags.isoDep(), "IsoDep"));
+            }
+
+            @Override
+            public int run(TagSession tags) throws IOException {
+                require(tags.isoDep(), "IsoDep");
+                return channel.selectAid(name).check().getData().length + 2;
+            }
+        };
+    }
+
+    // 依序試跑腳本，第一個成功的腳本作為量測對象（例如悠遊卡餘額讀取）
+    public static BenchOperation isoDepScript(List<ScriptRun> runs, NanoClock clock) {
+        return new BenchOperation() {
+            private ScriptRun selected;
+            private ApduChannel channel;
+
+            @Override
+            public String label() {
+                return selected == null ? "IsoDep 腳本" : "IsoDep 腳本 " + selected.getScript().getName();
+            }
+
+            @Override
+            public void prepare(TagSession tags) throws IOException {
+                channel = new ApduChannel(require(tags.isoDep(), "IsoDep"));
+                for (ScriptRun run : runs) {
+                    if (run.getScript().run(channel, clock, run)) {
+                        selected = run;
+                        return;
+                    }
+                }
+                throw new IOException("沒有適用於此卡的 APDU 腳本");
+            }
+
+            @Override
+            public int run(TagSession tags) throws IOException {
+                if (!selected.getScript().run(channel, clock, selected)) {
+                    throw new IOException(selected.failureMessage());
+                }
+                return selected.getResponseBytes();
+            }
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package com.smewise.nfcspeedtest.bench;
+
+// 單次量測結果
+public enum IterationStatus {
+    OK("ok"),
+    ERROR("error"),
+    TAG_LOST("tag_lost");
+
+    private final String csvName;
+
+    IterationStatus(String csvName) {
+        this.csvName = csvName;
+    }
+
+    public String csvName() {
+        return csvName;
+    }
+}
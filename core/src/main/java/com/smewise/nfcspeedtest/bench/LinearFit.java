@@ -0,0 +1,61 @@
+package com.smewise.nfcspeedtest.bench;
+
+/**
+ * 最小平方法直線擬合 y = intercept + slope * x。
+ * 用於延遲對資料量：截距為每次操作的固定成本（ns），斜率為每 byte 的邊際成本（ns/byte）。
+ */
+public final class LinearFit {
+    private final double intercept;
+    private final double slope;
+    private final int points;
+
+    private LinearFit(double intercept, double slope, int points) {
+        this.intercept = intercept;
+        this.slope = slope;
+        this.points = points;
+    }
+
+    // 使用前 n 個點；少於 2 個不同的 x 時斜率為 0、截距為平均值
+    public static LinearFit of(int[] x, long[] y, int n) {
+        if (n == 0) {
+            return new LinearFit(0, 0, 0);
+        }
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < n; i++) {
+            meanX += x[i];
+            meanY += y[i];
+        }
+        meanX /= n;
+        meanY /= n;
+        double sxx = 0;
+        double sxy = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = x[i] - meanX;
+            sxx += dx * dx;
+            sxy += dx * (y[i] - meanY);
+        }
+        if (sxx == 0) {
+            return new LinearFit(meanY, 0, n);
+        }
+        double slope = sxy / sxx;
+        return new LinearFit(meanY - slope * meanX, slope, n);
+    }
+
+    public double getIntercept() {
+        return intercept;
+    }
+
+    public double getSlope() {
+        return slope;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    // 邊際吞吐量（不含固定成本）；斜率不為正時回傳 0
+    public double marginalBytesPerSecond() {
+        return slope <= 0 ? 0 : 1e9 / slope;
+    }
+}
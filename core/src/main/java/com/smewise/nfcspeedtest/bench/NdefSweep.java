@@ -0,0 +1,102 @@
+package com.smewise.nfcspeedtest.bench;
+
+import com.smewise.nfcspeedtest.trace.NanoClock;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * NDEF 容量掃描：依 getMaxSize 由小到大寫入各種 record，每次寫入後立即讀回比對並分別計時。
+ * 開始前保存標籤原本的內容，結束（含中途錯誤）後寫回；標籤移開時無法還原。
+ * 訊息在量測前編碼完成，計時只包含 writeNdefMessage / readNdefMessage。
+ */
+public class NdefSweep {
+    private final NanoClock clock;
+
+    public NdefSweep(NanoClock clock) {
+        this.clock = clock;
+    }
+
+    public SweepResult run(NdefTransport ndef, SweepConfig config) {
+        return run(ndef, config, () -> false);
+    }
+
+    public SweepResult run(NdefTransport ndef, SweepConfig config, BooleanSupplier cancelled) {
+        int capacity = ndef.getMaxSize();
+        int[] sizes = config.sizesFor(capacity);
+        SweepResult result = new SweepResult(ndef.getType(), capacity, sizes.length);
+        if (!ndef.isWritable()) {
+            result.setError("標籤為唯讀");
+            return result;
+        }
+        byte[] original;
+        try {
+            original = ndef.readNdefMessage();
+        } catch (IOException e) {
+            result.setError("讀取原內容失敗: " + e.getMessage());
+            return result;
+        }
+
+        long[] writes = new long[config.getRepeats()];
+        long[] reads = new long[config.getRepeats()];
+        boolean tagLost = false;
+        try {
+            sweep:
+            for (PayloadKind kind : config.getKinds()) {
+                SweepResult.Curve curve = result.curve(kind);
+                int lastPayload = -1;
+                for (int size : sizes) {
+                    if (cancelled.getAsBoolean()) {
+                        result.setCancelled(true);
+                        break sweep;
+                    }
+                    int payload = kind.payloadFor(size);
+                    // 太小放不下，或跨過 short record 時與上一點相同
+                    if (payload < 0 || payload == lastPayload) {
+                        continue;
+                    }
+                    lastPayload = payload;
+                    byte[] message = kind.message(payload);
+                    boolean verified = true;
+                    for (int r = 0; r < writes.length; r++) {
+                        long start = clock.nanoTime();
+                        ndef.writeNdefMessage(message);
+                        long written = clock.nanoTime();
+                        byte[] back = ndef.readNdefMessage();
+                        reads[r] = clock.nanoTime() - written;
+                        writes[r] = written - start;
+                        verified &= Arrays.equals(message, back);
+                    }
+                    curve.add(message.length, payload, median(writes), median(reads), verified);
+                }
+            }
+        } catch (TagLostException e) {
+            tagLost = true;
+            result.setError(e.getMessage());
+        } catch (IOException e) {
+            result.setError(e.getMessage());
+        }
+        if (!tagLost) {
+            result.setRestored(restore(ndef, original));
+        }
+        return result;
+    }
+
+    // 原本沒有 NDEF 內容時寫入空 record（TNF_EMPTY）
+    private static boolean restore(NdefTransport ndef, byte[] original) {
+        try {
+            ndef.writeNdefMessage(original != null ? original : new byte[]{(byte) 0xD0, 0x00, 0x00});
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long median(long[] values) {
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+}
@@ -0,0 +1,63 @@
+package com.smewise.nfcspeedtest.bench;
+
+import com.smewise.nfcspeedtest.ndef.NdefFormat;
+
+/**
+ * 容量掃描使用的 record 種類。payload 內容依長度產生，不同大小的資料彼此不同，
+ * 避免標籤或驅動因內容未變而略過寫入。
+ */
+public enum PayloadKind {
+    TEXT("Text", NdefFormat.TNF_WELL_KNOWN, NdefFormat.RTD_TEXT, new byte[]{0x02, 'e', 'n'}),
+    // 0x04 = "https://"
+    URI("URI", NdefFormat.TNF_WELL_KNOWN, NdefFormat.RTD_URI, NdefFormat.ascii("\u0004example.com/")),
+    MIME("MIME", NdefFormat.TNF_MIME_MEDIA, NdefFormat.ascii("application/octet-stream"), new byte[0]),
+    EXTERNAL("External", NdefFormat.TNF_EXTERNAL_TYPE, NdefFormat.ascii("smewise.com:bench"), new byte[0]);
+
+    private final String label;
+    private final int tnf;
+    private final byte[] type;
+    private final byte[] prefix;
+
+    PayloadKind(String label, int tnf, byte[] type, byte[] prefix) {
+        this.label = label;
+        this.tnf = tnf;
+        this.type = type;
+        this.prefix = prefix;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    // payload 至少要放得下固定前綴（語言碼、URI 前綴）再加 1 byte 內容
+    public int minPayload() {
+        return prefix.length + 1;
+    }
+
+    public int messageLength(int payloadLength) {
+        return NdefFormat.recordLength(type.length, 0, payloadLength);
+    }
+
+    /**
+     * 訊息總長不超過 messageLength 的最大 payload；放不下最小 payload 時回傳 -1。
+     * 長度跨過 short record 上限時，多出的 3 bytes 長度欄位可能讓 payload 停在 255。
+     */
+    public int payloadFor(int messageLength) {
+        int payload = messageLength - 3 - type.length;
+        if (payload > NdefFormat.MAX_SHORT_PAYLOAD) {
+            payload = Math.max(NdefFormat.MAX_SHORT_PAYLOAD, messageLength - 6 - type.length);
+        }
+        return payload < minPayload() ? -1 : payload;
+    }
+
+    public byte[] message(int payloadLength) {
+        byte[] payload = new byte[payloadLength];
+        System.arraycopy(prefix, 0, payload, 0, prefix.length);
+        boolean printable = this != MIME && this != EXTERNAL;
+        for (int i = prefix.length; i < payloadLength; i++) {
+            int v = i * 31 + payloadLength;
+            payload[i] = (byte) (printable ? 'a' + v % 26 : v);
+        }
+        return NdefFormat.singleRecord(tnf, type, null, payload);
+    }
+}
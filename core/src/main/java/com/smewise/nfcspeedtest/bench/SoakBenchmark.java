@@ -0,0 +1,68 @@
+package com.smewise.nfcspeedtest.bench;
+
+import com.smewise.nfcspeedtest.session.TagSession;
+import com.smewise.nfcspeedtest.trace.NanoClock;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 連續量測：標籤留在感應範圍內，同一個操作重複執行 N 次，逐次記錄延遲、資料量與結果。
+ * 一般錯誤記錄後繼續（TagSession 下次取得 transport 時會重新連線），標籤移開時依設定停止。
+ * 時鐘可替換，配合 SimulatedLink 的虛擬時間可在 JVM 內量測整條管線。
+ */
+public class SoakBenchmark {
+    private final NanoClock clock;
+
+    public SoakBenchmark(NanoClock clock) {
+        this.clock = clock;
+    }
+
+    public SoakResult run(TagSession tags, BenchOperation operation, SoakConfig config) {
+        return run(tags, operation, config, () -> false);
+    }
+
+    // cancelled 在每次之間檢查，例如新標籤取消了目前的工作階段
+    public SoakResult run(TagSession tags, BenchOperation operation, SoakConfig config, BooleanSupplier cancelled) {
+        long begin = clock.nanoTime();
+        String prepareError = null;
+        try {
+            operation.prepare(tags);
+        } catch (IOException e) {
+            prepareError = e.getMessage() == null ? e.toString() : e.getMessage();
+        }
+        // label 可能在 prepare 後才確定（例如選中的腳本名稱）
+        SoakResult result = new SoakResult(operation.label(), config);
+        result.setPrepare(clock.nanoTime() - begin, prepareError);
+        if (prepareError != null) {
+            result.finish(clock.nanoTime() - begin, false);
+            return result;
+        }
+
+        int total = config.getWarmup() + config.getIterations();
+        boolean stopped = false;
+        for (int i = 0; i < total; i++) {
+            if (cancelled.getAsBoolean()) {
+                stopped = true;
+                break;
+            }
+            long start = clock.nanoTime();
+            try {
+                int transferred = operation.run(tags);
+                result.record(clock.nanoTime() - start, transferred, IterationStatus.OK);
+            } catch (TagLostException e) {
+                result.record(clock.nanoTime() - start, 0, IterationStatus.TAG_LOST);
+                result.setLastError(e.getMessage());
+                if (config.isStopOnTagLost()) {
+                    break;
+                }
+            } catch (IOException e) {
+                result.record(clock.nanoTime() - start, 0, IterationStatus.ERROR);
+                result.setLastError(e.getMessage());
+            }
+        }
+        result.finish(clock.nanoTime() - begin, stopped);
+        return result;
+    }
+}
@@ -0,0 +1,47 @@
+package com.smewise.nfcspeedtest.bench;
+
+/**
+ * 連續量測設定：暖機次數不列入統計；標籤移開時預設立即停止（之後的每次都只會是同樣的錯誤）。
+ */
+public class SoakConfig {
+    private int iterations = 100;
+    private int warmup = 5;
+    private boolean stopOnTagLost = true;
+
+    public SoakConfig setIterations(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("量測次數需大於 0: " + iterations);
+        }
+        this.iterations = iterations;
+        return this;
+    }
+
+    public SoakConfig setWarmup(int warmup) {
+        if (warmup < 0) {
+            throw new IllegalArgumentException("暖機次數不可為負: " + warmup);
+        }
+        this.warmup = warmup;
+        return this;
+    }
+
+    public SoakConfig setStopOnTagLost(boolean stopOnTagLost) {
+        this.stopOnTagLost = stopOnTagLost;
+        return this;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public int getWarmup() {
+        return warmup;
+    }
+
+    public boolean isStopOnTagLost() {
+        return stopOnTagLost;
+    }
+
+    public String describe() {
+        return "暖機 " + warmup + " 次 + 量測 " + iterations + " 次";
+    }
+}
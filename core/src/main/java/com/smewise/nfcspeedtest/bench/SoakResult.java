@@ -0,0 +1,252 @@
+package com.smewise.nfcspeedtest.bench;
+
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * 一次連續量測的逐次紀錄（含暖機）。陣列在開始前依設定次數配置，量測迴圈內不再配置；
+ * 分位數以排序後的成功量測值計算（nearest-rank，與 LatencyHistogram 相同定義），第一次查詢時才排序。
+ */
+public class SoakResult {
+    private final String label;
+    private final int warmup;
+    private final long[] nanos;
+    private final int[] bytes;
+    private final IterationStatus[] status;
+    private int count;
+    private long prepareNanos;
+    private long wallNanos;
+    private String prepareError;
+    private String lastError;
+    private boolean cancelled;
+    private long[] sorted;
+
+    SoakResult(String label, SoakConfig config) {
+        this.label = label;
+        this.warmup = config.getWarmup();
+        int total = config.getWarmup() + config.getIterations();
+        this.nanos = new long[total];
+        this.bytes = new int[total];
+        this.status = new IterationStatus[total];
+    }
+
+    void record(long latencyNanos, int transferred, IterationStatus result) {
+        nanos[count] = latencyNanos;
+        bytes[count] = transferred;
+        status[count] = result;
+        count++;
+    }
+
+    void setPrepare(long nanos, String error) {
+        prepareNanos = nanos;
+        prepareError = error;
+    }
+
+    void setLastError(String message) {
+        lastError = message;
+    }
+
+    void finish(long wallNanos, boolean cancelled) {
+        this.wallNanos = wallNanos;
+        this.cancelled = cancelled;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    // 實際執行的次數（含暖機）
+    public int getCount() {
+        return count;
+    }
+
+    public long getNanos(int iteration) {
+        return nanos[iteration];
+    }
+
+    public int getBytes(int iteration) {
+        return bytes[iteration];
+    }
+
+    public IterationStatus getStatus(int iteration) {
+        return status[iteration];
+    }
+
+    public boolean isWarmup(int iteration) {
+        return iteration < warmup;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public String getPrepareError() {
+        return prepareError;
+    }
+
+    // 列入統計的次數（不含暖機）
+    public int getMeasured() {
+        return Math.max(0, count - warmup);
+    }
+
+    private int countMeasured(IterationStatus s) {
+        int n = 0;
+        for (int i = warmup; i < count; i++) {
+            if (status[i] == s) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    public int getSuccesses() {
+        return countMeasured(IterationStatus.OK);
+    }
+
+    public int getErrors() {
+        return countMeasured(IterationStatus.ERROR);
+    }
+
+    public int getTagLost() {
+        return countMeasured(IterationStatus.TAG_LOST);
+    }
+
+    public double errorRate() {
+        int measured = getMeasured();
+        return measured == 0 ? 0 : (double) getErrors() / measured;
+    }
+
+    public double tagLostRate() {
+        int measured = getMeasured();
+        return measured == 0 ? 0 : (double) getTagLost() / measured;
+    }
+
+    private long[] sortedLatencies() {
+        if (sorted == null) {
+            long[] values = new long[getSuccesses()];
+            int n = 0;
+            for (int i = warmup; i < count; i++) {
+                if (status[i] == IterationStatus.OK) {
+                    values[n++] = nanos[i];
+                }
+            }
+            Arrays.sort(values);
+            sorted = values;
+        }
+        return sorted;
+    }
+
+    public long getMin() {
+        long[] values = sortedLatencies();
+        return values.length == 0 ? 0 : values[0];
+    }
+
+    public long getMax() {
+        long[] values = sortedLatencies();
+        return values.length == 0 ? 0 : values[values.length - 1];
+    }
+
+    // percentile 介於 0~100
+    public long getPercentile(double percentile) {
+        long[] values = sortedLatencies();
+        if (values.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * values.length);
+        return values[Math.max(1, Math.min(values.length, rank)) - 1];
+    }
+
+    public double getMean() {
+        long[] values = sortedLatencies();
+        if (values.length == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return (double) sum / values.length;
+    }
+
+    // 成功量測的總資料量與總耗時
+    public long getTotalBytes() {
+        long total = 0;
+        for (int i = warmup; i < count; i++) {
+            if (status[i] == IterationStatus.OK) {
+                total += bytes[i];
+            }
+        }
+        return total;
+    }
+
+    public long getBusyNanos() {
+        long total = 0;
+        for (int i = warmup; i < count; i++) {
+            if (status[i] == IterationStatus.OK) {
+                total += nanos[i];
+            }
+        }
+        return total;
+    }
+
+    public double bytesPerSecond() {
+        long busy = getBusyNanos();
+        return busy == 0 ? 0 : getTotalBytes() * 1e9 / busy;
+    }
+
+    public double opsPerSecond() {
+        long busy = getBusyNanos();
+        return busy == 0 ? 0 : getSuccesses() * 1e9 / busy;
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("連續量測: ").append(label);
+        if (prepareError != null) {
+            return sb.append(" 準備失敗: ").append(prepareError).toString();
+        }
+        sb.append("\n次數: ").append(getMeasured()).append(" (暖機 ").append(Math.min(count, warmup)).append(')');
+        if (cancelled) {
+            sb.append(" 已中斷");
+        }
+        sb.append("\n延遲 min ");
+        SessionTrace.appendMillis(sb, getMin());
+        sb.append(" / p50 ");
+        SessionTrace.appendMillis(sb, getPercentile(50));
+        sb.append(" / p95 ");
+        SessionTrace.appendMillis(sb, getPercentile(95));
+        sb.append(" / p99 ");
+        SessionTrace.appendMillis(sb, getPercentile(99));
+        sb.append(" / max ");
+        SessionTrace.appendMillis(sb, getMax());
+        sb.append(String.format("\n吞吐量: %.0f B/s, %.1f 次/s", bytesPerSecond(), opsPerSecond()));
+        sb.append(String.format("\n錯誤率: %.1f%%, 標籤移開: %.1f%%", errorRate() * 100, tagLostRate() * 100));
+        if (lastError != null) {
+            sb.append("\n最後錯誤: ").append(lastError);
+        }
+        sb.append("\n準備 ");
+        SessionTrace.appendMillis(sb, prepareNanos);
+        sb.append(", 總耗時 ");
+        SessionTrace.appendMillis(sb, wallNanos);
+        return sb.toString();
+    }
+
+    // 逐次紀錄，一行一次；暖機的列 phase 為 warmup
+    public void writeCsv(Writer out) throws IOException {
+        out.write("iteration,phase,status,latency_ns,bytes\n");
+        StringBuilder line = new StringBuilder(64);
+        for (int i = 0; i < count; i++) {
+            line.setLength(0);
+            line.append(i).append(',')
+                    .append(isWarmup(i) ? "warmup" : "measure").append(',')
+                    .append(status[i].csvName()).append(',')
+                    .append(nanos[i]).append(',')
+                    .append(bytes[i]).append('\n');
+            out.append(line);
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,84 @@
+package com.smewise.nfcspeedtest.bench;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * NDEF 容量掃描設定：訊息大小從 minSize 開始每次增加 step，最後一點固定為標籤容量；
+ * 每個大小重複 repeats 次寫入與讀回，取中位數。
+ */
+public class SweepConfig {
+    private int minSize = 16;
+    private int step = 64;
+    private int repeats = 3;
+    private final Set<PayloadKind> kinds = EnumSet.allOf(PayloadKind.class);
+
+    public SweepConfig setMinSize(int minSize) {
+        if (minSize < 1) {
+            throw new IllegalArgumentException("起始大小需大於 0: " + minSize);
+        }
+        this.minSize = minSize;
+        return this;
+    }
+
+    public SweepConfig setStep(int step) {
+        if (step < 1) {
+            throw new IllegalArgumentException("間隔需大於 0: " + step);
+        }
+        this.step = step;
+        return this;
+    }
+
+    public SweepConfig setRepeats(int repeats) {
+        if (repeats < 1) {
+            throw new IllegalArgumentException("重複次數需大於 0: " + repeats);
+        }
+        this.repeats = repeats;
+        return this;
+    }
+
+    public SweepConfig setKinds(PayloadKind... kinds) {
+        if (kinds.length == 0) {
+            throw new IllegalArgumentException("至少需要一種 record");
+        }
+        this.kinds.clear();
+        this.kinds.addAll(Arrays.asList(kinds));
+        return this;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public int getRepeats() {
+        return repeats;
+    }
+
+    public Set<PayloadKind> getKinds() {
+        return kinds;
+    }
+
+    // 在 capacity 之內要量測的訊息大小（遞增，最後一點為 capacity）
+    public int[] sizesFor(int capacity) {
+        if (capacity < minSize) {
+            return new int[]{capacity};
+        }
+        int count = (capacity - minSize) / step + 1;
+        boolean endsAtCapacity = minSize + (count - 1) * step == capacity;
+        int[] sizes = new int[endsAtCapacity ? count : count + 1];
+        for (int i = 0; i < count; i++) {
+            sizes[i] = minSize + i * step;
+        }
+        sizes[sizes.length - 1] = capacity;
+        return sizes;
+    }
+
+    public String describe() {
+        return "從 " + minSize + " bytes 每 " + step + " bytes，重複 " + repeats + " 次";
+    }
+}
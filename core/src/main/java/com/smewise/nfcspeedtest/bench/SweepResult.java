@@ -0,0 +1,208 @@
+package com.smewise.nfcspeedtest.bench;
+
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * NDEF 容量掃描結果：每種 record 一條「訊息大小 - 寫入 / 讀回延遲」曲線，
+ * 並以直線擬合估計固定成本與每 byte 成本。
+ */
+public class SweepResult {
+
+    public static final class Curve {
+        private final PayloadKind kind;
+        private final int[] messageBytes;
+        private final int[] payloadBytes;
+        private final long[] writeNanos;
+        private final long[] readNanos;
+        private final boolean[] verified;
+        private int size;
+
+        Curve(PayloadKind kind, int capacity) {
+            this.kind = kind;
+            this.messageBytes = new int[capacity];
+            this.payloadBytes = new int[capacity];
+            this.writeNanos = new long[capacity];
+            this.readNanos = new long[capacity];
+            this.verified = new boolean[capacity];
+        }
+
+        void add(int message, int payload, long write, long read, boolean ok) {
+            messageBytes[size] = message;
+            payloadBytes[size] = payload;
+            writeNanos[size] = write;
+            readNanos[size] = read;
+            verified[size] = ok;
+            size++;
+        }
+
+        public PayloadKind getKind() {
+            return kind;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getMessageBytes(int point) {
+            return messageBytes[point];
+        }
+
+        public int getPayloadBytes(int point) {
+            return payloadBytes[point];
+        }
+
+        public long getWriteNanos(int point) {
+            return writeNanos[point];
+        }
+
+        public long getReadNanos(int point) {
+            return readNanos[point];
+        }
+
+        public boolean isVerified(int point) {
+            return verified[point];
+        }
+
+        public int getMismatches() {
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (!verified[i]) {
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        public LinearFit writeFit() {
+            return LinearFit.of(messageBytes, writeNanos, size);
+        }
+
+        public LinearFit readFit() {
+            return LinearFit.of(messageBytes, readNanos, size);
+        }
+
+        // 最大一點的有效吞吐量（含固定成本）
+        public double effectiveWriteBytesPerSecond() {
+            return size == 0 || writeNanos[size - 1] == 0 ? 0 : messageBytes[size - 1] * 1e9 / writeNanos[size - 1];
+        }
+
+        public double effectiveReadBytesPerSecond() {
+            return size == 0 || readNanos[size - 1] == 0 ? 0 : messageBytes[size - 1] * 1e9 / readNanos[size - 1];
+        }
+    }
+
+    private final String tagType;
+    private final int capacity;
+    private final int pointsPerCurve;
+    private final Map<PayloadKind, Curve> curves = new EnumMap<>(PayloadKind.class);
+    private String error;
+    private boolean restored;
+    private boolean cancelled;
+
+    SweepResult(String tagType, int capacity, int pointsPerCurve) {
+        this.tagType = tagType;
+        this.capacity = capacity;
+        this.pointsPerCurve = pointsPerCurve;
+    }
+
+    Curve curve(PayloadKind kind) {
+        Curve curve = curves.get(kind);
+        if (curve == null) {
+            curve = new Curve(kind, pointsPerCurve);
+            curves.put(kind, curve);
+        }
+        return curve;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    void setRestored(boolean restored) {
+        this.restored = restored;
+    }
+
+    void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    public String getTagType() {
+        return tagType;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Curve getCurve(PayloadKind kind) {
+        return curves.get(kind);
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isRestored() {
+        return restored;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private static void appendFit(StringBuilder sb, String name, LinearFit fit, double effective) {
+        sb.append("\n  ").append(name).append(" 固定 ");
+        SessionTrace.appendMillis(sb, Math.max(0, Math.round(fit.getIntercept())));
+        sb.append(String.format(" + %.2f µs/byte（邊際 %.0f B/s，滿載 %.0f B/s）",
+                fit.getSlope() / 1000.0, fit.marginalBytesPerSecond(), effective));
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("NDEF 容量掃描: ").append(tagType).append("，容量 ").append(capacity).append(" bytes");
+        for (Curve curve : curves.values()) {
+            if (curve.size == 0) {
+                continue;
+            }
+            sb.append('\n').append(curve.kind.label()).append(": ").append(curve.size).append(" 點，")
+                    .append(curve.messageBytes[0]).append('~').append(curve.messageBytes[curve.size - 1]).append(" bytes");
+            if (curve.getMismatches() > 0) {
+                sb.append("，讀回不符 ").append(curve.getMismatches()).append(" 點");
+            }
+            appendFit(sb, "寫入", curve.writeFit(), curve.effectiveWriteBytesPerSecond());
+            appendFit(sb, "讀取", curve.readFit(), curve.effectiveReadBytesPerSecond());
+        }
+        if (cancelled) {
+            sb.append("\n已中斷");
+        }
+        if (error != null) {
+            sb.append("\n錯誤: ").append(error);
+        }
+        sb.append(restored ? "\n已還原原本的 NDEF 內容" : "\n未還原原本的 NDEF 內容");
+        return sb.toString();
+    }
+
+    public void writeCsv(Writer out) throws IOException {
+        out.write("tag_type,kind,message_bytes,payload_bytes,write_ns,read_ns,verified\n");
+        StringBuilder line = new StringBuilder(96);
+        for (Curve curve : curves.values()) {
+            for (int i = 0; i < curve.size; i++) {
+                line.setLength(0);
+                line.append(tagType).append(',')
+                        .append(curve.kind.label()).append(',')
+                        .append(curve.messageBytes[i]).append(',')
+                        .append(curve.payloadBytes[i]).append(',')
+                        .append(curve.writeNanos[i]).append(',')
+                        .append(curve.readNanos[i]).append(',')
+                        .append(curve.verified[i]).append('\n');
+                out.append(line);
+            }
+        }
+        out.flush();
+    }
+}
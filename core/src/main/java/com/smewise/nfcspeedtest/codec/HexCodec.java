@@ -0,0 +1,215 @@
+package com.smewise.nfcspeedtest.codec;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 查表式十六進位編碼/解碼。
+ * 所有 encode/decode 方法都可以寫入呼叫端提供的 char[]、StringBuilder 或 ByteBuffer，
+ * 逐位元組處理時不配置任何物件；separator 為 0 代表不加分隔字元。
+ */
+public final class HexCodec {
+    public static final char NO_SEPARATOR = 0;
+
+    private static final char[] DIGITS = "0123456789ABCDEF".toCharArray();
+    // 每個位元組對應的兩個字元：ENCODE[b * 2]、ENCODE[b * 2 + 1]
+    private static final char[] ENCODE = new char[512];
+    // ASCII 字元對應的 nibble 值，非十六進位字元為 -1
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            ENCODE[b * 2] = DIGITS[b >>> 4];
+            ENCODE[b * 2 + 1] = DIGITS[b & 0x0F];
+        }
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            DECODE['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            DECODE['A' + i] = (byte) (10 + i);
+            DECODE['a' + i] = (byte) (10 + i);
+        }
+    }
+
+    private HexCodec() {
+    }
+
+    // 編碼後的字元數
+    public static int encodedLength(int byteCount, char separator) {
+        if (byteCount <= 0) {
+            return 0;
+        }
+        return separator == NO_SEPARATOR ? byteCount * 2 : byteCount * 3 - 1;
+    }
+
+    public static int encode(byte[] src, int offset, int length, char[] dst, int dstOffset, char separator) {
+        int p = dstOffset;
+        for (int i = 0; i < length; i++) {
+            if (separator != NO_SEPARATOR && i > 0) {
+                dst[p++] = separator;
+            }
+            int v = (src[offset + i] & 0xFF) << 1;
+            dst[p++] = ENCODE[v];
+            dst[p++] = ENCODE[v + 1];
+        }
+        return p - dstOffset;
+    }
+
+    public static StringBuilder encode(byte[] src, int offset, int length, StringBuilder dst, char separator) {
+        dst.ensureCapacity(dst.length() + encodedLength(length, separator));
+        for (int i = 0; i < length; i++) {
+            if (separator != NO_SEPARATOR && i > 0) {
+                dst.append(separator);
+            }
+            int v = (src[offset + i] & 0xFF) << 1;
+            dst.append(ENCODE[v]).append(ENCODE[v + 1]);
+        }
+        return dst;
+    }
+
+    // 以 ASCII 寫入 ByteBuffer，回傳寫入的位元組數
+    public static int encode(byte[] src, int offset, int length, ByteBuffer dst, char separator) {
+        int start = dst.position();
+        for (int i = 0; i < length; i++) {
+            if (separator != NO_SEPARATOR && i > 0) {
+                dst.put((byte) separator);
+            }
+            int v = (src[offset + i] & 0xFF) << 1;
+            dst.put((byte) ENCODE[v]).put((byte) ENCODE[v + 1]);
+        }
+        return dst.position() - start;
+    }
+
+    public static StringBuilder encode(byte[] src, StringBuilder dst, char separator) {
+        return encode(src, 0, src.length, dst, separator);
+    }
+
+    // 連續的十六進位字串，例如 "0A1B2C"
+    public static String toHex(byte[] bytes) {
+        return toHex(bytes, NO_SEPARATOR);
+    }
+
+    public static String toHex(byte[] bytes, char separator) {
+        char[] out = new char[encodedLength(bytes.length, separator)];
+        encode(bytes, 0, bytes.length, out, 0, separator);
+        return new String(out);
+    }
+
+    // 畫面顯示用格式，例如 "0A 1B 2C"；null 顯示為 "null"（與原本 MainActivity.bytesToHex 相同）
+    public static String toDisplayHex(byte[] bytes) {
+        return bytes == null ? "null" : toHex(bytes, ' ');
+    }
+
+    private static int nibble(char c) {
+        return c < 128 ? DECODE[c] : -1;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == ':' || c == '-' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * 嚴格解碼：src[start, end) 只能包含十六進位字元且長度為偶數。
+     * 結果寫入 dst，回傳寫入的位元組數。
+     */
+    public static int decode(CharSequence src, int start, int end, byte[] dst, int dstOffset) {
+        if (((end - start) & 1) != 0) {
+            throw new HexFormatException("十六進位字元數必須為偶數", end);
+        }
+        int p = dstOffset;
+        for (int i = start; i < end; i += 2) {
+            int hi = nibble(src.charAt(i));
+            if (hi < 0) {
+                throw new HexFormatException("不是十六進位字元 '" + src.charAt(i) + "'", i);
+            }
+            int lo = nibble(src.charAt(i + 1));
+            if (lo < 0) {
+                throw new HexFormatException("不是十六進位字元 '" + src.charAt(i + 1) + "'", i + 1);
+            }
+            dst[p++] = (byte) ((hi << 4) | lo);
+        }
+        return p - dstOffset;
+    }
+
+    // 嚴格解碼整個字串
+    public static byte[] decode(CharSequence src) {
+        byte[] out = new byte[src.length() / 2];
+        decode(src, 0, src.length(), out, 0);
+        return out;
+    }
+
+    /**
+     * 驗證並計算使用者輸入（例如 etWriteData）的位元組數。
+     * 允許位元組之間出現空白、':'、'-'，但同一位元組的兩個字元必須相鄰。
+     */
+    public static int parsedLength(CharSequence text) {
+        int count = 0;
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            char c = text.charAt(i);
+            if (isSeparator(c)) {
+                i++;
+                continue;
+            }
+            if (nibble(c) < 0) {
+                throw new HexFormatException("不是十六進位字元 '" + c + "'", i);
+            }
+            if (i + 1 >= n) {
+                throw new HexFormatException("最後一個位元組缺少一個字元", n);
+            }
+            char next = text.charAt(i + 1);
+            if (nibble(next) < 0) {
+                throw new HexFormatException("不是十六進位字元 '" + next + "'", i + 1);
+            }
+            count++;
+            i += 2;
+        }
+        return count;
+    }
+
+    // 將已驗證格式的使用者輸入寫入 dst，回傳位元組數
+    public static int parse(CharSequence text, byte[] dst, int dstOffset) {
+        int length = parsedLength(text);
+        if (dst.length - dstOffset < length) {
+            throw new IndexOutOfBoundsException("dst 空間不足: 需要 " + length + " bytes");
+        }
+        int p = dstOffset;
+        int n = text.length();
+        for (int i = 0; i < n; ) {
+            char c = text.charAt(i);
+            if (isSeparator(c)) {
+                i++;
+                continue;
+            }
+            dst[p++] = (byte) ((nibble(c) << 4) | nibble(text.charAt(i + 1)));
+            i += 2;
+        }
+        return length;
+    }
+
+    public static int parse(CharSequence text, ByteBuffer dst) {
+        int length = parsedLength(text);
+        if (dst.remaining() < length) {
+            throw new IndexOutOfBoundsException("dst 空間不足: 需要 " + length + " bytes");
+        }
+        int n = text.length();
+        for (int i = 0; i < n; ) {
+            char c = text.charAt(i);
+            if (isSeparator(c)) {
+                i++;
+                continue;
+            }
+            dst.put((byte) ((nibble(c) << 4) | nibble(text.charAt(i + 1))));
+            i += 2;
+        }
+        return length;
+    }
+
+    public static byte[] parse(CharSequence text) {
+        byte[] out = new byte[parsedLength(text)];
+        parse(text, out, 0);
+        return out;
+    }
+}
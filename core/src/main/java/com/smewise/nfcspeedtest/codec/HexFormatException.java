@@ -0,0 +1,15 @@
+package com.smewise.nfcspeedtest.codec;
+
+// 十六進位字串格式錯誤，index 為出錯字元的位置（字串長度不足時為字串長度）
+public class HexFormatException extends IllegalArgumentException {
+    private final int index;
+
+    public HexFormatException(String message, int index) {
+        super(message + " (位置 " + index + ")");
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+}
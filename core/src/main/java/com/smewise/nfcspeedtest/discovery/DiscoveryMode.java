@@ -0,0 +1,21 @@
+package com.smewise.nfcspeedtest.discovery;
+
+/**
+ * 標籤偵測方式。
+ */
+public enum DiscoveryMode {
+    // enableForegroundDispatch：PendingIntent → onPause → onNewIntent，平台會先做 NDEF 檢查
+    FOREGROUND_DISPATCH("前台調度"),
+    // enableReaderMode：直接在 binder 執行緒回呼，可略過 NDEF 檢查並調整 presence check
+    READER_MODE("Reader Mode");
+
+    private final String label;
+
+    DiscoveryMode(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
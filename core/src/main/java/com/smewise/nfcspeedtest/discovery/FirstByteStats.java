@@ -0,0 +1,58 @@
+package com.smewise.nfcspeedtest.discovery;
+
+import com.smewise.nfcspeedtest.trace.LatencyHistogram;
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 依偵測方式分開統計 time-to-first-byte（SessionTrace.firstByteNanos），
+ * 讓前台調度與 Reader Mode 以同一套量測比較。record 可在任何執行緒呼叫。
+ */
+public class FirstByteStats {
+    private final Map<DiscoveryMode, LatencyHistogram> histograms = new EnumMap<>(DiscoveryMode.class);
+
+    public FirstByteStats() {
+        for (DiscoveryMode mode : DiscoveryMode.values()) {
+            histograms.put(mode, new LatencyHistogram());
+        }
+    }
+
+    // 回傳此次的 time-to-first-byte，沒有任何 RF 回應時回傳 -1 且不記錄
+    public long record(DiscoveryMode mode, SessionTrace trace) {
+        long nanos = trace.firstByteNanos();
+        if (nanos >= 0) {
+            histograms.get(mode).record(nanos);
+        }
+        return nanos;
+    }
+
+    public LatencyHistogram histogram(DiscoveryMode mode) {
+        return histograms.get(mode);
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder("首位元組時間 (ms)\n");
+        for (DiscoveryMode mode : DiscoveryMode.values()) {
+            LatencyHistogram h = histograms.get(mode);
+            if (h.getCount() == 0) {
+                continue;
+            }
+            sb.append(mode.label()).append(": n=").append(h.getCount()).append(" p50=");
+            SessionTrace.appendMillis(sb, h.getPercentile(50));
+            sb.append(" p95=");
+            SessionTrace.appendMillis(sb, h.getPercentile(95));
+            sb.append(" min=");
+            SessionTrace.appendMillis(sb, h.getMin());
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
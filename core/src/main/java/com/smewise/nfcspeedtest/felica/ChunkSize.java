@@ -0,0 +1,31 @@
+package com.smewise.nfcspeedtest.felica;
+
+/**
+ * 單一指令的區塊數：從傳輸長度允許的上限開始，卡片拒絕時減半，
+ * 之後成功時往最小的被拒數量二分逼近，幾次往返後停在卡片真正的上限。
+ */
+final class ChunkSize {
+    private int current;
+    // 已知會被拒絕的最小區塊數
+    private int rejected;
+
+    ChunkSize(int initial) {
+        this.current = Math.max(1, initial);
+        this.rejected = current + 1;
+    }
+
+    int get() {
+        return current;
+    }
+
+    void onRejected(int blocks) {
+        rejected = Math.min(rejected, blocks);
+        current = Math.max(1, Math.min(current, blocks / 2));
+    }
+
+    void onAccepted(int blocks) {
+        if (blocks == current && current < rejected - 1) {
+            current = (current + rejected) / 2;
+        }
+    }
+}
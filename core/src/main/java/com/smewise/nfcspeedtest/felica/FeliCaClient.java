@@ -0,0 +1,351 @@
+package com.smewise.nfcspeedtest.felica;
+
+import com.smewise.nfcspeedtest.trace.NanoClock;
+import com.smewise.nfcspeedtest.transport.NfcFTransport;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * FeliCa 免加密服務的讀寫：
+ * 以 Search Service Code / Request Service 找出卡片上的服務，
+ * Read/Write Without Encryption 每個指令放入卡片允許的最多區塊。
+ * 每批區塊數先依 getMaxTransceiveLength 計算，卡片回報區塊數錯誤 (A2) 時縮小並逼近卡片的上限（ChunkSize）。
+ * 指令直接寫入重複使用的 buffer，整批傳輸時只有最後一批長度不同才會重新配置。
+ * service code 在 frame 中為 little-endian，全程以 int 保存，不會被截斷。
+ * 只在 NFC I/O 執行緒使用。
+ */
+public class FeliCaClient {
+    public static final int CMD_REQUEST_SERVICE = 0x02;
+    public static final int CMD_READ_WO_ENC = 0x06;
+    public static final int CMD_WRITE_WO_ENC = 0x08;
+    public static final int CMD_SEARCH_SERVICE_CODE = 0x0A;
+
+    public static final int BLOCK_SIZE = 16;
+    // Request Service 一次最多查詢 32 個服務
+    private static final int MAX_REQUEST_SERVICES = 32;
+    // Read/Write Without Encryption 的 block list 最多 15 個元素
+    private static final int MAX_BLOCKS_PER_COMMAND = 15;
+    // LEN + CMD + IDm
+    private static final int HEADER = 10;
+    // HEADER + 服務數 + service code + 區塊數
+    private static final int RW_HEADER = HEADER + 4;
+    // LEN + CMD + IDm + status flag 1/2 + 區塊數
+    private static final int READ_RESPONSE_HEADER = HEADER + 3;
+    private static final int NO_SERVICE = 0xFFFF;
+
+    private final NfcFTransport nfcf;
+    private final byte[] idm;
+    private final NanoClock clock;
+
+    private ChunkSize readChunk;
+    private ChunkSize writeChunk;
+    private byte[] frame = new byte[0];
+
+    private long readBytes;
+    private long readNanos;
+    private long readCommands;
+    private long writeBytes;
+    private long writeNanos;
+    private long writeCommands;
+
+    public FeliCaClient(NfcFTransport nfcf, byte[] idm, NanoClock clock) {
+        if (idm.length != 8) {
+            throw new IllegalArgumentException("IDm 必須為 8 bytes");
+        }
+        this.nfcf = nfcf;
+        this.idm = idm.clone();
+        this.clock = clock;
+    }
+
+    // 依序列舉卡片上的服務（不含區域），最多 max 個
+    public int[] searchServiceCodes(int max) throws IOException {
+        int[] found = new int[Math.min(max, 16)];
+        int count = 0;
+        for (int index = 0; count < max && index <= 0xFFFF; index++) {
+            byte[] cmd = frame(CMD_SEARCH_SERVICE_CODE, HEADER + 2);
+            cmd[HEADER] = (byte) index;
+            cmd[HEADER + 1] = (byte) (index >> 8);
+            byte[] response = exchange(CMD_SEARCH_SERVICE_CODE, cmd, false);
+            if (response.length < HEADER + 2) {
+                throw new IOException("Search Service Code 回應長度不足: " + response.length);
+            }
+            int code = (response[HEADER] & 0xFF) | (response[HEADER + 1] & 0xFF) << 8;
+            if (code == NO_SERVICE) {
+                break;
+            }
+            // 回應 4 bytes 代表區域（area code + end service code），略過
+            if (response.length >= HEADER + 4) {
+                continue;
+            }
+            if (count == found.length) {
+                found = Arrays.copyOf(found, Math.min(max, found.length * 2));
+            }
+            found[count++] = code;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Request Service：回傳每個服務的 key version，不存在的服務為 0xFFFF。
+     */
+    public int[] requestService(int... serviceCodes) throws IOException {
+        int[] versions = new int[serviceCodes.length];
+        for (int start = 0; start < serviceCodes.length; start += MAX_REQUEST_SERVICES) {
+            int n = Math.min(MAX_REQUEST_SERVICES, serviceCodes.length - start);
+            byte[] cmd = frame(CMD_REQUEST_SERVICE, HEADER + 1 + n * 2);
+            cmd[HEADER] = (byte) n;
+            for (int i = 0; i < n; i++) {
+                putServiceCode(cmd, HEADER + 1 + i * 2, serviceCodes[start + i]);
+            }
+            byte[] response = exchange(CMD_REQUEST_SERVICE, cmd, false);
+            if (response.length < HEADER + 1 + n * 2) {
+                throw new IOException("Request Service 回應長度不足: " + response.length);
+            }
+            for (int i = 0; i < n; i++) {
+                int pos = HEADER + 1 + i * 2;
+                versions[start + i] = (response[pos] & 0xFF) | (response[pos + 1] & 0xFF) << 8;
+            }
+        }
+        return versions;
+    }
+
+    public boolean hasService(int serviceCode) throws IOException {
+        return requestService(serviceCode)[0] != NO_SERVICE;
+    }
+
+    // 服務屬性的最低位元為 1 代表不需認證（Without Encryption）
+    public static boolean isWithoutEncryption(int serviceCode) {
+        return (serviceCode & 0x01) != 0;
+    }
+
+    public int getReadChunk() {
+        return readChunk().get();
+    }
+
+    public int getWriteChunk() {
+        return writeChunk().get();
+    }
+
+    private ChunkSize readChunk() {
+        if (readChunk == null) {
+            readChunk = new ChunkSize(clampChunk((nfcf.getMaxTransceiveLength() - READ_RESPONSE_HEADER) / BLOCK_SIZE));
+        }
+        return readChunk;
+    }
+
+    private ChunkSize writeChunk() {
+        if (writeChunk == null) {
+            // 每個區塊：3 bytes block list 元素（最壞情況）+ 16 bytes 資料
+            writeChunk = new ChunkSize(clampChunk((nfcf.getMaxTransceiveLength() - RW_HEADER) / (3 + BLOCK_SIZE)));
+        }
+        return writeChunk;
+    }
+
+    private static int clampChunk(int blocks) {
+        return Math.max(1, Math.min(MAX_BLOCKS_PER_COMMAND, blocks));
+    }
+
+    public void read(int serviceCode, int firstBlock, int blockCount, byte[] dst, int dstOffset) throws IOException {
+        int done = 0;
+        while (done < blockCount) {
+            int n = Math.min(blockCount - done, getReadChunk());
+            try {
+                readBlocks(serviceCode, firstBlock + done, n, dst, dstOffset + done * BLOCK_SIZE);
+                readChunk.onAccepted(n);
+                done += n;
+            } catch (FeliCaException e) {
+                shrink(readChunk, e, n);
+            }
+        }
+    }
+
+    /**
+     * 讀取服務從第 0 區塊開始的內容，直到卡片回報區塊編號超出範圍或達到 maxBlocks。
+     * FeliCa 沒有查詢服務大小的指令，因此以第一個出錯的 block list 元素判斷結尾。
+     */
+    public byte[] readService(int serviceCode, int maxBlocks) throws IOException {
+        byte[] out = new byte[maxBlocks * BLOCK_SIZE];
+        int done = 0;
+        while (done < maxBlocks) {
+            int n = Math.min(maxBlocks - done, getReadChunk());
+            try {
+                readBlocks(serviceCode, done, n, out, done * BLOCK_SIZE);
+                readChunk.onAccepted(n);
+                done += n;
+            } catch (FeliCaException e) {
+                if (e.getStatusFlag2() == FeliCaException.ILLEGAL_BLOCK_NUMBER && e.failedElement() >= 0) {
+                    // 出錯元素之前的區塊都有效，讀完後結束
+                    int valid = e.failedElement();
+                    if (valid > 0) {
+                        readBlocks(serviceCode, done, valid, out, done * BLOCK_SIZE);
+                        done += valid;
+                    }
+                    break;
+                }
+                shrink(readChunk, e, n);
+            }
+        }
+        return done == maxBlocks ? out : Arrays.copyOf(out, done * BLOCK_SIZE);
+    }
+
+    public void write(int serviceCode, int firstBlock, byte[] src, int srcOffset, int blockCount) throws IOException {
+        if (src.length - srcOffset < blockCount * BLOCK_SIZE) {
+            throw new IllegalArgumentException("資料長度不足 " + blockCount + " 個區塊");
+        }
+        int done = 0;
+        while (done < blockCount) {
+            int n = Math.min(blockCount - done, getWriteChunk());
+            try {
+                writeBlocks(serviceCode, firstBlock + done, n, src, srcOffset + done * BLOCK_SIZE);
+                writeChunk.onAccepted(n);
+                done += n;
+            } catch (FeliCaException e) {
+                shrink(writeChunk, e, n);
+            }
+        }
+    }
+
+    // 只有區塊數錯誤值得以較小的批次重試
+    private static void shrink(ChunkSize chunk, FeliCaException e, int n) throws FeliCaException {
+        if (e.getStatusFlag2() != FeliCaException.ILLEGAL_BLOCK_COUNT || n <= 1) {
+            throw e;
+        }
+        chunk.onRejected(n);
+    }
+
+    private void readBlocks(int serviceCode, int firstBlock, int n, byte[] dst, int offset) throws IOException {
+        byte[] cmd = frame(CMD_READ_WO_ENC, RW_HEADER + blockListLength(firstBlock, n));
+        putServiceList(cmd, serviceCode, n);
+        putBlockList(cmd, RW_HEADER, firstBlock, n);
+        byte[] response = exchange(CMD_READ_WO_ENC, cmd, true);
+        if (response.length < READ_RESPONSE_HEADER + n * BLOCK_SIZE) {
+            throw new IOException("Read Without Encryption 回應長度不足: " + response.length);
+        }
+        System.arraycopy(response, READ_RESPONSE_HEADER, dst, offset, n * BLOCK_SIZE);
+        readBytes += n * BLOCK_SIZE;
+    }
+
+    private void writeBlocks(int serviceCode, int firstBlock, int n, byte[] src, int offset) throws IOException {
+        int listLength = blockListLength(firstBlock, n);
+        byte[] cmd = frame(CMD_WRITE_WO_ENC, RW_HEADER + listLength + n * BLOCK_SIZE);
+        putServiceList(cmd, serviceCode, n);
+        putBlockList(cmd, RW_HEADER, firstBlock, n);
+        System.arraycopy(src, offset, cmd, RW_HEADER + listLength, n * BLOCK_SIZE);
+        exchange(CMD_WRITE_WO_ENC, cmd, true);
+        writeBytes += n * BLOCK_SIZE;
+    }
+
+    private static void putServiceList(byte[] cmd, int serviceCode, int blockCount) {
+        cmd[HEADER] = 1;
+        putServiceCode(cmd, HEADER + 1, serviceCode);
+        cmd[HEADER + 3] = (byte) blockCount;
+    }
+
+    private static void putServiceCode(byte[] cmd, int pos, int serviceCode) {
+        cmd[pos] = (byte) serviceCode;
+        cmd[pos + 1] = (byte) (serviceCode >> 8);
+    }
+
+    // 區塊編號小於 256 時用 2 bytes 元素，否則 3 bytes
+    private static int blockListLength(int firstBlock, int n) {
+        int length = 0;
+        for (int block = firstBlock; block < firstBlock + n; block++) {
+            length += block < 256 ? 2 : 3;
+        }
+        return length;
+    }
+
+    private static void putBlockList(byte[] cmd, int pos, int firstBlock, int n) {
+        for (int block = firstBlock; block < firstBlock + n; block++) {
+            if (block < 256) {
+                cmd[pos++] = (byte) 0x80;
+                cmd[pos++] = (byte) block;
+            } else {
+                cmd[pos++] = 0x00;
+                cmd[pos++] = (byte) block;
+                cmd[pos++] = (byte) (block >> 8);
+            }
+        }
+    }
+
+    private byte[] frame(int command, int length) {
+        if (frame.length != length) {
+            frame = new byte[length];
+        }
+        frame[0] = (byte) length;
+        frame[1] = (byte) command;
+        System.arraycopy(idm, 0, frame, 2, 8);
+        return frame;
+    }
+
+    private byte[] exchange(int command, byte[] cmd, boolean counted) throws IOException {
+        long start = clock.nanoTime();
+        byte[] response;
+        try {
+            response = nfcf.transceive(cmd);
+        } finally {
+            if (counted) {
+                long elapsed = clock.nanoTime() - start;
+                if (command == CMD_READ_WO_ENC) {
+                    readNanos += elapsed;
+                    readCommands++;
+                } else {
+                    writeNanos += elapsed;
+                    writeCommands++;
+                }
+            }
+        }
+        if (response == null || response.length < HEADER || (response[1] & 0xFF) != command + 1) {
+            throw new IOException(String.format("指令 %02X 回應格式錯誤", command));
+        }
+        if (command == CMD_READ_WO_ENC || command == CMD_WRITE_WO_ENC) {
+            if (response.length < HEADER + 2) {
+                throw new IOException(String.format("指令 %02X 回應長度不足", command));
+            }
+            int sf1 = response[HEADER] & 0xFF;
+            int sf2 = response[HEADER + 1] & 0xFF;
+            if (sf1 != 0) {
+                throw new FeliCaException(command, sf1, sf2);
+            }
+        }
+        return response;
+    }
+
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    public long getReadCommands() {
+        return readCommands;
+    }
+
+    public long getWriteBytes() {
+        return writeBytes;
+    }
+
+    public long getWriteCommands() {
+        return writeCommands;
+    }
+
+    public double readBytesPerSecond() {
+        return readNanos <= 0 ? 0 : readBytes * 1_000_000_000.0 / readNanos;
+    }
+
+    public double writeBytesPerSecond() {
+        return writeNanos <= 0 ? 0 : writeBytes * 1_000_000_000.0 / writeNanos;
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        if (readCommands > 0) {
+            sb.append(String.format("Read Without Encryption: %d bytes / %d 指令（每批 %d 區塊），%.0f bytes/s\n",
+                    readBytes, readCommands, getReadChunk(), readBytesPerSecond()));
+        }
+        if (writeCommands > 0) {
+            sb.append(String.format("Write Without Encryption: %d bytes / %d 指令（每批 %d 區塊），%.0f bytes/s\n",
+                    writeBytes, writeCommands, getWriteChunk(), writeBytesPerSecond()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package com.smewise.nfcspeedtest.felica;
+
+import java.io.IOException;
+
+/**
+ * 卡片回應的狀態旗標不為 0。
+ * statusFlag1 為 0x01..0x10 時代表第幾個 block list 元素出錯，0xFF 代表與元素無關的錯誤。
+ */
+public class FeliCaException extends IOException {
+    // 區塊數錯誤（超出單一指令上限）
+    public static final int ILLEGAL_BLOCK_COUNT = 0xA2;
+    // 區塊編號超出服務範圍
+    public static final int ILLEGAL_BLOCK_NUMBER = 0xA8;
+
+    private final int statusFlag1;
+    private final int statusFlag2;
+
+    public FeliCaException(int command, int statusFlag1, int statusFlag2) {
+        super(String.format("指令 %02X 狀態 %02X %02X", command, statusFlag1, statusFlag2));
+        this.statusFlag1 = statusFlag1;
+        this.statusFlag2 = statusFlag2;
+    }
+
+    public int getStatusFlag1() {
+        return statusFlag1;
+    }
+
+    public int getStatusFlag2() {
+        return statusFlag2;
+    }
+
+    // 出錯的 block list 元素索引（從 0 開始），與元素無關時為 -1
+    public int failedElement() {
+        return statusFlag1 >= 0x01 && statusFlag1 <= 0x10 ? statusFlag1 - 1 : -1;
+    }
+}
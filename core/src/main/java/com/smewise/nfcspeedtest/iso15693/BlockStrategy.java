@@ -0,0 +1,17 @@
+package com.smewise.nfcspeedtest.iso15693;
+
+// 記憶體讀寫使用的指令
+public enum BlockStrategy {
+    MULTIPLE("Read/Write Multiple Blocks"),
+    SINGLE("Read/Write Single Block");
+
+    private final String label;
+
+    BlockStrategy(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
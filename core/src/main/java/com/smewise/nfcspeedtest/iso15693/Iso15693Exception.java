@@ -0,0 +1,27 @@
+package com.smewise.nfcspeedtest.iso15693;
+
+import java.io.IOException;
+
+// 標籤回應的 error flag 與錯誤碼（ISO 15693-3 表 7）
+public class Iso15693Exception extends IOException {
+    public static final int NOT_SUPPORTED = 0x01;
+    public static final int NOT_RECOGNIZED = 0x02;
+    public static final int OPTION_NOT_SUPPORTED = 0x03;
+    public static final int BLOCK_UNAVAILABLE = 0x10;
+
+    private final int errorCode;
+
+    public Iso15693Exception(int command, int errorCode) {
+        super(String.format("指令 %02X 回應錯誤碼 %02X", command, errorCode));
+        this.errorCode = errorCode;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    // 標籤不認得此指令，改用其他指令即可
+    public boolean isUnsupportedCommand() {
+        return errorCode == NOT_SUPPORTED || errorCode == NOT_RECOGNIZED || errorCode == OPTION_NOT_SUPPORTED;
+    }
+}
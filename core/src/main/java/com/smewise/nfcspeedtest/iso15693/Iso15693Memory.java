@@ -0,0 +1,282 @@
+package com.smewise.nfcspeedtest.iso15693;
+
+import com.smewise.nfcspeedtest.trace.NanoClock;
+import com.smewise.nfcspeedtest.transport.NfcVTransport;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+
+import java.io.IOException;
+
+/**
+ * ISO 15693 記憶體讀寫：
+ * 先以 Get System Info 取得區塊大小與數量，再用 Read/Write Multiple Blocks (0x23/0x24) 批次存取。
+ * 每批區塊數依 getMaxTransceiveLength 計算；標籤回報超出上限時減半重試並記住可用的大小，
+ * 標籤不支援多區塊指令時改用 Read/Write Single Block (0x20/0x21)。
+ * 所有指令使用定址模式，UID 直接沿用 getId() 的位元組順序（LSB 在前，與 frame 格式相同）。
+ * 只在 NFC I/O 執行緒使用。
+ */
+public class Iso15693Memory {
+    public static final int CMD_READ_SINGLE = 0x20;
+    public static final int CMD_WRITE_SINGLE = 0x21;
+    public static final int CMD_READ_MULTIPLE = 0x23;
+    public static final int CMD_WRITE_MULTIPLE = 0x24;
+    public static final int CMD_GET_SYSTEM_INFO = 0x2B;
+
+    // Addressed (0x20) + high data rate (0x02)
+    static final int FLAGS = 0x22;
+    // flags + 指令 + UID
+    private static final int HEADER = 10;
+    // 區塊數欄位只有一個 byte（數量 - 1）
+    private static final int MAX_BLOCKS_PER_COMMAND = 256;
+
+    private final NfcVTransport nfcv;
+    private final byte[] uid;
+    private final NanoClock clock;
+
+    private SystemInfo info;
+    private BlockStrategy strategy = BlockStrategy.MULTIPLE;
+    private int readChunk;
+    private int writeChunk;
+    private byte[] frame = new byte[0];
+
+    private final long[] bytes = new long[BlockStrategy.values().length];
+    private final long[] nanos = new long[BlockStrategy.values().length];
+    private final long[] commands = new long[BlockStrategy.values().length];
+
+    public Iso15693Memory(NfcVTransport nfcv, byte[] uid, NanoClock clock) {
+        if (uid.length != 8) {
+            throw new IllegalArgumentException("ISO 15693 UID 必須為 8 bytes");
+        }
+        this.nfcv = nfcv;
+        this.uid = uid.clone();
+        this.clock = clock;
+    }
+
+    public SystemInfo getSystemInfo() throws IOException {
+        if (info == null) {
+            info = SystemInfo.parse(exchange(CMD_GET_SYSTEM_INFO, frame(CMD_GET_SYSTEM_INFO, HEADER), null));
+        }
+        return info;
+    }
+
+    public BlockStrategy getStrategy() {
+        return strategy;
+    }
+
+    // 強制使用某種指令（比較兩種方式的速度用）
+    public void setStrategy(BlockStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    // 目前每批的區塊數，尚未讀寫過時依最大傳輸長度計算
+    public int getReadChunk() throws IOException {
+        if (readChunk == 0) {
+            int blockSize = getSystemInfo().getBlockSize();
+            readChunk = clampChunk((nfcv.getMaxTransceiveLength() - 1) / blockSize);
+        }
+        return readChunk;
+    }
+
+    public int getWriteChunk() throws IOException {
+        if (writeChunk == 0) {
+            int blockSize = getSystemInfo().getBlockSize();
+            writeChunk = clampChunk((nfcv.getMaxTransceiveLength() - HEADER - 2) / blockSize);
+        }
+        return writeChunk;
+    }
+
+    private static int clampChunk(int blocks) {
+        return Math.max(1, Math.min(MAX_BLOCKS_PER_COMMAND, blocks));
+    }
+
+    public byte[] readAll() throws IOException {
+        SystemInfo si = getSystemInfo();
+        byte[] image = new byte[si.getMemorySize()];
+        read(0, si.getBlockCount(), image, 0);
+        return image;
+    }
+
+    public void read(int firstBlock, int blockCount, byte[] dst, int dstOffset) throws IOException {
+        int blockSize = checkRange(firstBlock, blockCount);
+        int done = 0;
+        while (done < blockCount) {
+            int block = firstBlock + done;
+            int offset = dstOffset + done * blockSize;
+            if (strategy == BlockStrategy.SINGLE) {
+                readSingle(block, dst, offset, blockSize);
+                done++;
+                continue;
+            }
+            int count = Math.min(blockCount - done, getReadChunk());
+            try {
+                readMultiple(block, count, dst, offset, blockSize);
+                done += count;
+            } catch (TagLostException e) {
+                throw e;
+            } catch (IOException e) {
+                readChunk = fallback(e, count);
+            }
+        }
+    }
+
+    public void write(int firstBlock, byte[] src, int srcOffset, int blockCount) throws IOException {
+        int blockSize = checkRange(firstBlock, blockCount);
+        if (src.length - srcOffset < blockCount * blockSize) {
+            throw new IllegalArgumentException("資料長度不足 " + blockCount + " 個區塊");
+        }
+        int done = 0;
+        while (done < blockCount) {
+            int block = firstBlock + done;
+            int offset = srcOffset + done * blockSize;
+            if (strategy == BlockStrategy.SINGLE) {
+                writeSingle(block, src, offset, blockSize);
+                done++;
+                continue;
+            }
+            int count = Math.min(blockCount - done, getWriteChunk());
+            try {
+                writeMultiple(block, count, src, offset, blockSize);
+                done += count;
+            } catch (TagLostException e) {
+                throw e;
+            } catch (IOException e) {
+                writeChunk = fallback(e, count);
+            }
+        }
+    }
+
+    // 多區塊指令失敗：標籤不認得指令就改用單區塊，否則減半重試；單一區塊仍失敗才是真的錯誤
+    private int fallback(IOException e, int count) throws IOException {
+        boolean unsupported = e instanceof Iso15693Exception && ((Iso15693Exception) e).isUnsupportedCommand();
+        if (unsupported) {
+            strategy = BlockStrategy.SINGLE;
+            return count;
+        }
+        if (count > 1) {
+            return count / 2;
+        }
+        if (!(e instanceof Iso15693Exception)) {
+            // 部分標籤對不支援的指令完全不回應
+            strategy = BlockStrategy.SINGLE;
+            return count;
+        }
+        throw e;
+    }
+
+    private int checkRange(int firstBlock, int blockCount) throws IOException {
+        SystemInfo si = getSystemInfo();
+        if (firstBlock < 0 || blockCount < 0 || firstBlock + blockCount > si.getBlockCount()) {
+            throw new IndexOutOfBoundsException("區塊範圍超出記憶體: " + firstBlock + "+" + blockCount
+                    + " / " + si.getBlockCount());
+        }
+        return si.getBlockSize();
+    }
+
+    private void readMultiple(int block, int count, byte[] dst, int offset, int blockSize) throws IOException {
+        byte[] cmd = frame(CMD_READ_MULTIPLE, HEADER + 2);
+        cmd[HEADER] = (byte) block;
+        cmd[HEADER + 1] = (byte) (count - 1);
+        copyData(exchange(CMD_READ_MULTIPLE, cmd, BlockStrategy.MULTIPLE), dst, offset, count * blockSize);
+        bytes[BlockStrategy.MULTIPLE.ordinal()] += count * blockSize;
+    }
+
+    private void readSingle(int block, byte[] dst, int offset, int blockSize) throws IOException {
+        byte[] cmd = frame(CMD_READ_SINGLE, HEADER + 1);
+        cmd[HEADER] = (byte) block;
+        copyData(exchange(CMD_READ_SINGLE, cmd, BlockStrategy.SINGLE), dst, offset, blockSize);
+        bytes[BlockStrategy.SINGLE.ordinal()] += blockSize;
+    }
+
+    private void writeMultiple(int block, int count, byte[] src, int offset, int blockSize) throws IOException {
+        int length = count * blockSize;
+        byte[] cmd = frame(CMD_WRITE_MULTIPLE, HEADER + 2 + length);
+        cmd[HEADER] = (byte) block;
+        cmd[HEADER + 1] = (byte) (count - 1);
+        System.arraycopy(src, offset, cmd, HEADER + 2, length);
+        exchange(CMD_WRITE_MULTIPLE, cmd, BlockStrategy.MULTIPLE);
+        bytes[BlockStrategy.MULTIPLE.ordinal()] += length;
+    }
+
+    private void writeSingle(int block, byte[] src, int offset, int blockSize) throws IOException {
+        byte[] cmd = frame(CMD_WRITE_SINGLE, HEADER + 1 + blockSize);
+        cmd[HEADER] = (byte) block;
+        System.arraycopy(src, offset, cmd, HEADER + 1, blockSize);
+        exchange(CMD_WRITE_SINGLE, cmd, BlockStrategy.SINGLE);
+        bytes[BlockStrategy.SINGLE.ordinal()] += blockSize;
+    }
+
+    private static void copyData(byte[] response, byte[] dst, int offset, int length) throws IOException {
+        if (response.length < 1 + length) {
+            throw new IOException("回應長度不足: " + response.length);
+        }
+        System.arraycopy(response, 1, dst, offset, length);
+    }
+
+    // 同樣長度的指令沿用同一個 buffer（整批讀寫時每次長度都相同）
+    private byte[] frame(int command, int length) {
+        if (frame.length != length) {
+            frame = new byte[length];
+        }
+        frame[0] = FLAGS;
+        frame[1] = (byte) command;
+        System.arraycopy(uid, 0, frame, 2, 8);
+        return frame;
+    }
+
+    private byte[] exchange(int command, byte[] cmd, BlockStrategy counted) throws IOException {
+        long start = clock.nanoTime();
+        byte[] response;
+        try {
+            response = nfcv.transceive(cmd);
+        } finally {
+            if (counted != null) {
+                nanos[counted.ordinal()] += clock.nanoTime() - start;
+                commands[counted.ordinal()]++;
+            }
+        }
+        if (response == null || response.length == 0) {
+            throw new IOException("標籤沒有回應");
+        }
+        if ((response[0] & 0x01) != 0) {
+            throw new Iso15693Exception(command, response.length > 1 ? response[1] & 0xFF : 0);
+        }
+        return response;
+    }
+
+    public long getBytes(BlockStrategy s) {
+        return bytes[s.ordinal()];
+    }
+
+    public long getNanos(BlockStrategy s) {
+        return nanos[s.ordinal()];
+    }
+
+    public long getCommands(BlockStrategy s) {
+        return commands[s.ordinal()];
+    }
+
+    public double bytesPerSecond(BlockStrategy s) {
+        long n = nanos[s.ordinal()];
+        return n <= 0 ? 0 : bytes[s.ordinal()] * 1_000_000_000.0 / n;
+    }
+
+    public void resetStats() {
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = 0;
+            nanos[i] = 0;
+            commands[i] = 0;
+        }
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (BlockStrategy s : BlockStrategy.values()) {
+            if (commands[s.ordinal()] == 0) {
+                continue;
+            }
+            sb.append(String.format("%s: %d bytes / %d 指令，%.2f ms，%.0f bytes/s\n",
+                    s.label(), bytes[s.ordinal()], commands[s.ordinal()],
+                    nanos[s.ordinal()] / 1_000_000.0, bytesPerSecond(s)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package com.smewise.nfcspeedtest.iso15693;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Get System Info (0x2B) 回應：[flags][info flags][UID 8][DSFID][AFI][區塊數-1][區塊大小-1][IC reference]，
+ * DSFID 之後的欄位依 info flags 決定是否存在。
+ */
+public final class SystemInfo {
+    private static final int HAS_DSFID = 0x01;
+    private static final int HAS_AFI = 0x02;
+    private static final int HAS_MEMORY_SIZE = 0x04;
+    private static final int HAS_IC_REFERENCE = 0x08;
+
+    private final byte[] uid;
+    private final int dsfId;
+    private final int afi;
+    private final int blockSize;
+    private final int blockCount;
+    private final int icReference;
+
+    SystemInfo(byte[] uid, int dsfId, int afi, int blockSize, int blockCount, int icReference) {
+        this.uid = uid;
+        this.dsfId = dsfId;
+        this.afi = afi;
+        this.blockSize = blockSize;
+        this.blockCount = blockCount;
+        this.icReference = icReference;
+    }
+
+    public static SystemInfo parse(byte[] response) throws IOException {
+        if (response.length < 10) {
+            throw new IOException("Get System Info 回應長度不足: " + response.length);
+        }
+        int infoFlags = response[1] & 0xFF;
+        int pos = 10;
+        int dsfId = -1, afi = -1, icReference = -1;
+        if ((infoFlags & HAS_DSFID) != 0) {
+            dsfId = byteAt(response, pos++);
+        }
+        if ((infoFlags & HAS_AFI) != 0) {
+            afi = byteAt(response, pos++);
+        }
+        if ((infoFlags & HAS_MEMORY_SIZE) == 0) {
+            throw new IOException("標籤未提供記憶體大小");
+        }
+        int blockCount = byteAt(response, pos++) + 1;
+        int blockSize = (byteAt(response, pos++) & 0x1F) + 1;
+        if ((infoFlags & HAS_IC_REFERENCE) != 0) {
+            icReference = byteAt(response, pos);
+        }
+        return new SystemInfo(Arrays.copyOfRange(response, 2, 10), dsfId, afi, blockSize, blockCount, icReference);
+    }
+
+    private static int byteAt(byte[] response, int pos) throws IOException {
+        if (pos >= response.length) {
+            throw new IOException("Get System Info 回應長度不足: " + response.length);
+        }
+        return response[pos] & 0xFF;
+    }
+
+    public byte[] getUid() {
+        return uid.clone();
+    }
+
+    // 不存在時為 -1
+    public int getDsfId() {
+        return dsfId;
+    }
+
+    public int getAfi() {
+        return afi;
+    }
+
+    public int getIcReference() {
+        return icReference;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public int getMemorySize() {
+        return blockSize * blockCount;
+    }
+
+    @Override
+    public String toString() {
+        return blockCount + " 區塊 x " + blockSize + " bytes = " + getMemorySize() + " bytes";
+    }
+}
@@ -0,0 +1,135 @@
+package com.smewise.nfcspeedtest.load;
+
+/**
+ * 負載測試設定：總工作階段數（暖機不列入統計）、同時運作的模擬讀卡機數、執行緒種類、
+ * 情境，以及每個指令真的等待的 RF 時間（0 代表不等待，只量 CPU）。
+ */
+public class LoadConfig {
+    private int sessions = 20000;
+    private int warmup = 2000;
+    private int readers = Runtime.getRuntime().availableProcessors();
+    private boolean virtualThreads;
+    private LoadScenario scenario = LoadScenario.MIXED;
+    private long rfMicros;
+
+    public LoadConfig setSessions(int sessions) {
+        if (sessions < 1) {
+            throw new IllegalArgumentException("工作階段數需大於 0: " + sessions);
+        }
+        this.sessions = sessions;
+        return this;
+    }
+
+    public LoadConfig setWarmup(int warmup) {
+        if (warmup < 0) {
+            throw new IllegalArgumentException("暖機次數不可為負: " + warmup);
+        }
+        this.warmup = warmup;
+        return this;
+    }
+
+    // 每個讀卡機一條執行緒，依序處理分到的工作階段（與 App 的 I/O 執行緒相同）
+    public LoadConfig setReaders(int readers) {
+        if (readers < 1) {
+            throw new IllegalArgumentException("讀卡機數需大於 0: " + readers);
+        }
+        this.readers = readers;
+        return this;
+    }
+
+    // JDK 21 以上改用 virtual thread；較舊的 JDK 退回固定大小的執行緒池
+    public LoadConfig setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    public LoadConfig setScenario(LoadScenario scenario) {
+        this.scenario = scenario;
+        return this;
+    }
+
+    public LoadConfig setRfMicros(long rfMicros) {
+        if (rfMicros < 0) {
+            throw new IllegalArgumentException("RF 時間不可為負: " + rfMicros);
+        }
+        this.rfMicros = rfMicros;
+        return this;
+    }
+
+    public int getSessions() {
+        return sessions;
+    }
+
+    public int getWarmup() {
+        return warmup;
+    }
+
+    public int getReaders() {
+        return readers;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public LoadScenario getScenario() {
+        return scenario;
+    }
+
+    public long getRfMicros() {
+        return rfMicros;
+    }
+
+    /**
+     * 解析命令列參數，例如 --sessions=50000 --readers=64 --scenario=mifare --virtual --rf-us=500。
+     * 格式錯誤時拋出 IllegalArgumentException。
+     */
+    public static LoadConfig parse(String[] args) {
+        LoadConfig config = new LoadConfig();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String name = eq < 0 ? arg : arg.substring(0, eq);
+            String value = eq < 0 ? null : arg.substring(eq + 1);
+            switch (name) {
+                case "--sessions":
+                    config.setSessions(intValue(name, value));
+                    break;
+                case "--warmup":
+                    config.setWarmup(intValue(name, value));
+                    break;
+                case "--readers":
+                    config.setReaders(intValue(name, value));
+                    break;
+                case "--virtual":
+                    config.setVirtualThreads(true);
+                    break;
+                case "--scenario":
+                    config.setScenario(LoadScenario.fromName(value));
+                    break;
+                case "--rf-us":
+                    config.setRfMicros(intValue(name, value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("不認得的參數: " + arg);
+            }
+        }
+        return config;
+    }
+
+    private static int intValue(String name, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException(name + " 需要數值");
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " 需為整數: " + value);
+        }
+    }
+
+    public String describe() {
+        return "情境 " + scenario.label() + "，" + sessions + " 次（暖機 " + warmup + "），"
+                + readers + " 個讀卡機（" + (virtualThreads ? "virtual thread" : "固定執行緒池") + "），"
+                + (rfMicros == 0 ? "RF 不等待" : "每個指令 RF " + rfMicros + " µs");
+    }
+}
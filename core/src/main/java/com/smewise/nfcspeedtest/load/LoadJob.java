@@ -0,0 +1,148 @@
+package com.smewise.nfcspeedtest.load;
+
+import com.smewise.nfcspeedtest.analytics.MeasurementAnalytics;
+import com.smewise.nfcspeedtest.mifare.KeyResolver;
+import com.smewise.nfcspeedtest.session.PipelineStage;
+import com.smewise.nfcspeedtest.session.SessionContext;
+import com.smewise.nfcspeedtest.session.TagJob;
+import com.smewise.nfcspeedtest.session.TagSession;
+import com.smewise.nfcspeedtest.store.MeasurementOp;
+import com.smewise.nfcspeedtest.store.MeasurementRecord;
+import com.smewise.nfcspeedtest.trace.Phase;
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 負載測試的工作階段：各階段委派給 LoadScenario，並記錄該階段的牆鐘、CPU 與配置量。
+ * 每個模擬讀卡機一個實例，只在該讀卡機的執行緒上依序重複使用。
+ */
+final class LoadJob extends TagJob {
+    // 寫入 MeasurementAnalytics 的手機型號欄位
+    static final String DEVICE = "jvm";
+
+    private final LoadScenario scenario;
+    private final KeyResolver keys;
+    private final StageCost costs;
+    private final MeasurementAnalytics analytics;
+    private final AtomicReference<Exception> firstFailure;
+    private final MeasurementRecord record = new MeasurementRecord();
+
+    private byte[] raw;
+    private String text;
+    private long wallStart;
+    private long cpuStart;
+    private long allocStart;
+
+    LoadJob(LoadScenario scenario, KeyResolver keys, StageCost costs, MeasurementAnalytics analytics,
+            AtomicReference<Exception> firstFailure) {
+        this.scenario = scenario;
+        this.keys = keys;
+        this.costs = costs;
+        this.analytics = analytics;
+        this.firstFailure = firstFailure;
+    }
+
+    @Override
+    protected void detect(SessionContext session) {
+        begin();
+        try {
+            raw = null;
+            text = null;
+            SessionTrace trace = session.trace();
+            long t = trace.start();
+            session.tags();
+            trace.end(Phase.TECH_DETECT, t);
+        } finally {
+            end(PipelineStage.DETECT);
+        }
+    }
+
+    @Override
+    protected void connect(SessionContext session) throws IOException {
+        begin();
+        try {
+            SessionTrace trace = session.trace();
+            long t = trace.start();
+            scenario.connect(session.tags());
+            trace.end(Phase.CONNECT, t);
+        } finally {
+            end(PipelineStage.CONNECT);
+        }
+    }
+
+    @Override
+    protected void exchange(SessionContext session) throws IOException {
+        begin();
+        try {
+            SessionTrace trace = session.trace();
+            long t = trace.start();
+            raw = scenario.exchange(session.tags(), keys);
+            trace.end(Phase.TRANSCEIVE, t);
+        } finally {
+            end(PipelineStage.EXCHANGE);
+        }
+    }
+
+    @Override
+    protected void decode(SessionContext session) {
+        begin();
+        try {
+            SessionTrace trace = session.trace();
+            long t = trace.start();
+            text = raw == null ? "" : scenario.decode(session.tags(), raw);
+            trace.end(Phase.PARSE, t);
+        } finally {
+            end(PipelineStage.DECODE);
+        }
+    }
+
+    @Override
+    protected void publish(SessionContext session) {
+        begin();
+        try {
+            TagSession tags = session.tags();
+            Exception failure = session.getFailure();
+            if (failure != null) {
+                firstFailure.compareAndSet(null, failure);
+            } else {
+                session.publish(text);
+            }
+            long total = session.trace().finish();
+            MeasurementRecord r = record.clear()
+                    .setOp(tags.has(TagTech.MIFARE_CLASSIC) ? MeasurementOp.MIFARE_DUMP : MeasurementOp.READ)
+                    .setPhases(session.trace(), total);
+            r.timestampMillis = System.currentTimeMillis();
+            r.uidHash = MeasurementRecord.uidHash(tags.getId());
+            r.techMask = tags.getTechMask();
+            int mask = tags.getUsefulMask() != 0 ? tags.getUsefulMask() : tags.getTechMask();
+            r.setTech(mask == 0 ? null : TagTech.values()[Integer.numberOfTrailingZeros(mask)]);
+            r.setTagModel(tags.getModel());
+            r.bytes = raw == null ? 0 : raw.length;
+            r.result = failure == null ? MeasurementRecord.RESULT_OK
+                    : failure instanceof TagLostException ? MeasurementRecord.RESULT_TAG_LOST
+                    : MeasurementRecord.RESULT_ERROR;
+            analytics.accept(r, DEVICE);
+        } finally {
+            end(PipelineStage.PUBLISH);
+        }
+    }
+
+    private void begin() {
+        cpuStart = StageCost.threadCpuNanos();
+        allocStart = StageCost.threadAllocatedBytes();
+        wallStart = System.nanoTime();
+    }
+
+    private void end(PipelineStage stage) {
+        long wall = System.nanoTime() - wallStart;
+        long cpu = StageCost.threadCpuNanos();
+        long alloc = StageCost.threadAllocatedBytes();
+        costs.record(stage, wall,
+                cpu < 0 || cpuStart < 0 ? -1 : cpu - cpuStart,
+                alloc < 0 || allocStart < 0 ? -1 : alloc - allocStart);
+    }
+}
@@ -0,0 +1,115 @@
+package com.smewise.nfcspeedtest.load;
+
+import com.smewise.nfcspeedtest.analytics.Dimension;
+import com.smewise.nfcspeedtest.analytics.MeasurementAnalytics;
+import com.smewise.nfcspeedtest.analytics.MeasurementQuery;
+import com.smewise.nfcspeedtest.trace.LatencyHistogram;
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+
+/**
+ * 一次負載測試（不含暖機）的結果：吞吐量、失敗數、工作階段延遲分布、各階段成本與整個程序的 CPU 時間。
+ */
+public class LoadReport {
+    private final LoadConfig config;
+    private final boolean virtualThreads;
+    private final long elapsedNanos;
+    private final long processCpuNanos;
+    private final int failures;
+    private final Exception firstFailure;
+    private final LatencyHistogram sessionTotals;
+    private final StageCost stages;
+    private final MeasurementAnalytics analytics;
+
+    LoadReport(LoadConfig config, boolean virtualThreads, long elapsedNanos, long processCpuNanos, int failures,
+               Exception firstFailure, LatencyHistogram sessionTotals, StageCost stages,
+               MeasurementAnalytics analytics) {
+        this.config = config;
+        this.virtualThreads = virtualThreads;
+        this.elapsedNanos = elapsedNanos;
+        this.processCpuNanos = processCpuNanos;
+        this.failures = failures;
+        this.firstFailure = firstFailure;
+        this.sessionTotals = sessionTotals;
+        this.stages = stages;
+        this.analytics = analytics;
+    }
+
+    public LoadConfig getConfig() {
+        return config;
+    }
+
+    // 實際使用 virtual thread（JDK 不支援時為 false）
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getSessions() {
+        return (int) sessionTotals.getCount();
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    public Exception getFirstFailure() {
+        return firstFailure;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double sessionsPerSecond() {
+        return elapsedNanos == 0 ? 0 : getSessions() * 1e9 / elapsedNanos;
+    }
+
+    // 整個程序平均每次工作階段的 CPU 時間，無法取得時回傳 -1
+    public long processCpuNanosPerSession() {
+        return processCpuNanos < 0 || getSessions() == 0 ? -1 : processCpuNanos / getSessions();
+    }
+
+    public LatencyHistogram getSessionTotals() {
+        return sessionTotals;
+    }
+
+    public StageCost getStages() {
+        return stages;
+    }
+
+    public MeasurementAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder("負載測試：").append(config.describe()).append('\n');
+        if (config.isVirtualThreads() && !virtualThreads) {
+            sb.append("此 JDK 不支援 virtual thread，改用固定執行緒池\n");
+        }
+        sb.append(getSessions()).append(" 次，失敗 ").append(failures).append("，耗時 ");
+        SessionTrace.appendMillis(sb, elapsedNanos);
+        sb.append("，").append(Math.round(sessionsPerSecond())).append(" 次/秒\n");
+        if (sessionTotals.getCount() > 0) {
+            sb.append("每次工作階段 p50=");
+            SessionTrace.appendMillis(sb, sessionTotals.getPercentile(50));
+            sb.append(" p99=");
+            SessionTrace.appendMillis(sb, sessionTotals.getPercentile(99));
+            sb.append(" max=");
+            SessionTrace.appendMillis(sb, sessionTotals.getMax());
+            sb.append('\n');
+        }
+        sb.append("程序 CPU 每次 ");
+        long cpu = processCpuNanosPerSession();
+        if (cpu < 0) {
+            sb.append("n/a");
+        } else {
+            SessionTrace.appendMillis(sb, cpu);
+        }
+        sb.append('\n');
+        stages.appendSummary(sb);
+        sb.append(analytics.summary(Dimension.TECH, new MeasurementQuery()));
+        if (firstFailure != null) {
+            sb.append("第一個錯誤: ").append(firstFailure).append('\n');
+        }
+        return sb.toString();
+    }
+}
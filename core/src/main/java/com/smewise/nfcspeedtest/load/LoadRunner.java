@@ -0,0 +1,174 @@
+package com.smewise.nfcspeedtest.load;
+
+import com.smewise.nfcspeedtest.analytics.MeasurementAnalytics;
+import com.smewise.nfcspeedtest.mifare.KeyDictionary;
+import com.smewise.nfcspeedtest.mifare.KeyResolver;
+import com.smewise.nfcspeedtest.mifare.SectorKeyCache;
+import com.smewise.nfcspeedtest.session.SessionContext;
+import com.smewise.nfcspeedtest.session.TagPipeline;
+import com.smewise.nfcspeedtest.trace.LatencyTracer;
+import com.smewise.nfcspeedtest.transport.sim.LatencyModel;
+import com.smewise.nfcspeedtest.transport.sim.SimMifareClassicTag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedTag;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 在 JVM 上同時驅動多個模擬讀卡機的負載測試，找出 App 以外的瓶頸（例如解碼、金鑰搜尋或統計的競爭）。
+ * 每個讀卡機一條執行緒，輪流對自己的幾張模擬標籤執行完整的 TagPipeline 工作階段（runInline），
+ * 先暖機再量測，最後輸出吞吐量與各階段的牆鐘、CPU、配置量。用法：
+ * <pre>
+ * ./gradlew :core:run --args="--sessions=50000 --readers=64 --virtual"
+ * </pre>
+ */
+public class LoadRunner {
+    // 每個讀卡機輪流使用的模擬標籤數；MIXED 情境下三種標籤各一張
+    static final int TAGS_PER_READER = 3;
+
+    static final String USAGE = "用法: LoadRunner [--sessions=N] [--warmup=N] [--readers=N] [--virtual]"
+            + " [--scenario=type2|mifare|felica|mixed] [--rf-us=N]";
+
+    private static final byte[][] DICTIONARY = {
+            SimMifareClassicTag.KEY_DEFAULT,
+            {(byte) 0xA0, (byte) 0xA1, (byte) 0xA2, (byte) 0xA3, (byte) 0xA4, (byte) 0xA5},
+            {(byte) 0xD3, (byte) 0xF7, (byte) 0xD3, (byte) 0xF7, (byte) 0xD3, (byte) 0xF7},
+    };
+
+    private final LoadConfig config;
+    private final LatencyTracer tracer = new LatencyTracer();
+    private final StageCost costs = new StageCost();
+    private final MeasurementAnalytics analytics = new MeasurementAnalytics();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicReference<Exception> firstFailure = new AtomicReference<>();
+
+    public LoadRunner(LoadConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.println(USAGE);
+            return;
+        }
+        LoadConfig config;
+        try {
+            config = LoadConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        System.out.print(new LoadRunner(config).run().summary());
+    }
+
+    public LoadReport run() throws IOException, InterruptedException {
+        Reader[] readers = new Reader[config.getReaders()];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Reader(i);
+        }
+        ExecutorService pool = newVirtualThreadExecutor(config);
+        boolean virtual = pool != null;
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(readers.length, r -> {
+                Thread thread = new Thread(r, "load-reader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        try {
+            if (config.getWarmup() > 0) {
+                runPhase(pool, readers, config.getWarmup());
+            }
+            // 暖機的結果不列入統計
+            tracer.reset();
+            costs.reset();
+            analytics.reset();
+            failures.set(0);
+            firstFailure.set(null);
+            long cpuStart = StageCost.processCpuNanos();
+            long start = System.nanoTime();
+            runPhase(pool, readers, config.getSessions());
+            long elapsed = System.nanoTime() - start;
+            long cpuEnd = StageCost.processCpuNanos();
+            return new LoadReport(config, virtual, elapsed, cpuStart < 0 || cpuEnd < 0 ? -1 : cpuEnd - cpuStart,
+                    failures.get(), firstFailure.get(), tracer.sessionTotals(), costs, analytics);
+        } finally {
+            pool.shutdownNow();
+            for (Reader reader : readers) {
+                reader.pipeline.close();
+            }
+        }
+    }
+
+    // JDK 21 以上的 Executors.newVirtualThreadPerTaskExecutor；未要求或不支援時回傳 null
+    static ExecutorService newVirtualThreadExecutor(LoadConfig config) {
+        if (!config.isVirtualThreads()) {
+            return null;
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    // 把 sessions 次平均分給所有讀卡機，等全部完成
+    private void runPhase(ExecutorService pool, Reader[] readers, int sessions) throws InterruptedException {
+        List<Future<?>> futures = new ArrayList<>(readers.length);
+        for (int i = 0; i < readers.length; i++) {
+            Reader reader = readers[i];
+            int count = sessions / readers.length + (i < sessions % readers.length ? 1 : 0);
+            futures.add(pool.submit(() -> reader.run(count)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("讀卡機執行失敗", e.getCause());
+            }
+        }
+    }
+
+    // 一個模擬讀卡機：自己的 RF 連線、標籤、金鑰快取與管線，只在一條執行緒上使用
+    private final class Reader {
+        private final SimulatedTag[] tags = new SimulatedTag[TAGS_PER_READER];
+        private final TagPipeline pipeline = new TagPipeline(text -> {
+            // 結果不輸出，只量測產生結果的成本
+        });
+        private final LoadJob job;
+        private int next;
+
+        Reader(int index) throws IOException {
+            SimulatedLink link = config.getRfMicros() == 0 ? SimulatedLink.instant()
+                    : SimulatedLink.realTime(LatencyModel.fixed(config.getRfMicros() * 1000));
+            for (int i = 0; i < tags.length; i++) {
+                tags[i] = config.getScenario().newTag(index * TAGS_PER_READER + i, link);
+            }
+            KeyResolver keys = new KeyResolver(new KeyDictionary(Arrays.asList(DICTIONARY)), new SectorKeyCache());
+            job = new LoadJob(config.getScenario(), keys, costs, analytics, firstFailure);
+        }
+
+        void run(int sessions) {
+            for (int i = 0; i < sessions; i++) {
+                SimulatedTag tag = tags[next++ % tags.length];
+                tag.reenter();
+                SessionContext session = pipeline.runInline(tag, tracer.newSession(), job);
+                tag.remove();
+                if (session.getFailure() != null) {
+                    failures.incrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.smewise.nfcspeedtest.load;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+import com.smewise.nfcspeedtest.felica.FeliCaClient;
+import com.smewise.nfcspeedtest.mifare.KeyResolver;
+import com.smewise.nfcspeedtest.mifare.MifareDump;
+import com.smewise.nfcspeedtest.mifare.MifareDumpEngine;
+import com.smewise.nfcspeedtest.ndef.NdefFormat;
+import com.smewise.nfcspeedtest.ndef.NdefMessageView;
+import com.smewise.nfcspeedtest.ndef.NdefRecordView;
+import com.smewise.nfcspeedtest.session.TagSession;
+import com.smewise.nfcspeedtest.trace.NanoClock;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.TagTech;
+import com.smewise.nfcspeedtest.transport.sim.SimFeliCaTag;
+import com.smewise.nfcspeedtest.transport.sim.SimMifareClassicTag;
+import com.smewise.nfcspeedtest.transport.sim.SimType2Tag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedTag;
+import com.smewise.nfcspeedtest.type2.Type2Memory;
+import com.smewise.nfcspeedtest.type2.Type2Version;
+
+import java.io.IOException;
+
+/**
+ * 負載測試的靠卡情境，與 App 的讀取流程相同：CONNECT 取得連線，EXCHANGE 以 RF 讀出原始資料，
+ * DECODE 不經 RF 解析成顯示用的文字。模擬標籤在讀卡機啟動時建立並寫好內容，之後每次靠卡重複使用。
+ */
+public enum LoadScenario {
+    TYPE2("type2", "NTAG215 NDEF 讀取") {
+        @Override
+        SimulatedTag newTag(int index, SimulatedLink link) throws IOException {
+            SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG215, uid(index, 7), link);
+            NdefTransport ndef = tag.ndef();
+            ndef.connect();
+            ndef.writeNdefMessage(concat(NdefFormat.textRecord("zh", "負載測試標籤 #" + index),
+                    NdefFormat.uriRecord("https://www.example.com/tag/" + index)));
+            ndef.close();
+            return tag;
+        }
+
+        @Override
+        void connect(TagSession tags) throws IOException {
+            tags.nfcA();
+        }
+
+        @Override
+        byte[] exchange(TagSession tags, KeyResolver keys) throws IOException {
+            Type2Memory memory = new Type2Memory(tags.nfcA(), NanoClock.SYSTEM);
+            Type2Version version = memory.getVersion();
+            if (version != null) {
+                tags.setModel(version.getModel());
+            }
+            byte[] message = memory.readNdefMessage();
+            tags.markUseful(TagTech.NFC_A);
+            return message;
+        }
+
+        @Override
+        String decode(TagSession tags, byte[] raw) {
+            StringBuilder sb = new StringBuilder(64 + raw.length);
+            NdefRecordView record = NdefMessageView.wrap(raw).records();
+            while (record.next()) {
+                sb.append("\n記錄 ").append(record.index() + 1).append(": ");
+                if (record.isText()) {
+                    sb.append("文字 (").append(record.textLanguage()).append("): ").append(record.text());
+                } else if (record.isUri()) {
+                    sb.append("URI: ").append(record.uri());
+                } else {
+                    sb.append(record.type()).append(", ").append(record.payloadLength()).append(" bytes");
+                }
+            }
+            return sb.toString();
+        }
+    },
+
+    MIFARE("mifare", "MIFARE Classic 1K 整張讀取") {
+        @Override
+        SimulatedTag newTag(int index, SimulatedLink link) {
+            SimMifareClassicTag tag = new SimMifareClassicTag(uid(index, 4), false, link);
+            // 部分區段改用字典中較後面的金鑰，讓金鑰搜尋與快取都有工作
+            for (int sector = 1; sector < tag.sectorCount(); sector += 3) {
+                tag.setSectorKeys(sector, MAD_KEY, SimMifareClassicTag.KEY_DEFAULT);
+            }
+            return tag;
+        }
+
+        @Override
+        void connect(TagSession tags) throws IOException {
+            tags.mifareClassic();
+        }
+
+        @Override
+        byte[] exchange(TagSession tags, KeyResolver keys) throws IOException {
+            MifareClassicTransport mifare = tags.mifareClassic();
+            MifareDump dump = new MifareDumpEngine(keys, NanoClock.SYSTEM).dump(mifare, tags.getId());
+            tags.markUseful(TagTech.MIFARE_CLASSIC);
+            tags.setModel(dump.sizeLabel());
+            return dump.toMfd();
+        }
+
+        @Override
+        String decode(TagSession tags, byte[] raw) {
+            StringBuilder sb = new StringBuilder(raw.length * 3 + raw.length / 16 * 8);
+            for (int block = 0; block * MifareClassicTransport.BLOCK_SIZE < raw.length; block++) {
+                sb.append("\n[").append(block).append("] ");
+                HexCodec.encode(raw, block * MifareClassicTransport.BLOCK_SIZE, MifareClassicTransport.BLOCK_SIZE,
+                        sb, ' ');
+            }
+            return sb.toString();
+        }
+    },
+
+    FELICA("felica", "FeliCa 服務搜尋與讀取") {
+        @Override
+        SimulatedTag newTag(int index, SimulatedLink link) {
+            byte[] idm = uid(index, 8);
+            idm[0] = 0x01;
+            return new SimFeliCaTag(idm, FELICA_PMM, 0x12FC, link)
+                    .addService(0x000B, 20, false)
+                    .addService(0x1009, 8, true);
+        }
+
+        @Override
+        void connect(TagSession tags) throws IOException {
+            tags.nfcF();
+        }
+
+        @Override
+        byte[] exchange(TagSession tags, KeyResolver keys) throws IOException {
+            FeliCaClient client = new FeliCaClient(tags.nfcF(), tags.getId(), NanoClock.SYSTEM);
+            int[] services = client.searchServiceCodes(FELICA_MAX_SERVICES);
+            byte[][] data = new byte[services.length][];
+            int total = 0;
+            for (int i = 0; i < services.length; i++) {
+                data[i] = FeliCaClient.isWithoutEncryption(services[i])
+                        ? client.readService(services[i], FELICA_MAX_BLOCKS) : new byte[0];
+                total += data[i].length;
+            }
+            tags.markUseful(TagTech.NFC_F);
+            byte[] out = new byte[total];
+            int pos = 0;
+            for (byte[] d : data) {
+                System.arraycopy(d, 0, out, pos, d.length);
+                pos += d.length;
+            }
+            return out;
+        }
+
+        @Override
+        String decode(TagSession tags, byte[] raw) {
+            StringBuilder sb = new StringBuilder(raw.length * 2 + raw.length / 16 * 2);
+            for (int off = 0; off < raw.length; off += FeliCaClient.BLOCK_SIZE) {
+                HexCodec.encode(raw, off, Math.min(FeliCaClient.BLOCK_SIZE, raw.length - off), sb.append('\n'),
+                        HexCodec.NO_SEPARATOR);
+            }
+            return sb.toString();
+        }
+    },
+
+    // 三種標籤依序輪流，依標籤支援的技術決定流程
+    MIXED("mixed", "Type 2 / MIFARE / FeliCa 輪流") {
+        @Override
+        SimulatedTag newTag(int index, SimulatedLink link) throws IOException {
+            return SINGLE[index % SINGLE.length].newTag(index, link);
+        }
+
+        @Override
+        void connect(TagSession tags) throws IOException {
+            of(tags).connect(tags);
+        }
+
+        @Override
+        byte[] exchange(TagSession tags, KeyResolver keys) throws IOException {
+            return of(tags).exchange(tags, keys);
+        }
+
+        @Override
+        String decode(TagSession tags, byte[] raw) {
+            return of(tags).decode(tags, raw);
+        }
+
+        private LoadScenario of(TagSession tags) {
+            return tags.has(TagTech.MIFARE_CLASSIC) ? MIFARE : tags.has(TagTech.NFC_F) ? FELICA : TYPE2;
+        }
+    };
+
+    private static final LoadScenario[] SINGLE = {TYPE2, MIFARE, FELICA};
+    private static final byte[] MAD_KEY = {(byte) 0xA0, (byte) 0xA1, (byte) 0xA2, (byte) 0xA3, (byte) 0xA4, (byte) 0xA5};
+    private static final byte[] FELICA_PMM = {0x03, 0x01, 0x4B, 0x02, 0x4F, 0x49, (byte) 0x93, (byte) 0xFF};
+    private static final int FELICA_MAX_SERVICES = 16;
+    private static final int FELICA_MAX_BLOCKS = 64;
+
+    private final String name;
+    private final String label;
+
+    LoadScenario(String name, String label) {
+        this.name = name;
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    // 建立第 index 張模擬標籤並寫好內容
+    abstract SimulatedTag newTag(int index, SimulatedLink link) throws IOException;
+
+    abstract void connect(TagSession tags) throws IOException;
+
+    // 讀出原始資料
+    abstract byte[] exchange(TagSession tags, KeyResolver keys) throws IOException;
+
+    // 解析成顯示用的文字
+    abstract String decode(TagSession tags, byte[] raw);
+
+    public static LoadScenario fromName(String name) {
+        for (LoadScenario scenario : values()) {
+            if (scenario.name.equals(name)) {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException("不認得的情境: " + name + "（type2 / mifare / felica / mixed）");
+    }
+
+    static byte[] uid(int index, int length) {
+        byte[] uid = new byte[length];
+        uid[0] = 0x04;
+        for (int i = 1; i < length; i++) {
+            uid[i] = (byte) (index >>> (8 * ((i - 1) % 4)));
+        }
+        uid[length - 1] ^= (byte) 0x5A;
+        return uid;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        // 兩個單一 record 的訊息合併成一個訊息：第一個清掉 ME，第二個清掉 MB
+        byte[] out = new byte[first.length + second.length];
+        System.arraycopy(first, 0, out, 0, first.length);
+        System.arraycopy(second, 0, out, first.length, second.length);
+        out[0] &= (byte) ~NdefFormat.FLAG_ME;
+        out[first.length] &= (byte) ~NdefFormat.FLAG_MB;
+        return out;
+    }
+}
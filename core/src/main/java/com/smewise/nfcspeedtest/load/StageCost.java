@@ -0,0 +1,162 @@
+package com.smewise.nfcspeedtest.load;
+
+import com.smewise.nfcspeedtest.session.PipelineStage;
+import com.smewise.nfcspeedtest.trace.LatencyHistogram;
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 各 PipelineStage 的成本：牆鐘時間、執行緒 CPU 時間與配置的記憶體量。
+ * CPU 與配置量取自 ThreadMXBean；JVM 不支援時（例如 virtual thread 回傳 -1）該項不列入統計，報告顯示 n/a。
+ * record 可由多個執行緒同時呼叫。
+ */
+public class StageCost {
+    private static final int STAGES = PipelineStage.values().length;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean HOTSPOT_THREADS =
+            THREADS instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) THREADS : null;
+    private static final boolean CPU_SUPPORTED = enableCpuTime();
+    private static final boolean ALLOC_SUPPORTED = enableAllocation();
+
+    private final LatencyHistogram[] wall = new LatencyHistogram[STAGES];
+    // 每個階段依序為 CPU 總和、CPU 筆數、配置總和、配置筆數
+    private final AtomicLongArray sums = new AtomicLongArray(STAGES * 4);
+
+    public StageCost() {
+        for (int i = 0; i < STAGES; i++) {
+            wall[i] = new LatencyHistogram();
+        }
+    }
+
+    private static boolean enableCpuTime() {
+        try {
+            if (!THREADS.isCurrentThreadCpuTimeSupported()) {
+                return false;
+            }
+            THREADS.setThreadCpuTimeEnabled(true);
+            return true;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    private static boolean enableAllocation() {
+        try {
+            if (HOTSPOT_THREADS == null || !HOTSPOT_THREADS.isThreadAllocatedMemorySupported()) {
+                return false;
+            }
+            HOTSPOT_THREADS.setThreadAllocatedMemoryEnabled(true);
+            return true;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    // 目前執行緒的 CPU 時間（奈秒），無法取得時回傳 -1
+    static long threadCpuNanos() {
+        if (!CPU_SUPPORTED) {
+            return -1;
+        }
+        try {
+            return THREADS.getCurrentThreadCpuTime();
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    // 目前執行緒累計配置的位元組數，無法取得時回傳 -1
+    static long threadAllocatedBytes() {
+        if (!ALLOC_SUPPORTED) {
+            return -1;
+        }
+        try {
+            return HOTSPOT_THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    // 整個程序（含 GC 與 JIT 執行緒）的 CPU 時間，無法取得時回傳 -1
+    static long processCpuNanos() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    // cpuNanos 或 allocBytes 為負數代表該次無法量測
+    public void record(PipelineStage stage, long wallNanos, long cpuNanos, long allocBytes) {
+        int i = stage.ordinal();
+        wall[i].record(wallNanos);
+        if (cpuNanos >= 0) {
+            sums.addAndGet(i * 4, cpuNanos);
+            sums.incrementAndGet(i * 4 + 1);
+        }
+        if (allocBytes >= 0) {
+            sums.addAndGet(i * 4 + 2, allocBytes);
+            sums.incrementAndGet(i * 4 + 3);
+        }
+    }
+
+    public LatencyHistogram wall(PipelineStage stage) {
+        return wall[stage.ordinal()];
+    }
+
+    // 平均 CPU 時間，沒有任何量測時回傳 -1
+    public long meanCpuNanos(PipelineStage stage) {
+        return mean(stage.ordinal() * 4);
+    }
+
+    // 平均配置量，沒有任何量測時回傳 -1
+    public long meanAllocBytes(PipelineStage stage) {
+        return mean(stage.ordinal() * 4 + 2);
+    }
+
+    private long mean(int index) {
+        long count = sums.get(index + 1);
+        return count == 0 ? -1 : sums.get(index) / count;
+    }
+
+    public void reset() {
+        for (int i = 0; i < STAGES; i++) {
+            wall[i].reset();
+        }
+        for (int i = 0; i < sums.length(); i++) {
+            sums.set(i, 0);
+        }
+    }
+
+    public StringBuilder appendSummary(StringBuilder sb) {
+        sb.append("各階段（平均 / p99 牆鐘、平均 CPU、平均配置）\n");
+        for (PipelineStage stage : PipelineStage.values()) {
+            LatencyHistogram h = wall[stage.ordinal()];
+            if (h.getCount() == 0) {
+                continue;
+            }
+            sb.append(stage.label()).append(": ");
+            SessionTrace.appendMillis(sb, (long) h.getMean());
+            sb.append(" / ");
+            SessionTrace.appendMillis(sb, h.getPercentile(99));
+            sb.append("，CPU ");
+            long cpu = meanCpuNanos(stage);
+            if (cpu < 0) {
+                sb.append("n/a");
+            } else {
+                SessionTrace.appendMillis(sb, cpu);
+            }
+            sb.append("，配置 ");
+            long alloc = meanAllocBytes(stage);
+            if (alloc < 0) {
+                sb.append("n/a");
+            } else {
+                sb.append(alloc).append(" B");
+            }
+            sb.append('\n');
+        }
+        return sb;
+    }
+}
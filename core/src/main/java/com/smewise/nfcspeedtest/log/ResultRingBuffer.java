@@ -0,0 +1,106 @@
+package com.smewise.nfcspeedtest.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 固定容量、預先配置的結果紀錄環形緩衝區。
+ * 任何執行緒都可以無鎖 append（以 AtomicLong 取得序號），滿了之後覆蓋最舊的紀錄；
+ * 讀取端以序號讀取，若該格已被覆蓋或尚未發佈則回傳 false。
+ */
+public class ResultRingBuffer {
+    // 寫入中的格子標記
+    private static final long WRITING = -1;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong nextSeq = new AtomicLong();
+    // 每格目前發佈的序號；初始為 WRITING 以外的負值代表空格
+    private final AtomicLongArray published;
+    private final AtomicLongArray wallTimes;
+    private final AtomicLongArray appendNanos;
+    private final AtomicReferenceArray<String> texts;
+
+    // 讀取用的可重複使用容器
+    public static final class Entry {
+        public long seq;
+        public long wallTimeMillis;
+        public long appendNanos;
+        public String text;
+    }
+
+    // 容量會向上取到 2 的次方
+    public ResultRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        this.wallTimes = new AtomicLongArray(size);
+        this.appendNanos = new AtomicLongArray(size);
+        this.texts = new AtomicReferenceArray<>(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -2);
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long append(String text) {
+        return append(text, System.currentTimeMillis(), System.nanoTime());
+    }
+
+    public long append(String text, long wallTimeMillis, long nanos) {
+        long seq = nextSeq.getAndIncrement();
+        int slot = (int) seq & mask;
+        published.set(slot, WRITING);
+        texts.set(slot, text);
+        wallTimes.set(slot, wallTimeMillis);
+        appendNanos.set(slot, nanos);
+        published.set(slot, seq);
+        return seq;
+    }
+
+    // 已配發的序號總數（可能包含尚未發佈完成的紀錄）
+    public long claimedCount() {
+        return nextSeq.get();
+    }
+
+    /**
+     * 從 from 開始往後找連續已發佈（或已被覆蓋）的序號，回傳第一個尚未發佈的序號。
+     * 讀取端以此決定可以顯示到哪裡。
+     */
+    public long publishedEnd(long from) {
+        long end = nextSeq.get();
+        long seq = Math.max(from, end - capacity);
+        while (seq < end) {
+            long current = published.get((int) seq & mask);
+            if (current < seq) {
+                break;
+            }
+            seq++;
+        }
+        return seq;
+    }
+
+    // seqlock 式讀取：讀取前後序號相同才算有效
+    public boolean read(long seq, Entry into) {
+        int slot = (int) seq & mask;
+        if (published.get(slot) != seq) {
+            return false;
+        }
+        String text = texts.get(slot);
+        long wall = wallTimes.get(slot);
+        long nanos = appendNanos.get(slot);
+        if (published.get(slot) != seq) {
+            return false;
+        }
+        into.seq = seq;
+        into.text = text;
+        into.wallTimeMillis = wall;
+        into.appendNanos = nanos;
+        return true;
+    }
+}
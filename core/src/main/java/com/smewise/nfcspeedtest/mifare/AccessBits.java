@@ -0,0 +1,98 @@
+package com.smewise.nfcspeedtest.mifare;
+
+/**
+ * MIFARE Classic 區段尾塊（sector trailer）存取位元解析。
+ * 尾塊 byte 6..8 存放每組的 C1 C2 C3 及其反相；四組依序為資料區塊 0/1/2 與尾塊。
+ * 解析結果打包成一個 int：第 g 組條件為 (packed >> (g * 3)) & 7，數值為 C1C2C3。
+ */
+public final class AccessBits {
+    public static final int INVALID = -1;
+    public static final int GROUP_TRAILER = 3;
+
+    // 出廠預設：資料區塊 000，尾塊 001
+    public static final int TRANSPORT = 0b001 << (GROUP_TRAILER * 3);
+
+    private AccessBits() {
+    }
+
+    // offset 指向尾塊 byte 6；反相位元不一致時回傳 INVALID
+    public static int parse(byte[] block, int offset) {
+        int b6 = block[offset] & 0xFF;
+        int b7 = block[offset + 1] & 0xFF;
+        int b8 = block[offset + 2] & 0xFF;
+        int c1 = b7 >> 4;
+        int c2 = b8 & 0x0F;
+        int c3 = b8 >> 4;
+        if ((b6 & 0x0F) != (~c1 & 0x0F) || (b6 >> 4) != (~c2 & 0x0F) || (b7 & 0x0F) != (~c3 & 0x0F)) {
+            return INVALID;
+        }
+        int packed = 0;
+        for (int group = 0; group < 4; group++) {
+            int condition = ((c1 >> group) & 1) << 2 | ((c2 >> group) & 1) << 1 | ((c3 >> group) & 1);
+            packed |= condition << (group * 3);
+        }
+        return packed;
+    }
+
+    // 編碼成尾塊 byte 6..8（GPB 另計），conditions 依 parse 的打包格式
+    public static byte[] encode(int packed) {
+        int c1 = 0, c2 = 0, c3 = 0;
+        for (int group = 0; group < 4; group++) {
+            int condition = conditionOf(packed, group);
+            c1 |= ((condition >> 2) & 1) << group;
+            c2 |= ((condition >> 1) & 1) << group;
+            c3 |= (condition & 1) << group;
+        }
+        return new byte[]{
+                (byte) ((~c2 & 0x0F) << 4 | (~c1 & 0x0F)),
+                (byte) (c1 << 4 | (~c3 & 0x0F)),
+                (byte) (c3 << 4 | c2)};
+    }
+
+    public static int pack(int block0, int block1, int block2, int trailer) {
+        return block0 | block1 << 3 | block2 << 6 | trailer << 9;
+    }
+
+    public static int conditionOf(int packed, int group) {
+        return (packed >> (group * 3)) & 7;
+    }
+
+    // 4K 卡後 8 個區段每區段 16 個區塊，資料區塊每 5 個共用一組條件
+    public static int groupOf(int blockInSector, int blocksInSector) {
+        if (blockInSector == blocksInSector - 1) {
+            return GROUP_TRAILER;
+        }
+        return blocksInSector == 4 ? blockInSector : blockInSector / 5;
+    }
+
+    // 尾塊條件 000/010/001 時 Key B 可被讀出，此時 Key B 不能用來認證存取資料
+    public static boolean isKeyBReadable(int packed) {
+        int trailer = conditionOf(packed, GROUP_TRAILER);
+        return trailer == 0b000 || trailer == 0b010 || trailer == 0b001;
+    }
+
+    public static boolean canRead(int packed, int group, KeyType key) {
+        if (key == KeyType.B && isKeyBReadable(packed)) {
+            return false;
+        }
+        int condition = conditionOf(packed, group);
+        if (group == GROUP_TRAILER) {
+            // 存取位元 Key A 永遠可讀，Key B 在 100/110/011/101/111 可讀（其餘條件 Key B 可被讀出，已在上面排除）
+            return key == KeyType.A || condition == 0b100 || condition == 0b110 || condition == 0b011
+                    || condition == 0b101 || condition == 0b111;
+        }
+        switch (condition) {
+            case 0b000:
+            case 0b010:
+            case 0b100:
+            case 0b110:
+            case 0b001:
+                return true;
+            case 0b011:
+            case 0b101:
+                return key == KeyType.B;
+            default:
+                return false;
+        }
+    }
+}
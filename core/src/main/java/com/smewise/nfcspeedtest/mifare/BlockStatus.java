@@ -0,0 +1,13 @@
+package com.smewise.nfcspeedtest.mifare;
+
+// 完整讀取時每個區塊的結果
+public enum BlockStatus {
+    NOT_READ,
+    READ,
+    // 存取位元不允許以此金鑰讀取，未送出指令
+    DENIED,
+    // 區段認證失敗
+    AUTH_FAILED,
+    // 已送出讀取但失敗
+    READ_FAILED
+}
@@ -0,0 +1,146 @@
+package com.smewise.nfcspeedtest.mifare;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+import com.smewise.nfcspeedtest.codec.HexFormatException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MIFARE Classic 金鑰字典，依全域命中次數排序（命中越多越先嘗試）。
+ * 檔案格式：每行一組 12 位十六進位金鑰，# 之後為註解，重複的金鑰只保留第一組。
+ * 只在 NFC I/O 執行緒使用，非執行緒安全。
+ */
+public class KeyDictionary {
+    private static final class Entry {
+        final byte[] key;
+        // 在檔案中的順序，作為「未排序」時的比較基準
+        final int fileIndex;
+        int hits;
+
+        Entry(byte[] key, int fileIndex) {
+            this.key = key;
+            this.fileIndex = fileIndex;
+        }
+    }
+
+    // 依命中次數遞減排序，次數相同時維持檔案順序
+    private final Entry[] ranked;
+
+    public KeyDictionary(List<byte[]> keys) {
+        List<Entry> entries = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            if (key.length != 6) {
+                throw new IllegalArgumentException("金鑰長度需為 6 bytes");
+            }
+            if (indexOf(entries, key) < 0) {
+                entries.add(new Entry(key.clone(), entries.size()));
+            }
+        }
+        ranked = entries.toArray(new Entry[0]);
+    }
+
+    public static KeyDictionary parse(Reader reader) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        List<byte[]> keys = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            String text = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            try {
+                byte[] key = HexCodec.parse(text);
+                if (key.length != 6) {
+                    throw new IOException("第 " + lineNumber + " 行金鑰長度需為 6 bytes");
+                }
+                keys.add(key);
+            } catch (HexFormatException e) {
+                throw new IOException("第 " + lineNumber + " 行金鑰格式錯誤: " + e.getMessage(), e);
+            }
+        }
+        return new KeyDictionary(keys);
+    }
+
+    private static int indexOf(List<Entry> entries, byte[] key) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (Arrays.equals(entries.get(i).key, key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int size() {
+        return ranked.length;
+    }
+
+    // 目前排序下第 rank 個要嘗試的金鑰（回傳內部陣列，不可修改）
+    byte[] keyAt(int rank) {
+        return ranked[rank].key;
+    }
+
+    public int fileIndexAt(int rank) {
+        return ranked[rank].fileIndex;
+    }
+
+    public int hitsAt(int rank) {
+        return ranked[rank].hits;
+    }
+
+    // 找不到時回傳 -1
+    public int rankOf(byte[] key) {
+        for (int i = 0; i < ranked.length; i++) {
+            if (Arrays.equals(ranked[i].key, key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // 命中一次並往前移到正確的位置，回傳新的 rank
+    public int recordHit(int rank) {
+        ranked[rank].hits++;
+        return bubbleUp(rank);
+    }
+
+    // 從持久化資料還原命中次數
+    void setHits(byte[] key, int hits) {
+        int rank = rankOf(key);
+        if (rank >= 0) {
+            ranked[rank].hits = hits;
+            rank = bubbleUp(rank);
+            bubbleDown(rank);
+        }
+    }
+
+    private int bubbleUp(int rank) {
+        Entry entry = ranked[rank];
+        while (rank > 0 && before(entry, ranked[rank - 1])) {
+            ranked[rank] = ranked[rank - 1];
+            rank--;
+        }
+        ranked[rank] = entry;
+        return rank;
+    }
+
+    private void bubbleDown(int rank) {
+        Entry entry = ranked[rank];
+        while (rank < ranked.length - 1 && before(ranked[rank + 1], entry)) {
+            ranked[rank] = ranked[rank + 1];
+            rank++;
+        }
+        ranked[rank] = entry;
+    }
+
+    private static boolean before(Entry a, Entry b) {
+        return a.hits > b.hits || (a.hits == b.hits && a.fileIndex < b.fileIndex);
+    }
+}
@@ -0,0 +1,178 @@
+package com.smewise.nfcspeedtest.mifare;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * MIFARE Classic 區段金鑰解析：
+ * 先用該 UID + 區段快取的金鑰，沒有或失效時再依命中次數排序的字典逐一嘗試 Key A / Key B。
+ * 每次認證失敗都要一次 RF 往返並重新選取卡片，已知的卡第一次嘗試就會成功。
+ * 「節省次數」以字典原始檔案順序逐一嘗試（舊的 COMMON_KEYS 迴圈）為基準計算。
+ * authenticate 只在 NFC I/O 執行緒呼叫；計數器可從任何執行緒讀取。
+ */
+public class KeyResolver {
+    private final KeyDictionary dictionary;
+    private final SectorKeyCache cache;
+
+    private volatile long attempts;
+    private volatile long attemptsSaved;
+    private volatile long cacheHits;
+    private volatile long cacheMisses;
+    private volatile long failures;
+
+    public KeyResolver(KeyDictionary dictionary, SectorKeyCache cache) {
+        this.dictionary = dictionary;
+        this.cache = cache;
+    }
+
+    public KeyDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public SectorKeyCache getCache() {
+        return cache;
+    }
+
+    /**
+     * 認證指定區段，成功時回傳使用的金鑰，所有金鑰都失敗時回傳 null。
+     */
+    public SectorKey authenticate(MifareClassicTransport mifare, byte[] uid, int sector) throws IOException {
+        long tried = 0;
+        SectorKey cached = cache.get(uid, sector);
+        if (cached != null) {
+            tried++;
+            if (tryKey(mifare, sector, cached.keyRef(), cached.getType())) {
+                cacheHits++;
+                int rank = dictionary.rankOf(cached.keyRef());
+                count(tried, rank < 0 ? tried : baselineFor(dictionary.fileIndexAt(rank), cached.getType()));
+                if (rank >= 0) {
+                    dictionary.recordHit(rank);
+                }
+                return cached;
+            }
+            // 卡片金鑰已變更
+            cache.remove(uid, sector);
+        }
+        cacheMisses++;
+
+        for (int rank = 0; rank < dictionary.size(); rank++) {
+            byte[] key = dictionary.keyAt(rank);
+            for (KeyType type : KeyType.values()) {
+                tried++;
+                if (tryKey(mifare, sector, key, type)) {
+                    SectorKey found = new SectorKey(key, type);
+                    cache.put(uid, sector, found);
+                    count(tried, baselineFor(dictionary.fileIndexAt(rank), type));
+                    dictionary.recordHit(rank);
+                    return found;
+                }
+            }
+        }
+        failures++;
+        count(tried, 2L * dictionary.size());
+        return null;
+    }
+
+    private static boolean tryKey(MifareClassicTransport mifare, int sector, byte[] key, KeyType type) throws IOException {
+        return type == KeyType.A
+                ? mifare.authenticateSectorWithKeyA(sector, key)
+                : mifare.authenticateSectorWithKeyB(sector, key);
+    }
+
+    // 依檔案順序、每組先 A 後 B 嘗試時需要的次數
+    private static long baselineFor(int fileIndex, KeyType type) {
+        return 2L * fileIndex + (type == KeyType.A ? 1 : 2);
+    }
+
+    private void count(long tried, long baseline) {
+        attempts += tried;
+        attemptsSaved += baseline - tried;
+    }
+
+    public long getAttempts() {
+        return attempts;
+    }
+
+    public long getAttemptsSaved() {
+        return attemptsSaved;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public void resetCounters() {
+        attempts = 0;
+        attemptsSaved = 0;
+        cacheHits = 0;
+        cacheMisses = 0;
+        failures = 0;
+    }
+
+    public String summary() {
+        return "金鑰快取: 命中 " + cacheHits + " / 未命中 " + cacheMisses
+                + "，認證 " + attempts + " 次，節省 " + attemptsSaved + " 次"
+                + (failures > 0 ? "，失敗區段 " + failures : "");
+    }
+
+    /**
+     * 持久化格式（文字）：
+     * <pre>
+     * H &lt;key&gt; &lt;hits&gt;
+     * K &lt;uid&gt;:&lt;sector&gt; &lt;A|B&gt; &lt;key&gt;
+     * </pre>
+     */
+    public void writeTo(Writer out) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        for (int rank = 0; rank < dictionary.size(); rank++) {
+            if (dictionary.hitsAt(rank) == 0) {
+                continue;
+            }
+            line.setLength(0);
+            line.append("H ");
+            HexCodec.encode(dictionary.keyAt(rank), line, HexCodec.NO_SEPARATOR);
+            line.append(' ').append(dictionary.hitsAt(rank)).append('\n');
+            out.append(line);
+        }
+        for (Map.Entry<String, SectorKey> entry : cache.snapshot()) {
+            line.setLength(0);
+            line.append("K ").append(entry.getKey()).append(' ').append(entry.getValue().getType().name()).append(' ');
+            HexCodec.encode(entry.getValue().keyRef(), line, HexCodec.NO_SEPARATOR);
+            line.append('\n');
+            out.append(line);
+        }
+        out.flush();
+    }
+
+    // 讀取 writeTo 的內容；格式錯誤的行直接略過，不影響其他項目
+    public void readFrom(Reader reader) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] parts = line.trim().split(" ");
+            try {
+                if (parts.length == 3 && "H".equals(parts[0])) {
+                    dictionary.setHits(HexCodec.decode(parts[1]), Integer.parseInt(parts[2]));
+                } else if (parts.length == 4 && "K".equals(parts[0]) && parts[1].indexOf(':') > 0) {
+                    cache.putRaw(parts[1], new SectorKey(HexCodec.decode(parts[3]), KeyType.valueOf(parts[2])));
+                }
+            } catch (IllegalArgumentException e) {
+                // 略過損毀的行
+            }
+        }
+    }
+}
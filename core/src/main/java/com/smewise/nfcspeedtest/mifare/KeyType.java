@@ -0,0 +1,7 @@
+package com.smewise.nfcspeedtest.mifare;
+
+// MIFARE Classic 區段金鑰種類
+public enum KeyType {
+    A,
+    B
+}
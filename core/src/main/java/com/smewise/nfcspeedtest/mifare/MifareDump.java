@@ -0,0 +1,196 @@
+package com.smewise.nfcspeedtest.mifare;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * MIFARE Classic 完整讀取結果：整張卡的原始映像與每個區塊的狀態。
+ * 讀卡期間只寫入預先配置的 byte[]，轉成文字或 .mfd 檔都在連線關閉後進行。
+ */
+public final class MifareDump {
+    private static final int BLOCK_SIZE = MifareClassicTransport.BLOCK_SIZE;
+
+    private final byte[] uid;
+    private final byte[] image;
+    private final BlockStatus[] status;
+    private final int[] firstBlock;
+    private final SectorKey[] keys;
+
+    int blocksRead;
+    int blocksDenied;
+    long authNanos;
+    long readNanos;
+    long elapsedNanos;
+
+    MifareDump(byte[] uid, int sizeBytes, int sectorCount) {
+        this.uid = uid.clone();
+        this.image = new byte[sizeBytes];
+        this.status = new BlockStatus[sizeBytes / BLOCK_SIZE];
+        this.firstBlock = new int[sectorCount + 1];
+        this.keys = new SectorKey[sectorCount];
+        Arrays.fill(status, BlockStatus.NOT_READ);
+        firstBlock[sectorCount] = status.length;
+    }
+
+    byte[] image() {
+        return image;
+    }
+
+    void setSector(int sector, int first, SectorKey key) {
+        firstBlock[sector] = first;
+        keys[sector] = key;
+    }
+
+    void setStatus(int block, BlockStatus value) {
+        status[block] = value;
+    }
+
+    public byte[] getUid() {
+        return uid.clone();
+    }
+
+    public int getSize() {
+        return image.length;
+    }
+
+    public int getBlockCount() {
+        return status.length;
+    }
+
+    public int getSectorCount() {
+        return keys.length;
+    }
+
+    public BlockStatus getStatus(int block) {
+        return status[block];
+    }
+
+    public SectorKey getKey(int sector) {
+        return keys[sector];
+    }
+
+    public byte[] getBlock(int block) {
+        return Arrays.copyOfRange(image, block * BLOCK_SIZE, (block + 1) * BLOCK_SIZE);
+    }
+
+    public int getBlocksRead() {
+        return blocksRead;
+    }
+
+    public int getBlocksDenied() {
+        return blocksDenied;
+    }
+
+    public int countStatus(BlockStatus value) {
+        int count = 0;
+        for (BlockStatus s : status) {
+            if (s == value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // 認證與讀取指令花在 RF 上的時間
+    public long getRfNanos() {
+        return authNanos + readNanos;
+    }
+
+    public long getAuthNanos() {
+        return authNanos;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double blocksPerSecond() {
+        return elapsedNanos <= 0 ? 0 : blocksRead * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * 轉成 .mfd 格式（與 mfoc / libnfc 相同的原始映像）。
+     * 尾塊讀出的 Key A 永遠是 0，這裡補上實際用來認證的金鑰；讀不到的區塊保持 0。
+     */
+    public byte[] toMfd() {
+        byte[] mfd = image.clone();
+        for (int sector = 0; sector < keys.length; sector++) {
+            SectorKey key = keys[sector];
+            if (key == null) {
+                continue;
+            }
+            int trailer = (firstBlock[sector + 1] - 1) * BLOCK_SIZE;
+            int offset = key.getType() == KeyType.A ? trailer : trailer + 10;
+            System.arraycopy(key.keyRef(), 0, mfd, offset, 6);
+        }
+        return mfd;
+    }
+
+    public void writeMfd(OutputStream out) throws IOException {
+        out.write(toMfd());
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("MIFARE Classic ").append(sizeLabel()).append(" 完整讀取: ")
+                .append(blocksRead).append('/').append(status.length).append(" 區塊");
+        if (blocksDenied > 0) {
+            sb.append("，存取位元禁止略過 ").append(blocksDenied);
+        }
+        int authFailed = countStatus(BlockStatus.AUTH_FAILED);
+        if (authFailed > 0) {
+            sb.append("，認證失敗 ").append(authFailed);
+        }
+        int readFailed = countStatus(BlockStatus.READ_FAILED);
+        if (readFailed > 0) {
+            sb.append("，讀取失敗 ").append(readFailed);
+        }
+        sb.append(String.format("\n%.1f 區塊/秒，RF 時間 %.2f ms（認證 %.2f ms），總耗時 %.2f ms",
+                blocksPerSecond(), getRfNanos() / 1_000_000.0, authNanos / 1_000_000.0,
+                elapsedNanos / 1_000_000.0));
+        return sb.toString();
+    }
+
+    public String sizeLabel() {
+        return image.length < 1024 ? "Mini" : (image.length / 1024) + "K";
+    }
+
+    // 每個區塊一行；只在連線關閉後呼叫
+    public StringBuilder appendBlocks(StringBuilder sb) {
+        for (int sector = 0; sector < keys.length; sector++) {
+            int first = firstBlock[sector];
+            int end = firstBlock[sector + 1];
+            for (int block = first; block < end; block++) {
+                sb.append("區段 ");
+                appendTwoDigits(sb, sector);
+                sb.append(" 區塊 ");
+                appendTwoDigits(sb, block - first);
+                sb.append(": ");
+                switch (status[block]) {
+                    case READ:
+                        HexCodec.encode(image, block * BLOCK_SIZE, BLOCK_SIZE, sb, ' ');
+                        break;
+                    case DENIED:
+                        sb.append("存取位元禁止讀取");
+                        break;
+                    case AUTH_FAILED:
+                        sb.append("驗證失敗");
+                        break;
+                    default:
+                        sb.append("讀取失敗");
+                }
+                sb.append('\n');
+            }
+        }
+        return sb;
+    }
+
+    private static void appendTwoDigits(StringBuilder sb, int value) {
+        if (value < 10) sb.append('0');
+        sb.append(value);
+    }
+}
@@ -0,0 +1,108 @@
+package com.smewise.nfcspeedtest.mifare;
+
+import com.smewise.nfcspeedtest.trace.NanoClock;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+
+import java.io.IOException;
+
+/**
+ * MIFARE Classic 整張卡讀取：
+ * 每個區段以 KeyResolver 認證，先讀尾塊解析存取位元，再只讀取此金鑰允許讀取的資料區塊。
+ * 禁止的讀取在真實卡片上會讓卡片 HALT、需要重新選取與認證，因此直接略過不送出。
+ * 讀取結果直接寫入預先配置的映像，不在連線期間做任何字串轉換。
+ * 只在 NFC I/O 執行緒呼叫。
+ */
+public class MifareDumpEngine {
+    private static final int BLOCK_SIZE = MifareClassicTransport.BLOCK_SIZE;
+
+    private final KeyResolver resolver;
+    private final NanoClock clock;
+
+    public MifareDumpEngine(KeyResolver resolver, NanoClock clock) {
+        this.resolver = resolver;
+        this.clock = clock;
+    }
+
+    public MifareDump dump(MifareClassicTransport mifare, byte[] uid) throws IOException {
+        long start = clock.nanoTime();
+        int sectorCount = mifare.getSectorCount();
+        MifareDump dump = new MifareDump(uid, mifare.getSize(), sectorCount);
+        for (int sector = 0; sector < sectorCount; sector++) {
+            dumpSector(mifare, uid, sector, dump);
+        }
+        dump.elapsedNanos = clock.nanoTime() - start;
+        return dump;
+    }
+
+    private void dumpSector(MifareClassicTransport mifare, byte[] uid, int sector, MifareDump dump)
+            throws IOException {
+        int first = mifare.sectorToBlock(sector);
+        int count = mifare.getBlockCountInSector(sector);
+        int trailer = first + count - 1;
+
+        SectorKey key = authenticate(mifare, uid, sector, dump);
+        dump.setSector(sector, first, key);
+        if (key == null) {
+            markAuthFailed(dump, first, trailer);
+            return;
+        }
+
+        // 先讀尾塊：存取位元 Key A 永遠可讀，讀到後才知道哪些資料區塊值得讀
+        int access = AccessBits.INVALID;
+        if (read(mifare, trailer, dump)) {
+            access = AccessBits.parse(dump.image(), trailer * BLOCK_SIZE + 6);
+        } else if ((key = authenticate(mifare, uid, sector, dump)) == null) {
+            markAuthFailed(dump, first, trailer - 1);
+            return;
+        }
+
+        for (int block = first; block < trailer; block++) {
+            if (access != AccessBits.INVALID
+                    && !AccessBits.canRead(access, AccessBits.groupOf(block - first, count), key.getType())) {
+                dump.setStatus(block, BlockStatus.DENIED);
+                dump.blocksDenied++;
+                continue;
+            }
+            // 讀取失敗後卡片已 HALT，重新認證（快取命中，只需一次）後繼續
+            if (!read(mifare, block, dump) && authenticate(mifare, uid, sector, dump) == null) {
+                markAuthFailed(dump, block + 1, trailer - 1);
+                return;
+            }
+        }
+    }
+
+    private SectorKey authenticate(MifareClassicTransport mifare, byte[] uid, int sector, MifareDump dump)
+            throws IOException {
+        long start = clock.nanoTime();
+        try {
+            return resolver.authenticate(mifare, uid, sector);
+        } finally {
+            dump.authNanos += clock.nanoTime() - start;
+        }
+    }
+
+    private boolean read(MifareClassicTransport mifare, int block, MifareDump dump) throws IOException {
+        long start = clock.nanoTime();
+        try {
+            byte[] data = mifare.readBlock(block);
+            System.arraycopy(data, 0, dump.image(), block * BLOCK_SIZE, BLOCK_SIZE);
+            dump.setStatus(block, BlockStatus.READ);
+            dump.blocksRead++;
+            return true;
+        } catch (TagLostException e) {
+            throw e;
+        } catch (IOException e) {
+            dump.setStatus(block, BlockStatus.READ_FAILED);
+            return false;
+        } finally {
+            dump.readNanos += clock.nanoTime() - start;
+        }
+    }
+
+    private static void markAuthFailed(MifareDump dump, int from, int to) {
+        for (int block = from; block <= to; block++) {
+            dump.setStatus(block, BlockStatus.AUTH_FAILED);
+        }
+    }
+}
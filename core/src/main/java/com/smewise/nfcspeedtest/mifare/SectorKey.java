@@ -0,0 +1,29 @@
+package com.smewise.nfcspeedtest.mifare;
+
+/**
+ * 某區段認證成功的金鑰與種類。
+ */
+public final class SectorKey {
+    private final byte[] key;
+    private final KeyType type;
+
+    public SectorKey(byte[] key, KeyType type) {
+        if (key.length != 6) {
+            throw new IllegalArgumentException("金鑰長度需為 6 bytes");
+        }
+        this.key = key.clone();
+        this.type = type;
+    }
+
+    public byte[] getKey() {
+        return key.clone();
+    }
+
+    public KeyType getType() {
+        return type;
+    }
+
+    byte[] keyRef() {
+        return key;
+    }
+}
@@ -0,0 +1,65 @@
+package com.smewise.nfcspeedtest.mifare;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 依 UID + 區段快取認證成功的金鑰，超過容量時移除最久未使用的項目。
+ * 只在 NFC I/O 執行緒使用，非執行緒安全。
+ */
+public class SectorKeyCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final Map<String, SectorKey> entries;
+
+    public SectorKeyCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SectorKeyCache(final int capacity) {
+        entries = new LinkedHashMap<String, SectorKey>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SectorKey> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    static String keyOf(byte[] uid, int sector) {
+        return HexCodec.toHex(uid) + ':' + sector;
+    }
+
+    // 沒有快取時回傳 null
+    public SectorKey get(byte[] uid, int sector) {
+        return entries.get(keyOf(uid, sector));
+    }
+
+    public void put(byte[] uid, int sector, SectorKey key) {
+        entries.put(keyOf(uid, sector), key);
+    }
+
+    public void remove(byte[] uid, int sector) {
+        entries.remove(keyOf(uid, sector));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    // 由最久未使用到最近使用，持久化時依此順序寫出，讀回後 LRU 順序不變
+    List<Map.Entry<String, SectorKey>> snapshot() {
+        return new ArrayList<>(entries.entrySet());
+    }
+
+    void putRaw(String cacheKey, SectorKey key) {
+        entries.put(cacheKey, key);
+    }
+}
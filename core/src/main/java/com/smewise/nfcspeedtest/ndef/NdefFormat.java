@@ -0,0 +1,139 @@
+package com.smewise.nfcspeedtest.ndef;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * NDEF record 格式（NFC Forum NDEF 1.0）的常數與編碼。
+ * 不依賴 android.nfc.NdefRecord，可在 JVM 內測試與基準測試；直接寫入呼叫端提供的陣列。
+ * <pre>
+ * header: MB ME CF SR IL TNF(3)
+ * type length (1) | payload length (SR ? 1 : 4) | [id length (1)] | type | [id] | payload
+ * </pre>
+ */
+public final class NdefFormat {
+    public static final int TNF_EMPTY = 0x00;
+    public static final int TNF_WELL_KNOWN = 0x01;
+    public static final int TNF_MIME_MEDIA = 0x02;
+    public static final int TNF_ABSOLUTE_URI = 0x03;
+    public static final int TNF_EXTERNAL_TYPE = 0x04;
+    public static final int TNF_UNKNOWN = 0x05;
+    public static final int TNF_UNCHANGED = 0x06;
+
+    public static final int FLAG_MB = 0x80;
+    public static final int FLAG_ME = 0x40;
+    public static final int FLAG_CF = 0x20;
+    public static final int FLAG_SR = 0x10;
+    public static final int FLAG_IL = 0x08;
+    public static final int TNF_MASK = 0x07;
+
+    // short record 的 payload 長度上限
+    public static final int MAX_SHORT_PAYLOAD = 0xFF;
+
+    public static final byte[] RTD_TEXT = {'T'};
+    public static final byte[] RTD_URI = {'U'};
+    public static final byte[] RTD_SMART_POSTER = {'S', 'p'};
+    // Smart Poster 內的動作與大小 record
+    public static final byte[] RTD_ACTION = {'a', 'c', 't'};
+    public static final byte[] RTD_SIZE = {'s'};
+    public static final byte[] RTD_TYPE = {'t'};
+
+    // URI record 第一個 byte 的前綴縮寫（NFC Forum URI RTD），超出範圍視為無前綴
+    static final String[] URI_PREFIXES = {
+            "", "http://www.", "https://www.", "http://", "https://", "tel:", "mailto:",
+            "ftp://anonymous:anonymous@", "ftp://ftp.", "ftps://", "sftp://", "smb://", "nfs://",
+            "ftp://", "dav://", "news:", "telnet://", "imap:", "rtsp://", "urn:", "pop:", "sip:", "sips:",
+            "tftp:", "btspp://", "btl2cap://", "btgoep://", "tcpobex://", "irdaobex://", "file://",
+            "urn:epc:id:", "urn:epc:tag:", "urn:epc:pat:", "urn:epc:raw:", "urn:epc:", "urn:nfc:"
+    };
+
+    private NdefFormat() {
+    }
+
+    public static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // 編碼後的 record 長度；payload 超過 255 bytes 時使用 4 bytes 長度欄位
+    public static int recordLength(int typeLength, int idLength, int payloadLength) {
+        return 2 + (payloadLength <= MAX_SHORT_PAYLOAD ? 1 : 4) + (idLength > 0 ? 1 : 0)
+                + typeLength + idLength + payloadLength;
+    }
+
+    /**
+     * 把一個 record 寫入 dst，回傳寫入後的位置。first / last 決定 MB / ME 旗標。
+     */
+    public static int writeRecord(byte[] dst, int offset, int tnf, byte[] type, byte[] id,
+                                  byte[] payload, int payloadOffset, int payloadLength,
+                                  boolean first, boolean last) {
+        int idLength = id == null ? 0 : id.length;
+        boolean shortRecord = payloadLength <= MAX_SHORT_PAYLOAD;
+        int header = tnf & TNF_MASK;
+        if (first) {
+            header |= FLAG_MB;
+        }
+        if (last) {
+            header |= FLAG_ME;
+        }
+        if (shortRecord) {
+            header |= FLAG_SR;
+        }
+        if (idLength > 0) {
+            header |= FLAG_IL;
+        }
+        int pos = offset;
+        dst[pos++] = (byte) header;
+        dst[pos++] = (byte) type.length;
+        if (shortRecord) {
+            dst[pos++] = (byte) payloadLength;
+        } else {
+            dst[pos++] = (byte) (payloadLength >>> 24);
+            dst[pos++] = (byte) (payloadLength >>> 16);
+            dst[pos++] = (byte) (payloadLength >>> 8);
+            dst[pos++] = (byte) payloadLength;
+        }
+        if (idLength > 0) {
+            dst[pos++] = (byte) idLength;
+        }
+        System.arraycopy(type, 0, dst, pos, type.length);
+        pos += type.length;
+        if (idLength > 0) {
+            System.arraycopy(id, 0, dst, pos, idLength);
+            pos += idLength;
+        }
+        System.arraycopy(payload, payloadOffset, dst, pos, payloadLength);
+        return pos + payloadLength;
+    }
+
+    // 與 NdefRecord.createTextRecord 相同：status byte 為語言碼長度（UTF-8），接著語言碼與內容
+    public static byte[] textRecord(String language, String text) {
+        byte[] lang = ascii(language);
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = new byte[1 + lang.length + body.length];
+        payload[0] = (byte) lang.length;
+        System.arraycopy(lang, 0, payload, 1, lang.length);
+        System.arraycopy(body, 0, payload, 1 + lang.length, body.length);
+        return singleRecord(TNF_WELL_KNOWN, RTD_TEXT, null, payload);
+    }
+
+    // 與 NdefRecord.createUri 相同：以最長的前綴縮寫取代開頭
+    public static byte[] uriRecord(String uri) {
+        int code = 0;
+        for (int i = 1; i < URI_PREFIXES.length; i++) {
+            if (uri.startsWith(URI_PREFIXES[i]) && URI_PREFIXES[i].length() > URI_PREFIXES[code].length()) {
+                code = i;
+            }
+        }
+        byte[] rest = uri.substring(URI_PREFIXES[code].length()).getBytes(StandardCharsets.UTF_8);
+        byte[] payload = new byte[1 + rest.length];
+        payload[0] = (byte) code;
+        System.arraycopy(rest, 0, payload, 1, rest.length);
+        return singleRecord(TNF_WELL_KNOWN, RTD_URI, null, payload);
+    }
+
+    // 只有一個 record 的 NDEF message
+    public static byte[] singleRecord(int tnf, byte[] type, byte[] id, byte[] payload) {
+        byte[] message = new byte[recordLength(type.length, id == null ? 0 : id.length, payload.length)];
+        writeRecord(message, 0, tnf, type, id, payload, 0, payload.length, true, true);
+        return message;
+    }
+}
@@ -0,0 +1,15 @@
+package com.smewise.nfcspeedtest.ndef;
+
+// NDEF message 格式錯誤，offset 為出錯 record 標頭在訊息中的位置
+public class NdefFormatException extends IllegalArgumentException {
+    private final int offset;
+
+    public NdefFormatException(String message, int offset) {
+        super(message + " (位置 " + offset + ")");
+        this.offset = offset;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+}
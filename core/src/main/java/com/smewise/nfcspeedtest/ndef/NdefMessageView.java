@@ -0,0 +1,70 @@
+package com.smewise.nfcspeedtest.ndef;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 原始 NDEF message 的唯讀檢視，不複製資料：record 以位置與長度表示，欄位在讀取時才解碼。
+ * 走訪 record 使用可重複使用的 NdefRecordView：
+ * <pre>
+ * NdefRecordView record = message.records();
+ * while (record.next()) {
+ *     if (record.isText()) { ... record.text() ... }
+ * }
+ * </pre>
+ * 只記錄 ByteBuffer 的位置範圍，不會改變其 position / limit。
+ */
+public final class NdefMessageView {
+    private final ByteBuffer buffer;
+    private final int start;
+    private final int end;
+
+    private NdefMessageView(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+    }
+
+    public static NdefMessageView wrap(byte[] message) {
+        return new NdefMessageView(ByteBuffer.wrap(message), 0, message.length);
+    }
+
+    // buffer 的 position 到 limit 之間為一個 NDEF message
+    public static NdefMessageView of(ByteBuffer buffer) {
+        return new NdefMessageView(buffer, buffer.position(), buffer.limit());
+    }
+
+    static NdefMessageView of(ByteBuffer buffer, int start, int end) {
+        return new NdefMessageView(buffer, start, end);
+    }
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    int start() {
+        return start;
+    }
+
+    int end() {
+        return end;
+    }
+
+    public int length() {
+        return end - start;
+    }
+
+    // 新的走訪游標；需要避免配置時改用 NdefRecordView.reset 重複使用同一個游標
+    public NdefRecordView records() {
+        return new NdefRecordView().reset(this);
+    }
+
+    // 邏輯 record 數（分段 record 算一個）；同時檢查整個訊息的格式
+    public int recordCount() {
+        NdefRecordView record = records();
+        int count = 0;
+        while (record.next()) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,368 @@
+package com.smewise.nfcspeedtest.ndef;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * NDEF message 的 record 游標。next() 只解析標頭並記錄 type / id / payload 的位置，
+ * 不配置記憶體；分段 record（CF）會合併成一個邏輯 record，payload 長度為各段總和。
+ * 字串欄位在呼叫 text()、uri() 等方法時才解碼；分段 record 的 payload 第一次被讀取時
+ * 才合併成一個陣列。格式錯誤時拋出 NdefFormatException。
+ * 同一個游標可用 reset 走訪其他訊息，非執行緒安全。
+ */
+public final class NdefRecordView {
+    private ByteBuffer buffer;
+    private int messageEnd;
+    private int position;
+    private int index;
+    private boolean done;
+
+    // 目前的邏輯 record
+    private int recordOffset;
+    private int flags;
+    private int typeOffset;
+    private int typeLength;
+    private int idOffset;
+    private int idLength;
+    private int payloadOffset;
+    private int payloadLength;
+    private int chunkCount;
+    // payload 所在的連續區域；分段 record 合併後指向新陣列
+    private ByteBuffer payloadBuffer;
+    private int payloadStart;
+
+    // parseRaw 的輸出
+    private int rawFlags;
+    private int rawTypeLength;
+    private int rawIdLength;
+    private int rawTypeOffset;
+    private int rawIdOffset;
+    private int rawPayloadOffset;
+    private int rawPayloadLength;
+
+    public NdefRecordView reset(NdefMessageView message) {
+        buffer = message.buffer();
+        messageEnd = message.end();
+        position = message.start();
+        index = -1;
+        done = false;
+        payloadBuffer = null;
+        return this;
+    }
+
+    /**
+     * 移到下一個邏輯 record；已經過 ME 或訊息為空時回傳 false。
+     */
+    public boolean next() {
+        if (done || buffer == null) {
+            return false;
+        }
+        if (position >= messageEnd) {
+            if (index < 0) {
+                done = true;
+                return false;
+            }
+            throw new NdefFormatException("訊息結束前沒有 ME 旗標", position);
+        }
+        int header = position;
+        int next = parseRaw(header);
+        boolean first = index < 0;
+        if (first != ((rawFlags & NdefFormat.FLAG_MB) != 0)) {
+            throw new NdefFormatException(first ? "第一個 record 缺少 MB 旗標" : "MB 旗標只能出現在第一個 record", header);
+        }
+        if ((rawFlags & NdefFormat.TNF_MASK) == NdefFormat.TNF_UNCHANGED) {
+            throw new NdefFormatException("分段 record 之外出現 TNF_UNCHANGED", header);
+        }
+        recordOffset = header;
+        flags = rawFlags;
+        typeOffset = rawTypeOffset;
+        typeLength = rawTypeLength;
+        idOffset = rawIdOffset;
+        idLength = rawIdLength;
+        payloadOffset = rawPayloadOffset;
+        payloadLength = rawPayloadLength;
+        chunkCount = 1;
+        while ((rawFlags & NdefFormat.FLAG_CF) != 0) {
+            if ((rawFlags & NdefFormat.FLAG_ME) != 0) {
+                throw new NdefFormatException("分段 record 尚未結束就出現 ME 旗標", header);
+            }
+            if (next >= messageEnd) {
+                throw new NdefFormatException("分段 record 不完整", next);
+            }
+            int chunk = next;
+            next = parseRaw(chunk);
+            if ((rawFlags & NdefFormat.TNF_MASK) != NdefFormat.TNF_UNCHANGED || rawTypeLength != 0
+                    || rawIdLength != 0 || (rawFlags & NdefFormat.FLAG_MB) != 0) {
+                throw new NdefFormatException("分段 record 的後續段落格式錯誤", chunk);
+            }
+            payloadLength += rawPayloadLength;
+            chunkCount++;
+        }
+        done = (rawFlags & NdefFormat.FLAG_ME) != 0;
+        position = next;
+        index++;
+        payloadBuffer = null;
+        return true;
+    }
+
+    private int u8(int offset) {
+        return buffer.get(offset) & 0xFF;
+    }
+
+    private void require(int offset, int count) {
+        if (offset + count > messageEnd) {
+            throw new NdefFormatException("record 標頭不完整", offset);
+        }
+    }
+
+    // 解析一個實際的 record（分段 record 的一段），回傳下一個 record 的位置
+    private int parseRaw(int offset) {
+        int p = offset;
+        require(p, 3);
+        rawFlags = u8(p++);
+        rawTypeLength = u8(p++);
+        if ((rawFlags & NdefFormat.FLAG_SR) != 0) {
+            rawPayloadLength = u8(p++);
+        } else {
+            require(p, 4);
+            long length = (long) u8(p) << 24 | u8(p + 1) << 16 | u8(p + 2) << 8 | u8(p + 3);
+            p += 4;
+            if (length > messageEnd - p) {
+                throw new NdefFormatException("payload 長度超出訊息", offset);
+            }
+            rawPayloadLength = (int) length;
+        }
+        rawIdLength = 0;
+        if ((rawFlags & NdefFormat.FLAG_IL) != 0) {
+            require(p, 1);
+            rawIdLength = u8(p++);
+        }
+        rawTypeOffset = p;
+        rawIdOffset = p + rawTypeLength;
+        rawPayloadOffset = rawIdOffset + rawIdLength;
+        long end = (long) rawPayloadOffset + rawPayloadLength;
+        if (end > messageEnd) {
+            throw new NdefFormatException("record 長度超出訊息", offset);
+        }
+        return (int) end;
+    }
+
+    // 第幾個邏輯 record（從 0 開始）
+    public int index() {
+        return index;
+    }
+
+    public int tnf() {
+        return flags & NdefFormat.TNF_MASK;
+    }
+
+    public boolean isChunked() {
+        return chunkCount > 1;
+    }
+
+    public int chunkCount() {
+        return chunkCount;
+    }
+
+    public boolean isLast() {
+        return done;
+    }
+
+    // 在 buffer 中的絕對位置
+    public int recordOffset() {
+        return recordOffset;
+    }
+
+    public int typeLength() {
+        return typeLength;
+    }
+
+    public int idLength() {
+        return idLength;
+    }
+
+    public int payloadLength() {
+        return payloadLength;
+    }
+
+    public boolean typeEquals(byte[] type) {
+        if (type.length != typeLength) {
+            return false;
+        }
+        for (int i = 0; i < typeLength; i++) {
+            if (buffer.get(typeOffset + i) != type[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isWellKnown(byte[] rtd) {
+        return tnf() == NdefFormat.TNF_WELL_KNOWN && typeEquals(rtd);
+    }
+
+    public boolean isText() {
+        return isWellKnown(NdefFormat.RTD_TEXT);
+    }
+
+    public boolean isUri() {
+        return isWellKnown(NdefFormat.RTD_URI) || tnf() == NdefFormat.TNF_ABSOLUTE_URI;
+    }
+
+    public boolean isSmartPoster() {
+        return isWellKnown(NdefFormat.RTD_SMART_POSTER);
+    }
+
+    public boolean isMime() {
+        return tnf() == NdefFormat.TNF_MIME_MEDIA;
+    }
+
+    public boolean isExternal() {
+        return tnf() == NdefFormat.TNF_EXTERNAL_TYPE;
+    }
+
+    // type 欄位（US-ASCII），例如 "T"、"text/vcard"、"example.com:foo"
+    public String type() {
+        return decode(buffer, typeOffset, typeLength, StandardCharsets.US_ASCII);
+    }
+
+    // 沒有 ID 欄位時回傳 null
+    public String id() {
+        return idLength == 0 ? null : decode(buffer, idOffset, idLength, StandardCharsets.UTF_8);
+    }
+
+    // MIME record 的媒體類型，其他 TNF 回傳 null
+    public String mimeType() {
+        return isMime() ? type() : null;
+    }
+
+    // 外部類型名稱（domain:type），其他 TNF 回傳 null
+    public String externalType() {
+        return isExternal() ? type() : null;
+    }
+
+    public String textLanguage() {
+        checkPayload(isText(), "Text");
+        int langLength = payloadByte(0) & 0x3F;
+        checkTextLength(langLength);
+        return decode(payloadBuffer, payloadStart + 1, langLength, StandardCharsets.US_ASCII);
+    }
+
+    public String text() {
+        checkPayload(isText(), "Text");
+        int status = payloadByte(0);
+        int langLength = status & 0x3F;
+        checkTextLength(langLength);
+        Charset charset = (status & 0x80) != 0 ? StandardCharsets.UTF_16 : StandardCharsets.UTF_8;
+        return decode(payloadBuffer, payloadStart + 1 + langLength, payloadLength - 1 - langLength, charset);
+    }
+
+    private void checkTextLength(int langLength) {
+        if (1 + langLength > payloadLength) {
+            throw new NdefFormatException("Text record 語言碼長度超出 payload", recordOffset);
+        }
+    }
+
+    // Well-known URI 會展開前綴縮寫；Absolute URI 的 URI 存在 type 欄位
+    public String uri() {
+        if (tnf() == NdefFormat.TNF_ABSOLUTE_URI) {
+            return type();
+        }
+        checkPayload(isWellKnown(NdefFormat.RTD_URI), "URI");
+        int code = payloadByte(0);
+        String rest = decode(payloadBuffer, payloadStart + 1, payloadLength - 1, StandardCharsets.UTF_8);
+        return code < NdefFormat.URI_PREFIXES.length ? NdefFormat.URI_PREFIXES[code] + rest : rest;
+    }
+
+    // Smart Poster 的 payload 本身是一個 NDEF message，回傳其檢視（同樣不複製）
+    public NdefMessageView smartPoster() {
+        if (!isSmartPoster()) {
+            throw new IllegalStateException("不是 Smart Poster record");
+        }
+        contiguous();
+        return NdefMessageView.of(payloadBuffer, payloadStart, payloadStart + payloadLength);
+    }
+
+    /**
+     * payload 的唯讀檢視。未分段的 record 直接指向原始資料，分段的 record 第一次讀取時合併。
+     */
+    public ByteBuffer payload() {
+        contiguous();
+        ByteBuffer view = payloadBuffer.duplicate();
+        // 以 Buffer 呼叫，避免以新版 JDK 編譯時綁定到 Java 9 才有的 ByteBuffer 多載
+        ((Buffer) view).limit(payloadStart + payloadLength);
+        ((Buffer) view).position(payloadStart);
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    // 複製 payload 到 dst，回傳複製的 bytes 數
+    public int copyPayload(byte[] dst, int dstOffset) {
+        if (payloadBuffer != null) {
+            copy(payloadBuffer, payloadStart, dst, dstOffset, payloadLength);
+            return payloadLength;
+        }
+        int written = 0;
+        int p = recordOffset;
+        for (int i = 0; i < chunkCount; i++) {
+            p = parseRaw(p);
+            copy(buffer, rawPayloadOffset, dst, dstOffset + written, rawPayloadLength);
+            written += rawPayloadLength;
+        }
+        return written;
+    }
+
+    public byte[] payloadBytes() {
+        byte[] out = new byte[payloadLength];
+        copyPayload(out, 0);
+        return out;
+    }
+
+    private int payloadByte(int i) {
+        contiguous();
+        return payloadBuffer.get(payloadStart + i) & 0xFF;
+    }
+
+    private void checkPayload(boolean expected, String kind) {
+        if (!expected) {
+            throw new IllegalStateException("不是 " + kind + " record");
+        }
+        if (payloadLength == 0) {
+            throw new NdefFormatException(kind + " record 的 payload 為空", recordOffset);
+        }
+    }
+
+    private void contiguous() {
+        if (payloadBuffer != null) {
+            return;
+        }
+        if (chunkCount == 1) {
+            payloadBuffer = buffer;
+            payloadStart = payloadOffset;
+        } else {
+            payloadBuffer = ByteBuffer.wrap(payloadBytes());
+            payloadStart = 0;
+        }
+    }
+
+    private static void copy(ByteBuffer src, int offset, byte[] dst, int dstOffset, int length) {
+        if (src.hasArray()) {
+            System.arraycopy(src.array(), src.arrayOffset() + offset, dst, dstOffset, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dst[dstOffset + i] = src.get(offset + i);
+            }
+        }
+    }
+
+    // 可直接存取底層陣列時就地解碼，不經過中間複本
+    private static String decode(ByteBuffer src, int offset, int length, Charset charset) {
+        if (src.hasArray()) {
+            return new String(src.array(), src.arrayOffset() + offset, length, charset);
+        }
+        byte[] bytes = new byte[length];
+        copy(src, offset, bytes, 0, length);
+        return new String(bytes, charset);
+    }
+}
@@ -0,0 +1,156 @@
+package com.smewise.nfcspeedtest.provision;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+import com.smewise.nfcspeedtest.codec.HexFormatException;
+import com.smewise.nfcspeedtest.ndef.NdefFormat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IllegalFormatException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 批次寫入的資料佇列。載入時把每一行預先編碼成 NDEF message 或區塊影像，靠卡時直接取用，
+ * 寫入成功才前進到下一筆；寫入失敗或同一張卡再次靠卡時停在原位。可從任何執行緒呼叫。
+ * <pre>
+ * # 開頭為註解，每行一張標籤
+ * text:內容                    NDEF Text record（en）；區塊模式為 UTF-8 位元組
+ * uri:https://example.com/a    NDEF URI record
+ * hex:0102030405...            NDEF 模式為已編碼的 message；區塊模式為區塊影像
+ * seq 1 500 text:SN-%06d       展開成 500 筆，%d 依序代入 1、2、3…（格式同 String.format）
+ * </pre>
+ * 區塊模式的資料不足一個區塊時補 0 到區塊大小的倍數。
+ */
+public class PayloadQueue {
+    // blockSize 為 NDEF 時以 NDEF message 寫入
+    public static final int NDEF = 0;
+    public static final int MAX_SEQUENCE = 100_000;
+
+    private final List<ProvisioningPayload> payloads;
+    private final int blockSize;
+    private final Map<ByteBuffer, Integer> written = new HashMap<>();
+    private int position;
+
+    PayloadQueue(List<ProvisioningPayload> payloads, int blockSize) {
+        this.payloads = payloads;
+        this.blockSize = blockSize;
+    }
+
+    public static PayloadQueue parse(Reader reader, int blockSize) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        List<ProvisioningPayload> payloads = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            String text = line.trim();
+            if (text.isEmpty() || text.startsWith("#")) {
+                continue;
+            }
+            try {
+                if (text.startsWith("seq ")) {
+                    String[] parts = text.split("\\s+", 4);
+                    if (parts.length != 4) {
+                        throw new IOException("第 " + lineNumber + " 行格式應為 seq 起始 張數 內容");
+                    }
+                    long start = Long.parseLong(parts[1]);
+                    int count = Integer.parseInt(parts[2]);
+                    if (count <= 0 || payloads.size() + count > MAX_SEQUENCE) {
+                        throw new IOException("第 " + lineNumber + " 行張數需介於 1 與 " + MAX_SEQUENCE + " 之間");
+                    }
+                    for (int i = 0; i < count; i++) {
+                        String entry = String.format(Locale.US, parts[3], start + i);
+                        payloads.add(encode(payloads.size(), entry, blockSize, lineNumber));
+                    }
+                } else {
+                    payloads.add(encode(payloads.size(), text, blockSize, lineNumber));
+                }
+            } catch (NumberFormatException | IllegalFormatException e) {
+                throw new IOException("第 " + lineNumber + " 行格式錯誤: " + e.getMessage(), e);
+            }
+        }
+        if (payloads.isEmpty()) {
+            throw new IOException("沒有任何要寫入的資料");
+        }
+        return new PayloadQueue(payloads, blockSize);
+    }
+
+    private static ProvisioningPayload encode(int index, String entry, int blockSize, int lineNumber)
+            throws IOException {
+        int colon = entry.indexOf(':');
+        String kind = colon < 0 ? "" : entry.substring(0, colon);
+        String value = colon < 0 ? entry : entry.substring(colon + 1);
+        byte[] data;
+        switch (kind) {
+            case "text":
+                data = blockSize == NDEF ? NdefFormat.textRecord("en", value) : value.getBytes(StandardCharsets.UTF_8);
+                break;
+            case "uri":
+                if (blockSize != NDEF) {
+                    throw new IOException("第 " + lineNumber + " 行: uri 只能用於 NDEF 寫入");
+                }
+                data = NdefFormat.uriRecord(value);
+                break;
+            case "hex":
+                try {
+                    data = HexCodec.parse(value);
+                } catch (HexFormatException e) {
+                    throw new IOException("第 " + lineNumber + " 行十六進位格式錯誤: " + e.getMessage(), e);
+                }
+                break;
+            default:
+                throw new IOException("第 " + lineNumber + " 行缺少 text: / uri: / hex: 前綴");
+        }
+        if (data.length == 0) {
+            throw new IOException("第 " + lineNumber + " 行沒有內容");
+        }
+        if (blockSize != NDEF && data.length % blockSize != 0) {
+            data = Arrays.copyOf(data, (data.length + blockSize - 1) / blockSize * blockSize);
+        }
+        return new ProvisioningPayload(index, value, data);
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int size() {
+        return payloads.size();
+    }
+
+    public synchronized int getPosition() {
+        return position;
+    }
+
+    public synchronized int remaining() {
+        return payloads.size() - position;
+    }
+
+    // 下一張要寫入的內容，全部寫完時回傳 null
+    public synchronized ProvisioningPayload peek() {
+        return position < payloads.size() ? payloads.get(position) : null;
+    }
+
+    // 這張卡已經寫過時回傳寫入的順序，否則回傳 -1
+    public synchronized int writtenIndex(byte[] uid) {
+        Integer index = written.get(ByteBuffer.wrap(uid));
+        return index == null ? -1 : index;
+    }
+
+    // 目前這筆已寫入 uid 這張卡，前進到下一筆
+    public synchronized void commit(ProvisioningPayload payload, byte[] uid) {
+        if (position >= payloads.size() || payloads.get(position) != payload) {
+            throw new IllegalStateException("只能確認目前這一筆");
+        }
+        written.put(ByteBuffer.wrap(uid.clone()), position);
+        position++;
+    }
+}
@@ -0,0 +1,31 @@
+package com.smewise.nfcspeedtest.provision;
+
+/**
+ * 一張標籤要寫入的內容，載入時已編碼完成：NDEF message 或從起始區塊開始的區塊影像。
+ */
+public final class ProvisioningPayload {
+    private final int index;
+    private final String label;
+    private final byte[] data;
+
+    ProvisioningPayload(int index, String label, byte[] data) {
+        this.index = index;
+        this.label = label;
+        this.data = data;
+    }
+
+    // 從 0 開始的順序
+    public int getIndex() {
+        return index;
+    }
+
+    // 顯示用，例如序號或網址
+    public String getLabel() {
+        return label;
+    }
+
+    // 不複製；呼叫端不可修改
+    public byte[] getData() {
+        return data;
+    }
+}
@@ -0,0 +1,101 @@
+package com.smewise.nfcspeedtest.provision;
+
+import com.smewise.nfcspeedtest.trace.LatencyHistogram;
+
+import java.util.Locale;
+
+/**
+ * 批次寫入的產能統計：每分鐘寫入張數（整段與最近 RECENT_TAGS 張）與每張標籤的關鍵路徑延遲，
+ * 即從偵測到標籤到寫入完成的時間。時間由呼叫端以同一個 NanoClock 提供。可從任何執行緒呼叫。
+ */
+public class ProvisioningStats {
+    public static final int RECENT_TAGS = 20;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    // 最近幾張成功寫入的完成時間（環形）
+    private final long[] recentEnds = new long[RECENT_TAGS];
+    private int written;
+    private int failed;
+    private int duplicates;
+    private long firstStart = -1;
+    private long lastEnd;
+
+    public synchronized void recordWritten(long startNanos, long endNanos) {
+        mark(startNanos, endNanos);
+        latency.record(endNanos - startNanos);
+        recentEnds[written % RECENT_TAGS] = endNanos;
+        written++;
+    }
+
+    public synchronized void recordFailed(long startNanos, long endNanos) {
+        mark(startNanos, endNanos);
+        failed++;
+    }
+
+    // 已寫入過的卡再次靠卡，沒有寫入
+    public synchronized void recordDuplicate(long startNanos, long endNanos) {
+        mark(startNanos, endNanos);
+        duplicates++;
+    }
+
+    private void mark(long startNanos, long endNanos) {
+        if (firstStart < 0) {
+            firstStart = startNanos;
+        }
+        lastEnd = Math.max(lastEnd, endNanos);
+    }
+
+    public synchronized int getWritten() {
+        return written;
+    }
+
+    public synchronized int getFailed() {
+        return failed;
+    }
+
+    public synchronized int getDuplicates() {
+        return duplicates;
+    }
+
+    // 從第一張開始偵測到最後一張完成，包含換卡時間
+    public synchronized double tagsPerMinute() {
+        long elapsed = lastEnd - firstStart;
+        return firstStart < 0 || elapsed <= 0 ? 0 : written * 60e9 / elapsed;
+    }
+
+    // 最近幾張的換卡節奏；不足兩張時與整段相同
+    public synchronized double recentTagsPerMinute() {
+        int n = Math.min(written, RECENT_TAGS);
+        if (n < 2) {
+            return tagsPerMinute();
+        }
+        long newest = recentEnds[(written - 1) % RECENT_TAGS];
+        long oldest = recentEnds[(written - n) % RECENT_TAGS];
+        return newest > oldest ? (n - 1) * 60e9 / (newest - oldest) : 0;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public synchronized void reset() {
+        latency.reset();
+        written = 0;
+        failed = 0;
+        duplicates = 0;
+        firstStart = -1;
+        lastEnd = 0;
+    }
+
+    public synchronized String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "批次寫入: 成功 %d / 失敗 %d / 重複 %d，%.1f 張/分（最近 %d 張 %.1f 張/分）\n",
+                written, failed, duplicates, tagsPerMinute(), Math.min(written, RECENT_TAGS), recentTagsPerMinute()));
+        if (latency.getCount() > 0) {
+            sb.append(String.format(Locale.US, "每張 p50 %.1f ms / p95 %.1f ms / p99 %.1f ms / 最大 %.1f ms\n",
+                    latency.getPercentile(50) / 1e6, latency.getPercentile(95) / 1e6,
+                    latency.getPercentile(99) / 1e6, latency.getMax() / 1e6));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,447 @@
+package com.smewise.nfcspeedtest.replay;
+
+import com.smewise.nfcspeedtest.trace.NanoClock;
+import com.smewise.nfcspeedtest.transport.IsoDepTransport;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.NfcBTransport;
+import com.smewise.nfcspeedtest.transport.NfcFTransport;
+import com.smewise.nfcspeedtest.transport.NfcVTransport;
+import com.smewise.nfcspeedtest.transport.TagEndpoint;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+import com.smewise.nfcspeedtest.transport.TagTech;
+import com.smewise.nfcspeedtest.transport.TagTransport;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 包裝 TagEndpoint，把每次 connect / close / transceive / readBlock / writeBlock / 認證 / NDEF 讀寫
+ * 連同指令、回應與耗時錄進記憶體；工作階段結束後以 getTrace() 取得 TagTrace 再存檔，錄製時不做檔案 I/O。
+ * 只在 NFC I/O 執行緒使用。
+ */
+public class RecordingTagEndpoint implements TagEndpoint {
+    private final TagEndpoint delegate;
+    private final NanoClock clock;
+    private final long origin;
+    private final long recordedAtMillis = System.currentTimeMillis();
+    private final Map<TagTech, TechProfile> profiles = new EnumMap<>(TagTech.class);
+    private final List<TraceEvent> events = new ArrayList<>();
+
+    public RecordingTagEndpoint(TagEndpoint delegate, NanoClock clock) {
+        this.delegate = delegate;
+        this.clock = clock;
+        this.origin = clock.nanoTime();
+    }
+
+    public TagEndpoint getDelegate() {
+        return delegate;
+    }
+
+    public int size() {
+        return events.size();
+    }
+
+    // 目前為止錄下的內容（複本），可在工作階段結束後存檔
+    public TagTrace getTrace() {
+        return new TagTrace(recordedAtMillis, delegate.getId().clone(), delegate.getTechList().clone(),
+                new EnumMap<>(profiles), new ArrayList<>(events));
+    }
+
+    @Override
+    public byte[] getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public String[] getTechList() {
+        return delegate.getTechList();
+    }
+
+    @Override
+    public boolean supports(TagTech tech) {
+        return delegate.supports(tech);
+    }
+
+    // 第一次取得某技術時記下不經 RF 的屬性
+    private void profile(TagTransport t) {
+        if (!profiles.containsKey(t.tech())) {
+            profiles.put(t.tech(), TechProfile.capture(t));
+        }
+    }
+
+    @Override
+    public NdefTransport ndef() {
+        NdefTransport t = delegate.ndef();
+        if (t == null) {
+            return null;
+        }
+        profile(t);
+        return new RecordedNdef(t);
+    }
+
+    @Override
+    public NfcATransport nfcA() {
+        NfcATransport t = delegate.nfcA();
+        if (t == null) {
+            return null;
+        }
+        profile(t);
+        return new RecordedNfcA(t);
+    }
+
+    @Override
+    public NfcBTransport nfcB() {
+        NfcBTransport t = delegate.nfcB();
+        if (t == null) {
+            return null;
+        }
+        profile(t);
+        return new RecordedNfcB(t);
+    }
+
+    @Override
+    public NfcFTransport nfcF() {
+        NfcFTransport t = delegate.nfcF();
+        if (t == null) {
+            return null;
+        }
+        profile(t);
+        return new RecordedNfcF(t);
+    }
+
+    @Override
+    public NfcVTransport nfcV() {
+        NfcVTransport t = delegate.nfcV();
+        if (t == null) {
+            return null;
+        }
+        profile(t);
+        return new RecordedNfcV(t);
+    }
+
+    @Override
+    public IsoDepTransport isoDep() {
+        IsoDepTransport t = delegate.isoDep();
+        if (t == null) {
+            return null;
+        }
+        profile(t);
+        return new RecordedIsoDep(t);
+    }
+
+    @Override
+    public MifareClassicTransport mifareClassic() {
+        MifareClassicTransport t = delegate.mifareClassic();
+        if (t == null) {
+            return null;
+        }
+        profile(t);
+        return new RecordedMifareClassic(t);
+    }
+
+    // 呼叫端可能重複使用指令緩衝區，指令與回應一律複製
+    private void add(TraceOp op, TagTech tech, long start, int status, int arg, byte[] request, byte[] response) {
+        long end = clock.nanoTime();
+        events.add(new TraceEvent(op, tech, status, Math.max(0, start - origin), Math.max(0, end - start), arg,
+                request == null ? null : request.clone(), response == null ? null : response.clone()));
+    }
+
+    private void fail(TraceOp op, TagTech tech, long start, int arg, byte[] request, IOException e) {
+        String message = e.getMessage() == null ? "" : e.getMessage();
+        add(op, tech, start, e instanceof TagLostException ? TraceEvent.STATUS_TAG_LOST : TraceEvent.STATUS_IO_ERROR,
+                arg, request, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private class Recorded<T extends TagTransport> implements TagTransport {
+        final T t;
+
+        Recorded(T t) {
+            this.t = t;
+        }
+
+        @Override
+        public TagTech tech() {
+            return t.tech();
+        }
+
+        @Override
+        public void connect() throws IOException {
+            long start = clock.nanoTime();
+            try {
+                t.connect();
+            } catch (IOException e) {
+                fail(TraceOp.CONNECT, tech(), start, -1, null, e);
+                throw e;
+            }
+            add(TraceOp.CONNECT, tech(), start, TraceEvent.STATUS_OK, -1, null, null);
+        }
+
+        @Override
+        public boolean isConnected() {
+            return t.isConnected();
+        }
+
+        @Override
+        public byte[] transceive(byte[] data) throws IOException {
+            long start = clock.nanoTime();
+            byte[] response;
+            try {
+                response = t.transceive(data);
+            } catch (IOException e) {
+                fail(TraceOp.TRANSCEIVE, tech(), start, -1, data, e);
+                throw e;
+            }
+            add(TraceOp.TRANSCEIVE, tech(), start, TraceEvent.STATUS_OK, -1, data, response);
+            return response;
+        }
+
+        @Override
+        public int getMaxTransceiveLength() {
+            return t.getMaxTransceiveLength();
+        }
+
+        @Override
+        public void setTimeout(int timeoutMs) {
+            t.setTimeout(timeoutMs);
+        }
+
+        @Override
+        public int getTimeout() {
+            return t.getTimeout();
+        }
+
+        @Override
+        public void close() throws IOException {
+            long start = clock.nanoTime();
+            try {
+                t.close();
+            } catch (IOException e) {
+                fail(TraceOp.CLOSE, tech(), start, -1, null, e);
+                throw e;
+            }
+            add(TraceOp.CLOSE, tech(), start, TraceEvent.STATUS_OK, -1, null, null);
+        }
+    }
+
+    private final class RecordedNdef extends Recorded<NdefTransport> implements NdefTransport {
+        RecordedNdef(NdefTransport t) {
+            super(t);
+        }
+
+        @Override
+        public String getType() {
+            return t.getType();
+        }
+
+        @Override
+        public int getMaxSize() {
+            return t.getMaxSize();
+        }
+
+        @Override
+        public boolean isWritable() {
+            return t.isWritable();
+        }
+
+        // 沒有 NDEF message 時以 STATUS_FALSE 記錄
+        @Override
+        public byte[] readNdefMessage() throws IOException {
+            long start = clock.nanoTime();
+            byte[] message;
+            try {
+                message = t.readNdefMessage();
+            } catch (IOException e) {
+                fail(TraceOp.NDEF_READ, tech(), start, -1, null, e);
+                throw e;
+            }
+            add(TraceOp.NDEF_READ, tech(), start, message == null ? TraceEvent.STATUS_FALSE : TraceEvent.STATUS_OK,
+                    -1, null, message);
+            return message;
+        }
+
+        @Override
+        public void writeNdefMessage(byte[] message) throws IOException {
+            long start = clock.nanoTime();
+            try {
+                t.writeNdefMessage(message);
+            } catch (IOException e) {
+                fail(TraceOp.NDEF_WRITE, tech(), start, -1, message, e);
+                throw e;
+            }
+            add(TraceOp.NDEF_WRITE, tech(), start, TraceEvent.STATUS_OK, -1, message, null);
+        }
+    }
+
+    private final class RecordedNfcA extends Recorded<NfcATransport> implements NfcATransport {
+        RecordedNfcA(NfcATransport t) {
+            super(t);
+        }
+
+        @Override
+        public byte[] getAtqa() {
+            return t.getAtqa();
+        }
+
+        @Override
+        public short getSak() {
+            return t.getSak();
+        }
+    }
+
+    private final class RecordedNfcB extends Recorded<NfcBTransport> implements NfcBTransport {
+        RecordedNfcB(NfcBTransport t) {
+            super(t);
+        }
+
+        @Override
+        public byte[] getApplicationData() {
+            return t.getApplicationData();
+        }
+
+        @Override
+        public byte[] getProtocolInfo() {
+            return t.getProtocolInfo();
+        }
+    }
+
+    private final class RecordedNfcF extends Recorded<NfcFTransport> implements NfcFTransport {
+        RecordedNfcF(NfcFTransport t) {
+            super(t);
+        }
+
+        @Override
+        public byte[] getManufacturer() {
+            return t.getManufacturer();
+        }
+
+        @Override
+        public byte[] getSystemCode() {
+            return t.getSystemCode();
+        }
+    }
+
+    private final class RecordedNfcV extends Recorded<NfcVTransport> implements NfcVTransport {
+        RecordedNfcV(NfcVTransport t) {
+            super(t);
+        }
+
+        @Override
+        public byte getDsfId() {
+            return t.getDsfId();
+        }
+
+        @Override
+        public byte getResponseFlags() {
+            return t.getResponseFlags();
+        }
+    }
+
+    private final class RecordedIsoDep extends Recorded<IsoDepTransport> implements IsoDepTransport {
+        RecordedIsoDep(IsoDepTransport t) {
+            super(t);
+        }
+
+        @Override
+        public boolean isExtendedLengthApduSupported() {
+            return t.isExtendedLengthApduSupported();
+        }
+
+        @Override
+        public byte[] getHistoricalBytes() {
+            return t.getHistoricalBytes();
+        }
+    }
+
+    private final class RecordedMifareClassic extends Recorded<MifareClassicTransport> implements MifareClassicTransport {
+        RecordedMifareClassic(MifareClassicTransport t) {
+            super(t);
+        }
+
+        @Override
+        public int getSize() {
+            return t.getSize();
+        }
+
+        @Override
+        public int getSectorCount() {
+            return t.getSectorCount();
+        }
+
+        @Override
+        public int getBlockCount() {
+            return t.getBlockCount();
+        }
+
+        @Override
+        public int getBlockCountInSector(int sectorIndex) {
+            return t.getBlockCountInSector(sectorIndex);
+        }
+
+        @Override
+        public int sectorToBlock(int sectorIndex) {
+            return t.sectorToBlock(sectorIndex);
+        }
+
+        @Override
+        public int blockToSector(int blockIndex) {
+            return t.blockToSector(blockIndex);
+        }
+
+        @Override
+        public boolean authenticateSectorWithKeyA(int sectorIndex, byte[] key) throws IOException {
+            return authenticate(TraceOp.AUTHENTICATE_A, sectorIndex, key);
+        }
+
+        @Override
+        public boolean authenticateSectorWithKeyB(int sectorIndex, byte[] key) throws IOException {
+            return authenticate(TraceOp.AUTHENTICATE_B, sectorIndex, key);
+        }
+
+        private boolean authenticate(TraceOp op, int sectorIndex, byte[] key) throws IOException {
+            long start = clock.nanoTime();
+            boolean ok;
+            try {
+                ok = op == TraceOp.AUTHENTICATE_A
+                        ? t.authenticateSectorWithKeyA(sectorIndex, key)
+                        : t.authenticateSectorWithKeyB(sectorIndex, key);
+            } catch (IOException e) {
+                fail(op, tech(), start, sectorIndex, key, e);
+                throw e;
+            }
+            add(op, tech(), start, ok ? TraceEvent.STATUS_OK : TraceEvent.STATUS_FALSE, sectorIndex, key, null);
+            return ok;
+        }
+
+        @Override
+        public byte[] readBlock(int blockIndex) throws IOException {
+            long start = clock.nanoTime();
+            byte[] data;
+            try {
+                data = t.readBlock(blockIndex);
+            } catch (IOException e) {
+                fail(TraceOp.READ_BLOCK, tech(), start, blockIndex, null, e);
+                throw e;
+            }
+            add(TraceOp.READ_BLOCK, tech(), start, TraceEvent.STATUS_OK, blockIndex, null, data);
+            return data;
+        }
+
+        @Override
+        public void writeBlock(int blockIndex, byte[] data) throws IOException {
+            long start = clock.nanoTime();
+            try {
+                t.writeBlock(blockIndex, data);
+            } catch (IOException e) {
+                fail(TraceOp.WRITE_BLOCK, tech(), start, blockIndex, data, e);
+                throw e;
+            }
+            add(TraceOp.WRITE_BLOCK, tech(), start, TraceEvent.STATUS_OK, blockIndex, data, null);
+        }
+    }
+}
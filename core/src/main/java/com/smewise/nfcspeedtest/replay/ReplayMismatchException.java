@@ -0,0 +1,18 @@
+package com.smewise.nfcspeedtest.replay;
+
+/**
+ * 重播時呼叫的操作與 trace 不一致。刻意不是 IOException：
+ * 否則會被 FAST_READ / 多區塊指令等備援邏輯當成「標籤不支援」吞掉，讓分歧延後到更難追查的地方。
+ */
+public class ReplayMismatchException extends IllegalStateException {
+    private final int position;
+
+    public ReplayMismatchException(int position, String message) {
+        super("重播第 " + position + " 筆不一致: " + message);
+        this.position = position;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,406 @@
+package com.smewise.nfcspeedtest.replay;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+import com.smewise.nfcspeedtest.transport.IsoDepTransport;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.NfcBTransport;
+import com.smewise.nfcspeedtest.transport.NfcFTransport;
+import com.smewise.nfcspeedtest.transport.NfcVTransport;
+import com.smewise.nfcspeedtest.transport.TagEndpoint;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+import com.smewise.nfcspeedtest.transport.TagTech;
+import com.smewise.nfcspeedtest.transport.TagTransport;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 以 TagTrace 取代真實標籤：依錄製順序比對每一個操作（種類、技術、區塊 / 區段編號與指令內容），
+ * 回傳當時的回應或拋出當時的錯誤（TagLostException / IOException）。
+ * 不一致時拋出 ReplayMismatchException。ORIGINAL / REAL_TIME 時每個操作花費錄製的耗時，
+ * 可用 getRfNanos 當作 NanoClock，量到的時間與現場一致。只在單一執行緒使用。
+ */
+public class ReplayTagEndpoint implements TagEndpoint {
+    private static final int MIFARE_SMALL_SECTORS = 32;
+    private static final int MIFARE_SMALL_SECTOR_BLOCKS = 4;
+    private static final int MIFARE_LARGE_SECTOR_BLOCKS = 16;
+
+    private final TagTrace trace;
+    private final List<TraceEvent> events;
+    private final ReplayTiming timing;
+    private int position;
+    private long rfNanos;
+
+    public ReplayTagEndpoint(TagTrace trace, ReplayTiming timing) {
+        this.trace = trace;
+        this.events = trace.getEvents();
+        this.timing = timing;
+    }
+
+    public TagTrace getTrace() {
+        return trace;
+    }
+
+    // 已重播的操作數
+    public int getPosition() {
+        return position;
+    }
+
+    public boolean isComplete() {
+        return position == events.size();
+    }
+
+    // 重播累計的耗時；ZERO 時一直是 0
+    public long getRfNanos() {
+        return rfNanos;
+    }
+
+    // 從頭重播（例如同一份 trace 重複跑基準測試）
+    public void rewind() {
+        position = 0;
+        rfNanos = 0;
+    }
+
+    @Override
+    public byte[] getId() {
+        return trace.getUid();
+    }
+
+    @Override
+    public String[] getTechList() {
+        return trace.getTechList();
+    }
+
+    @Override
+    public boolean supports(TagTech tech) {
+        for (String name : trace.getTechList()) {
+            if (tech.className().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public NdefTransport ndef() {
+        TechProfile p = trace.profile(TagTech.NDEF);
+        return p == null ? null : new ReplayNdef(p);
+    }
+
+    @Override
+    public NfcATransport nfcA() {
+        TechProfile p = trace.profile(TagTech.NFC_A);
+        return p == null ? null : new ReplayNfcA(p);
+    }
+
+    @Override
+    public NfcBTransport nfcB() {
+        TechProfile p = trace.profile(TagTech.NFC_B);
+        return p == null ? null : new ReplayNfcB(p);
+    }
+
+    @Override
+    public NfcFTransport nfcF() {
+        TechProfile p = trace.profile(TagTech.NFC_F);
+        return p == null ? null : new ReplayNfcF(p);
+    }
+
+    @Override
+    public NfcVTransport nfcV() {
+        TechProfile p = trace.profile(TagTech.NFC_V);
+        return p == null ? null : new ReplayNfcV(p);
+    }
+
+    @Override
+    public IsoDepTransport isoDep() {
+        TechProfile p = trace.profile(TagTech.ISO_DEP);
+        return p == null ? null : new ReplayIsoDep(p);
+    }
+
+    @Override
+    public MifareClassicTransport mifareClassic() {
+        TechProfile p = trace.profile(TagTech.MIFARE_CLASSIC);
+        return p == null ? null : new ReplayMifareClassic(p);
+    }
+
+    private TraceEvent next(TraceOp op, TagTech tech, int arg, byte[] request) throws IOException {
+        if (position >= events.size()) {
+            throw new ReplayMismatchException(position, "trace 已結束，實際呼叫 " + describe(op, tech, arg, request));
+        }
+        TraceEvent e = events.get(position);
+        if (e.getOp() != op || e.getTech() != tech || e.getArg() != arg
+                || !Arrays.equals(e.getRequest(), request == null ? new byte[0] : request)) {
+            throw new ReplayMismatchException(position, "錄製 " + describe(e.getOp(), e.getTech(), e.getArg(), e.getRequest())
+                    + "，實際呼叫 " + describe(op, tech, arg, request));
+        }
+        position++;
+        spend(e.getDurationNanos());
+        if (e.getStatus() == TraceEvent.STATUS_TAG_LOST) {
+            throw new TagLostException(e.getErrorMessage());
+        }
+        if (e.getStatus() == TraceEvent.STATUS_IO_ERROR) {
+            throw new IOException(e.getErrorMessage());
+        }
+        return e;
+    }
+
+    private void spend(long nanos) {
+        if (timing == ReplayTiming.ZERO) {
+            return;
+        }
+        rfNanos += nanos;
+        if (timing == ReplayTiming.REAL_TIME && nanos > 0) {
+            long deadline = System.nanoTime() + nanos;
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+
+    // 認證的金鑰不列出
+    private static String describe(TraceOp op, TagTech tech, int arg, byte[] request) {
+        StringBuilder sb = new StringBuilder(op.label()).append(' ').append(tech.simpleName());
+        if (arg >= 0) {
+            sb.append(" #").append(arg);
+        }
+        if (request != null && request.length > 0 && op != TraceOp.AUTHENTICATE_A && op != TraceOp.AUTHENTICATE_B) {
+            sb.append(' ').append(HexCodec.toHex(request));
+        }
+        return sb.toString();
+    }
+
+    private class ReplayTransport implements TagTransport {
+        final TechProfile profile;
+        private boolean connected;
+        private int timeout;
+
+        ReplayTransport(TechProfile profile) {
+            this.profile = profile;
+        }
+
+        @Override
+        public TagTech tech() {
+            return profile.tech;
+        }
+
+        @Override
+        public void connect() throws IOException {
+            next(TraceOp.CONNECT, tech(), -1, null);
+            connected = true;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public byte[] transceive(byte[] data) throws IOException {
+            return next(TraceOp.TRANSCEIVE, tech(), -1, data).getResponse().clone();
+        }
+
+        @Override
+        public int getMaxTransceiveLength() {
+            return profile.maxTransceiveLength;
+        }
+
+        @Override
+        public void setTimeout(int timeoutMs) {
+            timeout = timeoutMs;
+        }
+
+        @Override
+        public int getTimeout() {
+            return timeout;
+        }
+
+        // trace 在工作階段最後的 close 之前就存檔，結尾多出的 close 不算不一致
+        @Override
+        public void close() throws IOException {
+            connected = false;
+            if (!isComplete()) {
+                next(TraceOp.CLOSE, tech(), -1, null);
+            }
+        }
+    }
+
+    private final class ReplayNdef extends ReplayTransport implements NdefTransport {
+        ReplayNdef(TechProfile profile) {
+            super(profile);
+        }
+
+        @Override
+        public String getType() {
+            return profile.type;
+        }
+
+        @Override
+        public int getMaxSize() {
+            return profile.value1;
+        }
+
+        @Override
+        public boolean isWritable() {
+            return profile.value2 != 0;
+        }
+
+        @Override
+        public byte[] readNdefMessage() throws IOException {
+            TraceEvent e = next(TraceOp.NDEF_READ, tech(), -1, null);
+            return e.getStatus() == TraceEvent.STATUS_FALSE ? null : e.getResponse().clone();
+        }
+
+        @Override
+        public void writeNdefMessage(byte[] message) throws IOException {
+            next(TraceOp.NDEF_WRITE, tech(), -1, message);
+        }
+    }
+
+    private final class ReplayNfcA extends ReplayTransport implements NfcATransport {
+        ReplayNfcA(TechProfile profile) {
+            super(profile);
+        }
+
+        @Override
+        public byte[] getAtqa() {
+            return profile.first.clone();
+        }
+
+        @Override
+        public short getSak() {
+            return (short) profile.value1;
+        }
+    }
+
+    private final class ReplayNfcB extends ReplayTransport implements NfcBTransport {
+        ReplayNfcB(TechProfile profile) {
+            super(profile);
+        }
+
+        @Override
+        public byte[] getApplicationData() {
+            return profile.first.clone();
+        }
+
+        @Override
+        public byte[] getProtocolInfo() {
+            return profile.second.clone();
+        }
+    }
+
+    private final class ReplayNfcF extends ReplayTransport implements NfcFTransport {
+        ReplayNfcF(TechProfile profile) {
+            super(profile);
+        }
+
+        @Override
+        public byte[] getManufacturer() {
+            return profile.first.clone();
+        }
+
+        @Override
+        public byte[] getSystemCode() {
+            return profile.second.clone();
+        }
+    }
+
+    private final class ReplayNfcV extends ReplayTransport implements NfcVTransport {
+        ReplayNfcV(TechProfile profile) {
+            super(profile);
+        }
+
+        @Override
+        public byte getDsfId() {
+            return (byte) profile.value1;
+        }
+
+        @Override
+        public byte getResponseFlags() {
+            return (byte) profile.value2;
+        }
+    }
+
+    private final class ReplayIsoDep extends ReplayTransport implements IsoDepTransport {
+        ReplayIsoDep(TechProfile profile) {
+            super(profile);
+        }
+
+        @Override
+        public boolean isExtendedLengthApduSupported() {
+            return profile.value1 != 0;
+        }
+
+        @Override
+        public byte[] getHistoricalBytes() {
+            return profile.first.clone();
+        }
+    }
+
+    // 區段配置依 MIFARE Classic 標準：前 32 區段各 4 區塊，之後各 16 區塊
+    private final class ReplayMifareClassic extends ReplayTransport implements MifareClassicTransport {
+        ReplayMifareClassic(TechProfile profile) {
+            super(profile);
+        }
+
+        @Override
+        public int getSize() {
+            return profile.value1;
+        }
+
+        @Override
+        public int getSectorCount() {
+            return profile.value2;
+        }
+
+        @Override
+        public int getBlockCount() {
+            return profile.value3;
+        }
+
+        @Override
+        public int getBlockCountInSector(int sectorIndex) {
+            return sectorIndex < MIFARE_SMALL_SECTORS ? MIFARE_SMALL_SECTOR_BLOCKS : MIFARE_LARGE_SECTOR_BLOCKS;
+        }
+
+        @Override
+        public int sectorToBlock(int sectorIndex) {
+            return sectorIndex < MIFARE_SMALL_SECTORS
+                    ? sectorIndex * MIFARE_SMALL_SECTOR_BLOCKS
+                    : MIFARE_SMALL_SECTORS * MIFARE_SMALL_SECTOR_BLOCKS
+                    + (sectorIndex - MIFARE_SMALL_SECTORS) * MIFARE_LARGE_SECTOR_BLOCKS;
+        }
+
+        @Override
+        public int blockToSector(int blockIndex) {
+            int small = MIFARE_SMALL_SECTORS * MIFARE_SMALL_SECTOR_BLOCKS;
+            return blockIndex < small
+                    ? blockIndex / MIFARE_SMALL_SECTOR_BLOCKS
+                    : MIFARE_SMALL_SECTORS + (blockIndex - small) / MIFARE_LARGE_SECTOR_BLOCKS;
+        }
+
+        @Override
+        public boolean authenticateSectorWithKeyA(int sectorIndex, byte[] key) throws IOException {
+            return next(TraceOp.AUTHENTICATE_A, tech(), sectorIndex, key).getStatus() == TraceEvent.STATUS_OK;
+        }
+
+        @Override
+        public boolean authenticateSectorWithKeyB(int sectorIndex, byte[] key) throws IOException {
+            return next(TraceOp.AUTHENTICATE_B, tech(), sectorIndex, key).getStatus() == TraceEvent.STATUS_OK;
+        }
+
+        @Override
+        public byte[] readBlock(int blockIndex) throws IOException {
+            return next(TraceOp.READ_BLOCK, tech(), blockIndex, null).getResponse().clone();
+        }
+
+        @Override
+        public void writeBlock(int blockIndex, byte[] data) throws IOException {
+            next(TraceOp.WRITE_BLOCK, tech(), blockIndex, data);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.smewise.nfcspeedtest.replay;
+
+// 重播時如何處理錄製的耗時
+public enum ReplayTiming {
+    // 立即回應，只驗證指令順序（單元測試）
+    ZERO("不延遲"),
+    // 累計錄製的耗時到虛擬時鐘，不實際等待（離線剖析與基準測試）
+    ORIGINAL("原始耗時（虛擬時間）"),
+    // 依錄製的耗時實際等待（端到端量測）
+    REAL_TIME("原始耗時（實際等待）");
+
+    private final String label;
+
+    ReplayTiming(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
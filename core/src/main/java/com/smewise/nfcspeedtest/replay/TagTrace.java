@@ -0,0 +1,201 @@
+package com.smewise.nfcspeedtest.replay;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 一次標籤工作階段錄下的所有操作（connect / transceive / readBlock / 認證 / NDEF 讀寫）與耗時，
+ * 可存成精簡的二進位檔，之後在 JVM 內以 ReplayTagEndpoint 重播。
+ */
+public final class TagTrace {
+    public static final String FILE_SUFFIX = ".nftr";
+    // summary 列出最慢的幾筆操作
+    private static final int SLOWEST = 5;
+
+    private final long recordedAtMillis;
+    private final byte[] uid;
+    private final String[] techList;
+    private final Map<TagTech, TechProfile> profiles;
+    private final List<TraceEvent> events;
+
+    TagTrace(long recordedAtMillis, byte[] uid, String[] techList, Map<TagTech, TechProfile> profiles,
+             List<TraceEvent> events) {
+        this.recordedAtMillis = recordedAtMillis;
+        this.uid = uid;
+        this.techList = techList;
+        this.profiles = profiles;
+        this.events = Collections.unmodifiableList(events);
+    }
+
+    public long getRecordedAtMillis() {
+        return recordedAtMillis;
+    }
+
+    public byte[] getUid() {
+        return uid.clone();
+    }
+
+    public String[] getTechList() {
+        return techList.clone();
+    }
+
+    public List<TraceEvent> getEvents() {
+        return events;
+    }
+
+    public int size() {
+        return events.size();
+    }
+
+    // 錄製時沒有取得過的技術回傳 null
+    TechProfile profile(TagTech tech) {
+        return profiles.get(tech);
+    }
+
+    // 所有操作耗時的合計（不含操作之間 App 自己的處理時間）
+    public long getTotalNanos() {
+        long total = 0;
+        for (TraceEvent e : events) {
+            total += e.getDurationNanos();
+        }
+        return total;
+    }
+
+    // 第一筆操作開始到最後一筆結束
+    public long getElapsedNanos() {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        TraceEvent last = events.get(events.size() - 1);
+        return last.getStartNanos() + last.getDurationNanos() - events.get(0).getStartNanos();
+    }
+
+    public void writeTo(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(TraceFormat.MAGIC);
+        out.writeByte(TraceFormat.VERSION);
+        out.writeLong(recordedAtMillis);
+        TraceFormat.writeBytes(out, uid);
+        TraceFormat.writeVarInt(out, techList.length);
+        for (String tech : techList) {
+            out.writeUTF(tech);
+        }
+        TraceFormat.writeVarInt(out, profiles.size());
+        for (TechProfile profile : profiles.values()) {
+            profile.writeTo(out);
+        }
+        TraceFormat.writeVarInt(out, events.size());
+        for (TraceEvent e : events) {
+            out.writeByte(e.getOp().code());
+            out.writeByte(e.getTech().ordinal());
+            out.writeByte(e.getStatus());
+            TraceFormat.writeVarLong(out, e.getStartNanos());
+            TraceFormat.writeVarLong(out, e.getDurationNanos());
+            TraceFormat.writeVarInt(out, e.getArg() + 1);
+            TraceFormat.writeBytes(out, e.getRequest());
+            TraceFormat.writeBytes(out, e.getResponse());
+        }
+        out.flush();
+    }
+
+    public static TagTrace readFrom(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != TraceFormat.MAGIC) {
+            throw new IOException("不是 trace 檔案");
+        }
+        int version = in.readUnsignedByte();
+        if (version != TraceFormat.VERSION) {
+            throw new IOException("不支援的 trace 版本: " + version);
+        }
+        long recordedAt = in.readLong();
+        byte[] uid = TraceFormat.readBytes(in);
+        String[] techList = new String[TraceFormat.readVarInt(in)];
+        for (int i = 0; i < techList.length; i++) {
+            techList[i] = in.readUTF();
+        }
+        Map<TagTech, TechProfile> profiles = new EnumMap<>(TagTech.class);
+        int profileCount = TraceFormat.readVarInt(in);
+        for (int i = 0; i < profileCount; i++) {
+            TechProfile profile = TechProfile.readFrom(in);
+            profiles.put(profile.tech, profile);
+        }
+        int count = TraceFormat.readVarInt(in);
+        List<TraceEvent> events = new ArrayList<>(Math.min(count, 4096));
+        for (int i = 0; i < count; i++) {
+            int code = in.readUnsignedByte();
+            TraceOp op = TraceOp.fromCode(code);
+            if (op == null) {
+                throw new IOException("第 " + i + " 筆操作種類未知: " + code);
+            }
+            TagTech tech = TraceFormat.readTech(in);
+            int status = in.readUnsignedByte();
+            long start = TraceFormat.readVarLong(in);
+            long duration = TraceFormat.readVarLong(in);
+            int arg = TraceFormat.readVarInt(in) - 1;
+            events.add(new TraceEvent(op, tech, status, start, duration, arg,
+                    TraceFormat.readBytes(in), TraceFormat.readBytes(in)));
+        }
+        return new TagTrace(recordedAt, uid, techList, profiles, events);
+    }
+
+    public void save(File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            writeTo(out);
+        }
+    }
+
+    public static TagTrace load(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return readFrom(in);
+        }
+    }
+
+    // 各操作的次數與耗時，加上最慢的幾筆
+    public String summary() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.US, "Trace %s: %d 筆操作，合計 %.2f ms / 全程 %.2f ms\n",
+                HexCodec.toDisplayHex(uid), events.size(), getTotalNanos() / 1e6, getElapsedNanos() / 1e6));
+        long[] counts = new long[TraceOp.values().length];
+        long[] nanos = new long[TraceOp.values().length];
+        int errors = 0;
+        for (TraceEvent e : events) {
+            counts[e.getOp().ordinal()]++;
+            nanos[e.getOp().ordinal()] += e.getDurationNanos();
+            if (e.isError()) {
+                errors++;
+            }
+        }
+        for (TraceOp op : TraceOp.values()) {
+            if (counts[op.ordinal()] > 0) {
+                sb.append(String.format(Locale.US, "%s: %d 次，%.2f ms（平均 %.3f ms）\n", op.label(),
+                        counts[op.ordinal()], nanos[op.ordinal()] / 1e6, nanos[op.ordinal()] / 1e6 / counts[op.ordinal()]));
+            }
+        }
+        if (errors > 0) {
+            sb.append("錯誤: ").append(errors).append(" 次\n");
+        }
+        List<TraceEvent> slowest = new ArrayList<>(events);
+        Collections.sort(slowest, (a, b) -> Long.compare(b.getDurationNanos(), a.getDurationNanos()));
+        sb.append("最慢:\n");
+        for (int i = 0; i < Math.min(SLOWEST, slowest.size()); i++) {
+            sb.append("  ").append(slowest.get(i)).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,104 @@
+package com.smewise.nfcspeedtest.replay;
+
+import com.smewise.nfcspeedtest.transport.IsoDepTransport;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.NfcBTransport;
+import com.smewise.nfcspeedtest.transport.NfcFTransport;
+import com.smewise.nfcspeedtest.transport.NfcVTransport;
+import com.smewise.nfcspeedtest.transport.TagTech;
+import com.smewise.nfcspeedtest.transport.TagTransport;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 單一技術不經 RF 的屬性（ATQA/SAK、PMm、容量等），重播時原樣回傳。
+ * 只寫入該技術有意義的欄位。
+ */
+final class TechProfile {
+    final TagTech tech;
+    int maxTransceiveLength;
+    // NfcA: ATQA；NfcB: application data；NfcF: manufacturer (PMm)；IsoDep: historical bytes
+    byte[] first = new byte[0];
+    // NfcB: protocol info；NfcF: system code
+    byte[] second = new byte[0];
+    // NfcA: SAK；NfcV: DSFID；IsoDep: 支援延伸長度；MIFARE: 容量；NDEF: 最大大小
+    int value1;
+    // NfcV: response flags；MIFARE: 區段數；NDEF: 可寫入
+    int value2;
+    // MIFARE: 區塊數
+    int value3;
+    // NDEF: 類型
+    String type = "";
+
+    TechProfile(TagTech tech) {
+        this.tech = tech;
+    }
+
+    static TechProfile capture(TagTransport t) {
+        TechProfile p = new TechProfile(t.tech());
+        p.maxTransceiveLength = t.getMaxTransceiveLength();
+        if (t instanceof NfcATransport) {
+            p.first = ((NfcATransport) t).getAtqa();
+            p.value1 = ((NfcATransport) t).getSak();
+        } else if (t instanceof NfcBTransport) {
+            p.first = ((NfcBTransport) t).getApplicationData();
+            p.second = ((NfcBTransport) t).getProtocolInfo();
+        } else if (t instanceof NfcFTransport) {
+            p.first = ((NfcFTransport) t).getManufacturer();
+            p.second = ((NfcFTransport) t).getSystemCode();
+        } else if (t instanceof NfcVTransport) {
+            p.value1 = ((NfcVTransport) t).getDsfId() & 0xFF;
+            p.value2 = ((NfcVTransport) t).getResponseFlags() & 0xFF;
+        } else if (t instanceof IsoDepTransport) {
+            p.first = ((IsoDepTransport) t).getHistoricalBytes();
+            p.value1 = ((IsoDepTransport) t).isExtendedLengthApduSupported() ? 1 : 0;
+        } else if (t instanceof MifareClassicTransport) {
+            MifareClassicTransport m = (MifareClassicTransport) t;
+            p.value1 = m.getSize();
+            p.value2 = m.getSectorCount();
+            p.value3 = m.getBlockCount();
+        } else if (t instanceof NdefTransport) {
+            NdefTransport n = (NdefTransport) t;
+            p.type = n.getType();
+            p.value1 = n.getMaxSize();
+            p.value2 = n.isWritable() ? 1 : 0;
+        }
+        if (p.first == null) {
+            p.first = new byte[0];
+        }
+        if (p.second == null) {
+            p.second = new byte[0];
+        }
+        if (p.type == null) {
+            p.type = "";
+        }
+        return p;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeByte(tech.ordinal());
+        TraceFormat.writeVarInt(out, maxTransceiveLength);
+        TraceFormat.writeBytes(out, first);
+        TraceFormat.writeBytes(out, second);
+        TraceFormat.writeVarInt(out, value1);
+        TraceFormat.writeVarInt(out, value2);
+        TraceFormat.writeVarInt(out, value3);
+        out.writeUTF(type);
+    }
+
+    static TechProfile readFrom(DataInput in) throws IOException {
+        TechProfile p = new TechProfile(TraceFormat.readTech(in));
+        p.maxTransceiveLength = TraceFormat.readVarInt(in);
+        p.first = TraceFormat.readBytes(in);
+        p.second = TraceFormat.readBytes(in);
+        p.value1 = TraceFormat.readVarInt(in);
+        p.value2 = TraceFormat.readVarInt(in);
+        p.value3 = TraceFormat.readVarInt(in);
+        p.type = in.readUTF();
+        return p;
+    }
+}
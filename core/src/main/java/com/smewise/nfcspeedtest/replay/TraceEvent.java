@@ -0,0 +1,104 @@
+package com.smewise.nfcspeedtest.replay;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * trace 內的一筆操作：指令、回應與耗時。
+ * 失敗的操作以 status 區分，response 為錯誤訊息（UTF-8）；認證失敗（回傳 false）不是錯誤。
+ */
+public final class TraceEvent {
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_FALSE = 1;
+    public static final int STATUS_IO_ERROR = 2;
+    public static final int STATUS_TAG_LOST = 3;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final TraceOp op;
+    private final TagTech tech;
+    private final int status;
+    private final long startNanos;
+    private final long durationNanos;
+    private final int arg;
+    private final byte[] request;
+    private final byte[] response;
+
+    TraceEvent(TraceOp op, TagTech tech, int status, long startNanos, long durationNanos, int arg,
+               byte[] request, byte[] response) {
+        this.op = op;
+        this.tech = tech;
+        this.status = status;
+        this.startNanos = startNanos;
+        this.durationNanos = durationNanos;
+        this.arg = arg;
+        this.request = request == null ? EMPTY : request;
+        this.response = response == null ? EMPTY : response;
+    }
+
+    public TraceOp getOp() {
+        return op;
+    }
+
+    public TagTech getTech() {
+        return tech;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public boolean isError() {
+        return status == STATUS_IO_ERROR || status == STATUS_TAG_LOST;
+    }
+
+    // 相對於錄製開始的時間
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    // readBlock / writeBlock 的區塊編號、認證的區段編號；其他操作為 -1
+    public int getArg() {
+        return arg;
+    }
+
+    // 不複製；呼叫端不可修改
+    public byte[] getRequest() {
+        return request;
+    }
+
+    public byte[] getResponse() {
+        return response;
+    }
+
+    public String getErrorMessage() {
+        return isError() ? new String(response, StandardCharsets.UTF_8) : null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.US, "%9.3f ms %-15s %s",
+                durationNanos / 1e6, op.label(), tech.simpleName()));
+        if (arg >= 0) {
+            sb.append(" #").append(arg);
+        }
+        if (request.length > 0 && op != TraceOp.AUTHENTICATE_A && op != TraceOp.AUTHENTICATE_B) {
+            sb.append(" > ").append(HexCodec.toHex(request));
+        }
+        if (isError()) {
+            sb.append(" ! ").append(getErrorMessage());
+        } else if (status == STATUS_FALSE) {
+            sb.append(" = false");
+        } else if (response.length > 0) {
+            sb.append(" < ").append(HexCodec.toHex(response));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package com.smewise.nfcspeedtest.replay;
+
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * trace 檔案（.nftr）格式，所有整數為無號 varint（每 byte 7 bits，低位在前）：
+ * <pre>
+ * header : magic "NFTR" (4) | version (1) | 錄製時間 epoch ms (8) | UID | tech list | 技術屬性
+ * event  : op (1) | tech (1) | status (1) | start ns | duration ns | arg + 1 | request | response
+ * </pre>
+ * 位元組陣列以 varint 長度開頭；tech 為 TagTech 的 ordinal。
+ */
+final class TraceFormat {
+    static final int MAGIC = 0x4E465452;
+    static final int VERSION = 1;
+    // 單一欄位上限，避免毀損的檔案配置過大的陣列
+    static final int MAX_BYTES = 1 << 20;
+
+    private TraceFormat() {
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("varint 不可為負數: " + value);
+        }
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint 過長");
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        writeVarLong(out, value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("數值超出範圍: " + value);
+        }
+        return (int) value;
+    }
+
+    static void writeBytes(DataOutput out, byte[] data) throws IOException {
+        writeVarInt(out, data.length);
+        out.write(data);
+    }
+
+    static byte[] readBytes(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length > MAX_BYTES) {
+            throw new IOException("欄位長度過大: " + length);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return data;
+    }
+
+    static TagTech readTech(DataInput in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= TagTech.values().length) {
+            throw new IOException("未知的技術: " + ordinal);
+        }
+        return TagTech.values()[ordinal];
+    }
+}
@@ -0,0 +1,40 @@
+package com.smewise.nfcspeedtest.replay;
+
+// trace 內的操作種類；code 寫入檔案，不可更動既有的值
+public enum TraceOp {
+    CONNECT(1, "connect"),
+    CLOSE(2, "close"),
+    TRANSCEIVE(3, "transceive"),
+    AUTHENTICATE_A(4, "authenticate A"),
+    AUTHENTICATE_B(5, "authenticate B"),
+    READ_BLOCK(6, "readBlock"),
+    WRITE_BLOCK(7, "writeBlock"),
+    NDEF_READ(8, "NDEF read"),
+    NDEF_WRITE(9, "NDEF write");
+
+    private final int code;
+    private final String label;
+
+    TraceOp(int code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    // 未知的 code 回傳 null
+    public static TraceOp fromCode(int code) {
+        for (TraceOp op : values()) {
+            if (op.code == code) {
+                return op;
+            }
+        }
+        return null;
+    }
+}
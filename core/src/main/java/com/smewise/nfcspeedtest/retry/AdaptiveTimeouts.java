@@ -0,0 +1,137 @@
+package com.smewise.nfcspeedtest.retry;
+
+import com.smewise.nfcspeedtest.trace.LatencyHistogram;
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 依實際量到的延遲推出各技術、各指令的逾時。只記錄成功的指令（逾時的樣本會把逾時越推越長）。
+ * 指令碼與 LatencyModel 相同：NFC-A / FeliCa / ISO 15693 為指令位元組、ISO-DEP 為 INS、
+ * MIFARE Classic 為 0x60/0x61/0x30/0xA0。
+ * 指令樣本足夠時用該指令的分位數；否則退回技術層級的最大延遲（同技術的其他指令可能較慢，不用分位數）；
+ * 都不足時用初始逾時。跨工作階段共用，record 與 timeoutFor 可由不同執行緒呼叫。
+ */
+public class AdaptiveTimeouts {
+    // 每多幾個樣本才重新計算一次分位數
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final RetryPolicy policy;
+    private final Map<Integer, Stats> commands = new ConcurrentHashMap<>();
+    private final Stats[] techs = new Stats[TagTech.values().length];
+
+    public AdaptiveTimeouts(RetryPolicy policy) {
+        this.policy = policy;
+        for (int i = 0; i < techs.length; i++) {
+            techs[i] = new Stats(100);
+        }
+    }
+
+    public RetryPolicy getPolicy() {
+        return policy;
+    }
+
+    private static int key(TagTech tech, int command) {
+        return tech.ordinal() << 8 | (command & 0xFF);
+    }
+
+    public void record(TagTech tech, int command, long nanos) {
+        Stats stats = commands.get(key(tech, command));
+        if (stats == null) {
+            stats = commands.computeIfAbsent(key(tech, command), k -> new Stats(policy.getTimeoutPercentile()));
+        }
+        stats.histogram.record(nanos);
+        techs[tech.ordinal()].histogram.record(nanos);
+    }
+
+    // 這個指令在這支手機上成功過（代表標籤支援，失敗才可能是暫時性的）
+    public boolean hasSucceeded(TagTech tech, int command) {
+        Stats stats = commands.get(key(tech, command));
+        return stats != null && stats.histogram.getCount() > 0;
+    }
+
+    public int timeoutFor(TagTech tech, int command) {
+        return timeoutFor(tech, command, policy.getInitialTimeoutMillis(tech));
+    }
+
+    // fallbackMillis：樣本不足時使用（例如呼叫端自行設定的逾時）
+    public int timeoutFor(TagTech tech, int command, int fallbackMillis) {
+        Stats stats = commands.get(key(tech, command));
+        int timeout = stats == null ? 0 : stats.timeout();
+        if (timeout == 0) {
+            timeout = techs[tech.ordinal()].timeout();
+        }
+        return timeout != 0 ? timeout : fallbackMillis;
+    }
+
+    public void reset() {
+        commands.clear();
+        for (Stats stats : techs) {
+            stats.reset();
+        }
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder("自適應逾時 (ms)\n");
+        Map<Integer, Stats> sorted = new TreeMap<>(commands);
+        for (TagTech tech : TagTech.values()) {
+            Stats stats = techs[tech.ordinal()];
+            if (stats.histogram.getCount() == 0) {
+                continue;
+            }
+            sb.append(tech.simpleName()).append(" n=").append(stats.histogram.getCount()).append(" max=");
+            SessionTrace.appendMillis(sb, stats.histogram.getMax());
+            int techTimeout = stats.timeout();
+            sb.append(" 其他指令逾時=").append(techTimeout != 0 ? techTimeout : policy.getInitialTimeoutMillis(tech))
+                    .append('\n');
+            for (Map.Entry<Integer, Stats> e : sorted.entrySet()) {
+                if (e.getKey() >>> 8 != tech.ordinal()) {
+                    continue;
+                }
+                LatencyHistogram h = e.getValue().histogram;
+                sb.append(String.format("  0x%02X n=%d p%d=", e.getKey() & 0xFF, h.getCount(),
+                        (int) policy.getTimeoutPercentile()));
+                SessionTrace.appendMillis(sb, h.getPercentile(policy.getTimeoutPercentile()));
+                sb.append(" 逾時=").append(timeoutFor(tech, e.getKey() & 0xFF)).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private final class Stats {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        private final double percentile;
+        // 0 代表樣本不足
+        private volatile int timeoutMillis;
+        private long computedAt;
+
+        Stats(double percentile) {
+            this.percentile = percentile;
+        }
+
+        int timeout() {
+            long count = histogram.getCount();
+            if (count < policy.getMinSamples()) {
+                return 0;
+            }
+            int timeout = timeoutMillis;
+            if (timeout == 0 || count - computedAt >= RECOMPUTE_EVERY) {
+                synchronized (this) {
+                    timeout = policy.timeoutFor(histogram.getPercentile(percentile));
+                    timeoutMillis = timeout;
+                    computedAt = count;
+                }
+            }
+            return timeout;
+        }
+
+        synchronized void reset() {
+            histogram.reset();
+            timeoutMillis = 0;
+            computedAt = 0;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.smewise.nfcspeedtest.retry;
+
+import com.smewise.nfcspeedtest.trace.NanoClock;
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+import com.smewise.nfcspeedtest.transport.TagEndpoint;
+import com.smewise.nfcspeedtest.transport.sim.LatencyModel;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedTag;
+
+import java.io.IOException;
+
+/**
+ * 在會遺失 frame 的模擬連線上，比較目前的做法與 ResilientTagEndpoint 完成同樣 N 次靠卡所花的時間
+ * （虛擬的 RF 時間加上退避等待）。目前的做法：不設定逾時（遺失的 frame 等滿 Android 預設逾時）、不重試，
+ * 讀取失敗就重新靠卡整個重做；標籤移開後仍繼續嘗試其餘技術。兩種做法的每次靠卡使用相同的亂數種子。
+ * latency 應為不含亂數的模型（例如 linear），否則兩種做法量到的延遲不同，比較會混入抖動。
+ */
+public final class LossyLinkComparison {
+
+    /**
+     * 一次靠卡的讀取流程。回傳 false 或拋出 IOException 代表結果不完整，使用者會重新靠卡；
+     * 標籤被移開（tag.remove()，用來模擬中途移開）時這次靠卡結束，不再重靠。
+     */
+    public interface Scenario {
+
+        SimulatedTag newTag(SimulatedLink link);
+
+        boolean run(TagEndpoint endpoint, SimulatedTag tag, int session) throws IOException;
+    }
+
+    private final LatencyModel latency;
+    private final double lossRate;
+    private final RetryPolicy policy;
+    private int sessions = 200;
+    private int maxTaps = 5;
+    private long seed = 1;
+
+    public LossyLinkComparison(LatencyModel latency, double lossRate, RetryPolicy policy) {
+        if (lossRate < 0 || lossRate >= 1) {
+            throw new IllegalArgumentException("遺失率需介於 0~1: " + lossRate);
+        }
+        this.latency = latency;
+        this.lossRate = lossRate;
+        this.policy = policy;
+    }
+
+    public LossyLinkComparison setSessions(int sessions) {
+        if (sessions < 1) {
+            throw new IllegalArgumentException("靠卡次數需大於 0: " + sessions);
+        }
+        this.sessions = sessions;
+        return this;
+    }
+
+    // 同一次靠卡最多重新靠幾次，超過就算失敗
+    public LossyLinkComparison setMaxTaps(int maxTaps) {
+        if (maxTaps < 1) {
+            throw new IllegalArgumentException("靠卡次數需大於 0: " + maxTaps);
+        }
+        this.maxTaps = maxTaps;
+        return this;
+    }
+
+    public LossyLinkComparison setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public Result run(Scenario scenario) {
+        Result result = new Result(sessions, lossRate);
+        runMode(scenario, null, result.baseline);
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts(policy);
+        runMode(scenario, timeouts, result.resilient);
+        result.timeouts = timeouts;
+        return result;
+    }
+
+    // timeouts 為 null 時代表目前的做法；自適應逾時跨靠卡累積，與 App 內相同
+    private void runMode(Scenario scenario, AdaptiveTimeouts timeouts, Totals totals) {
+        for (int i = 0; i < sessions; i++) {
+            SimulatedLink link = SimulatedLink.virtual(LatencyModel.lossy(latency, lossRate, seed * 1_000_003L + i));
+            SimulatedTag tag = scenario.newTag(link);
+            long[] slept = new long[1];
+            NanoClock clock = () -> link.getRfNanos() + slept[0];
+            boolean done = false;
+            for (int tap = 1; tap <= maxTaps && !done; tap++) {
+                totals.taps++;
+                if (tap > 1) {
+                    tag.reenter();
+                }
+                TagEndpoint endpoint = timeouts == null ? tag
+                        : new ResilientTagEndpoint(tag, timeouts, totals.stats, clock, nanos -> slept[0] += nanos);
+                try {
+                    done = scenario.run(endpoint, tag, i);
+                } catch (IOException e) {
+                    // 與錯誤訊息一起顯示，使用者重新靠卡
+                }
+                // 標籤移開（不論流程是否察覺）代表使用者已離開，這次靠卡結束
+                if (!tag.isPresent()) {
+                    totals.lost++;
+                    break;
+                }
+            }
+            if (done) {
+                totals.completed++;
+            }
+            totals.nanos += clock.nanoTime();
+        }
+    }
+
+    static final class Totals {
+        final RetryStats stats = new RetryStats();
+        long nanos;
+        int taps;
+        int completed;
+        int lost;
+    }
+
+    public static final class Result {
+        private final int sessions;
+        private final double lossRate;
+        final Totals baseline = new Totals();
+        final Totals resilient = new Totals();
+        AdaptiveTimeouts timeouts;
+
+        Result(int sessions, double lossRate) {
+            this.sessions = sessions;
+            this.lossRate = lossRate;
+        }
+
+        public long getBaselineNanos() {
+            return baseline.nanos;
+        }
+
+        public long getResilientNanos() {
+            return resilient.nanos;
+        }
+
+        // 省下的時間；負值代表比目前的做法慢
+        public long getSavedNanos() {
+            return baseline.nanos - resilient.nanos;
+        }
+
+        public int getBaselineTaps() {
+            return baseline.taps;
+        }
+
+        public int getResilientTaps() {
+            return resilient.taps;
+        }
+
+        public int getBaselineCompleted() {
+            return baseline.completed;
+        }
+
+        public int getResilientCompleted() {
+            return resilient.completed;
+        }
+
+        public RetryStats getRetryStats() {
+            return resilient.stats;
+        }
+
+        public AdaptiveTimeouts getTimeouts() {
+            return timeouts;
+        }
+
+        public String summary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("遺失率 %.1f%%，%d 次靠卡\n", lossRate * 100, sessions));
+            appendLine(sb, "目前做法", baseline);
+            appendLine(sb, "逾時/重試", resilient);
+            long saved = getSavedNanos();
+            sb.append(saved >= 0 ? "省下 " : "多花 ");
+            SessionTrace.appendMillis(sb, Math.abs(saved));
+            if (baseline.nanos > 0) {
+                sb.append(String.format("（%.1f%%）", 100.0 * Math.abs(saved) / baseline.nanos));
+            }
+            sb.append('\n').append(resilient.stats.summary());
+            return sb.toString();
+        }
+
+        private static void appendLine(StringBuilder sb, String label, Totals totals) {
+            sb.append(label).append(": ");
+            SessionTrace.appendMillis(sb, totals.nanos);
+            sb.append("，實際靠卡 ").append(totals.taps).append(" 次，完成 ").append(totals.completed)
+                    .append("，標籤移開 ").append(totals.lost).append('\n');
+        }
+    }
+}
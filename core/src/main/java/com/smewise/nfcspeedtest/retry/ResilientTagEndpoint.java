@@ -0,0 +1,442 @@
+package com.smewise.nfcspeedtest.retry;
+
+import com.smewise.nfcspeedtest.trace.NanoClock;
+import com.smewise.nfcspeedtest.transport.IsoDepTransport;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.NfcBTransport;
+import com.smewise.nfcspeedtest.transport.NfcFTransport;
+import com.smewise.nfcspeedtest.transport.NfcVTransport;
+import com.smewise.nfcspeedtest.transport.TagEndpoint;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+import com.smewise.nfcspeedtest.transport.TagTech;
+import com.smewise.nfcspeedtest.transport.TagTransport;
+
+import java.io.IOException;
+
+/**
+ * 包裝 TagEndpoint：每個指令送出前依 AdaptiveTimeouts 設定逾時，暫時性錯誤以退避重試，
+ * 標籤遺失後其餘操作一律直接拋出 TagLostException，不再對已離開的標籤等待逾時。
+ * 只重試這支手機上成功過的指令：沒成功過的（例如探測 GET_VERSION）失敗多半是不支援，重試只會浪費時間。
+ * MIFARE Classic 的讀寫失敗後認證狀態已失效，不重試；NDEF 讀寫由 Android 內部處理，只追蹤標籤遺失。
+ * ISO-DEP 的回應遺失時卡片可能已執行過指令，只重試不改變卡片狀態的 SELECT 與 READ BINARY。
+ * 一個工作階段一個實例，只在 NFC I/O 執行緒使用。
+ */
+public class ResilientTagEndpoint implements TagEndpoint {
+    // 沒有指令碼的操作（connect、NDEF 讀寫）不設定逾時也不記錄延遲
+    private static final int NO_COMMAND = -1;
+    private static final int MIFARE_AUTH_A = 0x60;
+    private static final int MIFARE_AUTH_B = 0x61;
+    private static final int MIFARE_READ = 0x30;
+    private static final int MIFARE_WRITE = 0xA0;
+    private static final int INS_SELECT = 0xA4;
+    private static final int INS_READ_BINARY = 0xB0;
+    // CLA 的 command chaining 位元：後續片段依賴卡片已收到前一段，不可重送
+    private static final int CLA_CHAINING = 0x10;
+
+    private final TagEndpoint delegate;
+    private final AdaptiveTimeouts timeouts;
+    private final RetryPolicy policy;
+    private final RetryStats stats;
+    private final NanoClock clock;
+    private final Sleeper sleeper;
+    private boolean lost;
+
+    public ResilientTagEndpoint(TagEndpoint delegate, AdaptiveTimeouts timeouts, RetryStats stats, NanoClock clock) {
+        this(delegate, timeouts, stats, clock, Sleeper.SYSTEM);
+    }
+
+    public ResilientTagEndpoint(TagEndpoint delegate, AdaptiveTimeouts timeouts, RetryStats stats,
+                                NanoClock clock, Sleeper sleeper) {
+        this.delegate = delegate;
+        this.timeouts = timeouts;
+        this.policy = timeouts.getPolicy();
+        this.stats = stats;
+        this.clock = clock;
+        this.sleeper = sleeper;
+    }
+
+    public TagEndpoint getDelegate() {
+        return delegate;
+    }
+
+    public boolean isTagLost() {
+        return lost;
+    }
+
+    // 讀取流程在各技術之間呼叫：標籤已遺失就中止，不再嘗試剩下的技術
+    public void checkPresent() throws TagLostException {
+        if (lost) {
+            throw new TagLostException();
+        }
+    }
+
+    @Override
+    public byte[] getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public String[] getTechList() {
+        return delegate.getTechList();
+    }
+
+    @Override
+    public boolean supports(TagTech tech) {
+        return delegate.supports(tech);
+    }
+
+    @Override
+    public NdefTransport ndef() {
+        NdefTransport t = delegate.ndef();
+        return t == null ? null : new ResilientNdef(t);
+    }
+
+    @Override
+    public NfcATransport nfcA() {
+        NfcATransport t = delegate.nfcA();
+        return t == null ? null : new ResilientNfcA(t);
+    }
+
+    @Override
+    public NfcBTransport nfcB() {
+        NfcBTransport t = delegate.nfcB();
+        return t == null ? null : new ResilientNfcB(t);
+    }
+
+    @Override
+    public NfcFTransport nfcF() {
+        NfcFTransport t = delegate.nfcF();
+        return t == null ? null : new ResilientNfcF(t);
+    }
+
+    @Override
+    public NfcVTransport nfcV() {
+        NfcVTransport t = delegate.nfcV();
+        return t == null ? null : new ResilientNfcV(t);
+    }
+
+    @Override
+    public IsoDepTransport isoDep() {
+        IsoDepTransport t = delegate.isoDep();
+        return t == null ? null : new ResilientIsoDep(t);
+    }
+
+    @Override
+    public MifareClassicTransport mifareClassic() {
+        MifareClassicTransport t = delegate.mifareClassic();
+        return t == null ? null : new ResilientMifareClassic(t);
+    }
+
+    private interface Call<R> {
+        R run() throws IOException;
+    }
+
+    private class Resilient<T extends TagTransport> implements TagTransport {
+        final T t;
+        // 呼叫端自行設定的逾時，樣本不足時取代初始逾時；-1 代表未設定
+        private int requestedTimeout = -1;
+        // 最後一次實際設定到標籤的逾時，相同時不重複呼叫 setTimeout
+        private int appliedTimeout = -1;
+
+        Resilient(T t) {
+            this.t = t;
+        }
+
+        // 各技術的指令碼，與 LatencyModel 相同
+        int commandOf(byte[] data) {
+            return data.length > 0 ? data[0] & 0xFF : 0;
+        }
+
+        // 回應遺失後重送是否安全
+        boolean isIdempotent(byte[] data) {
+            return true;
+        }
+
+        <R> R call(int command, boolean retryable, Call<R> call) throws IOException {
+            if (lost) {
+                stats.onSkipped();
+                throw new TagLostException();
+            }
+            TagTech tech = t.tech();
+            if (command != NO_COMMAND) {
+                int timeout = timeouts.timeoutFor(tech, command,
+                        requestedTimeout > 0 ? requestedTimeout : policy.getInitialTimeoutMillis(tech));
+                if (timeout != appliedTimeout) {
+                    t.setTimeout(timeout);
+                    appliedTimeout = timeout;
+                }
+            }
+            stats.onOperation();
+            for (int attempt = 1; ; attempt++) {
+                long start = clock.nanoTime();
+                try {
+                    R result = call.run();
+                    if (command != NO_COMMAND) {
+                        timeouts.record(tech, command, clock.nanoTime() - start);
+                    }
+                    if (attempt > 1) {
+                        stats.onRecovered();
+                    }
+                    return result;
+                } catch (TagLostException e) {
+                    lost = true;
+                    stats.onTagLost();
+                    throw e;
+                } catch (IOException e) {
+                    boolean transientError = retryable
+                            && (command == NO_COMMAND || timeouts.hasSucceeded(tech, command));
+                    if (!transientError || attempt >= policy.getMaxAttempts()) {
+                        if (attempt > 1) {
+                            stats.onExhausted();
+                        }
+                        throw e;
+                    }
+                    long backoff = policy.backoffNanos(attempt);
+                    stats.onRetry(backoff);
+                    sleeper.sleep(backoff);
+                }
+            }
+        }
+
+        @Override
+        public TagTech tech() {
+            return t.tech();
+        }
+
+        @Override
+        public void connect() throws IOException {
+            call(NO_COMMAND, true, () -> {
+                t.connect();
+                return null;
+            });
+        }
+
+        @Override
+        public boolean isConnected() {
+            return !lost && t.isConnected();
+        }
+
+        @Override
+        public byte[] transceive(byte[] data) throws IOException {
+            return call(commandOf(data), isIdempotent(data), () -> t.transceive(data));
+        }
+
+        @Override
+        public int getMaxTransceiveLength() {
+            return t.getMaxTransceiveLength();
+        }
+
+        @Override
+        public void setTimeout(int timeoutMs) {
+            requestedTimeout = timeoutMs;
+        }
+
+        @Override
+        public int getTimeout() {
+            return appliedTimeout > 0 ? appliedTimeout : t.getTimeout();
+        }
+
+        @Override
+        public void close() throws IOException {
+            t.close();
+        }
+    }
+
+    // FeliCa、ISO 15693 的第一個位元組是長度 / 旗標，ISO-DEP 的第一個位元組是 CLA，指令碼都在第二個位元組
+    private class ResilientSecondByte<T extends TagTransport> extends Resilient<T> {
+        ResilientSecondByte(T t) {
+            super(t);
+        }
+
+        @Override
+        int commandOf(byte[] data) {
+            return data.length > 1 ? data[1] & 0xFF : 0;
+        }
+    }
+
+    private final class ResilientNdef extends Resilient<NdefTransport> implements NdefTransport {
+        ResilientNdef(NdefTransport t) {
+            super(t);
+        }
+
+        @Override
+        public String getType() {
+            return t.getType();
+        }
+
+        @Override
+        public int getMaxSize() {
+            return t.getMaxSize();
+        }
+
+        @Override
+        public boolean isWritable() {
+            return t.isWritable();
+        }
+
+        @Override
+        public byte[] readNdefMessage() throws IOException {
+            return call(NO_COMMAND, false, t::readNdefMessage);
+        }
+
+        @Override
+        public void writeNdefMessage(byte[] message) throws IOException {
+            call(NO_COMMAND, false, () -> {
+                t.writeNdefMessage(message);
+                return null;
+            });
+        }
+    }
+
+    private final class ResilientNfcA extends Resilient<NfcATransport> implements NfcATransport {
+        ResilientNfcA(NfcATransport t) {
+            super(t);
+        }
+
+        @Override
+        public byte[] getAtqa() {
+            return t.getAtqa();
+        }
+
+        @Override
+        public short getSak() {
+            return t.getSak();
+        }
+    }
+
+    private final class ResilientNfcB extends Resilient<NfcBTransport> implements NfcBTransport {
+        ResilientNfcB(NfcBTransport t) {
+            super(t);
+        }
+
+        @Override
+        public byte[] getApplicationData() {
+            return t.getApplicationData();
+        }
+
+        @Override
+        public byte[] getProtocolInfo() {
+            return t.getProtocolInfo();
+        }
+    }
+
+    private final class ResilientNfcF extends ResilientSecondByte<NfcFTransport> implements NfcFTransport {
+        ResilientNfcF(NfcFTransport t) {
+            super(t);
+        }
+
+        @Override
+        public byte[] getManufacturer() {
+            return t.getManufacturer();
+        }
+
+        @Override
+        public byte[] getSystemCode() {
+            return t.getSystemCode();
+        }
+    }
+
+    private final class ResilientNfcV extends ResilientSecondByte<NfcVTransport> implements NfcVTransport {
+        ResilientNfcV(NfcVTransport t) {
+            super(t);
+        }
+
+        @Override
+        public byte getDsfId() {
+            return t.getDsfId();
+        }
+
+        @Override
+        public byte getResponseFlags() {
+            return t.getResponseFlags();
+        }
+    }
+
+    private final class ResilientIsoDep extends ResilientSecondByte<IsoDepTransport> implements IsoDepTransport {
+        ResilientIsoDep(IsoDepTransport t) {
+            super(t);
+        }
+
+        // 扣款、UPDATE、GET RESPONSE 等重送會重複執行或取得錯誤的資料
+        @Override
+        boolean isIdempotent(byte[] apdu) {
+            if (apdu.length < 2 || (apdu[0] & CLA_CHAINING) != 0) {
+                return false;
+            }
+            int ins = apdu[1] & 0xFF;
+            return ins == INS_SELECT || ins == INS_READ_BINARY;
+        }
+
+        @Override
+        public boolean isExtendedLengthApduSupported() {
+            return t.isExtendedLengthApduSupported();
+        }
+
+        @Override
+        public byte[] getHistoricalBytes() {
+            return t.getHistoricalBytes();
+        }
+    }
+
+    private final class ResilientMifareClassic extends Resilient<MifareClassicTransport>
+            implements MifareClassicTransport {
+        ResilientMifareClassic(MifareClassicTransport t) {
+            super(t);
+        }
+
+        @Override
+        public int getSize() {
+            return t.getSize();
+        }
+
+        @Override
+        public int getSectorCount() {
+            return t.getSectorCount();
+        }
+
+        @Override
+        public int getBlockCount() {
+            return t.getBlockCount();
+        }
+
+        @Override
+        public int getBlockCountInSector(int sectorIndex) {
+            return t.getBlockCountInSector(sectorIndex);
+        }
+
+        @Override
+        public int sectorToBlock(int sectorIndex) {
+            return t.sectorToBlock(sectorIndex);
+        }
+
+        @Override
+        public int blockToSector(int blockIndex) {
+            return t.blockToSector(blockIndex);
+        }
+
+        @Override
+        public boolean authenticateSectorWithKeyA(int sectorIndex, byte[] key) throws IOException {
+            return call(MIFARE_AUTH_A, true, () -> t.authenticateSectorWithKeyA(sectorIndex, key));
+        }
+
+        @Override
+        public boolean authenticateSectorWithKeyB(int sectorIndex, byte[] key) throws IOException {
+            return call(MIFARE_AUTH_B, true, () -> t.authenticateSectorWithKeyB(sectorIndex, key));
+        }
+
+        @Override
+        public byte[] readBlock(int blockIndex) throws IOException {
+            return call(MIFARE_READ, false, () -> t.readBlock(blockIndex));
+        }
+
+        @Override
+        public void writeBlock(int blockIndex, byte[] data) throws IOException {
+            call(MIFARE_WRITE, false, () -> {
+                t.writeBlock(blockIndex, data);
+                return null;
+            });
+        }
+    }
+}
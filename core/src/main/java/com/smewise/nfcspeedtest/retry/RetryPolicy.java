@@ -0,0 +1,125 @@
+package com.smewise.nfcspeedtest.retry;
+
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+/**
+ * 逾時與重試設定。逾時 = 該指令延遲的 p{percentile} × factor，限制在 [min, max] ms；
+ * 樣本不足時改用技術層級的統計，再不足則用各技術的初始逾時（預設與 Android 相同）。
+ * 暫時性錯誤最多嘗試 maxAttempts 次，每次之間以指數退避等待，退避上限為 maxBackoffMillis。
+ */
+public class RetryPolicy {
+    private int maxAttempts = 3;
+    private long initialBackoffMillis = 2;
+    private long maxBackoffMillis = 20;
+    private double timeoutPercentile = 99;
+    private double timeoutFactor = 2.0;
+    private int minTimeoutMillis = 20;
+    private int maxTimeoutMillis = 1000;
+    private int minSamples = 20;
+    private final int[] initialTimeoutMillis = new int[TagTech.values().length];
+
+    public RetryPolicy() {
+        // Android 各技術的預設 transceive 逾時
+        for (TagTech tech : TagTech.values()) {
+            initialTimeoutMillis[tech.ordinal()] = 618;
+        }
+        initialTimeoutMillis[TagTech.NFC_F.ordinal()] = 255;
+    }
+
+    public RetryPolicy setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("嘗試次數需大於 0: " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    public RetryPolicy setBackoffMillis(long initialBackoffMillis, long maxBackoffMillis) {
+        if (initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis) {
+            throw new IllegalArgumentException("退避時間設定錯誤: " + initialBackoffMillis + " ~ " + maxBackoffMillis);
+        }
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        return this;
+    }
+
+    public RetryPolicy setTimeoutPercentile(double timeoutPercentile) {
+        if (timeoutPercentile <= 0 || timeoutPercentile > 100) {
+            throw new IllegalArgumentException("分位數需介於 0~100: " + timeoutPercentile);
+        }
+        this.timeoutPercentile = timeoutPercentile;
+        return this;
+    }
+
+    // 分位數延遲乘上的餘裕倍數
+    public RetryPolicy setTimeoutFactor(double timeoutFactor) {
+        if (timeoutFactor < 1) {
+            throw new IllegalArgumentException("逾時倍數不可小於 1: " + timeoutFactor);
+        }
+        this.timeoutFactor = timeoutFactor;
+        return this;
+    }
+
+    public RetryPolicy setTimeoutBounds(int minTimeoutMillis, int maxTimeoutMillis) {
+        if (minTimeoutMillis < 1 || maxTimeoutMillis < minTimeoutMillis) {
+            throw new IllegalArgumentException("逾時範圍設定錯誤: " + minTimeoutMillis + " ~ " + maxTimeoutMillis);
+        }
+        this.minTimeoutMillis = minTimeoutMillis;
+        this.maxTimeoutMillis = maxTimeoutMillis;
+        return this;
+    }
+
+    // 累積多少個樣本後才以統計值取代初始逾時
+    public RetryPolicy setMinSamples(int minSamples) {
+        if (minSamples < 1) {
+            throw new IllegalArgumentException("樣本數需大於 0: " + minSamples);
+        }
+        this.minSamples = minSamples;
+        return this;
+    }
+
+    public RetryPolicy setInitialTimeoutMillis(TagTech tech, int timeoutMillis) {
+        if (timeoutMillis < 1) {
+            throw new IllegalArgumentException("逾時需大於 0: " + timeoutMillis);
+        }
+        initialTimeoutMillis[tech.ordinal()] = timeoutMillis;
+        return this;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    // 第 retry 次重試（從 1 開始）前的等待時間
+    public long backoffNanos(int retry) {
+        long millis = initialBackoffMillis;
+        for (int i = 1; i < retry && millis < maxBackoffMillis; i++) {
+            millis *= 2;
+        }
+        return Math.min(millis, maxBackoffMillis) * 1_000_000L;
+    }
+
+    public double getTimeoutPercentile() {
+        return timeoutPercentile;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public int getInitialTimeoutMillis(TagTech tech) {
+        return initialTimeoutMillis[tech.ordinal()];
+    }
+
+    // 由分位數延遲推出逾時（無條件進位到 ms）
+    public int timeoutFor(long percentileNanos) {
+        long millis = (long) Math.ceil(percentileNanos * timeoutFactor / 1_000_000.0);
+        return (int) Math.max(minTimeoutMillis, Math.min(maxTimeoutMillis, millis));
+    }
+
+    public String describe() {
+        return "最多 " + maxAttempts + " 次，退避 " + initialBackoffMillis + "~" + maxBackoffMillis
+                + " ms，逾時 p" + (int) timeoutPercentile + " × " + timeoutFactor
+                + "（" + minTimeoutMillis + "~" + maxTimeoutMillis + " ms，" + minSamples + " 個樣本後生效）";
+    }
+}
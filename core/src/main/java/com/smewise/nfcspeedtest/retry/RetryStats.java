@@ -0,0 +1,95 @@
+package com.smewise.nfcspeedtest.retry;
+
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 重試與標籤遺失的累計次數，跨工作階段共用；I/O 執行緒累加，UI 執行緒顯示。
+ */
+public class RetryStats {
+    private final AtomicLong operations = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong backoffNanos = new AtomicLong();
+    private final AtomicLong tagLost = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    void onOperation() {
+        operations.incrementAndGet();
+    }
+
+    void onRetry(long backoff) {
+        retries.incrementAndGet();
+        backoffNanos.addAndGet(backoff);
+    }
+
+    void onRecovered() {
+        recovered.incrementAndGet();
+    }
+
+    void onExhausted() {
+        exhausted.incrementAndGet();
+    }
+
+    void onTagLost() {
+        tagLost.incrementAndGet();
+    }
+
+    void onSkipped() {
+        skipped.incrementAndGet();
+    }
+
+    public long getOperations() {
+        return operations.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    // 重試後成功的操作數
+    public long getRecovered() {
+        return recovered.get();
+    }
+
+    // 用完重試次數仍失敗的操作數
+    public long getExhausted() {
+        return exhausted.get();
+    }
+
+    public long getBackoffNanos() {
+        return backoffNanos.get();
+    }
+
+    public long getTagLost() {
+        return tagLost.get();
+    }
+
+    // 標籤遺失後不再送出、直接失敗的操作數
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public void reset() {
+        operations.set(0);
+        retries.set(0);
+        recovered.set(0);
+        exhausted.set(0);
+        backoffNanos.set(0);
+        tagLost.set(0);
+        skipped.set(0);
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder("重試統計\n");
+        sb.append("操作 ").append(getOperations()).append(" 次，重試 ").append(getRetries())
+                .append(" 次（救回 ").append(getRecovered()).append("，放棄 ").append(getExhausted())
+                .append("），退避 ");
+        SessionTrace.appendMillis(sb, getBackoffNanos());
+        sb.append("\n標籤遺失 ").append(getTagLost()).append(" 次，之後略過 ")
+                .append(getSkipped()).append(" 個操作\n");
+        return sb.toString();
+    }
+}
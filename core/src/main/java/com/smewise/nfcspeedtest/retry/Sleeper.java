@@ -0,0 +1,19 @@
+package com.smewise.nfcspeedtest.retry;
+
+import java.util.concurrent.locks.LockSupport;
+
+// 重試前的退避等待，測試時可替換成只累計虛擬時間的實作
+public interface Sleeper {
+
+    Sleeper SYSTEM = Sleeper::park;
+
+    void sleep(long nanos);
+
+    static void park(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.smewise.nfcspeedtest.session;
+
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+/**
+ * 某張卡（以 UID 區分）第一次靠卡時探測到的結果：支援的技術，以及實際讀得到資料的技術。
+ * 同一張卡再次靠卡時只執行有結果的讀取，不再探測。
+ */
+public final class CardProfile {
+    private final byte[] uid;
+    private final int techMask;
+    private final int usefulMask;
+
+    CardProfile(byte[] uid, int techMask, int usefulMask) {
+        this.uid = uid.clone();
+        this.techMask = techMask;
+        this.usefulMask = usefulMask;
+    }
+
+    public byte[] getUid() {
+        return uid.clone();
+    }
+
+    public int getTechMask() {
+        return techMask;
+    }
+
+    public boolean has(TagTech tech) {
+        return (techMask & TagSession.bitOf(tech)) != 0;
+    }
+
+    // 這項技術在探測時有讀到資料
+    public boolean isUseful(TagTech tech) {
+        return (usefulMask & TagSession.bitOf(tech)) != 0;
+    }
+
+    public int getUsefulMask() {
+        return usefulMask;
+    }
+
+    // 例如 "NfcA, MifareClassic"
+    public String describeUseful() {
+        StringBuilder sb = new StringBuilder();
+        for (TagTech tech : TagTech.values()) {
+            if (isUseful(tech)) {
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(tech.simpleName());
+            }
+        }
+        return sb.length() == 0 ? "無" : sb.toString();
+    }
+}
@@ -0,0 +1,66 @@
+package com.smewise.nfcspeedtest.session;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 依 UID 快取 CardProfile，超過容量時移除最久未使用的卡。可從任何執行緒呼叫。
+ */
+public class CardProfileCache {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final Map<ByteBuffer, CardProfile> profiles;
+    private int hits;
+    private int misses;
+
+    public CardProfileCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CardProfileCache(final int capacity) {
+        profiles = new LinkedHashMap<ByteBuffer, CardProfile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, CardProfile> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // 沒有快取時回傳 null
+    public synchronized CardProfile get(byte[] uid) {
+        CardProfile profile = profiles.get(ByteBuffer.wrap(uid));
+        if (profile == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return profile;
+    }
+
+    public synchronized void put(CardProfile profile) {
+        profiles.put(ByteBuffer.wrap(profile.getUid()), profile);
+    }
+
+    public synchronized void remove(byte[] uid) {
+        profiles.remove(ByteBuffer.wrap(uid));
+    }
+
+    public synchronized int size() {
+        return profiles.size();
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    public synchronized void clear() {
+        profiles.clear();
+        hits = 0;
+        misses = 0;
+    }
+}
@@ -0,0 +1,22 @@
+package com.smewise.nfcspeedtest.session;
+
+/**
+ * 一次靠卡工作階段在 I/O 執行緒上依序執行的階段。
+ */
+public enum PipelineStage {
+    DETECT("偵測"),
+    CONNECT("連線"),
+    EXCHANGE("讀寫"),
+    DECODE("解碼"),
+    PUBLISH("發佈");
+
+    private final String label;
+
+    PipelineStage(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
@@ -0,0 +1,8 @@
+package com.smewise.nfcspeedtest.session;
+
+/**
+ * 工作階段結果的輸出端，必須可以從 I/O 執行緒呼叫且不阻塞（例如 ResultLogAdapter.append）。
+ */
+public interface ResultSink {
+    void publish(String text);
+}
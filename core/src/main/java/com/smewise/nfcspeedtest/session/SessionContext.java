@@ -0,0 +1,93 @@
+package com.smewise.nfcspeedtest.session;
+
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+import com.smewise.nfcspeedtest.transport.TagEndpoint;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 單一靠卡工作階段的狀態：標籤、延遲紀錄、目前階段與取消旗標。
+ * cancel() 可從任何執行緒呼叫，I/O 執行緒在階段之間（或以 checkCancelled 自行檢查）停止。
+ */
+public class SessionContext {
+    private final TagEndpoint tag;
+    private final TagSession tags;
+    private final SessionTrace trace;
+    private final ResultSink sink;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile boolean cancelled;
+    private volatile PipelineStage stage;
+    private volatile Exception failure;
+
+    SessionContext(TagEndpoint tag, SessionTrace trace, ResultSink sink, CardProfileCache profiles) {
+        this.tag = tag;
+        this.tags = new TagSession(tag, profiles);
+        this.trace = trace;
+        this.sink = sink;
+    }
+
+    public TagEndpoint tag() {
+        return tag;
+    }
+
+    // 單一連線、快取探測結果的標籤存取
+    public TagSession tags() {
+        return tags;
+    }
+
+    public SessionTrace trace() {
+        return trace;
+    }
+
+    // 不阻塞地輸出一筆結果
+    public void publish(String text) {
+        sink.publish(text);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("工作階段已取消");
+        }
+    }
+
+    // 目前執行中的階段，尚未開始為 null
+    public PipelineStage stage() {
+        return stage;
+    }
+
+    void enter(PipelineStage stage) {
+        checkCancelled();
+        this.stage = stage;
+    }
+
+    // 中止工作階段的例外（含標籤移開），正常完成時為 null；publish 階段用來記錄結果
+    public Exception getFailure() {
+        return failure;
+    }
+
+    void fail(Exception e) {
+        failure = e;
+    }
+
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    public boolean awaitDone(long timeout, TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    void markDone() {
+        done.countDown();
+    }
+}
@@ -0,0 +1,29 @@
+package com.smewise.nfcspeedtest.session;
+
+import java.io.IOException;
+
+/**
+ * 一次靠卡要做的工作，依 PipelineStage 拆成數個步驟，除了 exchange 之外都可以不覆寫。
+ * 所有步驟都在 TagPipeline 的 I/O 執行緒上執行，不可直接操作 View。
+ */
+public abstract class TagJob {
+
+    // 偵測標籤技術
+    protected void detect(SessionContext session) throws IOException {
+    }
+
+    // 建立連線
+    protected void connect(SessionContext session) throws IOException {
+    }
+
+    // 讀取或寫入
+    protected abstract void exchange(SessionContext session) throws IOException;
+
+    // 解析讀回的資料
+    protected void decode(SessionContext session) throws IOException {
+    }
+
+    // 結束工作階段並輸出摘要；除非工作階段被取消，失敗時也會執行
+    protected void publish(SessionContext session) {
+    }
+}
@@ -0,0 +1,139 @@
+package com.smewise.nfcspeedtest.session;
+
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+import com.smewise.nfcspeedtest.transport.TagEndpoint;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 靠卡工作階段管線：所有 NFC I/O 都在同一條長駐的 I/O 執行緒上執行，
+ * 依 detect → connect → exchange → decode → publish 的順序呼叫 TagJob。
+ * 新標籤送進來時會取消前一個工作階段；標籤移開（TagLostException）時中止剩下的階段。
+ * exchange 結束後立即關閉 TagSession 連線，decode 與 publish 不佔用 RF。
+ */
+public class TagPipeline implements Closeable {
+    private final ExecutorService io;
+    private final ResultSink sink;
+    private final CardProfileCache profiles;
+    private final AtomicReference<SessionContext> current = new AtomicReference<>();
+
+    public TagPipeline(ResultSink sink) {
+        this(sink, new CardProfileCache());
+    }
+
+    public TagPipeline(ResultSink sink, CardProfileCache profiles) {
+        this(Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "nfc-io");
+            thread.setDaemon(true);
+            return thread;
+        }), sink, profiles);
+    }
+
+    TagPipeline(ExecutorService io, ResultSink sink, CardProfileCache profiles) {
+        this.io = io;
+        this.sink = sink;
+        this.profiles = profiles;
+    }
+
+    public CardProfileCache getProfiles() {
+        return profiles;
+    }
+
+    // 可從 UI 執行緒呼叫，立即返回
+    public SessionContext submit(TagEndpoint tag, SessionTrace trace, TagJob job) {
+        SessionContext session = new SessionContext(tag, trace, sink, profiles);
+        SessionContext previous = current.getAndSet(session);
+        if (previous != null) {
+            previous.cancel();
+        }
+        io.execute(() -> run(session, job));
+        return session;
+    }
+
+    // 在 I/O 執行緒執行非靠卡的工作（例如載入或儲存快取），與工作階段依序執行
+    public void execute(Runnable task) {
+        io.execute(task);
+    }
+
+    // 取消目前的工作階段（例如離開畫面時）
+    public void cancelCurrent() {
+        SessionContext session = current.get();
+        if (session != null) {
+            session.cancel();
+        }
+    }
+
+    /**
+     * 在呼叫端的執行緒上同步執行一個工作階段，不經過 I/O 執行緒、也不取消其他工作階段。
+     * 給 JVM 上同時驅動多張模擬標籤的負載測試使用（每個模擬讀卡機一條執行緒）。
+     */
+    public SessionContext runInline(TagEndpoint tag, SessionTrace trace, TagJob job) {
+        SessionContext session = new SessionContext(tag, trace, sink, profiles);
+        try {
+            runStages(session, job);
+        } finally {
+            session.tags().close();
+            session.markDone();
+        }
+        return session;
+    }
+
+    private void run(SessionContext session, TagJob job) {
+        try {
+            runStages(session, job);
+        } finally {
+            session.tags().close();
+            current.compareAndSet(session, null);
+            session.markDone();
+        }
+    }
+
+    private void runStages(SessionContext session, TagJob job) {
+        try {
+            session.enter(PipelineStage.DETECT);
+            job.detect(session);
+            session.enter(PipelineStage.CONNECT);
+            job.connect(session);
+            session.enter(PipelineStage.EXCHANGE);
+            job.exchange(session);
+            // 解碼與格式化不需要 RF，先釋放連線
+            session.tags().close();
+            session.enter(PipelineStage.DECODE);
+            job.decode(session);
+            session.tags().saveProfile();
+        } catch (CancellationException e) {
+            // 已被新的標籤取代，不再輸出
+            return;
+        } catch (TagLostException e) {
+            session.fail(e);
+            session.publish("標籤已移開，中止於" + stageLabel(session) + "階段");
+        } catch (IOException | RuntimeException e) {
+            session.fail(e);
+            session.publish(stageLabel(session) + "階段錯誤: " + e.getMessage());
+        }
+        try {
+            session.enter(PipelineStage.PUBLISH);
+            job.publish(session);
+        } catch (CancellationException e) {
+            // 失敗處理期間被取消
+        }
+    }
+
+    private static String stageLabel(SessionContext session) {
+        PipelineStage stage = session.stage();
+        return stage == null ? "" : stage.label();
+    }
+
+    @Override
+    public void close() {
+        cancelCurrent();
+        // 不丟棄已排入的工作（例如 onPause 排入的快取儲存）
+        io.shutdown();
+    }
+}
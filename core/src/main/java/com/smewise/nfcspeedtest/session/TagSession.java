@@ -0,0 +1,216 @@
+package com.smewise.nfcspeedtest.session;
+
+import com.smewise.nfcspeedtest.transport.IsoDepTransport;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.NfcBTransport;
+import com.smewise.nfcspeedtest.transport.NfcFTransport;
+import com.smewise.nfcspeedtest.transport.NfcVTransport;
+import com.smewise.nfcspeedtest.transport.TagEndpoint;
+import com.smewise.nfcspeedtest.transport.TagTech;
+import com.smewise.nfcspeedtest.transport.TagTransport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 一次靠卡期間對標籤的存取：
+ * - tech list 只解析一次成 bitmask；
+ * - 同一時間只維持一條連線，要求同一技術時直接沿用，換技術時才關閉再連線；
+ * - 依 UID 查詢 CardProfileCache，已知的卡直接沿用上次探測結果。
+ * 取得的 transport 已連線，呼叫端不需要（也不應該）自行 connect/close，由 close() 統一關閉。
+ * 不支援的技術回傳 null。
+ * 只在 I/O 執行緒使用，非執行緒安全。
+ */
+public class TagSession implements Closeable {
+    private final TagEndpoint tag;
+    private final CardProfileCache profiles;
+    private final byte[] uid;
+    private final int techMask;
+    private final CardProfile knownProfile;
+    private final TagTransport[] transports = new TagTransport[TagTech.values().length];
+
+    private TagTransport live;
+    private int usefulMask;
+    private String model = "";
+    private int connectCount;
+
+    public TagSession(TagEndpoint tag, CardProfileCache profiles) {
+        this.tag = tag;
+        this.profiles = profiles;
+        this.uid = tag.getId();
+        this.techMask = maskOf(tag.getTechList());
+        CardProfile cached = profiles == null ? null : profiles.get(uid);
+        // UID 相同但技術組合不同時（例如模擬卡），視為新卡重新探測
+        this.knownProfile = cached != null && cached.getTechMask() == techMask ? cached : null;
+    }
+
+    static int bitOf(TagTech tech) {
+        return 1 << tech.ordinal();
+    }
+
+    public static int maskOf(String[] techList) {
+        int mask = 0;
+        for (String className : techList) {
+            TagTech tech = TagTech.fromClassName(className);
+            if (tech != null) {
+                mask |= bitOf(tech);
+            }
+        }
+        return mask;
+    }
+
+    public TagEndpoint getEndpoint() {
+        return tag;
+    }
+
+    public byte[] getId() {
+        return uid;
+    }
+
+    public int getTechMask() {
+        return techMask;
+    }
+
+    public boolean has(TagTech tech) {
+        return (techMask & bitOf(tech)) != 0;
+    }
+
+    // 已快取的卡片資料；第一次見到的卡回傳 null
+    public CardProfile getKnownProfile() {
+        return knownProfile;
+    }
+
+    public boolean isKnown() {
+        return knownProfile != null;
+    }
+
+    // 已知的卡只嘗試上次有結果的技術，新卡則嘗試所有支援的技術
+    public boolean shouldTry(TagTech tech) {
+        return knownProfile != null ? knownProfile.isUseful(tech) : has(tech);
+    }
+
+    // 任一技術符合即可，例如 NfcA 讀取在有 IsoDep 時改讀悠遊卡
+    public boolean shouldTry(TagTech tech, TagTech alternative) {
+        return shouldTry(tech) || shouldTry(alternative);
+    }
+
+    // 探測時回報此技術有讀到資料
+    public void markUseful(TagTech tech) {
+        usefulMask |= bitOf(tech);
+    }
+
+    // 本次有讀到資料的技術
+    public int getUsefulMask() {
+        return usefulMask;
+    }
+
+    // 讀取過程中辨識出的標籤型號（例如 "NTAG215"），未辨識時為空字串
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model == null ? "" : model;
+    }
+
+    public int getConnectCount() {
+        return connectCount;
+    }
+
+    public NdefTransport ndef() throws IOException {
+        NdefTransport t = (NdefTransport) transports[TagTech.NDEF.ordinal()];
+        if (t == null && has(TagTech.NDEF)) {
+            t = tag.ndef();
+        }
+        return use(TagTech.NDEF, t);
+    }
+
+    public NfcATransport nfcA() throws IOException {
+        NfcATransport t = (NfcATransport) transports[TagTech.NFC_A.ordinal()];
+        if (t == null && has(TagTech.NFC_A)) {
+            t = tag.nfcA();
+        }
+        return use(TagTech.NFC_A, t);
+    }
+
+    public NfcBTransport nfcB() throws IOException {
+        NfcBTransport t = (NfcBTransport) transports[TagTech.NFC_B.ordinal()];
+        if (t == null && has(TagTech.NFC_B)) {
+            t = tag.nfcB();
+        }
+        return use(TagTech.NFC_B, t);
+    }
+
+    public NfcFTransport nfcF() throws IOException {
+        NfcFTransport t = (NfcFTransport) transports[TagTech.NFC_F.ordinal()];
+        if (t == null && has(TagTech.NFC_F)) {
+            t = tag.nfcF();
+        }
+        return use(TagTech.NFC_F, t);
+    }
+
+    public NfcVTransport nfcV() throws IOException {
+        NfcVTransport t = (NfcVTransport) transports[TagTech.NFC_V.ordinal()];
+        if (t == null && has(TagTech.NFC_V)) {
+            t = tag.nfcV();
+        }
+        return use(TagTech.NFC_V, t);
+    }
+
+    public IsoDepTransport isoDep() throws IOException {
+        IsoDepTransport t = (IsoDepTransport) transports[TagTech.ISO_DEP.ordinal()];
+        if (t == null && has(TagTech.ISO_DEP)) {
+            t = tag.isoDep();
+        }
+        return use(TagTech.ISO_DEP, t);
+    }
+
+    public MifareClassicTransport mifareClassic() throws IOException {
+        MifareClassicTransport t = (MifareClassicTransport) transports[TagTech.MIFARE_CLASSIC.ordinal()];
+        if (t == null && has(TagTech.MIFARE_CLASSIC)) {
+            t = tag.mifareClassic();
+        }
+        return use(TagTech.MIFARE_CLASSIC, t);
+    }
+
+    // 需要時才切換連線
+    private <T extends TagTransport> T use(TagTech tech, T transport) throws IOException {
+        if (transport == null) {
+            return null;
+        }
+        transports[tech.ordinal()] = transport;
+        if (live == transport && transport.isConnected()) {
+            return transport;
+        }
+        closeLive();
+        transport.connect();
+        connectCount++;
+        live = transport;
+        return transport;
+    }
+
+    private void closeLive() {
+        if (live != null) {
+            try {
+                live.close();
+            } catch (IOException ignored) {
+                // 標籤已移開時 close 可能失敗，不影響下一條連線
+            }
+            live = null;
+        }
+    }
+
+    // 工作階段正常完成後呼叫：新卡把探測結果存入快取（中途移開的卡不存，避免不完整的結果）
+    public void saveProfile() {
+        if (knownProfile == null && profiles != null && usefulMask != 0) {
+            profiles.put(new CardProfile(uid, techMask, usefulMask));
+        }
+    }
+
+    @Override
+    public void close() {
+        closeLive();
+    }
+}
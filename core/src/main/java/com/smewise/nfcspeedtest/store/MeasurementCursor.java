@@ -0,0 +1,150 @@
+package com.smewise.nfcspeedtest.store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 依序走訪所有 segment 的紀錄，一次只讀一塊固定大小的 buffer，記憶體用量與紀錄數無關：
+ * <pre>
+ * try (MeasurementCursor cursor = MeasurementCursor.open(dir)) {
+ *     while (cursor.next()) {
+ *         MeasurementRecord r = cursor.record();
+ *     }
+ * }
+ * </pre>
+ * record() 回傳同一個物件，下一次 next() 會覆寫內容。標頭不正確的 segment 直接略過。
+ */
+public class MeasurementCursor implements Closeable {
+    private static final int READ_BUFFER = 64 * 1024;
+
+    private final File dir;
+    private final int[] segments;
+    private final MeasurementRecord record = new MeasurementRecord();
+    private final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER);
+
+    private int segment = -1;
+    private FileInputStream input;
+    private FileChannel channel;
+    private int recordSize;
+    private int phases;
+    private long remaining;
+    private long position;
+    private int skippedSegments;
+    private final byte[] device = new byte[MeasurementRecord.MODEL_LENGTH];
+    private String deviceModel = "";
+
+    private MeasurementCursor(File dir, int[] segments) {
+        this.dir = dir;
+        this.segments = segments;
+        ((Buffer) buffer).limit(0);
+    }
+
+    // 開啟時的 segment 清單為準，之後才建立的 segment 不會讀到
+    public static MeasurementCursor open(File dir) {
+        return new MeasurementCursor(dir, MeasurementStore.segmentIndexes(dir));
+    }
+
+    public boolean next() throws IOException {
+        while (true) {
+            if (buffer.remaining() >= recordSize && recordSize > 0) {
+                int start = buffer.position();
+                record.decode(buffer, phases);
+                ((Buffer) buffer).position(start + recordSize);
+                position++;
+                return true;
+            }
+            if (remaining > 0 && fill()) {
+                continue;
+            }
+            if (!nextSegment()) {
+                return false;
+            }
+        }
+    }
+
+    public MeasurementRecord record() {
+        return record;
+    }
+
+    // 已讀取的紀錄數
+    public long position() {
+        return position;
+    }
+
+    // 目前紀錄所在 segment 的手機型號
+    public String deviceModel() {
+        return deviceModel;
+    }
+
+    public int getSkippedSegments() {
+        return skippedSegments;
+    }
+
+    // 讀入整數筆紀錄；檔案尾端不完整的紀錄（寫入中）不讀
+    private boolean fill() throws IOException {
+        buffer.compact();
+        int want = (int) Math.min(buffer.remaining() / recordSize * recordSize, remaining);
+        ((Buffer) buffer).limit(buffer.position() + want);
+        long read = 0;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer);
+            if (n < 0) {
+                // 檔案在開啟後被截短
+                remaining = 0;
+                break;
+            }
+            read += n;
+        }
+        ((Buffer) buffer).flip();
+        remaining = Math.max(0, remaining - read);
+        return buffer.remaining() >= recordSize;
+    }
+
+    private boolean nextSegment() throws IOException {
+        closeSegment();
+        while (++segment < segments.length) {
+            try {
+                input = new FileInputStream(MeasurementStore.segmentFile(dir, segments[segment]));
+            } catch (FileNotFoundException e) {
+                // 列出目錄後才被刪除（例如超過保留上限）
+                continue;
+            }
+            channel = input.getChannel();
+            int size = MeasurementStore.readHeader(channel, device);
+            if (size < 0) {
+                skippedSegments++;
+                closeSegment();
+                continue;
+            }
+            recordSize = size;
+            deviceModel = MeasurementRecord.readAscii(device);
+            phases = (size - MeasurementRecord.FIXED_SIZE) / 8;
+            remaining = (channel.size() - MeasurementStore.HEADER_SIZE) / size * size;
+            ((Buffer) buffer).clear();
+            ((Buffer) buffer).limit(0);
+            return true;
+        }
+        return false;
+    }
+
+    private void closeSegment() throws IOException {
+        if (input != null) {
+            input.close();
+            input = null;
+            channel = null;
+        }
+        remaining = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeSegment();
+        segment = segments.length;
+    }
+}
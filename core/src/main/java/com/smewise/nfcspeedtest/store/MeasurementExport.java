@@ -0,0 +1,118 @@
+package com.smewise.nfcspeedtest.store;
+
+import com.smewise.nfcspeedtest.trace.Phase;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * 以串流方式把紀錄輸出成 CSV 或 JSON：每讀一筆寫一行，不把整個紀錄庫載入記憶體。
+ * UID hash 以 16 位十六進位輸出，時間單位為 ms / ns。
+ */
+public final class MeasurementExport {
+
+    private MeasurementExport() {
+    }
+
+    // 回傳輸出的筆數
+    public static long writeCsv(MeasurementCursor cursor, Writer out) throws IOException {
+        StringBuilder line = new StringBuilder(256);
+        line.append("timestamp_ms,uid_hash,device,tag_model,tech,operation,result,bytes,total_ns");
+        for (Phase phase : Phase.values()) {
+            line.append(',').append(columnName(phase));
+        }
+        out.append(line).append('\n');
+        long count = 0;
+        while (cursor.next()) {
+            MeasurementRecord r = cursor.record();
+            line.setLength(0);
+            line.append(r.timestampMillis).append(',');
+            appendHash(line, r.uidHash).append(',')
+                    .append(csvText(cursor.deviceModel())).append(',')
+                    .append(csvText(r.tagModel())).append(',')
+                    .append(techName(r)).append(',')
+                    .append(opName(r)).append(',')
+                    .append(MeasurementRecord.resultName(r.result)).append(',')
+                    .append(r.bytes).append(',')
+                    .append(r.totalNanos);
+            for (long nanos : r.phaseNanos) {
+                line.append(',').append(nanos);
+            }
+            out.append(line).append('\n');
+            count++;
+        }
+        out.flush();
+        return count;
+    }
+
+    // JSON 陣列，每筆一行
+    public static long writeJson(MeasurementCursor cursor, Writer out) throws IOException {
+        StringBuilder line = new StringBuilder(320);
+        out.write("[");
+        long count = 0;
+        while (cursor.next()) {
+            MeasurementRecord r = cursor.record();
+            line.setLength(0);
+            line.append(count == 0 ? "\n" : ",\n")
+                    .append("{\"timestamp_ms\":").append(r.timestampMillis)
+                    .append(",\"uid_hash\":\"");
+            appendHash(line, r.uidHash)
+                    .append("\",\"device\":\"").append(jsonText(cursor.deviceModel()))
+                    .append("\",\"tag_model\":\"").append(jsonText(r.tagModel()))
+                    .append("\",\"tech\":\"").append(techName(r))
+                    .append("\",\"operation\":\"").append(opName(r))
+                    .append("\",\"result\":\"").append(MeasurementRecord.resultName(r.result))
+                    .append("\",\"bytes\":").append(r.bytes)
+                    .append(",\"total_ns\":").append(r.totalNanos)
+                    .append(",\"phases_ns\":{");
+            for (Phase phase : Phase.values()) {
+                if (phase.ordinal() > 0) {
+                    line.append(',');
+                }
+                line.append('"').append(phase.name().toLowerCase(Locale.ROOT)).append("\":")
+                        .append(r.phaseNanos(phase));
+            }
+            line.append("}}");
+            out.append(line);
+            count++;
+        }
+        out.write(count == 0 ? "]\n" : "\n]\n");
+        out.flush();
+        return count;
+    }
+
+    // 型號只有可列印 ASCII；含逗號或引號時加上引號
+    private static String csvText(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private static String jsonText(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static String columnName(Phase phase) {
+        return phase.name().toLowerCase(Locale.ROOT) + "_ns";
+    }
+
+    private static String techName(MeasurementRecord r) {
+        TagTech tech = r.tagTech();
+        return tech == null ? "" : tech.simpleName();
+    }
+
+    private static String opName(MeasurementRecord r) {
+        MeasurementOp op = r.op();
+        return op == null ? "op_" + r.opCode : op.csvName();
+    }
+
+    private static StringBuilder appendHash(StringBuilder sb, long hash) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            sb.append(Character.forDigit((int) (hash >>> shift) & 0xF, 16));
+        }
+        return sb;
+    }
+}
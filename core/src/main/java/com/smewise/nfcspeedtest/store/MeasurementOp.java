@@ -0,0 +1,43 @@
+package com.smewise.nfcspeedtest.store;
+
+// 紀錄的操作種類；code 寫入檔案，不可更動既有的值
+public enum MeasurementOp {
+    READ(1, "read", "讀取"),
+    WRITE(2, "write", "寫入"),
+    MIFARE_DUMP(3, "mifare_dump", "MIFARE 整卡讀取"),
+    SOAK(4, "soak", "連續量測"),
+    SWEEP(5, "sweep", "NDEF 容量掃描"),
+    PROVISION(6, "provision", "批次寫入");
+
+    private final int code;
+    private final String csvName;
+    private final String label;
+
+    MeasurementOp(int code, String csvName, String label) {
+        this.code = code;
+        this.csvName = csvName;
+        this.label = label;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public String csvName() {
+        return csvName;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    // 未知的 code（較新版本寫入的檔案）回傳 null
+    public static MeasurementOp fromCode(int code) {
+        for (MeasurementOp op : values()) {
+            if (op.code == code) {
+                return op;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,201 @@
+package com.smewise.nfcspeedtest.store;
+
+import com.smewise.nfcspeedtest.trace.Phase;
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 一筆固定長度的量測紀錄（big-endian）：
+ * <pre>
+ *  0 timestamp (ms)    8 UID hash    16 總耗時 (ns)    24 bytes
+ * 28 tech mask        32 tech       33 操作           34 結果
+ * 36 標籤型號 (ASCII，16 bytes，不足補 0)
+ * 52 各階段耗時 (ns)，依 Phase 順序，每個 8 bytes
+ * </pre>
+ * 不保存 UID 本身，只保存 64-bit FNV-1a hash，可以分辨同一張卡但無法還原卡號。
+ * 可重複使用的容器，非執行緒安全。
+ */
+public final class MeasurementRecord {
+    public static final int PHASE_COUNT = Phase.values().length;
+    public static final int MODEL_LENGTH = 16;
+    static final int FIXED_SIZE = 36 + MODEL_LENGTH;
+    public static final int SIZE = FIXED_SIZE + PHASE_COUNT * 8;
+
+    public static final int RESULT_OK = 0;
+    public static final int RESULT_ERROR = 1;
+    public static final int RESULT_TAG_LOST = 2;
+    public static final int RESULT_CANCELLED = 3;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    public long timestampMillis;
+    public long uidHash;
+    public long totalNanos;
+    public int bytes;
+    public int techMask;
+    // 主要技術的 TagTech ordinal，沒有時為 -1
+    public int tech = -1;
+    public int opCode;
+    public int result;
+    public final long[] phaseNanos = new long[PHASE_COUNT];
+    private final byte[] tagModel = new byte[MODEL_LENGTH];
+
+    public static long uidHash(byte[] uid) {
+        long h = FNV_OFFSET;
+        for (byte b : uid) {
+            h ^= b & 0xFF;
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+
+    public static String resultName(int result) {
+        switch (result) {
+            case RESULT_OK:
+                return "ok";
+            case RESULT_ERROR:
+                return "error";
+            case RESULT_TAG_LOST:
+                return "tag_lost";
+            case RESULT_CANCELLED:
+                return "cancelled";
+            default:
+                return "result_" + result;
+        }
+    }
+
+    public MeasurementRecord clear() {
+        timestampMillis = 0;
+        uidHash = 0;
+        totalNanos = 0;
+        bytes = 0;
+        techMask = 0;
+        tech = -1;
+        opCode = 0;
+        result = RESULT_OK;
+        Arrays.fill(phaseNanos, 0);
+        Arrays.fill(tagModel, (byte) 0);
+        return this;
+    }
+
+    public MeasurementRecord setOp(MeasurementOp op) {
+        opCode = op.code();
+        return this;
+    }
+
+    public MeasurementOp op() {
+        return MeasurementOp.fromCode(opCode);
+    }
+
+    // 例如 "NTAG215"、"MIFARE Classic 1K"；超過 16 bytes 截斷，非 ASCII 字元以 '?' 取代
+    public MeasurementRecord setTagModel(String model) {
+        writeAscii(model, tagModel);
+        return this;
+    }
+
+    // 未知時為空字串
+    public String tagModel() {
+        return readAscii(tagModel);
+    }
+
+    static void writeAscii(String text, byte[] dst) {
+        Arrays.fill(dst, (byte) 0);
+        if (text == null) {
+            return;
+        }
+        int n = Math.min(text.length(), dst.length);
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            dst[i] = (byte) (c >= 0x20 && c < 0x7F ? c : '?');
+        }
+    }
+
+    static String readAscii(byte[] src) {
+        int n = 0;
+        while (n < src.length && src[n] != 0) {
+            n++;
+        }
+        return new String(src, 0, n, StandardCharsets.US_ASCII);
+    }
+
+    public TagTech tagTech() {
+        return tech >= 0 && tech < TagTech.values().length ? TagTech.values()[tech] : null;
+    }
+
+    public MeasurementRecord setTech(TagTech tech) {
+        this.tech = tech == null ? -1 : tech.ordinal();
+        return this;
+    }
+
+    // 各階段合計；totalNanos 為 trace.finish() 的回傳值
+    public MeasurementRecord setPhases(SessionTrace trace, long totalNanos) {
+        for (Phase phase : Phase.values()) {
+            phaseNanos[phase.ordinal()] = trace.totalNanos(phase);
+        }
+        this.totalNanos = totalNanos;
+        return this;
+    }
+
+    public long phaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    public void copyFrom(MeasurementRecord other) {
+        timestampMillis = other.timestampMillis;
+        uidHash = other.uidHash;
+        totalNanos = other.totalNanos;
+        bytes = other.bytes;
+        techMask = other.techMask;
+        tech = other.tech;
+        opCode = other.opCode;
+        result = other.result;
+        System.arraycopy(other.phaseNanos, 0, phaseNanos, 0, PHASE_COUNT);
+        System.arraycopy(other.tagModel, 0, tagModel, 0, MODEL_LENGTH);
+    }
+
+    void encode(ByteBuffer out) {
+        out.putLong(timestampMillis)
+                .putLong(uidHash)
+                .putLong(totalNanos)
+                .putInt(bytes)
+                .putInt(techMask)
+                .put((byte) tech)
+                .put((byte) opCode)
+                .putShort((short) result)
+                .put(tagModel);
+        for (long nanos : phaseNanos) {
+            out.putLong(nanos);
+        }
+    }
+
+    // 以檔案標頭記錄的階段數解碼；較舊或較新的檔案階段數不同時，多的略過、少的補 0
+    void decode(ByteBuffer in, int phases) {
+        timestampMillis = in.getLong();
+        uidHash = in.getLong();
+        totalNanos = in.getLong();
+        bytes = in.getInt();
+        techMask = in.getInt();
+        tech = in.get();
+        opCode = in.get() & 0xFF;
+        result = in.getShort() & 0xFFFF;
+        in.get(tagModel);
+        for (int i = 0; i < phases; i++) {
+            long nanos = in.getLong();
+            if (i < PHASE_COUNT) {
+                phaseNanos[i] = nanos;
+            }
+        }
+        for (int i = phases; i < PHASE_COUNT; i++) {
+            phaseNanos[i] = 0;
+        }
+    }
+
+    static int sizeFor(int phases) {
+        return FIXED_SIZE + phases * 8;
+    }
+}
@@ -0,0 +1,408 @@
+package com.smewise.nfcspeedtest.store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 只附加的量測紀錄庫。靠卡流程只把紀錄複製到預先配置的格子並放入佇列，
+ * 由背景寫入執行緒一次取出整批（group commit），編碼到 direct buffer 後以 FileChannel 寫入並 fsync。
+ * 檔案依紀錄數切成 segment（seg-000001.mrec …），每個 segment 開頭 32 bytes 標頭：
+ * magic、版本、階段數、紀錄長度、segment 編號、手機型號。開啟時截掉最後一個 segment 尾端不完整的紀錄。
+ * 佇列滿時 append 直接回傳 false 並計入丟棄數，不讓呼叫端等待磁碟。
+ */
+public class MeasurementStore implements Closeable {
+    static final int MAGIC = 0x4E464D53; // "NFMS"
+    // 版本 2 加入標籤型號與手機型號；版本不符的 segment 讀取時略過
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 32;
+    static final String SEGMENT_PREFIX = "seg-";
+    static final String SEGMENT_SUFFIX = ".mrec";
+
+    // 關閉時放入佇列，讓寫入執行緒寫完之前的紀錄後結束
+    private static final MeasurementRecord CLOSE = new MeasurementRecord();
+
+    private final File dir;
+    private final StoreConfig config;
+    private final ArrayBlockingQueue<MeasurementRecord> free;
+    private final ArrayBlockingQueue<MeasurementRecord> pending;
+    private final List<MeasurementRecord> batch = new ArrayList<>();
+    private final ByteBuffer buffer;
+    private final Thread writer;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Object progress = new Object();
+    // 以下由 progress 保護
+    private long written;
+    private int flushWaiters;
+    private long batches;
+    private int maxBatch;
+    private long writeNanos;
+    private int lastSegment;
+
+    private volatile boolean closing;
+    private volatile IOException failure;
+
+    // 以下只在寫入執行緒存取
+    private FileChannel channel;
+    private int segmentIndex;
+    private int segmentFill;
+
+    public MeasurementStore(File dir, StoreConfig config) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("無法建立目錄 " + dir);
+        }
+        this.dir = dir;
+        this.config = config;
+        int capacity = config.getQueueCapacity();
+        this.free = new ArrayBlockingQueue<>(capacity);
+        this.pending = new ArrayBlockingQueue<>(capacity + 1);
+        for (int i = 0; i < capacity; i++) {
+            free.add(new MeasurementRecord());
+        }
+        this.buffer = ByteBuffer.allocateDirect(config.getBatchRecords() * MeasurementRecord.SIZE);
+        openLastSegment();
+        this.lastSegment = segmentIndex;
+        this.writer = new Thread(this::runWriter, "measurement-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * 複製一筆紀錄排入寫入佇列，任何執行緒皆可呼叫，不做 I/O。
+     * 佇列已滿、紀錄庫已關閉或寫入失敗時回傳 false。
+     */
+    public boolean append(MeasurementRecord record) {
+        if (closing || failure != null) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        MeasurementRecord slot = free.poll();
+        if (slot == null) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        slot.copyFrom(record);
+        accepted.incrementAndGet();
+        pending.add(slot);
+        return true;
+    }
+
+    // 等待呼叫前已排入的紀錄全部寫入；逾時回傳 false
+    public boolean flush(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        long target = accepted.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean complete;
+        synchronized (progress) {
+            flushWaiters++;
+            try {
+                while (written < target && failure == null && writer.isAlive()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(progress, remaining);
+                }
+                complete = written >= target;
+            } finally {
+                flushWaiters--;
+            }
+        }
+        checkFailure();
+        return complete;
+    }
+
+    // 寫完佇列中的紀錄後關閉；之後的 append 一律回傳 false
+    @Override
+    public void close() throws IOException {
+        if (!closing) {
+            closing = true;
+            pending.add(CLOSE);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            throw new IOException("量測紀錄寫入失敗: " + e.getMessage(), e);
+        }
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getWritten() {
+        synchronized (progress) {
+            return written;
+        }
+    }
+
+    // 已寫入的批次數；每批一次 write + fsync
+    public long getBatches() {
+        synchronized (progress) {
+            return batches;
+        }
+    }
+
+    // 從第一個 segment 開始串流讀取；只會讀到已寫入檔案的完整紀錄
+    public MeasurementCursor cursor() throws IOException {
+        return MeasurementCursor.open(dir);
+    }
+
+    public String summary() {
+        synchronized (progress) {
+            return String.format("量測紀錄: 已寫入 %d 筆 / 丟棄 %d 筆，%d 批（最大 %d 筆），寫入 %.2f ms，目前 segment %d\n",
+                    written, dropped.get(), batches, maxBatch, writeNanos / 1_000_000.0, lastSegment);
+        }
+    }
+
+    private void runWriter() {
+        boolean done = false;
+        try {
+            while (!done) {
+                MeasurementRecord first = pending.take();
+                done = collect(first);
+                if (!batch.isEmpty()) {
+                    writeBatch();
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            failure = new IOException("寫入執行緒被中斷");
+        } finally {
+            try {
+                if (channel != null) {
+                    channel.force(false);
+                    channel.close();
+                }
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            synchronized (progress) {
+                progress.notifyAll();
+            }
+        }
+    }
+
+    // 收集一批紀錄；第一筆之後最多再等 linger，或有人在等 flush 就不等。回傳是否收到關閉標記
+    private boolean collect(MeasurementRecord first) throws InterruptedException {
+        batch.clear();
+        if (first == CLOSE) {
+            return true;
+        }
+        batch.add(first);
+        int max = config.getBatchRecords();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getLingerMillis());
+        while (batch.size() < max) {
+            int from = batch.size();
+            pending.drainTo(batch, max - from);
+            for (int i = from; i < batch.size(); i++) {
+                if (batch.get(i) == CLOSE) {
+                    batch.remove(i);
+                    return true;
+                }
+            }
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= max || remaining <= 0 || hasFlushWaiters()) {
+                break;
+            }
+            MeasurementRecord next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            if (next == CLOSE) {
+                return true;
+            }
+            batch.add(next);
+        }
+        return false;
+    }
+
+    private boolean hasFlushWaiters() {
+        synchronized (progress) {
+            return flushWaiters > 0;
+        }
+    }
+
+    private void writeBatch() throws IOException {
+        long start = System.nanoTime();
+        ((Buffer) buffer).clear();
+        for (MeasurementRecord record : batch) {
+            if (segmentFill == config.getSegmentRecords()) {
+                drain();
+                rotate();
+            }
+            record.encode(buffer);
+            segmentFill++;
+        }
+        drain();
+        if (config.isSyncEachBatch()) {
+            channel.force(false);
+        }
+        int n = batch.size();
+        for (MeasurementRecord record : batch) {
+            free.add(record);
+        }
+        batch.clear();
+        synchronized (progress) {
+            written += n;
+            writeNanos += System.nanoTime() - start;
+            batches++;
+            maxBatch = Math.max(maxBatch, n);
+            lastSegment = segmentIndex;
+            progress.notifyAll();
+        }
+    }
+
+    private void drain() throws IOException {
+        ((Buffer) buffer).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        ((Buffer) buffer).clear();
+    }
+
+    private void openLastSegment() throws IOException {
+        int[] indexes = segmentIndexes(dir);
+        if (indexes.length == 0) {
+            openSegment(1);
+            return;
+        }
+        int last = indexes[indexes.length - 1];
+        RandomAccessFile file = new RandomAccessFile(segmentFile(dir, last), "rw");
+        FileChannel ch = file.getChannel();
+        int recordSize = readHeader(ch, null);
+        if (recordSize != MeasurementRecord.SIZE) {
+            // 標頭損壞或不同版本的紀錄長度：保留舊檔，從新的 segment 開始
+            ch.close();
+            openSegment(last + 1);
+            return;
+        }
+        long records = (ch.size() - HEADER_SIZE) / recordSize;
+        if (records >= config.getSegmentRecords()) {
+            ch.close();
+            openSegment(last + 1);
+            return;
+        }
+        // 截掉寫到一半的紀錄
+        long end = HEADER_SIZE + records * recordSize;
+        ch.truncate(end);
+        ch.position(end);
+        channel = ch;
+        segmentIndex = last;
+        segmentFill = (int) records;
+    }
+
+    private void rotate() throws IOException {
+        channel.force(false);
+        channel.close();
+        openSegment(segmentIndex + 1);
+    }
+
+    private void openSegment(int index) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(segmentFile(dir, index), "rw");
+        FileChannel ch = file.getChannel();
+        ch.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        byte[] device = new byte[MeasurementRecord.MODEL_LENGTH];
+        MeasurementRecord.writeAscii(config.getDeviceModel(), device);
+        header.putInt(MAGIC)
+                .putShort((short) VERSION)
+                .putShort((short) MeasurementRecord.PHASE_COUNT)
+                .putInt(MeasurementRecord.SIZE)
+                .putInt(index)
+                .put(device);
+        ((Buffer) header).flip();
+        while (header.hasRemaining()) {
+            ch.write(header);
+        }
+        channel = ch;
+        segmentIndex = index;
+        segmentFill = 0;
+    }
+
+    // 回傳紀錄長度，標頭不正確時回傳 -1；device 不為 null 時填入手機型號。讀完後 position 停在標頭之後
+    static int readHeader(FileChannel ch, byte[] device) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        ch.position(0);
+        while (header.hasRemaining()) {
+            if (ch.read(header) < 0) {
+                return -1;
+            }
+        }
+        ((Buffer) header).flip();
+        if (header.getInt() != MAGIC || header.getShort() != VERSION) {
+            return -1;
+        }
+        int phases = header.getShort();
+        int recordSize = header.getInt();
+        header.getInt();
+        if (device != null) {
+            header.get(device);
+        }
+        return recordSize == MeasurementRecord.sizeFor(phases) ? recordSize : -1;
+    }
+
+    static File segmentFile(File dir, int index) {
+        return new File(dir, String.format("%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    // 目錄中所有 segment 的編號，由小到大
+    static int[] segmentIndexes(File dir) {
+        String[] names = dir.list();
+        if (names == null) {
+            return new int[0];
+        }
+        int[] indexes = new int[names.length];
+        int n = 0;
+        for (String name : names) {
+            if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+                continue;
+            }
+            int index;
+            try {
+                index = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                // 不是紀錄檔
+                continue;
+            }
+            // 只接受 segmentFile 產生的檔名；seg-1.mrec 會被讀成 seg-000001.mrec，負數也不是 segment
+            if (index >= 0 && segmentFile(dir, index).getName().equals(name)) {
+                indexes[n++] = index;
+            }
+        }
+        int[] result = Arrays.copyOf(indexes, n);
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,82 @@
+package com.smewise.nfcspeedtest.store;
+
+/**
+ * 量測紀錄庫設定：每個 segment 的紀錄數、一次 group commit 的最大筆數與等待時間、
+ * 寫入佇列容量（佇列滿時丟棄並計數，不讓靠卡流程等待磁碟）、每批是否 fsync，以及手機型號。
+ */
+public class StoreConfig {
+    private int segmentRecords = 65536;
+    private int batchRecords = 512;
+    private long lingerMillis = 20;
+    private int queueCapacity = 4096;
+    private boolean syncEachBatch = true;
+    private String deviceModel = "";
+
+    public StoreConfig setSegmentRecords(int segmentRecords) {
+        if (segmentRecords < 1) {
+            throw new IllegalArgumentException("segment 紀錄數需大於 0: " + segmentRecords);
+        }
+        this.segmentRecords = segmentRecords;
+        return this;
+    }
+
+    public StoreConfig setBatchRecords(int batchRecords) {
+        if (batchRecords < 1) {
+            throw new IllegalArgumentException("批次筆數需大於 0: " + batchRecords);
+        }
+        this.batchRecords = batchRecords;
+        return this;
+    }
+
+    // 收到第一筆後最多再等多久湊成一批；0 代表有多少寫多少
+    public StoreConfig setLingerMillis(long lingerMillis) {
+        if (lingerMillis < 0) {
+            throw new IllegalArgumentException("等待時間不可為負: " + lingerMillis);
+        }
+        this.lingerMillis = lingerMillis;
+        return this;
+    }
+
+    public StoreConfig setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("佇列容量需大於 0: " + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    public StoreConfig setSyncEachBatch(boolean syncEachBatch) {
+        this.syncEachBatch = syncEachBatch;
+        return this;
+    }
+
+    // 寫入每個 segment 的標頭（例如 Build.MODEL），合併多支手機的紀錄時用來分組
+    public StoreConfig setDeviceModel(String deviceModel) {
+        this.deviceModel = deviceModel == null ? "" : deviceModel;
+        return this;
+    }
+
+    public String getDeviceModel() {
+        return deviceModel;
+    }
+
+    public int getSegmentRecords() {
+        return segmentRecords;
+    }
+
+    public int getBatchRecords() {
+        return batchRecords;
+    }
+
+    public long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public boolean isSyncEachBatch() {
+        return syncEachBatch;
+    }
+}
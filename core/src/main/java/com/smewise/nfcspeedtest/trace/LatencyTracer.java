@@ -0,0 +1,92 @@
+package com.smewise.nfcspeedtest.trace;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 以 System.nanoTime 量測每次靠卡各階段的耗時，並彙整成各階段的直方圖。
+ * 由 App 與單元測試共用；record 可在任何執行緒呼叫。
+ */
+public class LatencyTracer {
+    private final NanoClock clock;
+    private final Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+    private final LatencyHistogram sessionTotals = new LatencyHistogram();
+
+    public LatencyTracer() {
+        this(NanoClock.SYSTEM);
+    }
+
+    public LatencyTracer(NanoClock clock) {
+        this.clock = clock;
+        for (Phase phase : Phase.values()) {
+            histograms.put(phase, new LatencyHistogram());
+        }
+    }
+
+    public long now() {
+        return clock.nanoTime();
+    }
+
+    public NanoClock getClock() {
+        return clock;
+    }
+
+    // 從現在開始一次靠卡流程
+    public SessionTrace newSession() {
+        return new SessionTrace(this, clock.nanoTime());
+    }
+
+    public SessionTrace newSession(long startNanos) {
+        return new SessionTrace(this, startNanos);
+    }
+
+    public void record(Phase phase, long nanos) {
+        histograms.get(phase).record(nanos);
+    }
+
+    void recordSessionTotal(long nanos) {
+        sessionTotals.record(nanos);
+    }
+
+    public LatencyHistogram histogram(Phase phase) {
+        return histograms.get(phase);
+    }
+
+    // 每次流程從開始到 SessionTrace.finish() 的總時間
+    public LatencyHistogram sessionTotals() {
+        return sessionTotals;
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        sessionTotals.reset();
+    }
+
+    // 各階段統計，單位 ms
+    public String summary() {
+        StringBuilder sb = new StringBuilder("各階段延遲統計 (ms)\n");
+        for (Phase phase : Phase.values()) {
+            appendLine(sb, phase.label(), histograms.get(phase));
+        }
+        appendLine(sb, "整體", sessionTotals);
+        return sb.toString();
+    }
+
+    private static void appendLine(StringBuilder sb, String label, LatencyHistogram h) {
+        if (h.getCount() == 0) {
+            return;
+        }
+        sb.append(label).append(" n=").append(h.getCount());
+        sb.append(" p50=");
+        SessionTrace.appendMillis(sb, h.getPercentile(50));
+        sb.append(" p95=");
+        SessionTrace.appendMillis(sb, h.getPercentile(95));
+        sb.append(" p99=");
+        SessionTrace.appendMillis(sb, h.getPercentile(99));
+        sb.append(" max=");
+        SessionTrace.appendMillis(sb, h.getMax());
+        sb.append('\n');
+    }
+}
@@ -0,0 +1,9 @@
+package com.smewise.nfcspeedtest.trace;
+
+// 奈秒時鐘，測試時可替換成可控制的假時鐘
+public interface NanoClock {
+
+    NanoClock SYSTEM = System::nanoTime;
+
+    long nanoTime();
+}
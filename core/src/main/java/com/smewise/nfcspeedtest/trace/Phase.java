@@ -0,0 +1,22 @@
+package com.smewise.nfcspeedtest.trace;
+
+// 一次靠卡流程中的各個階段
+public enum Phase {
+    INTENT_DELIVERY("Intent 傳遞"),
+    TECH_DETECT("技術偵測"),
+    CONNECT("連線"),
+    AUTHENTICATE("認證"),
+    TRANSCEIVE("傳輸"),
+    PARSE("解析"),
+    UI_RENDER("畫面更新");
+
+    private final String label;
+
+    Phase(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
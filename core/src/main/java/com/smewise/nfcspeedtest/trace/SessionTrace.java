@@ -0,0 +1,161 @@
+package com.smewise.nfcspeedtest.trace;
+
+import java.util.Arrays;
+
+/**
+ * 一次靠卡流程的 span 記錄。用法：
+ * <pre>
+ * long t = trace.start();
+ * nfca.connect();
+ * trace.end(Phase.CONNECT, t);
+ * </pre>
+ * span 同時寫入 LatencyTracer 的直方圖。UI 執行緒與 I/O 執行緒可能同時寫入，因此方法皆為 synchronized。
+ */
+public class SessionTrace {
+    private final LatencyTracer tracer;
+    private final long startNanos;
+
+    private Phase[] phases = new Phase[16];
+    private long[] starts = new long[16];
+    private long[] durations = new long[16];
+    private int size;
+    private boolean finished;
+
+    SessionTrace(LatencyTracer tracer, long startNanos) {
+        this.tracer = tracer;
+        this.startNanos = startNanos;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long start() {
+        return tracer.now();
+    }
+
+    // 結束一個 span，回傳其耗時
+    public long end(Phase phase, long spanStartNanos) {
+        long duration = tracer.now() - spanStartNanos;
+        add(phase, spanStartNanos, duration);
+        return duration;
+    }
+
+    public synchronized void add(Phase phase, long spanStartNanos, long durationNanos) {
+        if (size == phases.length) {
+            phases = Arrays.copyOf(phases, size * 2);
+            starts = Arrays.copyOf(starts, size * 2);
+            durations = Arrays.copyOf(durations, size * 2);
+        }
+        phases[size] = phase;
+        starts[size] = spanStartNanos;
+        durations[size] = durationNanos;
+        size++;
+        tracer.record(phase, durationNanos);
+    }
+
+    // 從流程開始到現在的時間
+    public long elapsedNanos() {
+        return tracer.now() - startNanos;
+    }
+
+    // 結束整個流程並記錄總時間（只記錄一次），回傳總耗時
+    public synchronized long finish() {
+        long total = elapsedNanos();
+        if (!finished) {
+            finished = true;
+            tracer.recordSessionTotal(total);
+        }
+        return total;
+    }
+
+    public synchronized int spanCount() {
+        return size;
+    }
+
+    public synchronized Phase phaseAt(int index) {
+        return phases[index];
+    }
+
+    public synchronized long startAt(int index) {
+        return starts[index];
+    }
+
+    public synchronized long durationAt(int index) {
+        return durations[index];
+    }
+
+    public synchronized long totalNanos(Phase phase) {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            if (phases[i] == phase) {
+                total += durations[i];
+            }
+        }
+        return total;
+    }
+
+    public synchronized int count(Phase phase) {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (phases[i] == phase) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 從流程最早的時間點（含 Intent 傳遞）到第一次 RF 回應（傳輸或認證 span 結束）的時間，
+     * 用來比較不同偵測方式的 time-to-first-byte。沒有任何 RF 回應時回傳 -1。
+     */
+    public synchronized long firstByteNanos() {
+        long origin = startNanos;
+        long firstByteAt = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            origin = Math.min(origin, starts[i]);
+            if (phases[i] == Phase.TRANSCEIVE || phases[i] == Phase.AUTHENTICATE) {
+                firstByteAt = Math.min(firstByteAt, starts[i] + durations[i]);
+            }
+        }
+        return firstByteAt == Long.MAX_VALUE ? -1 : firstByteAt - origin;
+    }
+
+    // 例如 "12.345ms"
+    public String formatElapsed() {
+        StringBuilder sb = new StringBuilder(12);
+        appendMillis(sb, elapsedNanos());
+        return sb.toString();
+    }
+
+    // 各階段合計，例如 "連線 0.812ms / 傳輸×2 3.104ms"
+    public synchronized String breakdown() {
+        StringBuilder sb = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            int n = count(phase);
+            if (n == 0) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(" / ");
+            }
+            sb.append(phase.label());
+            if (n > 1) {
+                sb.append('×').append(n);
+            }
+            sb.append(' ');
+            appendMillis(sb, totalNanos(phase));
+        }
+        return sb.toString();
+    }
+
+    // 以 ms 顯示到小數點後三位（µs 精度），不使用 String.format
+    public static void appendMillis(StringBuilder sb, long nanos) {
+        long micros = nanos / 1000;
+        sb.append(micros / 1000).append('.');
+        long fraction = micros % 1000;
+        if (fraction < 100) sb.append('0');
+        if (fraction < 10) sb.append('0');
+        sb.append(fraction).append("ms");
+    }
+}
@@ -0,0 +1,344 @@
+package com.smewise.nfcspeedtest.trace;
+
+import com.smewise.nfcspeedtest.transport.IsoDepTransport;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.NfcBTransport;
+import com.smewise.nfcspeedtest.transport.NfcFTransport;
+import com.smewise.nfcspeedtest.transport.NfcVTransport;
+import com.smewise.nfcspeedtest.transport.TagEndpoint;
+import com.smewise.nfcspeedtest.transport.TagTech;
+import com.smewise.nfcspeedtest.transport.TagTransport;
+
+import java.io.IOException;
+
+/**
+ * 包裝 TagEndpoint，自動把 connect 記為 CONNECT、MIFARE 認證記為 AUTHENTICATE、
+ * 每次 transceive / readBlock / writeBlock / NDEF 讀寫記為 TRANSCEIVE。
+ */
+public class TracingTagEndpoint implements TagEndpoint {
+    private final TagEndpoint delegate;
+    private final SessionTrace trace;
+
+    public TracingTagEndpoint(TagEndpoint delegate, SessionTrace trace) {
+        this.delegate = delegate;
+        this.trace = trace;
+    }
+
+    public TagEndpoint getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public byte[] getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public String[] getTechList() {
+        return delegate.getTechList();
+    }
+
+    @Override
+    public boolean supports(TagTech tech) {
+        return delegate.supports(tech);
+    }
+
+    @Override
+    public NdefTransport ndef() {
+        NdefTransport t = delegate.ndef();
+        return t == null ? null : new TracedNdef(t);
+    }
+
+    @Override
+    public NfcATransport nfcA() {
+        NfcATransport t = delegate.nfcA();
+        return t == null ? null : new TracedNfcA(t);
+    }
+
+    @Override
+    public NfcBTransport nfcB() {
+        NfcBTransport t = delegate.nfcB();
+        return t == null ? null : new TracedNfcB(t);
+    }
+
+    @Override
+    public NfcFTransport nfcF() {
+        NfcFTransport t = delegate.nfcF();
+        return t == null ? null : new TracedNfcF(t);
+    }
+
+    @Override
+    public NfcVTransport nfcV() {
+        NfcVTransport t = delegate.nfcV();
+        return t == null ? null : new TracedNfcV(t);
+    }
+
+    @Override
+    public IsoDepTransport isoDep() {
+        IsoDepTransport t = delegate.isoDep();
+        return t == null ? null : new TracedIsoDep(t);
+    }
+
+    @Override
+    public MifareClassicTransport mifareClassic() {
+        MifareClassicTransport t = delegate.mifareClassic();
+        return t == null ? null : new TracedMifareClassic(t);
+    }
+
+    private class Traced<T extends TagTransport> implements TagTransport {
+        final T t;
+
+        Traced(T t) {
+            this.t = t;
+        }
+
+        @Override
+        public TagTech tech() {
+            return t.tech();
+        }
+
+        @Override
+        public void connect() throws IOException {
+            long start = trace.start();
+            try {
+                t.connect();
+            } finally {
+                trace.end(Phase.CONNECT, start);
+            }
+        }
+
+        @Override
+        public boolean isConnected() {
+            return t.isConnected();
+        }
+
+        @Override
+        public byte[] transceive(byte[] data) throws IOException {
+            long start = trace.start();
+            try {
+                return t.transceive(data);
+            } finally {
+                trace.end(Phase.TRANSCEIVE, start);
+            }
+        }
+
+        @Override
+        public int getMaxTransceiveLength() {
+            return t.getMaxTransceiveLength();
+        }
+
+        @Override
+        public void setTimeout(int timeoutMs) {
+            t.setTimeout(timeoutMs);
+        }
+
+        @Override
+        public int getTimeout() {
+            return t.getTimeout();
+        }
+
+        @Override
+        public void close() throws IOException {
+            t.close();
+        }
+    }
+
+    private final class TracedNdef extends Traced<NdefTransport> implements NdefTransport {
+        TracedNdef(NdefTransport t) {
+            super(t);
+        }
+
+        @Override
+        public String getType() {
+            return t.getType();
+        }
+
+        @Override
+        public int getMaxSize() {
+            return t.getMaxSize();
+        }
+
+        @Override
+        public boolean isWritable() {
+            return t.isWritable();
+        }
+
+        @Override
+        public byte[] readNdefMessage() throws IOException {
+            long start = trace.start();
+            try {
+                return t.readNdefMessage();
+            } finally {
+                trace.end(Phase.TRANSCEIVE, start);
+            }
+        }
+
+        @Override
+        public void writeNdefMessage(byte[] message) throws IOException {
+            long start = trace.start();
+            try {
+                t.writeNdefMessage(message);
+            } finally {
+                trace.end(Phase.TRANSCEIVE, start);
+            }
+        }
+    }
+
+    private final class TracedNfcA extends Traced<NfcATransport> implements NfcATransport {
+        TracedNfcA(NfcATransport t) {
+            super(t);
+        }
+
+        @Override
+        public byte[] getAtqa() {
+            return t.getAtqa();
+        }
+
+        @Override
+        public short getSak() {
+            return t.getSak();
+        }
+    }
+
+    private final class TracedNfcB extends Traced<NfcBTransport> implements NfcBTransport {
+        TracedNfcB(NfcBTransport t) {
+            super(t);
+        }
+
+        @Override
+        public byte[] getApplicationData() {
+            return t.getApplicationData();
+        }
+
+        @Override
+        public byte[] getProtocolInfo() {
+            return t.getProtocolInfo();
+        }
+    }
+
+    private final class TracedNfcF extends Traced<NfcFTransport> implements NfcFTransport {
+        TracedNfcF(NfcFTransport t) {
+            super(t);
+        }
+
+        @Override
+        public byte[] getManufacturer() {
+            return t.getManufacturer();
+        }
+
+        @Override
+        public byte[] getSystemCode() {
+            return t.getSystemCode();
+        }
+    }
+
+    private final class TracedNfcV extends Traced<NfcVTransport> implements NfcVTransport {
+        TracedNfcV(NfcVTransport t) {
+            super(t);
+        }
+
+        @Override
+        public byte getDsfId() {
+            return t.getDsfId();
+        }
+
+        @Override
+        public byte getResponseFlags() {
+            return t.getResponseFlags();
+        }
+    }
+
+    private final class TracedIsoDep extends Traced<IsoDepTransport> implements IsoDepTransport {
+        TracedIsoDep(IsoDepTransport t) {
+            super(t);
+        }
+
+        @Override
+        public boolean isExtendedLengthApduSupported() {
+            return t.isExtendedLengthApduSupported();
+        }
+
+        @Override
+        public byte[] getHistoricalBytes() {
+            return t.getHistoricalBytes();
+        }
+    }
+
+    private final class TracedMifareClassic extends Traced<MifareClassicTransport> implements MifareClassicTransport {
+        TracedMifareClassic(MifareClassicTransport t) {
+            super(t);
+        }
+
+        @Override
+        public int getSize() {
+            return t.getSize();
+        }
+
+        @Override
+        public int getSectorCount() {
+            return t.getSectorCount();
+        }
+
+        @Override
+        public int getBlockCount() {
+            return t.getBlockCount();
+        }
+
+        @Override
+        public int getBlockCountInSector(int sectorIndex) {
+            return t.getBlockCountInSector(sectorIndex);
+        }
+
+        @Override
+        public int sectorToBlock(int sectorIndex) {
+            return t.sectorToBlock(sectorIndex);
+        }
+
+        @Override
+        public int blockToSector(int blockIndex) {
+            return t.blockToSector(blockIndex);
+        }
+
+        @Override
+        public boolean authenticateSectorWithKeyA(int sectorIndex, byte[] key) throws IOException {
+            long start = trace.start();
+            try {
+                return t.authenticateSectorWithKeyA(sectorIndex, key);
+            } finally {
+                trace.end(Phase.AUTHENTICATE, start);
+            }
+        }
+
+        @Override
+        public boolean authenticateSectorWithKeyB(int sectorIndex, byte[] key) throws IOException {
+            long start = trace.start();
+            try {
+                return t.authenticateSectorWithKeyB(sectorIndex, key);
+            } finally {
+                trace.end(Phase.AUTHENTICATE, start);
+            }
+        }
+
+        @Override
+        public byte[] readBlock(int blockIndex) throws IOException {
+            long start = trace.start();
+            try {
+                return t.readBlock(blockIndex);
+            } finally {
+                trace.end(Phase.TRANSCEIVE, start);
+            }
+        }
+
+        @Override
+        public void writeBlock(int blockIndex, byte[] data) throws IOException {
+            long start = trace.start();
+            try {
+                t.writeBlock(blockIndex, data);
+            } finally {
+                trace.end(Phase.TRANSCEIVE, start);
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.smewise.nfcspeedtest.transport;
+
+// ISO-DEP (ISO 14443-4)，transceive 的內容為 APDU
+public interface IsoDepTransport extends TagTransport {
+
+    boolean isExtendedLengthApduSupported();
+
+    byte[] getHistoricalBytes();
+}
@@ -0,0 +1,29 @@
+package com.smewise.nfcspeedtest.transport;
+
+import java.io.IOException;
+
+// MIFARE Classic：認證使用 Crypto1，無法以純 transceive 表達，因此獨立成介面
+public interface MifareClassicTransport extends TagTransport {
+
+    int BLOCK_SIZE = 16;
+
+    int getSize();
+
+    int getSectorCount();
+
+    int getBlockCount();
+
+    int getBlockCountInSector(int sectorIndex);
+
+    int sectorToBlock(int sectorIndex);
+
+    int blockToSector(int blockIndex);
+
+    boolean authenticateSectorWithKeyA(int sectorIndex, byte[] key) throws IOException;
+
+    boolean authenticateSectorWithKeyB(int sectorIndex, byte[] key) throws IOException;
+
+    byte[] readBlock(int blockIndex) throws IOException;
+
+    void writeBlock(int blockIndex, byte[] data) throws IOException;
+}
@@ -0,0 +1,18 @@
+package com.smewise.nfcspeedtest.transport;
+
+import java.io.IOException;
+
+// NDEF：以原始 NDEF message 位元組交換，避免依賴 android.nfc.NdefMessage
+public interface NdefTransport extends TagTransport {
+
+    String getType();
+
+    int getMaxSize();
+
+    boolean isWritable();
+
+    // 標籤沒有 NDEF message 時回傳 null
+    byte[] readNdefMessage() throws IOException;
+
+    void writeNdefMessage(byte[] message) throws IOException;
+}
@@ -0,0 +1,9 @@
+package com.smewise.nfcspeedtest.transport;
+
+// NFC-A (ISO 14443-3A)
+public interface NfcATransport extends TagTransport {
+
+    byte[] getAtqa();
+
+    short getSak();
+}
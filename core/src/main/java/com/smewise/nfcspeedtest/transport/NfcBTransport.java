@@ -0,0 +1,9 @@
+package com.smewise.nfcspeedtest.transport;
+
+// NFC-B (ISO 14443-3B)
+public interface NfcBTransport extends TagTransport {
+
+    byte[] getApplicationData();
+
+    byte[] getProtocolInfo();
+}
@@ -0,0 +1,9 @@
+package com.smewise.nfcspeedtest.transport;
+
+// NFC-F (FeliCa, JIS 6319-4)
+public interface NfcFTransport extends TagTransport {
+
+    byte[] getManufacturer();
+
+    byte[] getSystemCode();
+}
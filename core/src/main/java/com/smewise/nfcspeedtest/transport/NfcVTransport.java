@@ -0,0 +1,9 @@
+package com.smewise.nfcspeedtest.transport;
+
+// NFC-V (ISO 15693)
+public interface NfcVTransport extends TagTransport {
+
+    byte getDsfId();
+
+    byte getResponseFlags();
+}
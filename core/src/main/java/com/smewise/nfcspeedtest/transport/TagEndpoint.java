@@ -0,0 +1,29 @@
+package com.smewise.nfcspeedtest.transport;
+
+/**
+ * 一張被偵測到的標籤。各技術的取得方法與 android.nfc.tech.X.get(tag) 相同，不支援時回傳 null。
+ * 同一時間只能有一種技術處於連線狀態。
+ */
+public interface TagEndpoint {
+
+    byte[] getId();
+
+    // 完整類別名稱，例如 android.nfc.tech.NfcA
+    String[] getTechList();
+
+    boolean supports(TagTech tech);
+
+    NdefTransport ndef();
+
+    NfcATransport nfcA();
+
+    NfcBTransport nfcB();
+
+    NfcFTransport nfcF();
+
+    NfcVTransport nfcV();
+
+    IsoDepTransport isoDep();
+
+    MifareClassicTransport mifareClassic();
+}
@@ -0,0 +1,19 @@
+package com.smewise.nfcspeedtest.transport;
+
+import java.io.IOException;
+
+// 標籤已離開感應範圍；Android 的 android.nfc.TagLostException 也會轉成此例外
+public class TagLostException extends IOException {
+
+    public TagLostException() {
+        super("Tag was lost.");
+    }
+
+    public TagLostException(String message) {
+        super(message);
+    }
+
+    public TagLostException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,38 @@
+package com.smewise.nfcspeedtest.transport;
+
+// 標籤技術種類，對應 android.nfc.tech.* 的類別名稱（不直接引用 Android 類別，方便在 JVM 上測試）
+public enum TagTech {
+    NDEF("android.nfc.tech.Ndef"),
+    NFC_A("android.nfc.tech.NfcA"),
+    NFC_B("android.nfc.tech.NfcB"),
+    NFC_F("android.nfc.tech.NfcF"),
+    NFC_V("android.nfc.tech.NfcV"),
+    ISO_DEP("android.nfc.tech.IsoDep"),
+    MIFARE_CLASSIC("android.nfc.tech.MifareClassic"),
+    MIFARE_ULTRALIGHT("android.nfc.tech.MifareUltralight"),
+    NDEF_FORMATABLE("android.nfc.tech.NdefFormatable");
+
+    private final String className;
+
+    TagTech(String className) {
+        this.className = className;
+    }
+
+    public String className() {
+        return className;
+    }
+
+    public String simpleName() {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    // 找不到對應技術時回傳 null
+    public static TagTech fromClassName(String className) {
+        for (TagTech tech : values()) {
+            if (tech.className.equals(className)) {
+                return tech;
+            }
+        }
+        return null;
+    }
+}
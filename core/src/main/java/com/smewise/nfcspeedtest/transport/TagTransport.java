@@ -0,0 +1,30 @@
+package com.smewise.nfcspeedtest.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 單一技術的傳輸通道：connect / transceive / close。
+ * Android 實作包裝 android.nfc.tech.*，模擬實作則在 JVM 內回應指令。
+ */
+public interface TagTransport extends Closeable {
+
+    TagTech tech();
+
+    void connect() throws IOException;
+
+    boolean isConnected();
+
+    // 傳送原始指令並取得回應（各技術的 frame 格式由呼叫端負責）
+    byte[] transceive(byte[] data) throws IOException;
+
+    int getMaxTransceiveLength();
+
+    // 不支援逾時設定的技術（NfcB、NfcV、Ndef）會忽略此設定
+    void setTimeout(int timeoutMs);
+
+    int getTimeout();
+
+    @Override
+    void close() throws IOException;
+}
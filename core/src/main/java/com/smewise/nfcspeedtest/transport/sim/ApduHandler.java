@@ -0,0 +1,9 @@
+package com.smewise.nfcspeedtest.transport.sim;
+
+import java.io.IOException;
+
+// 模擬 ISO-DEP 卡片上的應用程式：輸入 command APDU，回傳 response APDU（含 SW1 SW2）
+public interface ApduHandler {
+
+    byte[] process(byte[] apdu) throws IOException;
+}
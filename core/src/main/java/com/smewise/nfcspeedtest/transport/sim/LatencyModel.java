@@ -0,0 +1,43 @@
+package com.smewise.nfcspeedtest.transport.sim;
+
+import java.util.Random;
+
+/**
+ * 模擬標籤每個指令的 RF 延遲（奈秒）。
+ * command 為各技術的指令碼：NFC-A/Type 2 為第一個位元組、FeliCa 與 ISO 15693 為指令位元組、
+ * ISO-DEP 為 INS、MIFARE Classic 為 0x60/0x61（認證）、0x30（讀）、0xA0（寫）。
+ */
+public interface LatencyModel {
+
+    LatencyModel NONE = (command, requestLength, responseLength) -> 0L;
+
+    // frame 遺失：標籤沒有回應，讀取端只能等到逾時
+    long LOST = Long.MAX_VALUE;
+
+    long nanosFor(int command, int requestLength, int responseLength);
+
+    static LatencyModel fixed(long nanos) {
+        return (command, requestLength, responseLength) -> nanos;
+    }
+
+    // 固定成本 + 每位元組成本（請求與回應合計）
+    static LatencyModel linear(long baseNanos, long perByteNanos) {
+        return (command, requestLength, responseLength) ->
+                baseNanos + perByteNanos * (requestLength + responseLength);
+    }
+
+    // 在 base 之上加入 [0, maxJitterNanos) 的隨機抖動，seed 固定以便重現
+    static LatencyModel jitter(LatencyModel base, long maxJitterNanos, long seed) {
+        Random random = new Random(seed);
+        return (command, requestLength, responseLength) ->
+                base.nanosFor(command, requestLength, responseLength)
+                        + (long) (random.nextDouble() * maxJitterNanos);
+    }
+
+    // 以 lossRate 的機率遺失 frame（例如卡片在感應邊緣），其餘指令沿用 base；seed 固定以便重現
+    static LatencyModel lossy(LatencyModel base, double lossRate, long seed) {
+        Random random = new Random(seed);
+        return (command, requestLength, responseLength) -> random.nextDouble() < lossRate
+                ? LOST : base.nanosFor(command, requestLength, responseLength);
+    }
+}
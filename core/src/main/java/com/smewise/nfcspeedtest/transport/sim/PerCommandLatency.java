@@ -0,0 +1,25 @@
+package com.smewise.nfcspeedtest.transport.sim;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// 依指令碼分別設定延遲，未設定的指令使用預設模型
+public class PerCommandLatency implements LatencyModel {
+    private final LatencyModel defaultModel;
+    private final Map<Integer, LatencyModel> models = new HashMap<>();
+
+    public PerCommandLatency(LatencyModel defaultModel) {
+        this.defaultModel = defaultModel;
+    }
+
+    public PerCommandLatency set(int command, LatencyModel model) {
+        models.put(command & 0xFF, model);
+        return this;
+    }
+
+    @Override
+    public long nanosFor(int command, int requestLength, int responseLength) {
+        LatencyModel model = models.get(command & 0xFF);
+        return (model != null ? model : defaultModel).nanosFor(command, requestLength, responseLength);
+    }
+}
@@ -0,0 +1,48 @@
+package com.smewise.nfcspeedtest.transport.sim;
+
+import java.util.Arrays;
+
+// 模擬 MainActivity.readEasyCardWithIsoDep 使用的 PAY.TICL 應用：SELECT 與 805C 餘額讀取
+public class SimEasyCardApplet implements ApduHandler {
+    static final byte[] AID = {0x50, 0x41, 0x59, 0x2E, 0x54, 0x49, 0x43, 0x4C}; // "PAY.TICL"
+    static final byte[] SW_OK = {(byte) 0x90, 0x00};
+    static final byte[] SW_FILE_NOT_FOUND = {0x6A, (byte) 0x82};
+    static final byte[] SW_CONDITIONS_NOT_SATISFIED = {0x69, (byte) 0x85};
+    static final byte[] SW_INS_NOT_SUPPORTED = {0x6D, 0x00};
+
+    private int balance;
+    private boolean selected;
+
+    // balance 以「分」為單位，與 MainActivity 中除以 100 的顯示方式一致
+    public SimEasyCardApplet(int balance) {
+        this.balance = balance;
+    }
+
+    public void setBalance(int balance) {
+        this.balance = balance;
+    }
+
+    @Override
+    public byte[] process(byte[] apdu) {
+        if (apdu.length < 4) {
+            return SW_INS_NOT_SUPPORTED.clone();
+        }
+        int cla = apdu[0] & 0xFF;
+        int ins = apdu[1] & 0xFF;
+        if (cla == 0x00 && ins == 0xA4) {
+            int lc = apdu.length > 4 ? apdu[4] & 0xFF : 0;
+            byte[] aid = Arrays.copyOfRange(apdu, 5, Math.min(apdu.length, 5 + lc));
+            selected = Arrays.equals(aid, AID);
+            return selected ? SW_OK.clone() : SW_FILE_NOT_FOUND.clone();
+        }
+        if (cla == 0x80 && ins == 0x5C) {
+            if (!selected) {
+                return SW_CONDITIONS_NOT_SATISFIED.clone();
+            }
+            return new byte[]{
+                    (byte) (balance >> 24), (byte) (balance >> 16), (byte) (balance >> 8), (byte) balance,
+                    (byte) 0x90, 0x00};
+        }
+        return SW_INS_NOT_SUPPORTED.clone();
+    }
+}
@@ -0,0 +1,267 @@
+package com.smewise.nfcspeedtest.transport.sim;
+
+import com.smewise.nfcspeedtest.transport.NfcFTransport;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FeliCa 模擬標籤。frame 格式與 NfcF.transceive 相同：[LEN][CMD][IDm(8)][參數...]。
+ * 支援 Polling (0x00)、Request Service (0x02)、Read/Write Without Encryption (0x06/0x08)、
+ * Search Service Code (0x0A)。
+ */
+public class SimFeliCaTag extends SimulatedTag {
+    public static final int CMD_POLLING = 0x00;
+    public static final int CMD_REQUEST_SERVICE = 0x02;
+    public static final int CMD_READ_WO_ENC = 0x06;
+    public static final int CMD_WRITE_WO_ENC = 0x08;
+    public static final int CMD_SEARCH_SERVICE_CODE = 0x0A;
+
+    public static final int BLOCK_SIZE = 16;
+
+    private final byte[] pmm;
+    private final int systemCode;
+    private final Map<Integer, Service> services = new LinkedHashMap<>();
+    private int maxReadBlocks = 15;
+    private int maxWriteBlocks = 11;
+
+    private static final class Service {
+        final byte[] memory;
+        final boolean writable;
+
+        Service(int blocks, boolean writable) {
+            this.memory = new byte[blocks * BLOCK_SIZE];
+            this.writable = writable;
+        }
+    }
+
+    // idm 為 8 bytes，同時作為 Tag.getId()
+    public SimFeliCaTag(byte[] idm, byte[] pmm, int systemCode, SimulatedLink link) {
+        super(idm, link, TagTech.NFC_F);
+        this.pmm = pmm.clone();
+        this.systemCode = systemCode;
+    }
+
+    public SimFeliCaTag addService(int serviceCode, int blocks, boolean writable) {
+        services.put(serviceCode & 0xFFFF, new Service(blocks, writable));
+        return this;
+    }
+
+    // 單一指令可讀/寫的區塊數上限（依卡片型號而定）
+    public void setBlockLimits(int maxReadBlocks, int maxWriteBlocks) {
+        this.maxReadBlocks = maxReadBlocks;
+        this.maxWriteBlocks = maxWriteBlocks;
+    }
+
+    public byte[] peekBlock(int serviceCode, int block) {
+        Service service = services.get(serviceCode & 0xFFFF);
+        return Arrays.copyOfRange(service.memory, block * BLOCK_SIZE, (block + 1) * BLOCK_SIZE);
+    }
+
+    public void pokeBlock(int serviceCode, int block, byte[] data) {
+        Service service = services.get(serviceCode & 0xFFFF);
+        System.arraycopy(data, 0, service.memory, block * BLOCK_SIZE, BLOCK_SIZE);
+    }
+
+    private boolean idmMatches(byte[] cmd) {
+        if (cmd.length < 10) {
+            return false;
+        }
+        for (int i = 0; i < 8; i++) {
+            if (cmd[2 + i] != uid[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] frame(ByteArrayOutputStream body) {
+        byte[] out = body.toByteArray();
+        out[0] = (byte) out.length;
+        return out;
+    }
+
+    private ByteArrayOutputStream header(int responseCode) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0);
+        out.write(responseCode);
+        out.write(uid, 0, 8);
+        return out;
+    }
+
+    private byte[] status(int responseCode, int sf1, int sf2) {
+        ByteArrayOutputStream out = header(responseCode);
+        out.write(sf1);
+        out.write(sf2);
+        return frame(out);
+    }
+
+    private byte[] polling(byte[] cmd) {
+        int requested = ((cmd[2] & 0xFF) << 8) | (cmd[3] & 0xFF);
+        if (requested != 0xFFFF && requested != systemCode) {
+            return null;
+        }
+        ByteArrayOutputStream out = header(CMD_POLLING + 1);
+        out.write(pmm, 0, 8);
+        if ((cmd[4] & 0xFF) == 0x01) {
+            out.write(systemCode >> 8);
+            out.write(systemCode);
+        }
+        return frame(out);
+    }
+
+    private byte[] requestService(byte[] cmd) {
+        int n = cmd[10] & 0xFF;
+        ByteArrayOutputStream out = header(CMD_REQUEST_SERVICE + 1);
+        out.write(n);
+        for (int i = 0; i < n; i++) {
+            int code = (cmd[11 + i * 2] & 0xFF) | ((cmd[12 + i * 2] & 0xFF) << 8);
+            boolean exists = services.containsKey(code);
+            // 存在的服務回傳 key version 0x0000，否則 0xFFFF
+            out.write(exists ? 0x00 : 0xFF);
+            out.write(exists ? 0x00 : 0xFF);
+        }
+        return frame(out);
+    }
+
+    private byte[] searchServiceCode(byte[] cmd) {
+        int index = (cmd[10] & 0xFF) | ((cmd[11] & 0xFF) << 8);
+        ByteArrayOutputStream out = header(CMD_SEARCH_SERVICE_CODE + 1);
+        List<Integer> codes = new ArrayList<>(services.keySet());
+        int code = index < codes.size() ? codes.get(index) : 0xFFFF;
+        out.write(code);
+        out.write(code >> 8);
+        return frame(out);
+    }
+
+    // Read / Write Without Encryption 共用的 service list 與 block list 解析
+    private byte[] readWrite(byte[] cmd, boolean write) {
+        int responseCode = (write ? CMD_WRITE_WO_ENC : CMD_READ_WO_ENC) + 1;
+        int pos = 10;
+        int serviceCount = cmd[pos++] & 0xFF;
+        if (serviceCount < 1 || serviceCount > 16) {
+            return status(responseCode, 0xFF, 0xA1);
+        }
+        Service[] list = new Service[serviceCount];
+        for (int i = 0; i < serviceCount; i++) {
+            int code = (cmd[pos] & 0xFF) | ((cmd[pos + 1] & 0xFF) << 8);
+            pos += 2;
+            list[i] = services.get(code);
+            if (list[i] == null) {
+                return status(responseCode, 0x01, 0xA6);
+            }
+        }
+        int blockCount = cmd[pos++] & 0xFF;
+        if (blockCount < 1 || blockCount > (write ? maxWriteBlocks : maxReadBlocks)) {
+            return status(responseCode, 0xFF, 0xA2);
+        }
+        int dataPos = pos;
+        // 先找到 block list 結尾（寫入時資料緊接在後）
+        for (int i = 0; i < blockCount; i++) {
+            dataPos += (cmd[dataPos] & 0x80) != 0 ? 2 : 3;
+        }
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (int i = 0; i < blockCount; i++) {
+            int element = cmd[pos] & 0xFF;
+            int serviceIndex = element & 0x0F;
+            int block;
+            if ((element & 0x80) != 0) {
+                block = cmd[pos + 1] & 0xFF;
+                pos += 2;
+            } else {
+                block = (cmd[pos + 1] & 0xFF) | ((cmd[pos + 2] & 0xFF) << 8);
+                pos += 3;
+            }
+            if (serviceIndex >= serviceCount) {
+                return status(responseCode, i + 1, 0xA3);
+            }
+            Service service = list[serviceIndex];
+            if ((block + 1) * BLOCK_SIZE > service.memory.length) {
+                return status(responseCode, i + 1, 0xA8);
+            }
+            if (write) {
+                if (!service.writable) {
+                    return status(responseCode, i + 1, 0xA8);
+                }
+                if (cmd.length < dataPos + (i + 1) * BLOCK_SIZE) {
+                    return status(responseCode, 0xFF, 0xA2);
+                }
+                System.arraycopy(cmd, dataPos + i * BLOCK_SIZE, service.memory, block * BLOCK_SIZE, BLOCK_SIZE);
+            } else {
+                data.write(service.memory, block * BLOCK_SIZE, BLOCK_SIZE);
+            }
+        }
+        ByteArrayOutputStream out = header(responseCode);
+        out.write(0x00);
+        out.write(0x00);
+        if (!write) {
+            out.write(blockCount);
+            byte[] blocks = data.toByteArray();
+            out.write(blocks, 0, blocks.length);
+        }
+        return frame(out);
+    }
+
+    private final class SimNfcF extends SimTransport implements NfcFTransport {
+        SimNfcF() {
+            super(TagTech.NFC_F);
+        }
+
+        @Override
+        protected int commandOf(byte[] data) {
+            return data.length > 1 ? data[1] & 0xFF : 0;
+        }
+
+        @Override
+        protected byte[] handle(byte[] cmd) {
+            if (cmd.length < 2 || (cmd[0] & 0xFF) != cmd.length) {
+                return null;
+            }
+            int code = cmd[1] & 0xFF;
+            if (code == CMD_POLLING) {
+                return cmd.length >= 6 ? polling(cmd) : null;
+            }
+            if (!idmMatches(cmd)) {
+                return null;
+            }
+            switch (code) {
+                case CMD_REQUEST_SERVICE:
+                    return requestService(cmd);
+                case CMD_READ_WO_ENC:
+                    return readWrite(cmd, false);
+                case CMD_WRITE_WO_ENC:
+                    return readWrite(cmd, true);
+                case CMD_SEARCH_SERVICE_CODE:
+                    return searchServiceCode(cmd);
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public int getMaxTransceiveLength() {
+            return 254;
+        }
+
+        @Override
+        public byte[] getManufacturer() {
+            return pmm.clone();
+        }
+
+        @Override
+        public byte[] getSystemCode() {
+            return new byte[]{(byte) (systemCode >> 8), (byte) systemCode};
+        }
+    }
+
+    @Override
+    public NfcFTransport nfcF() {
+        return new SimNfcF();
+    }
+}
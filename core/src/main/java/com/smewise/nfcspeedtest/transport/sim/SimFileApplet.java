@@ -0,0 +1,152 @@
+package com.smewise.nfcspeedtest.transport.sim;
+
+import com.smewise.nfcspeedtest.apdu.CommandApdu;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 具有透明 EF 的模擬 ISO 7816-4 應用：SELECT（以檔案 ID）、READ BINARY、UPDATE BINARY（支援 chaining）、
+ * GET RESPONSE。可設定每個回應 frame 的資料上限（超過時回 61xx），
+ * 以及 Le 大於剩餘長度時回 6Cxx 的嚴格模式，用來驗證 APDU 層的處理。
+ */
+public class SimFileApplet implements ApduHandler {
+    static final int SW_OK = 0x9000;
+    static final int SW_END_OF_FILE = 0x6282;
+    static final int SW_WRONG_LENGTH = 0x6700;
+    static final int SW_NO_EF_SELECTED = 0x6986;
+    static final int SW_FILE_NOT_FOUND = 0x6A82;
+    static final int SW_NOT_ENOUGH_MEMORY = 0x6A84;
+    static final int SW_WRONG_OFFSET = 0x6B00;
+    static final int SW_INS_NOT_SUPPORTED = 0x6D00;
+
+    private final Map<Integer, byte[]> files = new HashMap<>();
+    private byte[] selected;
+    private int maxResponseData = Integer.MAX_VALUE;
+    private boolean strictLe;
+    private byte[] pending = new byte[0];
+    private final ByteArrayOutputStream chain = new ByteArrayOutputStream();
+
+    public SimFileApplet addFile(int fileId, byte[] content) {
+        files.put(fileId & 0xFFFF, content.clone());
+        return this;
+    }
+
+    public byte[] getFile(int fileId) {
+        return files.get(fileId & 0xFFFF).clone();
+    }
+
+    // 每個回應 frame 最多回傳的資料量，剩餘部分以 61xx 告知
+    public void setMaxResponseData(int maxResponseData) {
+        this.maxResponseData = maxResponseData;
+    }
+
+    // Le 超過剩餘長度時回 6Cxx，而非直接回傳較短的資料
+    public void setStrictLe(boolean strictLe) {
+        this.strictLe = strictLe;
+    }
+
+    private static byte[] sw(int sw) {
+        return new byte[]{(byte) (sw >> 8), (byte) sw};
+    }
+
+    private byte[] respond(byte[] data, int sw) {
+        if (data.length > maxResponseData) {
+            pending = Arrays.copyOfRange(data, maxResponseData, data.length);
+            data = Arrays.copyOf(data, maxResponseData);
+            sw = 0x6100 | (Math.min(pending.length, 256) & 0xFF);
+        }
+        byte[] out = Arrays.copyOf(data, data.length + 2);
+        out[data.length] = (byte) (sw >> 8);
+        out[data.length + 1] = (byte) sw;
+        return out;
+    }
+
+    @Override
+    public byte[] process(byte[] apdu) {
+        CommandApdu command = CommandApdu.parse(apdu);
+        if (command == null) {
+            return sw(SW_WRONG_LENGTH);
+        }
+        if (command.getIns() != 0xC0) {
+            pending = new byte[0];
+        }
+        switch (command.getIns()) {
+            case 0xA4:
+                return select(command);
+            case 0xB0:
+                return readBinary(command);
+            case 0xD6:
+                return updateBinary(command);
+            case 0xC0:
+                return getResponse(command);
+            default:
+                return sw(SW_INS_NOT_SUPPORTED);
+        }
+    }
+
+    private byte[] select(CommandApdu command) {
+        byte[] data = command.getData();
+        if (data.length != 2) {
+            return sw(SW_FILE_NOT_FOUND);
+        }
+        selected = files.get((data[0] & 0xFF) << 8 | (data[1] & 0xFF));
+        return sw(selected == null ? SW_FILE_NOT_FOUND : SW_OK);
+    }
+
+    private byte[] readBinary(CommandApdu command) {
+        if (selected == null) {
+            return sw(SW_NO_EF_SELECTED);
+        }
+        int offset = (command.getP1() & 0x7F) << 8 | command.getP2();
+        if (offset >= selected.length) {
+            return sw(SW_WRONG_OFFSET);
+        }
+        int n = Math.min(command.getNe(), selected.length - offset);
+        if (strictLe && n < command.getNe()) {
+            return sw(0x6C00 | n & 0xFF);
+        }
+        return respond(Arrays.copyOfRange(selected, offset, offset + n),
+                n < command.getNe() ? SW_END_OF_FILE : SW_OK);
+    }
+
+    private byte[] updateBinary(CommandApdu command) {
+        byte[] data = command.getData();
+        chain.write(data, 0, data.length);
+        if ((command.getCla() & CommandApdu.CLA_CHAINING) != 0) {
+            return sw(SW_OK);
+        }
+        byte[] all = chain.toByteArray();
+        chain.reset();
+        if (selected == null) {
+            return sw(SW_NO_EF_SELECTED);
+        }
+        int offset = (command.getP1() & 0x7F) << 8 | command.getP2();
+        if (offset + all.length > selected.length) {
+            return sw(SW_NOT_ENOUGH_MEMORY);
+        }
+        System.arraycopy(all, 0, selected, offset, all.length);
+        return sw(SW_OK);
+    }
+
+    private byte[] getResponse(CommandApdu command) {
+        if (pending.length == 0) {
+            return sw(SW_WRONG_LENGTH);
+        }
+        byte[] data = pending;
+        int n = Math.min(command.getNe(), data.length);
+        pending = new byte[0];
+        byte[] out = respond(Arrays.copyOf(data, n), SW_OK);
+        if (n < data.length) {
+            // 要求的長度不足以取完，剩下的接在 frame 上限截掉的部分之後
+            byte[] rest = Arrays.copyOf(pending, pending.length + data.length - n);
+            System.arraycopy(data, n, rest, pending.length, data.length - n);
+            pending = rest;
+            out[out.length - 2] = 0x61;
+            out[out.length - 1] = (byte) Math.min(pending.length, 256);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,176 @@
+package com.smewise.nfcspeedtest.transport.sim;
+
+import com.smewise.nfcspeedtest.transport.NfcVTransport;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * ISO 15693 模擬標籤。frame 格式：[flags][cmd][UID(8，定址模式)][參數...]，
+ * 定址模式的 UID 與 getId() 相同位元組順序（LSB 在前）。
+ * 支援 Read/Write Single Block (0x20/0x21)、Read/Write Multiple Blocks (0x23/0x24)、
+ * Get System Info (0x2B)。
+ */
+public class SimIso15693Tag extends SimulatedTag {
+    public static final int CMD_READ_SINGLE = 0x20;
+    public static final int CMD_WRITE_SINGLE = 0x21;
+    public static final int CMD_READ_MULTIPLE = 0x23;
+    public static final int CMD_WRITE_MULTIPLE = 0x24;
+    public static final int CMD_GET_SYSTEM_INFO = 0x2B;
+
+    public static final int FLAG_HIGH_DATA_RATE = 0x02;
+    public static final int FLAG_ADDRESSED = 0x20;
+    public static final int FLAG_OPTION = 0x40;
+
+    public static final int ERROR_NOT_SUPPORTED = 0x01;
+    public static final int ERROR_BLOCK_UNAVAILABLE = 0x10;
+
+    private final int blockSize;
+    private final int blockCount;
+    private final byte[] memory;
+    private byte dsfId = 0x00;
+    private byte afi = 0x00;
+    private boolean multiBlockSupported = true;
+    private int maxBlocksPerCommand = 32;
+
+    public SimIso15693Tag(byte[] uid, int blockSize, int blockCount, SimulatedLink link) {
+        super(uid, link, TagTech.NFC_V);
+        this.blockSize = blockSize;
+        this.blockCount = blockCount;
+        this.memory = new byte[blockSize * blockCount];
+    }
+
+    // 部分標籤不支援 0x23/0x24，會回傳錯誤碼 0x01
+    public void setMultiBlockSupported(boolean supported) {
+        this.multiBlockSupported = supported;
+    }
+
+    public void setMaxBlocksPerCommand(int maxBlocks) {
+        this.maxBlocksPerCommand = maxBlocks;
+    }
+
+    public void setDsfId(byte dsfId) {
+        this.dsfId = dsfId;
+    }
+
+    public byte[] peek(int offset, int length) {
+        return Arrays.copyOfRange(memory, offset, offset + length);
+    }
+
+    public void poke(int offset, byte[] data) {
+        System.arraycopy(data, 0, memory, offset, data.length);
+    }
+
+    private static byte[] error(int code) {
+        return new byte[]{0x01, (byte) code};
+    }
+
+    private byte[] systemInfo() {
+        byte[] out = new byte[15];
+        out[0] = 0x00;
+        out[1] = 0x0F; // DSFID、AFI、記憶體大小、IC reference 皆存在
+        System.arraycopy(uid, 0, out, 2, 8);
+        out[10] = dsfId;
+        out[11] = afi;
+        out[12] = (byte) (blockCount - 1);
+        out[13] = (byte) (blockSize - 1);
+        out[14] = 0x01;
+        return out;
+    }
+
+    private byte[] read(int first, int count, boolean option) {
+        if (first + count > blockCount) {
+            return error(ERROR_BLOCK_UNAVAILABLE);
+        }
+        int stride = blockSize + (option ? 1 : 0);
+        byte[] out = new byte[1 + stride * count];
+        for (int i = 0; i < count; i++) {
+            int dst = 1 + i * stride + (option ? 1 : 0);
+            System.arraycopy(memory, (first + i) * blockSize, out, dst, blockSize);
+        }
+        return out;
+    }
+
+    private byte[] write(int first, int count, byte[] cmd, int dataOffset) {
+        if (first + count > blockCount || cmd.length < dataOffset + count * blockSize) {
+            return error(ERROR_BLOCK_UNAVAILABLE);
+        }
+        System.arraycopy(cmd, dataOffset, memory, first * blockSize, count * blockSize);
+        return new byte[]{0x00};
+    }
+
+    private final class SimNfcV extends SimTransport implements NfcVTransport {
+        SimNfcV() {
+            super(TagTech.NFC_V);
+        }
+
+        @Override
+        protected int commandOf(byte[] data) {
+            return data.length > 1 ? data[1] & 0xFF : 0;
+        }
+
+        @Override
+        protected byte[] handle(byte[] cmd) {
+            if (cmd.length < 2) {
+                return null;
+            }
+            int flags = cmd[0] & 0xFF;
+            int pos = 2;
+            if ((flags & FLAG_ADDRESSED) != 0) {
+                if (cmd.length < 10) {
+                    return null;
+                }
+                for (int i = 0; i < 8; i++) {
+                    if (cmd[2 + i] != uid[i]) {
+                        return null;
+                    }
+                }
+                pos = 10;
+            }
+            boolean option = (flags & FLAG_OPTION) != 0;
+            switch (cmd[1] & 0xFF) {
+                case CMD_GET_SYSTEM_INFO:
+                    return systemInfo();
+                case CMD_READ_SINGLE:
+                    return cmd.length > pos ? read(cmd[pos] & 0xFF, 1, option) : null;
+                case CMD_WRITE_SINGLE:
+                    return cmd.length > pos ? write(cmd[pos] & 0xFF, 1, cmd, pos + 1) : null;
+                case CMD_READ_MULTIPLE:
+                case CMD_WRITE_MULTIPLE: {
+                    if (!multiBlockSupported) {
+                        return error(ERROR_NOT_SUPPORTED);
+                    }
+                    if (cmd.length < pos + 2) {
+                        return null;
+                    }
+                    int first = cmd[pos] & 0xFF;
+                    int count = (cmd[pos + 1] & 0xFF) + 1;
+                    if (count > maxBlocksPerCommand) {
+                        return error(ERROR_BLOCK_UNAVAILABLE);
+                    }
+                    return (cmd[1] & 0xFF) == CMD_READ_MULTIPLE
+                            ? read(first, count, option)
+                            : write(first, count, cmd, pos + 2);
+                }
+                default:
+                    return error(ERROR_NOT_SUPPORTED);
+            }
+        }
+
+        @Override
+        public byte getDsfId() {
+            return dsfId;
+        }
+
+        @Override
+        public byte getResponseFlags() {
+            return 0x00;
+        }
+    }
+
+    @Override
+    public NfcVTransport nfcV() {
+        return new SimNfcV();
+    }
+}
@@ -0,0 +1,84 @@
+package com.smewise.nfcspeedtest.transport.sim;
+
+import com.smewise.nfcspeedtest.transport.IsoDepTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import java.io.IOException;
+
+// ISO-DEP (ISO 14443-4 over NFC-A) 模擬標籤，APDU 交由 ApduHandler 處理；延遲的指令碼為 INS
+public class SimIsoDepTag extends SimulatedTag {
+    private final ApduHandler handler;
+    private final boolean extendedLengthSupported;
+    private byte[] historicalBytes = new byte[0];
+
+    public SimIsoDepTag(byte[] uid, ApduHandler handler, boolean extendedLengthSupported, SimulatedLink link) {
+        super(uid, link, TagTech.NFC_A, TagTech.ISO_DEP);
+        this.handler = handler;
+        this.extendedLengthSupported = extendedLengthSupported;
+    }
+
+    public void setHistoricalBytes(byte[] historicalBytes) {
+        this.historicalBytes = historicalBytes.clone();
+    }
+
+    private final class SimIsoDep extends SimTransport implements IsoDepTransport {
+        SimIsoDep() {
+            super(TagTech.ISO_DEP);
+        }
+
+        @Override
+        protected int commandOf(byte[] data) {
+            return data.length > 1 ? data[1] & 0xFF : 0;
+        }
+
+        @Override
+        protected byte[] handle(byte[] apdu) throws IOException {
+            if (apdu.length > getMaxTransceiveLength()) {
+                throw new IOException("Transceive length exceeds supported maximum");
+            }
+            return handler.process(apdu);
+        }
+
+        @Override
+        public int getMaxTransceiveLength() {
+            return extendedLengthSupported ? 65279 : 261;
+        }
+
+        @Override
+        public boolean isExtendedLengthApduSupported() {
+            return extendedLengthSupported;
+        }
+
+        @Override
+        public byte[] getHistoricalBytes() {
+            return historicalBytes.clone();
+        }
+    }
+
+    private final class SimNfcA extends SimTransport implements NfcATransport {
+        SimNfcA() {
+            super(TagTech.NFC_A);
+        }
+
+        @Override
+        public byte[] getAtqa() {
+            return new byte[]{0x04, 0x00};
+        }
+
+        @Override
+        public short getSak() {
+            return 0x20;
+        }
+    }
+
+    @Override
+    public IsoDepTransport isoDep() {
+        return new SimIsoDep();
+    }
+
+    @Override
+    public NfcATransport nfcA() {
+        return new SimNfcA();
+    }
+}
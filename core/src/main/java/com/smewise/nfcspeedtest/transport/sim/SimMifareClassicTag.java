@@ -0,0 +1,250 @@
+package com.smewise.nfcspeedtest.transport.sim;
+
+import com.smewise.nfcspeedtest.mifare.AccessBits;
+import com.smewise.nfcspeedtest.mifare.KeyType;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * MIFARE Classic 1K/4K 模擬標籤。
+ * 認證失敗時標籤會進入 HALT，Android 需要重新選取卡片，因此額外計入一次 REQA (0x26) 的延遲。
+ * 讀寫依尾塊的存取位元檢查；存取位元禁止的讀取同樣會讓標籤 HALT，必須重新認證。
+ */
+public class SimMifareClassicTag extends SimulatedTag {
+    public static final int CMD_AUTH_A = 0x60;
+    public static final int CMD_AUTH_B = 0x61;
+    public static final int CMD_READ = 0x30;
+    public static final int CMD_WRITE = 0xA0;
+    public static final int CMD_REQA = 0x26;
+
+    public static final byte[] KEY_DEFAULT = {
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+    // 出廠預設的存取位元 FF 07 80，GPB 69
+    public static final byte[] ACCESS_TRANSPORT = {(byte) 0xFF, 0x07, (byte) 0x80, 0x69};
+
+    private static final int BLOCK_SIZE = MifareClassicTransport.BLOCK_SIZE;
+
+    private final boolean fourK;
+    private final byte[] memory;
+    private int authenticatedSector = -1;
+    private KeyType authenticatedKey;
+
+    public SimMifareClassicTag(byte[] uid, boolean fourK, SimulatedLink link) {
+        super(uid, link, TagTech.NFC_A, TagTech.MIFARE_CLASSIC, TagTech.NDEF_FORMATABLE);
+        this.fourK = fourK;
+        this.memory = new byte[(fourK ? 256 : 64) * BLOCK_SIZE];
+        // 製造商區塊
+        System.arraycopy(uid, 0, memory, 0, Math.min(4, uid.length));
+        memory[4] = (byte) (memory[0] ^ memory[1] ^ memory[2] ^ memory[3]);
+        for (int sector = 0; sector < sectorCount(); sector++) {
+            setSectorTrailer(sector, KEY_DEFAULT, ACCESS_TRANSPORT, KEY_DEFAULT);
+        }
+    }
+
+    public int sectorCount() {
+        return fourK ? 40 : 16;
+    }
+
+    static int blocksInSector(int sector) {
+        return sector < 32 ? 4 : 16;
+    }
+
+    static int firstBlockOf(int sector) {
+        return sector < 32 ? sector * 4 : 128 + (sector - 32) * 16;
+    }
+
+    static int sectorOf(int block) {
+        return block < 128 ? block / 4 : 32 + (block - 128) / 16;
+    }
+
+    static boolean isTrailer(int block) {
+        int sector = sectorOf(block);
+        return block == firstBlockOf(sector) + blocksInSector(sector) - 1;
+    }
+
+    public void setSectorTrailer(int sector, byte[] keyA, byte[] access, byte[] keyB) {
+        int offset = (firstBlockOf(sector) + blocksInSector(sector) - 1) * BLOCK_SIZE;
+        System.arraycopy(keyA, 0, memory, offset, 6);
+        System.arraycopy(access, 0, memory, offset + 6, 4);
+        System.arraycopy(keyB, 0, memory, offset + 10, 6);
+    }
+
+    public void setSectorKeys(int sector, byte[] keyA, byte[] keyB) {
+        setSectorTrailer(sector, keyA, ACCESS_TRANSPORT, keyB);
+    }
+
+    // 直接存取記憶體（測試用，不計入 RF 延遲）
+    public byte[] peekBlock(int block) {
+        return Arrays.copyOfRange(memory, block * BLOCK_SIZE, (block + 1) * BLOCK_SIZE);
+    }
+
+    public void pokeBlock(int block, byte[] data) {
+        System.arraycopy(data, 0, memory, block * BLOCK_SIZE, BLOCK_SIZE);
+    }
+
+    @Override
+    protected void onReselect() {
+        authenticatedSector = -1;
+    }
+
+    private int accessOf(int sector) {
+        return AccessBits.parse(memory, (firstBlockOf(sector) + blocksInSector(sector) - 1) * BLOCK_SIZE + 6);
+    }
+
+    private boolean keyMatches(int sector, int keyOffset, byte[] key) {
+        int offset = (firstBlockOf(sector) + blocksInSector(sector) - 1) * BLOCK_SIZE + keyOffset;
+        for (int i = 0; i < 6; i++) {
+            if (memory[offset + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class SimMifare extends SimTransport implements MifareClassicTransport {
+        SimMifare() {
+            super(TagTech.MIFARE_CLASSIC);
+        }
+
+        @Override
+        public int getSize() {
+            return memory.length;
+        }
+
+        @Override
+        public int getSectorCount() {
+            return sectorCount();
+        }
+
+        @Override
+        public int getBlockCount() {
+            return memory.length / BLOCK_SIZE;
+        }
+
+        @Override
+        public int getBlockCountInSector(int sectorIndex) {
+            checkSector(sectorIndex);
+            return blocksInSector(sectorIndex);
+        }
+
+        @Override
+        public int sectorToBlock(int sectorIndex) {
+            checkSector(sectorIndex);
+            return firstBlockOf(sectorIndex);
+        }
+
+        @Override
+        public int blockToSector(int blockIndex) {
+            checkBlock(blockIndex);
+            return sectorOf(blockIndex);
+        }
+
+        private void checkSector(int sector) {
+            if (sector < 0 || sector >= sectorCount()) {
+                throw new IndexOutOfBoundsException("sector out of bounds: " + sector);
+            }
+        }
+
+        private void checkBlock(int block) {
+            if (block < 0 || block >= getBlockCount()) {
+                throw new IndexOutOfBoundsException("block out of bounds: " + block);
+            }
+        }
+
+        private boolean authenticate(int sector, byte[] key, int command, int keyOffset) throws IOException {
+            checkSector(sector);
+            exchange(command, 2 + 6, 0);
+            if (keyMatches(sector, keyOffset, key)) {
+                authenticatedSector = sector;
+                authenticatedKey = command == CMD_AUTH_A ? KeyType.A : KeyType.B;
+                return true;
+            }
+            authenticatedSector = -1;
+            exchange(CMD_REQA, 1, 2);
+            return false;
+        }
+
+        @Override
+        public boolean authenticateSectorWithKeyA(int sectorIndex, byte[] key) throws IOException {
+            return authenticate(sectorIndex, key, CMD_AUTH_A, 0);
+        }
+
+        @Override
+        public boolean authenticateSectorWithKeyB(int sectorIndex, byte[] key) throws IOException {
+            return authenticate(sectorIndex, key, CMD_AUTH_B, 10);
+        }
+
+        private void checkAuthenticated(int block) throws IOException {
+            checkBlock(block);
+            if (authenticatedSector != sectorOf(block)) {
+                throw new IOException("Transceive failed");
+            }
+        }
+
+        @Override
+        public byte[] readBlock(int blockIndex) throws IOException {
+            checkConnected();
+            checkAuthenticated(blockIndex);
+            int sector = sectorOf(blockIndex);
+            int access = accessOf(sector);
+            int group = AccessBits.groupOf(blockIndex - firstBlockOf(sector), blocksInSector(sector));
+            if (access != AccessBits.INVALID && !AccessBits.canRead(access, group, authenticatedKey)) {
+                // NAK 後標籤 HALT
+                exchange(CMD_READ, 2, 1);
+                authenticatedSector = -1;
+                throw new IOException("Transceive failed");
+            }
+            byte[] data = peekBlock(blockIndex);
+            if (isTrailer(blockIndex)) {
+                // Key A 永遠讀不到，Key B 只有在存取位元允許讀取時才讀得到
+                Arrays.fill(data, 0, 6, (byte) 0);
+                if (!AccessBits.isKeyBReadable(access)) {
+                    Arrays.fill(data, 10, 16, (byte) 0);
+                }
+            }
+            exchange(CMD_READ, 2, BLOCK_SIZE);
+            return data;
+        }
+
+        @Override
+        public void writeBlock(int blockIndex, byte[] data) throws IOException {
+            checkConnected();
+            checkAuthenticated(blockIndex);
+            if (blockIndex == 0 || data.length != BLOCK_SIZE) {
+                throw new IOException("Transceive failed");
+            }
+            exchange(CMD_WRITE, 2 + BLOCK_SIZE, 1);
+            pokeBlock(blockIndex, data);
+        }
+    }
+
+    private final class SimNfcA extends SimTransport implements NfcATransport {
+        SimNfcA() {
+            super(TagTech.NFC_A);
+        }
+
+        @Override
+        public byte[] getAtqa() {
+            return fourK ? new byte[]{0x02, 0x00} : new byte[]{0x04, 0x00};
+        }
+
+        @Override
+        public short getSak() {
+            return (short) (fourK ? 0x18 : 0x08);
+        }
+    }
+
+    @Override
+    public MifareClassicTransport mifareClassic() {
+        return new SimMifare();
+    }
+
+    @Override
+    public NfcATransport nfcA() {
+        return new SimNfcA();
+    }
+}
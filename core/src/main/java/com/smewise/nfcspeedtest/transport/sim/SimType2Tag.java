@@ -0,0 +1,271 @@
+package com.smewise.nfcspeedtest.transport.sim;
+
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * NFC Forum Type 2（NTAG21x）模擬標籤。
+ * 支援 READ (0x30)、FAST_READ (0x3A)、WRITE (0xA2)、GET_VERSION (0x60)，
+ * NDEF 則由記憶體中的 TLV 讀寫，延遲以等量的 READ/WRITE 指令計算。
+ */
+public class SimType2Tag extends SimulatedTag {
+    public static final int CMD_GET_VERSION = 0x60;
+    public static final int CMD_READ = 0x30;
+    public static final int CMD_FAST_READ = 0x3A;
+    public static final int CMD_WRITE = 0xA2;
+    public static final byte ACK = 0x0A;
+
+    public static final int PAGE_SIZE = 4;
+    // NDEF 資料區從第 4 頁開始
+    public static final int FIRST_DATA_PAGE = 4;
+
+    public enum Model {
+        NTAG213(45, 0x0F, 0x12),
+        NTAG215(135, 0x11, 0x3E),
+        NTAG216(231, 0x13, 0x6D);
+
+        final int totalPages;
+        final int storageSize;
+        final int ccSize;
+
+        Model(int totalPages, int storageSize, int ccSize) {
+            this.totalPages = totalPages;
+            this.storageSize = storageSize;
+            this.ccSize = ccSize;
+        }
+
+        // 使用者資料區頁數（CC 所宣告的大小 / 4）
+        public int dataPages() {
+            return ccSize * 8 / PAGE_SIZE;
+        }
+    }
+
+    private final Model model;
+    private final byte[] memory;
+    private boolean readOnly;
+
+    public SimType2Tag(Model model, byte[] uid, SimulatedLink link) {
+        super(uid, link, TagTech.NFC_A, TagTech.MIFARE_ULTRALIGHT, TagTech.NDEF);
+        this.model = model;
+        this.memory = new byte[model.totalPages * PAGE_SIZE];
+        // UID 與 BCC
+        System.arraycopy(uid, 0, memory, 0, Math.min(3, uid.length));
+        memory[3] = (byte) (0x88 ^ memory[0] ^ memory[1] ^ memory[2]);
+        if (uid.length >= 7) {
+            System.arraycopy(uid, 3, memory, 4, 4);
+            memory[8] = (byte) (memory[4] ^ memory[5] ^ memory[6] ^ memory[7]);
+        }
+        // Capability Container
+        memory[12] = (byte) 0xE1;
+        memory[13] = 0x10;
+        memory[14] = (byte) model.ccSize;
+        memory[15] = 0x00;
+        // 空的 NDEF TLV + Terminator
+        memory[16] = 0x03;
+        memory[17] = 0x00;
+        memory[18] = (byte) 0xFE;
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    // 直接存取記憶體（測試用，不計入 RF 延遲）
+    public byte[] peekPages(int firstPage, int count) {
+        return Arrays.copyOfRange(memory, firstPage * PAGE_SIZE, (firstPage + count) * PAGE_SIZE);
+    }
+
+    public void pokePages(int firstPage, byte[] data) {
+        System.arraycopy(data, 0, memory, firstPage * PAGE_SIZE, data.length);
+    }
+
+    private int dataAreaStart() {
+        return FIRST_DATA_PAGE * PAGE_SIZE;
+    }
+
+    private int dataAreaEnd() {
+        return dataAreaStart() + model.dataPages() * PAGE_SIZE;
+    }
+
+    private byte[] version() {
+        return new byte[]{0x00, 0x04, 0x04, 0x02, 0x01, 0x00, (byte) model.storageSize, 0x03};
+    }
+
+    private byte[] readPages(int page) throws IOException {
+        if (page < 0 || page >= model.totalPages) {
+            throw new IOException("Transceive failed");
+        }
+        // READ 一次回傳 4 頁，超出尾端時從第 0 頁繞回
+        byte[] out = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            out[i] = memory[(page * PAGE_SIZE + i) % memory.length];
+        }
+        return out;
+    }
+
+    private void writePage(int page, byte[] data, int offset) throws IOException {
+        if (page < 3 || page >= model.totalPages || readOnly) {
+            throw new IOException("Transceive failed");
+        }
+        if (page == 3) {
+            // CC 為 OTP，只能由 0 變 1
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                memory[page * PAGE_SIZE + i] |= data[offset + i];
+            }
+        } else {
+            System.arraycopy(data, offset, memory, page * PAGE_SIZE, PAGE_SIZE);
+        }
+    }
+
+    private final class SimNfcA extends SimTransport implements NfcATransport {
+        SimNfcA() {
+            super(TagTech.NFC_A);
+        }
+
+        @Override
+        protected byte[] handle(byte[] cmd) throws IOException {
+            if (cmd.length == 0) {
+                throw new IOException("Transceive failed");
+            }
+            switch (cmd[0] & 0xFF) {
+                case CMD_GET_VERSION:
+                    return version();
+                case CMD_READ:
+                    return readPages(cmd[1] & 0xFF);
+                case CMD_FAST_READ: {
+                    int start = cmd[1] & 0xFF;
+                    int end = cmd[2] & 0xFF;
+                    if (end < start || end >= model.totalPages
+                            || (end - start + 1) * PAGE_SIZE > getMaxTransceiveLength()) {
+                        throw new IOException("Transceive failed");
+                    }
+                    return Arrays.copyOfRange(memory, start * PAGE_SIZE, (end + 1) * PAGE_SIZE);
+                }
+                case CMD_WRITE:
+                    if (cmd.length < 6) {
+                        throw new IOException("Transceive failed");
+                    }
+                    writePage(cmd[1] & 0xFF, cmd, 2);
+                    return new byte[]{ACK};
+                default:
+                    throw new IOException("Transceive failed");
+            }
+        }
+
+        @Override
+        public byte[] getAtqa() {
+            return new byte[]{0x44, 0x00};
+        }
+
+        @Override
+        public short getSak() {
+            return 0x00;
+        }
+    }
+
+    private final class SimNdef extends SimTransport implements NdefTransport {
+        SimNdef() {
+            super(TagTech.NDEF);
+        }
+
+        @Override
+        public String getType() {
+            return "org.nfcforum.ndef.type2";
+        }
+
+        @Override
+        public int getMaxSize() {
+            int area = model.dataPages() * PAGE_SIZE;
+            return area - (area > 256 ? 4 : 2);
+        }
+
+        @Override
+        public boolean isWritable() {
+            return !readOnly;
+        }
+
+        @Override
+        public byte[] readNdefMessage() throws IOException {
+            checkConnected();
+            int pos = dataAreaStart();
+            int end = dataAreaEnd();
+            byte[] result = null;
+            while (pos < end) {
+                int t = memory[pos] & 0xFF;
+                if (t == 0x00) {
+                    pos++;
+                    continue;
+                }
+                if (t == 0xFE) {
+                    pos++;
+                    break;
+                }
+                int len = memory[pos + 1] & 0xFF;
+                int header = 2;
+                if (len == 0xFF) {
+                    len = ((memory[pos + 2] & 0xFF) << 8) | (memory[pos + 3] & 0xFF);
+                    header = 4;
+                }
+                if (t == 0x03) {
+                    result = len == 0 ? null : Arrays.copyOfRange(memory, pos + header, pos + header + len);
+                    pos += header + len;
+                    break;
+                }
+                pos += header + len;
+            }
+            // 以 READ 指令（每次 16 bytes）讀到 TLV 結尾所需的次數計算延遲
+            int reads = (pos - dataAreaStart() + 15) / 16;
+            for (int i = 0; i < Math.max(1, reads); i++) {
+                exchange(CMD_READ, 2, 16);
+            }
+            return result;
+        }
+
+        @Override
+        public void writeNdefMessage(byte[] message) throws IOException {
+            checkConnected();
+            if (readOnly) {
+                throw new IOException("Tag is read-only");
+            }
+            if (message.length > getMaxSize()) {
+                throw new IOException("Message too large");
+            }
+            int header = message.length < 0xFF ? 2 : 4;
+            int tlvLength = header + message.length + 1;
+            byte[] tlv = new byte[(tlvLength + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE];
+            tlv[0] = 0x03;
+            if (header == 2) {
+                tlv[1] = (byte) message.length;
+            } else {
+                tlv[1] = (byte) 0xFF;
+                tlv[2] = (byte) (message.length >> 8);
+                tlv[3] = (byte) message.length;
+            }
+            System.arraycopy(message, 0, tlv, header, message.length);
+            tlv[header + message.length] = (byte) 0xFE;
+            int pages = Math.min(tlv.length, dataAreaEnd() - dataAreaStart()) / PAGE_SIZE;
+            for (int i = 0; i < pages; i++) {
+                writePage(FIRST_DATA_PAGE + i, tlv, i * PAGE_SIZE);
+                exchange(CMD_WRITE, 6, 1);
+            }
+        }
+    }
+
+    @Override
+    public NfcATransport nfcA() {
+        return new SimNfcA();
+    }
+
+    @Override
+    public NdefTransport ndef() {
+        return new SimNdef();
+    }
+}
@@ -0,0 +1,97 @@
+package com.smewise.nfcspeedtest.transport.sim;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 模擬 RF 連線：套用延遲模型並累計交換次數與 RF 時間。
+ * realTime 為 true 時真的等待（用於端到端量測），否則只累計虛擬時間（用於單元測試與基準測試）。
+ */
+public class SimulatedLink {
+    private final LatencyModel latency;
+    private final boolean realTime;
+
+    private long exchanges;
+    private long rfNanos;
+    private long bytesSent;
+    private long bytesReceived;
+
+    public SimulatedLink(LatencyModel latency, boolean realTime) {
+        this.latency = latency;
+        this.realTime = realTime;
+    }
+
+    public static SimulatedLink instant() {
+        return new SimulatedLink(LatencyModel.NONE, false);
+    }
+
+    public static SimulatedLink virtual(LatencyModel latency) {
+        return new SimulatedLink(latency, false);
+    }
+
+    public static SimulatedLink realTime(LatencyModel latency) {
+        return new SimulatedLink(latency, true);
+    }
+
+    // 標籤沒有設定逾時（timeoutMs 為 0）時，遺失的 frame 依 Android 多數技術的預設逾時計算
+    public static final int DEFAULT_TIMEOUT_MS = 618;
+
+    // 記錄一次指令交換；timeoutMs > 0 且延遲超過逾時時拋出 IOException（仍計入等待時間）
+    public void exchange(int command, int requestLength, int responseLength, int timeoutMs) throws IOException {
+        long nanos = latency.nanosFor(command, requestLength, responseLength);
+        int effectiveMs = timeoutMs > 0 ? timeoutMs : nanos == LatencyModel.LOST ? DEFAULT_TIMEOUT_MS : 0;
+        long timeoutNanos = effectiveMs > 0 ? effectiveMs * 1_000_000L : Long.MAX_VALUE;
+        boolean timedOut = nanos > timeoutNanos;
+        if (timedOut) {
+            nanos = timeoutNanos;
+        }
+        bytesSent += requestLength;
+        if (!timedOut) {
+            bytesReceived += responseLength;
+        }
+        charge(nanos);
+        if (timedOut) {
+            throw new IOException("Transceive timed out");
+        }
+    }
+
+    // 對已移開的標籤送出指令：沒有回應，等滿逾時（Android 之後才回報標籤遺失）
+    public void timeout(int timeoutMs) {
+        charge((timeoutMs > 0 ? timeoutMs : DEFAULT_TIMEOUT_MS) * 1_000_000L);
+    }
+
+    private void charge(long nanos) {
+        exchanges++;
+        rfNanos += nanos;
+        if (realTime && nanos > 0) {
+            long deadline = System.nanoTime() + nanos;
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+
+    public long getExchanges() {
+        return exchanges;
+    }
+
+    public long getRfNanos() {
+        return rfNanos;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public void reset() {
+        exchanges = 0;
+        rfNanos = 0;
+        bytesSent = 0;
+        bytesReceived = 0;
+    }
+}
@@ -0,0 +1,214 @@
+package com.smewise.nfcspeedtest.transport.sim;
+
+import com.smewise.nfcspeedtest.transport.IsoDepTransport;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.NfcBTransport;
+import com.smewise.nfcspeedtest.transport.NfcFTransport;
+import com.smewise.nfcspeedtest.transport.NfcVTransport;
+import com.smewise.nfcspeedtest.transport.TagEndpoint;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+import com.smewise.nfcspeedtest.transport.TagTech;
+import com.smewise.nfcspeedtest.transport.TagTransport;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * JVM 內的模擬標籤。行為比照 Android：同一時間只能連線一種技術，
+ * 標籤移開後所有操作拋出 TagLostException。
+ */
+public abstract class SimulatedTag implements TagEndpoint {
+    protected final byte[] uid;
+    protected final SimulatedLink link;
+    private final List<TagTech> techList;
+    private final EnumSet<TagTech> techs;
+
+    private TagTech connectedTech;
+    private boolean present = true;
+
+    protected SimulatedTag(byte[] uid, SimulatedLink link, TagTech... techs) {
+        this.uid = uid.clone();
+        this.link = link;
+        this.techList = Arrays.asList(techs);
+        this.techs = EnumSet.noneOf(TagTech.class);
+        this.techs.addAll(techList);
+    }
+
+    public SimulatedLink getLink() {
+        return link;
+    }
+
+    // 模擬標籤離開感應範圍
+    public void remove() {
+        present = false;
+        connectedTech = null;
+    }
+
+    // 模擬標籤重新靠近（重新選取，認證狀態會被清除）
+    public void reenter() {
+        present = true;
+        connectedTech = null;
+        onReselect();
+    }
+
+    public boolean isPresent() {
+        return present;
+    }
+
+    protected void onReselect() {
+    }
+
+    @Override
+    public byte[] getId() {
+        return uid.clone();
+    }
+
+    @Override
+    public String[] getTechList() {
+        String[] names = new String[techList.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = techList.get(i).className();
+        }
+        return names;
+    }
+
+    @Override
+    public boolean supports(TagTech tech) {
+        return techs.contains(tech);
+    }
+
+    @Override
+    public NdefTransport ndef() {
+        return null;
+    }
+
+    @Override
+    public NfcATransport nfcA() {
+        return null;
+    }
+
+    @Override
+    public NfcBTransport nfcB() {
+        return null;
+    }
+
+    @Override
+    public NfcFTransport nfcF() {
+        return null;
+    }
+
+    @Override
+    public NfcVTransport nfcV() {
+        return null;
+    }
+
+    @Override
+    public IsoDepTransport isoDep() {
+        return null;
+    }
+
+    @Override
+    public MifareClassicTransport mifareClassic() {
+        return null;
+    }
+
+    // 各技術共用的連線狀態與延遲計算
+    protected abstract class SimTransport implements TagTransport {
+        private final TagTech tech;
+        private boolean connected;
+        private int timeoutMs;
+
+        protected SimTransport(TagTech tech) {
+            this.tech = tech;
+        }
+
+        @Override
+        public TagTech tech() {
+            return tech;
+        }
+
+        @Override
+        public void connect() throws IOException {
+            checkPresentRf();
+            if (connectedTech != null && connectedTech != tech) {
+                throw new IllegalStateException("Close other technology first!");
+            }
+            connectedTech = tech;
+            connected = true;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected && present && connectedTech == tech;
+        }
+
+        // 標籤已移開時讀取端要等到逾時才知道，等待時間計入 RF 時間
+        protected void checkPresentRf() throws IOException {
+            if (!isPresent()) {
+                link.timeout(timeoutMs);
+                throw new TagLostException();
+            }
+        }
+
+        protected void checkConnected() throws IOException {
+            checkPresentRf();
+            if (!isConnected()) {
+                throw new IllegalStateException("Call connect() first!");
+            }
+        }
+
+        @Override
+        public byte[] transceive(byte[] data) throws IOException {
+            checkConnected();
+            byte[] response = handle(data);
+            link.exchange(commandOf(data), data.length, response == null ? 0 : response.length, timeoutMs);
+            if (response == null) {
+                // 標籤不回應（例如 UID 不符），Android 會在逾時後拋出 IOException
+                throw new IOException("Transceive failed");
+            }
+            return response;
+        }
+
+        // 指令回應；回傳 null 代表標籤沒有回應
+        protected byte[] handle(byte[] data) throws IOException {
+            throw new IOException("Transceive not supported");
+        }
+
+        protected int commandOf(byte[] data) {
+            return data.length > 0 ? data[0] & 0xFF : 0;
+        }
+
+        // 以非 transceive 的方式存取標籤時（例如 MIFARE 認證），也要計入 RF 延遲
+        protected void exchange(int command, int requestLength, int responseLength) throws IOException {
+            checkConnected();
+            link.exchange(command, requestLength, responseLength, timeoutMs);
+        }
+
+        @Override
+        public int getMaxTransceiveLength() {
+            return 253;
+        }
+
+        @Override
+        public void setTimeout(int timeoutMs) {
+            this.timeoutMs = timeoutMs;
+        }
+
+        @Override
+        public int getTimeout() {
+            return timeoutMs;
+        }
+
+        @Override
+        public void close() {
+            if (connectedTech == tech) {
+                connectedTech = null;
+            }
+            connected = false;
+        }
+    }
+}
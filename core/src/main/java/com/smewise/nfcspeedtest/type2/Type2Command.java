@@ -0,0 +1,18 @@
+package com.smewise.nfcspeedtest.type2;
+
+// 分開統計的頁面存取指令
+public enum Type2Command {
+    FAST_READ("FAST_READ (0x3A)"),
+    READ("READ (0x30)"),
+    WRITE("WRITE (0xA2)");
+
+    private final String label;
+
+    Type2Command(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
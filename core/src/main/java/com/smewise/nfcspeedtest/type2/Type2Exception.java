@@ -0,0 +1,22 @@
+package com.smewise.nfcspeedtest.type2;
+
+import java.io.IOException;
+
+// 標籤以 4-bit NAK 拒絕指令（NTAG21x 資料手冊 表 23）
+public class Type2Exception extends IOException {
+    public static final int NAK_INVALID_ARGUMENT = 0x0;
+    public static final int NAK_CRC_ERROR = 0x1;
+    public static final int NAK_COUNTER_OVERFLOW = 0x4;
+    public static final int NAK_EEPROM_ERROR = 0x5;
+
+    private final int nak;
+
+    public Type2Exception(int command, int nak) {
+        super(String.format("指令 %02X 回應 NAK %X", command, nak));
+        this.nak = nak;
+    }
+
+    public int getNak() {
+        return nak;
+    }
+}
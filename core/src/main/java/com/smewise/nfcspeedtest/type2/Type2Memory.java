@@ -0,0 +1,375 @@
+package com.smewise.nfcspeedtest.type2;
+
+import com.smewise.nfcspeedtest.trace.NanoClock;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * NFC Forum Type 2（NTAG21x / Ultralight）頁面讀寫，直接走 NfcA.transceive。
+ * 讀取用 FAST_READ (0x3A)，每次頁數依 getMaxTransceiveLength 計算；標籤不認得時改用 READ (0x30，一次 4 頁)。
+ * NDEF 由 CC 與 TLV 自行解析：第一個指令同時讀回 CC 與資料區開頭，
+ * 之後只補讀解析到的 TLV 需要的頁面，不經過 Android 的 NDEF 檢查與整區讀取。
+ * 只在 NFC I/O 執行緒使用。
+ */
+public class Type2Memory {
+    public static final int CMD_GET_VERSION = 0x60;
+    public static final int CMD_READ = 0x30;
+    public static final int CMD_FAST_READ = 0x3A;
+    public static final int CMD_WRITE = 0xA2;
+    public static final int ACK = 0x0A;
+
+    public static final int PAGE_SIZE = 4;
+    public static final int CC_PAGE = 3;
+    public static final int FIRST_DATA_PAGE = 4;
+
+    static final int CC_MAGIC = 0xE1;
+    static final int TLV_NULL = 0x00;
+    static final int TLV_NDEF = 0x03;
+    static final int TLV_TERMINATOR = 0xFE;
+
+    // READ 一次回傳 4 頁；第一次讀取 CC 也用同樣大小，兩種指令的結果一致
+    private static final int READ_PAGES = 4;
+    // 頁碼欄位只有一個 byte
+    private static final int MAX_PAGES = 256;
+
+    private final NfcATransport nfca;
+    private final NanoClock clock;
+
+    private Type2Version version;
+    private boolean versionRead;
+    private Type2Command readCommand = Type2Command.FAST_READ;
+    private boolean fastReadConfirmed;
+    private int fastReadPages;
+
+    private int dataAreaSize = -1;
+    private int writeAccess;
+    private byte[] data = new byte[0];
+    private int loaded;
+
+    private final byte[] head = new byte[READ_PAGES * PAGE_SIZE];
+    private final byte[] readFrame = new byte[2];
+    private final byte[] fastReadFrame = new byte[3];
+    private final byte[] writeFrame = new byte[2 + PAGE_SIZE];
+
+    private final long[] bytes = new long[Type2Command.values().length];
+    private final long[] nanos = new long[Type2Command.values().length];
+    private final long[] commands = new long[Type2Command.values().length];
+
+    public Type2Memory(NfcATransport nfca, NanoClock clock) {
+        this.nfca = nfca;
+        this.clock = clock;
+    }
+
+    // 原始 Ultralight / Ultralight C 沒有 GET_VERSION，回傳 null
+    public Type2Version getVersion() throws IOException {
+        if (!versionRead) {
+            try {
+                version = Type2Version.parse(exchange(CMD_GET_VERSION, new byte[]{(byte) CMD_GET_VERSION}, null));
+            } catch (TagLostException e) {
+                throw e;
+            } catch (IOException e) {
+                // 不認得的指令會讓標籤回到 IDLE，要重新選取才能繼續
+                reselect();
+            }
+            versionRead = true;
+        }
+        return version;
+    }
+
+    public Type2Command getReadCommand() {
+        return readCommand;
+    }
+
+    // 強制使用 FAST_READ 或 READ（比較兩種方式的速度用）
+    public void setReadCommand(Type2Command command) {
+        if (command == Type2Command.WRITE) {
+            throw new IllegalArgumentException("WRITE 不是讀取指令");
+        }
+        this.readCommand = command;
+    }
+
+    public int getFastReadPages() {
+        if (fastReadPages == 0) {
+            fastReadPages = Math.max(1, Math.min(MAX_PAGES, nfca.getMaxTransceiveLength() / PAGE_SIZE));
+        }
+        return fastReadPages;
+    }
+
+    public void read(int firstPage, int pageCount, byte[] dst, int dstOffset) throws IOException {
+        checkRange(firstPage, pageCount);
+        int done = 0;
+        while (done < pageCount) {
+            int page = firstPage + done;
+            int offset = dstOffset + done * PAGE_SIZE;
+            if (readCommand == Type2Command.READ) {
+                int count = Math.min(pageCount - done, READ_PAGES);
+                readFour(page, count, dst, offset);
+                done += count;
+                continue;
+            }
+            int count = Math.min(pageCount - done, getFastReadPages());
+            try {
+                fastRead(page, count, dst, offset);
+                fastReadConfirmed = true;
+                done += count;
+            } catch (TagLostException e) {
+                throw e;
+            } catch (IOException e) {
+                // FAST_READ 成功過就是真的錯誤（例如讀到受密碼保護的頁面）；否則視為不支援
+                if (fastReadConfirmed) {
+                    throw e;
+                }
+                readCommand = Type2Command.READ;
+                reselect();
+            }
+        }
+    }
+
+    public void writePage(int page, byte[] src, int srcOffset) throws IOException {
+        checkRange(page, 1);
+        writeFrame[0] = (byte) CMD_WRITE;
+        writeFrame[1] = (byte) page;
+        System.arraycopy(src, srcOffset, writeFrame, 2, PAGE_SIZE);
+        byte[] response = exchange(CMD_WRITE, writeFrame, Type2Command.WRITE);
+        if (response.length != 1) {
+            throw new IOException("WRITE 回應格式錯誤: " + response.length + " bytes");
+        }
+        bytes[Type2Command.WRITE.ordinal()] += PAGE_SIZE;
+    }
+
+    private void checkRange(int firstPage, int pageCount) {
+        int limit = version != null && version.getTotalPages() > 0 ? version.getTotalPages() : MAX_PAGES;
+        if (firstPage < 0 || pageCount < 0 || firstPage + pageCount > limit) {
+            throw new IndexOutOfBoundsException("頁面範圍超出記憶體: " + firstPage + "+" + pageCount + " / " + limit);
+        }
+    }
+
+    private void fastRead(int page, int count, byte[] dst, int offset) throws IOException {
+        fastReadFrame[0] = (byte) CMD_FAST_READ;
+        fastReadFrame[1] = (byte) page;
+        fastReadFrame[2] = (byte) (page + count - 1);
+        copyData(exchange(CMD_FAST_READ, fastReadFrame, Type2Command.FAST_READ), dst, offset, count * PAGE_SIZE);
+        bytes[Type2Command.FAST_READ.ordinal()] += count * PAGE_SIZE;
+    }
+
+    private void readFour(int page, int count, byte[] dst, int offset) throws IOException {
+        readFrame[0] = (byte) CMD_READ;
+        readFrame[1] = (byte) page;
+        copyData(exchange(CMD_READ, readFrame, Type2Command.READ), dst, offset, count * PAGE_SIZE);
+        bytes[Type2Command.READ.ordinal()] += count * PAGE_SIZE;
+    }
+
+    private static void copyData(byte[] response, byte[] dst, int offset, int length) throws IOException {
+        if (response.length < length) {
+            throw new IOException("回應長度不足: " + response.length);
+        }
+        System.arraycopy(response, 0, dst, offset, length);
+    }
+
+    private void reselect() throws IOException {
+        nfca.close();
+        nfca.connect();
+    }
+
+    // 讀取 CC 並同時快取資料區開頭 12 bytes，回傳 CC 宣告的資料區大小
+    public int readCapabilityContainer() throws IOException {
+        read(CC_PAGE, READ_PAGES, head, 0);
+        if ((head[0] & 0xFF) != CC_MAGIC) {
+            throw new IOException(String.format("CC 不是 NDEF 格式: %02X", head[0] & 0xFF));
+        }
+        if ((head[1] & 0xF0) > 0x10) {
+            throw new IOException(String.format("不支援的 NDEF 版本: %02X", head[1] & 0xFF));
+        }
+        dataAreaSize = (head[2] & 0xFF) * 8;
+        writeAccess = head[3] & 0x0F;
+        if (data.length != dataAreaSize) {
+            data = new byte[dataAreaSize];
+        }
+        loaded = Math.min(dataAreaSize, (READ_PAGES - 1) * PAGE_SIZE);
+        System.arraycopy(head, PAGE_SIZE, data, 0, loaded);
+        return dataAreaSize;
+    }
+
+    // 尚未讀取 CC 時回傳 -1
+    public int getDataAreaSize() {
+        return dataAreaSize;
+    }
+
+    public boolean isReadOnly() {
+        return writeAccess != 0;
+    }
+
+    // 逐一解析 TLV，只讀取需要的頁面；沒有 NDEF TLV 或訊息為空時回傳 null
+    public byte[] readNdefMessage() throws IOException {
+        readCapabilityContainer();
+        int pos = 0;
+        while (pos < dataAreaSize) {
+            ensure(pos + 1);
+            int type = data[pos] & 0xFF;
+            if (type == TLV_NULL) {
+                pos++;
+                continue;
+            }
+            if (type == TLV_TERMINATOR) {
+                return null;
+            }
+            ensure(pos + 2);
+            int length = data[pos + 1] & 0xFF;
+            int header = 2;
+            if (length == 0xFF) {
+                ensure(pos + 4);
+                length = ((data[pos + 2] & 0xFF) << 8) | (data[pos + 3] & 0xFF);
+                header = 4;
+            }
+            int end = pos + header + length;
+            if (type == TLV_NDEF) {
+                if (length == 0) {
+                    return null;
+                }
+                ensure(end);
+                return Arrays.copyOfRange(data, pos + header, end);
+            }
+            pos = end;
+        }
+        return null;
+    }
+
+    private void ensure(int end) throws IOException {
+        if (end <= loaded) {
+            return;
+        }
+        if (end > dataAreaSize) {
+            throw new IOException("TLV 超出資料區: " + end + " / " + dataAreaSize);
+        }
+        // loaded 一定對齊頁面
+        int firstPage = loaded / PAGE_SIZE;
+        int endPage = (end + PAGE_SIZE - 1) / PAGE_SIZE;
+        read(FIRST_DATA_PAGE + firstPage, endPage - firstPage, data, loaded);
+        loaded = endPage * PAGE_SIZE;
+    }
+
+    /**
+     * 以 NDEF TLV 寫入訊息（放在資料區開頭，空間足夠時加上 Terminator）。
+     * 先把長度寫成 0 再寫其餘頁面，最後才寫入真正的長度，中途離開感應區時標籤上是空訊息而不是半新半舊的內容。
+     */
+    public void writeNdefMessage(byte[] message) throws IOException {
+        byte[] tlv = encodeNdefTlv(message);
+        int pages = tlv.length / PAGE_SIZE;
+        if (pages > 1) {
+            writePage(FIRST_DATA_PAGE, emptyNdefHeader(tlv), 0);
+            for (int i = 1; i < pages; i++) {
+                writePage(FIRST_DATA_PAGE + i, tlv, i * PAGE_SIZE);
+            }
+        }
+        writePage(FIRST_DATA_PAGE, tlv, 0);
+    }
+
+    /**
+     * 編碼成從 FIRST_DATA_PAGE 開始、對齊頁面的 NDEF TLV（空間足夠時加上 Terminator），
+     * 需要時先讀取 CC 檢查容量與寫入權限。
+     */
+    public byte[] encodeNdefTlv(byte[] message) throws IOException {
+        if (dataAreaSize < 0) {
+            readCapabilityContainer();
+        }
+        if (isReadOnly()) {
+            throw new IOException("標籤為唯讀");
+        }
+        int header = message.length < 0xFF ? 2 : 4;
+        int length = header + message.length;
+        if (length > dataAreaSize) {
+            throw new IOException("訊息超過容量: " + message.length + " / " + (dataAreaSize - header));
+        }
+        int total = length < dataAreaSize ? length + 1 : length;
+        byte[] tlv = new byte[(total + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE];
+        tlv[0] = TLV_NDEF;
+        if (header == 4) {
+            tlv[1] = (byte) 0xFF;
+        }
+        setTlvLength(tlv, message.length);
+        System.arraycopy(message, 0, tlv, header, message.length);
+        if (total > length) {
+            tlv[length] = (byte) TLV_TERMINATOR;
+        }
+        return tlv;
+    }
+
+    // encodeNdefTlv 結果的第一頁，長度改為 0（空訊息）；改寫其餘頁面前先寫入，避免讀到半新半舊的內容
+    public static byte[] emptyNdefHeader(byte[] tlv) {
+        byte[] first = Arrays.copyOf(tlv, PAGE_SIZE);
+        setTlvLength(first, 0);
+        return first;
+    }
+
+    // 長度欄位的格式（1 或 3 bytes）已由 tlv[1] 決定
+    private static void setTlvLength(byte[] tlv, int length) {
+        if ((tlv[1] & 0xFF) == 0xFF) {
+            tlv[2] = (byte) (length >> 8);
+            tlv[3] = (byte) length;
+        } else {
+            tlv[1] = (byte) length;
+        }
+    }
+
+    private byte[] exchange(int command, byte[] cmd, Type2Command counted) throws IOException {
+        long start = clock.nanoTime();
+        byte[] response;
+        try {
+            response = nfca.transceive(cmd);
+        } finally {
+            if (counted != null) {
+                nanos[counted.ordinal()] += clock.nanoTime() - start;
+                commands[counted.ordinal()]++;
+            }
+        }
+        if (response == null || response.length == 0) {
+            throw new IOException("標籤沒有回應");
+        }
+        // 單一 byte 的回應是 4-bit ACK/NAK
+        if (response.length == 1 && (response[0] & 0x0F) != ACK) {
+            throw new Type2Exception(command, response[0] & 0x0F);
+        }
+        return response;
+    }
+
+    public long getBytes(Type2Command c) {
+        return bytes[c.ordinal()];
+    }
+
+    public long getNanos(Type2Command c) {
+        return nanos[c.ordinal()];
+    }
+
+    public long getCommands(Type2Command c) {
+        return commands[c.ordinal()];
+    }
+
+    public double bytesPerSecond(Type2Command c) {
+        long n = nanos[c.ordinal()];
+        return n <= 0 ? 0 : bytes[c.ordinal()] * 1_000_000_000.0 / n;
+    }
+
+    public void resetStats() {
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = 0;
+            nanos[i] = 0;
+            commands[i] = 0;
+        }
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Type2Command c : Type2Command.values()) {
+            if (commands[c.ordinal()] == 0) {
+                continue;
+            }
+            sb.append(String.format("%s: %d bytes / %d 指令，%.2f ms，%.0f bytes/s\n",
+                    c.label(), bytes[c.ordinal()], commands[c.ordinal()],
+                    nanos[c.ordinal()] / 1_000_000.0, bytesPerSecond(c)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package com.smewise.nfcspeedtest.type2;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * GET_VERSION (0x60) 的回應：廠商、產品類型與記憶體大小，用來辨識 NTAG21x / Ultralight EV1 型號。
+ * <pre>
+ * 0: 固定 0x00 | 1: 廠商 (0x04 = NXP) | 2: 產品類型 (0x03 Ultralight, 0x04 NTAG) | 3: 子類型
+ * 4: 主版本 | 5: 次版本 | 6: 儲存容量 | 7: 通訊協定 (0x03 = ISO 14443-3)
+ * </pre>
+ */
+public final class Type2Version {
+    public static final int VENDOR_NXP = 0x04;
+    public static final int PRODUCT_ULTRALIGHT = 0x03;
+    public static final int PRODUCT_NTAG = 0x04;
+
+    private final byte[] raw;
+
+    private Type2Version(byte[] raw) {
+        this.raw = raw;
+    }
+
+    public static Type2Version parse(byte[] response) throws IOException {
+        if (response == null || response.length < 8) {
+            throw new IOException("GET_VERSION 回應長度不足: " + (response == null ? 0 : response.length));
+        }
+        return new Type2Version(Arrays.copyOf(response, 8));
+    }
+
+    public int getVendor() {
+        return raw[1] & 0xFF;
+    }
+
+    public int getProductType() {
+        return raw[2] & 0xFF;
+    }
+
+    public int getStorageSize() {
+        return raw[6] & 0xFF;
+    }
+
+    // 已知型號的總頁數（含 UID、lock、CC 與設定頁），未知型號回傳 -1
+    public int getTotalPages() {
+        if (getVendor() != VENDOR_NXP) {
+            return -1;
+        }
+        switch (getStorageSize()) {
+            case 0x0B:
+                return 20;
+            case 0x0E:
+                return 41;
+            case 0x0F:
+                return 45;
+            case 0x11:
+                return 135;
+            case 0x13:
+                return 231;
+            default:
+                return -1;
+        }
+    }
+
+    public String getModel() {
+        if (getVendor() == VENDOR_NXP) {
+            int storage = getStorageSize();
+            if (getProductType() == PRODUCT_NTAG) {
+                switch (storage) {
+                    case 0x0B:
+                        return "NTAG210";
+                    case 0x0E:
+                        return "NTAG212";
+                    case 0x0F:
+                        return "NTAG213";
+                    case 0x11:
+                        return "NTAG215";
+                    case 0x13:
+                        return "NTAG216";
+                    default:
+                        break;
+                }
+            } else if (getProductType() == PRODUCT_ULTRALIGHT) {
+                if (storage == 0x0B) {
+                    return "MIFARE Ultralight EV1 (MF0UL11)";
+                }
+                if (storage == 0x0E) {
+                    return "MIFARE Ultralight EV1 (MF0UL21)";
+                }
+            }
+        }
+        return String.format("Type 2 (廠商 %02X, 產品 %02X, 容量 %02X)", getVendor(), getProductType(), getStorageSize());
+    }
+
+    @Override
+    public String toString() {
+        return getModel();
+    }
+}
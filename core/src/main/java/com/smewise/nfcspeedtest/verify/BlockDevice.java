@@ -0,0 +1,22 @@
+package com.smewise.nfcspeedtest.verify;
+
+import java.io.IOException;
+
+/**
+ * 以固定大小區塊定址的標籤記憶體，DeltaWriter 透過這個介面讀取、比對與寫入。
+ * 只在 NFC I/O 執行緒使用。
+ */
+public interface BlockDevice {
+
+    // 報告與影像快取的鍵值用，例如 "NFC-V"、"FeliCa 090F"
+    String label();
+
+    int blockSize() throws IOException;
+
+    // 不知道大小時回傳 -1（例如 FeliCa 服務）
+    int blockCount() throws IOException;
+
+    void read(int firstBlock, int blockCount, byte[] dst, int dstOffset) throws IOException;
+
+    void write(int firstBlock, int blockCount, byte[] src, int srcOffset) throws IOException;
+}
@@ -0,0 +1,193 @@
+package com.smewise.nfcspeedtest.verify;
+
+import com.smewise.nfcspeedtest.felica.FeliCaClient;
+import com.smewise.nfcspeedtest.iso15693.Iso15693Memory;
+import com.smewise.nfcspeedtest.mifare.KeyResolver;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.type2.Type2Memory;
+import com.smewise.nfcspeedtest.type2.Type2Version;
+
+import java.io.IOException;
+
+/**
+ * 把各技術的記憶體引擎包成 BlockDevice。
+ */
+public final class BlockDevices {
+
+    private BlockDevices() {
+    }
+
+    public static BlockDevice nfcV(final Iso15693Memory memory) {
+        return new BlockDevice() {
+            @Override
+            public String label() {
+                return "NFC-V";
+            }
+
+            @Override
+            public int blockSize() throws IOException {
+                return memory.getSystemInfo().getBlockSize();
+            }
+
+            @Override
+            public int blockCount() throws IOException {
+                return memory.getSystemInfo().getBlockCount();
+            }
+
+            @Override
+            public void read(int firstBlock, int blockCount, byte[] dst, int dstOffset) throws IOException {
+                memory.read(firstBlock, blockCount, dst, dstOffset);
+            }
+
+            @Override
+            public void write(int firstBlock, int blockCount, byte[] src, int srcOffset) throws IOException {
+                memory.write(firstBlock, src, srcOffset, blockCount);
+            }
+        };
+    }
+
+    // Type 2 沒有多頁寫入指令，寫入逐頁進行；讀取走 FAST_READ
+    public static BlockDevice type2(final Type2Memory memory) {
+        return new BlockDevice() {
+            @Override
+            public String label() {
+                return "Type 2";
+            }
+
+            @Override
+            public int blockSize() {
+                return Type2Memory.PAGE_SIZE;
+            }
+
+            @Override
+            public int blockCount() throws IOException {
+                Type2Version version = memory.getVersion();
+                return version != null && version.getTotalPages() > 0 ? version.getTotalPages() : -1;
+            }
+
+            @Override
+            public void read(int firstBlock, int blockCount, byte[] dst, int dstOffset) throws IOException {
+                memory.read(firstBlock, blockCount, dst, dstOffset);
+            }
+
+            @Override
+            public void write(int firstBlock, int blockCount, byte[] src, int srcOffset) throws IOException {
+                for (int i = 0; i < blockCount; i++) {
+                    memory.writePage(firstBlock + i, src, srcOffset + i * Type2Memory.PAGE_SIZE);
+                }
+            }
+        };
+    }
+
+    public static BlockDevice felica(final FeliCaClient client, final int serviceCode) {
+        final String label = String.format("FeliCa %04X", serviceCode);
+        return new BlockDevice() {
+            @Override
+            public String label() {
+                return label;
+            }
+
+            @Override
+            public int blockSize() {
+                return FeliCaClient.BLOCK_SIZE;
+            }
+
+            @Override
+            public int blockCount() {
+                return -1;
+            }
+
+            @Override
+            public void read(int firstBlock, int blockCount, byte[] dst, int dstOffset) throws IOException {
+                client.read(serviceCode, firstBlock, blockCount, dst, dstOffset);
+            }
+
+            @Override
+            public void write(int firstBlock, int blockCount, byte[] src, int srcOffset) throws IOException {
+                client.write(serviceCode, firstBlock, src, srcOffset, blockCount);
+            }
+        };
+    }
+
+    /**
+     * MIFARE Classic 區塊，每跨一個區段就用 KeyResolver 認證。
+     * Block 0（製造商區塊）與 sector trailer 一律拒絕寫入，避免寫錯把卡片鎖死。
+     */
+    public static BlockDevice mifareClassic(final MifareClassicTransport mifare, final KeyResolver keys, final byte[] uid) {
+        return new BlockDevice() {
+            private int authenticated = -1;
+
+            @Override
+            public String label() {
+                return "MIFARE Classic";
+            }
+
+            @Override
+            public int blockSize() {
+                return MifareClassicTransport.BLOCK_SIZE;
+            }
+
+            @Override
+            public int blockCount() {
+                return mifare.getBlockCount();
+            }
+
+            @Override
+            public void read(int firstBlock, int blockCount, byte[] dst, int dstOffset) throws IOException {
+                for (int i = 0; i < blockCount; i++) {
+                    int block = firstBlock + i;
+                    authenticate(block);
+                    byte[] data = transfer(block, null);
+                    System.arraycopy(data, 0, dst, dstOffset + i * MifareClassicTransport.BLOCK_SIZE,
+                            MifareClassicTransport.BLOCK_SIZE);
+                }
+            }
+
+            @Override
+            public void write(int firstBlock, int blockCount, byte[] src, int srcOffset) throws IOException {
+                byte[] data = new byte[MifareClassicTransport.BLOCK_SIZE];
+                for (int i = 0; i < blockCount; i++) {
+                    int block = firstBlock + i;
+                    checkWritable(block);
+                    authenticate(block);
+                    System.arraycopy(src, srcOffset + i * data.length, data, 0, data.length);
+                    transfer(block, data);
+                }
+            }
+
+            // 讀寫失敗後卡片回到 HALT，下一次要重新認證
+            private byte[] transfer(int block, byte[] data) throws IOException {
+                try {
+                    if (data == null) {
+                        return mifare.readBlock(block);
+                    }
+                    mifare.writeBlock(block, data);
+                    return data;
+                } catch (IOException e) {
+                    authenticated = -1;
+                    throw e;
+                }
+            }
+
+            private void checkWritable(int block) {
+                int sector = mifare.blockToSector(block);
+                int trailer = mifare.sectorToBlock(sector) + mifare.getBlockCountInSector(sector) - 1;
+                if (block == 0 || block == trailer) {
+                    throw new IllegalArgumentException("不可寫入 Block " + block + "（製造商區塊或 sector trailer）");
+                }
+            }
+
+            private void authenticate(int block) throws IOException {
+                int sector = mifare.blockToSector(block);
+                if (sector == authenticated) {
+                    return;
+                }
+                authenticated = -1;
+                if (keys.authenticate(mifare, uid, sector) == null) {
+                    throw new IOException("Sector " + sector + " 認證失敗");
+                }
+                authenticated = sector;
+            }
+        };
+    }
+}
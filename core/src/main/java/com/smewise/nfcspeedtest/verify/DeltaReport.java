@@ -0,0 +1,121 @@
+package com.smewise.nfcspeedtest.verify;
+
+import java.util.Locale;
+
+/**
+ * 一次差異寫入的結果：寫入與略過的區塊數、各階段 RF 時間，以及寫入資料與讀回內容的 CRC32。
+ */
+public class DeltaReport {
+    private final String label;
+    private final int firstBlock;
+    private final int blocks;
+
+    boolean fromCache;
+    int readBlocks;
+    int writtenBlocks;
+    int writeCommands;
+    int rewrittenBlocks;
+    int verifyBlocks;
+    boolean verified;
+    long expectedCrc;
+    long actualCrc;
+    long readNanos;
+    long writeNanos;
+    long verifyNanos;
+
+    DeltaReport(String label, int firstBlock, int blocks) {
+        this.label = label;
+        this.firstBlock = firstBlock;
+        this.blocks = blocks;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getFirstBlock() {
+        return firstBlock;
+    }
+
+    public int getBlocks() {
+        return blocks;
+    }
+
+    // 寫入前的影像取自 ImageCache，沒有先讀取標籤
+    public boolean isFromCache() {
+        return fromCache;
+    }
+
+    public int getReadBlocks() {
+        return readBlocks;
+    }
+
+    public int getWrittenBlocks() {
+        return writtenBlocks;
+    }
+
+    public int getSkippedBlocks() {
+        return blocks - writtenBlocks;
+    }
+
+    public int getWriteCommands() {
+        return writeCommands;
+    }
+
+    // 讀回不一致而重寫的區塊數（快取影像過期或寫入沒有生效）
+    public int getRewrittenBlocks() {
+        return rewrittenBlocks;
+    }
+
+    public int getVerifyBlocks() {
+        return verifyBlocks;
+    }
+
+    public boolean isVerified() {
+        return verified;
+    }
+
+    public long getExpectedCrc() {
+        return expectedCrc;
+    }
+
+    public long getActualCrc() {
+        return actualCrc;
+    }
+
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    public long getVerifyNanos() {
+        return verifyNanos;
+    }
+
+    public long getTotalNanos() {
+        return readNanos + writeNanos + verifyNanos;
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "%s Block %d+%d: 寫入 %d / 略過 %d 區塊（%d 個指令",
+                label, firstBlock, blocks, writtenBlocks, getSkippedBlocks(), writeCommands));
+        if (rewrittenBlocks > 0) {
+            sb.append(String.format(Locale.US, "，重寫 %d", rewrittenBlocks));
+        }
+        sb.append("）\n");
+        if (fromCache) {
+            sb.append("寫入前影像: 快取");
+        } else {
+            sb.append(String.format(Locale.US, "讀取 %d 區塊 %.2f ms", readBlocks, readNanos / 1e6));
+        }
+        sb.append(String.format(Locale.US, "，寫入 %.2f ms，讀回 %d 區塊 %.2f ms\n",
+                writeNanos / 1e6, verifyBlocks, verifyNanos / 1e6));
+        sb.append(String.format(Locale.US, "CRC32 %08X / 讀回 %08X，%s\n",
+                expectedCrc, actualCrc, verified ? "驗證通過" : "驗證失敗"));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,224 @@
+package com.smewise.nfcspeedtest.verify;
+
+import com.smewise.nfcspeedtest.trace.NanoClock;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.type2.Type2Memory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * 差異寫入：先取得目前影像（ImageCache 或讀取標籤），只寫入內容不同的區塊，連續的區塊合併成一次寫入，
+ * 寫完讀回並以 CRC32 比對。讀回不一致的區塊重寫一次，仍不一致時報告驗證失敗。
+ * 影像來自快取時讀回整個範圍，才能發現標籤已被其他讀寫器改過；否則只讀回寫入過的區塊。
+ * 只在 NFC I/O 執行緒使用。
+ */
+public class DeltaWriter {
+    public static final int MAX_REWRITES = 1;
+
+    private final ImageCache cache;
+    private final NanoClock clock;
+
+    // cache 可為 null，此時每次都先讀取標籤
+    public DeltaWriter(ImageCache cache, NanoClock clock) {
+        this.cache = cache;
+        this.clock = clock;
+    }
+
+    public DeltaReport write(BlockDevice device, byte[] uid, int firstBlock, byte[] data) throws IOException {
+        return write(device, uid, firstBlock, data, null);
+    }
+
+    /**
+     * Type 2 NDEF：編碼成 TLV 後差異寫入資料區。與 Type2Memory.writeNdefMessage 相同，
+     * 第一頁以外有變動時先把長度寫成 0，其餘頁面寫完後才寫入包含真正長度的第一頁，
+     * 中途離開感應區時標籤上是空訊息，不會是舊長度涵蓋半新半舊的內容。
+     */
+    public DeltaReport writeType2Ndef(Type2Memory memory, byte[] uid, byte[] message) throws IOException {
+        byte[] tlv = memory.encodeNdefTlv(message);
+        return write(BlockDevices.type2(memory), uid, Type2Memory.FIRST_DATA_PAGE, tlv,
+                Type2Memory.emptyNdefHeader(tlv));
+    }
+
+    /**
+     * 沒有原始記憶體存取時以整個 NDEF message 為單位：內容相同就略過，否則寫入後讀回比對。
+     */
+    public DeltaReport writeNdef(NdefTransport ndef, byte[] message) throws IOException {
+        DeltaReport report = new DeltaReport("NDEF", 0, 1);
+        long start = clock.nanoTime();
+        byte[] current = ndef.readNdefMessage();
+        report.readNanos = clock.nanoTime() - start;
+        report.readBlocks = 1;
+        if (!Arrays.equals(current, message)) {
+            start = clock.nanoTime();
+            ndef.writeNdefMessage(message);
+            report.writeNanos = clock.nanoTime() - start;
+            report.writtenBlocks = 1;
+            report.writeCommands = 1;
+
+            start = clock.nanoTime();
+            current = ndef.readNdefMessage();
+            report.verifyNanos = clock.nanoTime() - start;
+            report.verifyBlocks = 1;
+        }
+        report.expectedCrc = crc(message);
+        report.actualCrc = current == null ? 0 : crc(current);
+        report.verified = Arrays.equals(current, message);
+        return report;
+    }
+
+    private DeltaReport write(BlockDevice device, byte[] uid, int firstBlock, byte[] data, byte[] emptyHeader)
+            throws IOException {
+        int size = device.blockSize();
+        if (data.length == 0 || data.length % size != 0) {
+            throw new IllegalArgumentException("資料長度 " + data.length + " 不是區塊大小 " + size + " 的整數倍");
+        }
+        int blocks = data.length / size;
+        int limit = device.blockCount();
+        if (firstBlock < 0 || (limit >= 0 && firstBlock + blocks > limit)) {
+            throw new IndexOutOfBoundsException("區塊範圍超出記憶體: " + firstBlock + "+" + blocks + " / " + limit);
+        }
+        String label = device.label();
+        DeltaReport report = new DeltaReport(label, firstBlock, blocks);
+
+        byte[] current = cache == null ? null : cache.get(uid, label, firstBlock, data.length);
+        report.fromCache = current != null;
+        if (current == null) {
+            current = new byte[data.length];
+            long start = clock.nanoTime();
+            device.read(firstBlock, blocks, current, 0);
+            report.readNanos = clock.nanoTime() - start;
+            report.readBlocks = blocks;
+        }
+
+        boolean[] dirty = diff(current, data, size);
+        long start = clock.nanoTime();
+        report.writeCommands = writeRuns(device, firstBlock, data, dirty, size, emptyHeader);
+        report.writeNanos = clock.nanoTime() - start;
+        report.writtenBlocks = count(dirty);
+
+        start = clock.nanoTime();
+        boolean[] check = dirty;
+        if (report.fromCache) {
+            check = new boolean[blocks];
+            Arrays.fill(check, true);
+        }
+        boolean[] bad;
+        int rewrites = 0;
+        while (true) {
+            report.verifyBlocks += readRuns(device, firstBlock, current, check, size);
+            bad = diff(current, data, size);
+            int mismatched = count(bad);
+            if (mismatched == 0 || rewrites == MAX_REWRITES) {
+                break;
+            }
+            rewrites++;
+            writeRuns(device, firstBlock, data, bad, size, emptyHeader);
+            report.rewrittenBlocks += count(bad);
+            check = bad;
+        }
+        report.verifyNanos = clock.nanoTime() - start;
+
+        report.expectedCrc = crc(data);
+        report.actualCrc = crc(current);
+        report.verified = report.expectedCrc == report.actualCrc && count(bad) == 0;
+        if (cache != null) {
+            if (report.verified) {
+                cache.put(uid, label, firstBlock, current);
+            } else {
+                cache.remove(uid, label, firstBlock, data.length);
+            }
+        }
+        return report;
+    }
+
+    static boolean[] diff(byte[] current, byte[] data, int size) {
+        boolean[] dirty = new boolean[data.length / size];
+        for (int i = 0; i < dirty.length; i++) {
+            int from = i * size;
+            for (int j = from; j < from + size; j++) {
+                if (current[j] != data[j]) {
+                    dirty[i] = true;
+                    break;
+                }
+            }
+        }
+        return dirty;
+    }
+
+    private static int count(boolean[] flags) {
+        int n = 0;
+        for (boolean flag : flags) {
+            if (flag) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    // 連續的區塊合併成一次寫入，回傳寫入次數。emptyHeader 不為 null 時第一個區塊以外有變動，
+    // 先寫入 emptyHeader，第一個區塊單獨留到最後重寫（dirty[0] 會被設為 true，讀回時一併比對）
+    private static int writeRuns(BlockDevice device, int firstBlock, byte[] data, boolean[] dirty, int size,
+                                 byte[] emptyHeader) throws IOException {
+        int commands = 0;
+        boolean header = false;
+        if (emptyHeader != null) {
+            for (int i = 1; i < dirty.length; i++) {
+                if (dirty[i]) {
+                    dirty[0] = true;
+                    device.write(firstBlock, 1, emptyHeader, 0);
+                    commands++;
+                    break;
+                }
+            }
+            header = dirty[0];
+        }
+        int i = header ? 1 : 0;
+        while (i < dirty.length) {
+            if (!dirty[i]) {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < dirty.length && dirty[end]) {
+                end++;
+            }
+            device.write(firstBlock + i, end - i, data, i * size);
+            commands++;
+            i = end;
+        }
+        if (header) {
+            device.write(firstBlock, 1, data, 0);
+            commands++;
+        }
+        return commands;
+    }
+
+    // 讀回標記的區塊覆蓋到 image，回傳讀取的區塊數
+    private static int readRuns(BlockDevice device, int firstBlock, byte[] image, boolean[] marked, int size)
+            throws IOException {
+        int blocks = 0;
+        int i = 0;
+        while (i < marked.length) {
+            if (!marked[i]) {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < marked.length && marked[end]) {
+                end++;
+            }
+            device.read(firstBlock + i, end - i, image, i * size);
+            blocks += end - i;
+            i = end;
+        }
+        return blocks;
+    }
+
+    static long crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,73 @@
+package com.smewise.nfcspeedtest.verify;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 快取最近寫入並驗證過的標籤影像，以 UID、記憶體區域與區塊範圍為鍵，超過容量時移除最久未使用的項目。
+ * 重新編碼同一張卡時可省略寫入前的整區讀取；影像可能已被其他讀寫器改過，DeltaWriter 會以讀回驗證補上。
+ * 可從任何執行緒呼叫。
+ */
+public class ImageCache {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final Map<String, byte[]> images;
+    private int hits;
+    private int misses;
+
+    public ImageCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ImageCache(final int capacity) {
+        images = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    static String key(byte[] uid, String label, int firstBlock, int length) {
+        return HexCodec.toHex(uid) + '/' + label + '@' + firstBlock + '+' + length;
+    }
+
+    // 沒有快取時回傳 null；回傳的是複本
+    public synchronized byte[] get(byte[] uid, String label, int firstBlock, int length) {
+        byte[] image = images.get(key(uid, label, firstBlock, length));
+        if (image == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return image.clone();
+    }
+
+    public synchronized void put(byte[] uid, String label, int firstBlock, byte[] image) {
+        images.put(key(uid, label, firstBlock, image.length), image.clone());
+    }
+
+    public synchronized void remove(byte[] uid, String label, int firstBlock, int length) {
+        images.remove(key(uid, label, firstBlock, length));
+    }
+
+    public synchronized int size() {
+        return images.size();
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    public synchronized void clear() {
+        images.clear();
+        hits = 0;
+        misses = 0;
+    }
+}
@@ -0,0 +1,111 @@
+package com.smewise.nfcspeedtest.analytics;
+
+import com.smewise.nfcspeedtest.store.MeasurementOp;
+import com.smewise.nfcspeedtest.store.MeasurementRecord;
+import com.smewise.nfcspeedtest.store.MeasurementStore;
+import com.smewise.nfcspeedtest.store.StoreConfig;
+import com.smewise.nfcspeedtest.trace.Phase;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.SortedMap;
+
+import static org.junit.Assert.*;
+
+public class MeasurementAnalyticsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // NTAG215 寫入 1~100 ms、NTAG213 寫入固定 5 ms、NTAG215 讀取固定 2 ms
+    private static void fill(MeasurementRecord r, int i) {
+        int kind = i % 3;
+        r.clear().setTech(TagTech.NDEF)
+                .setOp(kind == 2 ? MeasurementOp.READ : MeasurementOp.WRITE)
+                .setTagModel(kind == 1 ? "NTAG213" : "NTAG215");
+        long nanos = kind == 0 ? (i / 3 + 1) * 1_000_000L : kind == 1 ? 5_000_000L : 2_000_000L;
+        r.totalNanos = nanos;
+        r.phaseNanos[Phase.TRANSCEIVE.ordinal()] = nanos / 2;
+        r.bytes = 48;
+    }
+
+    @Test
+    public void queriesByDimension() {
+        MeasurementAnalytics analytics = new MeasurementAnalytics();
+        MeasurementRecord r = new MeasurementRecord();
+        for (int i = 0; i < 300; i++) {
+            fill(r, i);
+            analytics.accept(r, "Pixel 8");
+        }
+        assertEquals(3, analytics.cellCount());
+
+        MeasurementStats writes215 = analytics.query(new MeasurementQuery()
+                .tech(TagTech.NDEF).op(MeasurementOp.WRITE).tagModel("NTAG215"));
+        assertEquals(100, writes215.getCount());
+        long p99 = writes215.getPercentile(null, 99);
+        // 直方圖相對誤差約 3%
+        assertTrue(String.valueOf(p99), p99 >= 99_000_000L && p99 <= 100_000_000L);
+        assertTrue(writes215.getPercentile(Phase.TRANSCEIVE, 50) < writes215.getPercentile(null, 50));
+        assertNull(writes215.phase(Phase.CONNECT));
+
+        SortedMap<String, MeasurementStats> byModel = analytics.groupBy(Dimension.TAG_MODEL,
+                new MeasurementQuery().op(MeasurementOp.WRITE));
+        assertEquals(2, byModel.size());
+        assertEquals(5_000_000L, byModel.get("NTAG213").getPercentile(null, 99), 5_000_000L * 0.04);
+        assertEquals(200, analytics.query(new MeasurementQuery().tagModel("NTAG215")).getCount());
+        assertEquals(0, analytics.query(new MeasurementQuery().device("Galaxy")).getCount());
+    }
+
+    @Test
+    public void failuresAreCountedButNotInLatency() {
+        MeasurementAnalytics analytics = new MeasurementAnalytics();
+        MeasurementRecord r = new MeasurementRecord();
+        fill(r, 0);
+        analytics.accept(r, "");
+        fill(r, 3);
+        r.result = MeasurementRecord.RESULT_TAG_LOST;
+        analytics.accept(r, "");
+        fill(r, 6);
+        r.result = MeasurementRecord.RESULT_ERROR;
+        analytics.accept(r, "");
+
+        MeasurementStats stats = analytics.query(new MeasurementQuery());
+        assertEquals(3, stats.getCount());
+        assertEquals(1, stats.getSuccesses());
+        assertEquals(1, stats.getTagLost());
+        assertEquals(1, stats.getErrors());
+        assertEquals(48, stats.getBytes());
+        assertEquals(2.0 / 3, stats.errorRate(), 1e-9);
+    }
+
+    @Test
+    public void rebuildFromStoreMatchesIncrementalAndMergesDevices() throws Exception {
+        File pixel = folder.newFolder();
+        File galaxy = folder.newFolder();
+        MeasurementAnalytics live = new MeasurementAnalytics();
+        MeasurementRecord r = new MeasurementRecord();
+        try (MeasurementStore a = new MeasurementStore(pixel, new StoreConfig().setDeviceModel("Pixel 8"));
+             MeasurementStore b = new MeasurementStore(galaxy, new StoreConfig().setDeviceModel("Galaxy S23"))) {
+            for (int i = 0; i < 600; i++) {
+                fill(r, i);
+                boolean first = i < 300;
+                (first ? a : b).append(r);
+                live.accept(r, first ? "Pixel 8" : "Galaxy S23");
+            }
+        }
+        MeasurementAnalytics rebuilt = MeasurementAnalytics.rebuild(pixel);
+        rebuilt.merge(MeasurementAnalytics.rebuild(galaxy));
+        assertEquals(live.cellCount(), rebuilt.cellCount());
+        assertEquals(6, rebuilt.cellCount());
+
+        MeasurementQuery query = new MeasurementQuery().op(MeasurementOp.WRITE).tagModel("NTAG215");
+        assertEquals(live.query(query).getPercentile(null, 99), rebuilt.query(query).getPercentile(null, 99));
+        SortedMap<String, MeasurementStats> byDevice = rebuilt.groupBy(Dimension.DEVICE, query);
+        assertEquals(100, byDevice.get("Pixel 8").getCount());
+        assertEquals(100, byDevice.get("Galaxy S23").getCount());
+        assertTrue(rebuilt.summary(Dimension.DEVICE, query).contains("Galaxy S23: n=100 p50="));
+    }
+}
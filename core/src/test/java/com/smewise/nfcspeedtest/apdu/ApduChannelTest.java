@@ -0,0 +1,108 @@
+package com.smewise.nfcspeedtest.apdu;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+import com.smewise.nfcspeedtest.transport.IsoDepTransport;
+import com.smewise.nfcspeedtest.transport.sim.SimFileApplet;
+import com.smewise.nfcspeedtest.transport.sim.SimIsoDepTag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ApduChannelTest {
+    private static final byte[] UID = {0x08, 0x11, 0x22, 0x33};
+    private static final int FILE_ID = 0xE104;
+
+    private static byte[] pattern(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 13 + i / 256);
+        }
+        return data;
+    }
+
+    private static ApduChannel open(SimFileApplet applet, boolean extended, SimulatedLink link) throws IOException {
+        IsoDepTransport iso = new SimIsoDepTag(UID, applet, extended, link).isoDep();
+        iso.connect();
+        ApduChannel channel = new ApduChannel(iso);
+        assertEquals(ApduChannel.DEFAULT_TIMEOUT_MS, iso.getTimeout());
+        channel.selectFile(FILE_ID).check();
+        return channel;
+    }
+
+    @Test
+    public void encodesShortAndExtendedForms() {
+        assertEquals("00A40400085041592E5449434C00", HexCodec.toHex(new CommandApdu(0x00, 0xA4, 0x04, 0x00,
+                HexCodec.decode("5041592E5449434C"), 256).encode()));
+        assertEquals("00B0000000FFFF", HexCodec.toHex(new CommandApdu(0x00, 0xB0, 0, 0, null, 65535).encode()));
+        assertEquals("00B00000000000", HexCodec.toHex(new CommandApdu(0x00, 0xB0, 0, 0, null, 65536).encode()));
+        byte[] data = new byte[300];
+        CommandApdu parsed = CommandApdu.parse(new CommandApdu(0x00, 0xD6, 0, 0, data, 512).encode());
+        assertEquals(300, parsed.getNc());
+        assertEquals(512, parsed.getNe());
+    }
+
+    @Test
+    public void extendedLengthReadsLargeFileInOneCommand() throws IOException {
+        byte[] content = pattern(8192);
+        SimulatedLink link = SimulatedLink.instant();
+        ApduChannel channel = open(new SimFileApplet().addFile(FILE_ID, content), true, link);
+        long before = link.getExchanges();
+        assertArrayEquals(content, channel.readBinaryFully(0, 65536));
+        // 一次讀完（回應比要求短即為檔案結尾）
+        assertEquals(1, link.getExchanges() - before);
+    }
+
+    @Test
+    public void shortApdusStreamIntoGrowingBuffer() throws IOException {
+        byte[] content = pattern(1000);
+        SimulatedLink link = SimulatedLink.instant();
+        ApduChannel channel = open(new SimFileApplet().addFile(FILE_ID, content), false, link);
+        assertArrayEquals(content, channel.readBinaryFully(0, 4096));
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 612), channel.readBinaryFully(100, 512));
+    }
+
+    @Test
+    public void getResponseCollectsRemainingData() throws IOException {
+        byte[] content = pattern(600);
+        SimFileApplet applet = new SimFileApplet().addFile(FILE_ID, content);
+        applet.setMaxResponseData(100);
+        ApduChannel channel = open(applet, true, SimulatedLink.instant());
+        assertArrayEquals(content, channel.readBinaryFully(0, 600));
+        assertEquals(5, channel.getGetResponses());
+    }
+
+    @Test
+    public void wrongLeIsResentWithCardLength() throws IOException {
+        byte[] content = pattern(300);
+        SimFileApplet applet = new SimFileApplet().addFile(FILE_ID, content);
+        applet.setStrictLe(true);
+        ApduChannel channel = open(applet, false, SimulatedLink.instant());
+        assertArrayEquals(content, channel.readBinaryFully(0, 4096));
+        // 第二段要求 256 但只剩 44，卡片回 6C2C 後重送
+        assertEquals(1, channel.getResends());
+    }
+
+    @Test
+    public void largeWritesUseCommandChaining() throws IOException {
+        byte[] data = pattern(700);
+        SimFileApplet applet = new SimFileApplet().addFile(FILE_ID, new byte[1024]);
+        SimulatedLink link = SimulatedLink.instant();
+        ApduChannel channel = open(applet, false, link);
+        long before = link.getExchanges();
+        channel.updateBinary(10, data).check();
+        // 255 + 255 + 190
+        assertEquals(3, link.getExchanges() - before);
+        assertArrayEquals(data, Arrays.copyOfRange(applet.getFile(FILE_ID), 10, 710));
+    }
+
+    @Test(expected = ApduException.class)
+    public void readPastEndFails() throws IOException {
+        ApduChannel channel = open(new SimFileApplet().addFile(FILE_ID, new byte[16]), false, SimulatedLink.instant());
+        channel.readBinaryFully(32, 16);
+    }
+}
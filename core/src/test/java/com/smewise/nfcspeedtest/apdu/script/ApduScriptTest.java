@@ -0,0 +1,168 @@
+package com.smewise.nfcspeedtest.apdu.script;
+
+import com.smewise.nfcspeedtest.apdu.ApduChannel;
+import com.smewise.nfcspeedtest.transport.IsoDepTransport;
+import com.smewise.nfcspeedtest.transport.sim.ApduHandler;
+import com.smewise.nfcspeedtest.transport.sim.LatencyModel;
+import com.smewise.nfcspeedtest.transport.sim.SimEasyCardApplet;
+import com.smewise.nfcspeedtest.transport.sim.SimIsoDepTag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ApduScriptTest {
+    private static final byte[] UID = {0x08, 0x11, 0x22, 0x33};
+
+    private static final String EASY_CARD =
+            "script easycard 悠遊卡\n"
+                    + "step select 00A40400085041592E5449434C00  # PAY.TICL\n"
+                    + "sw 9000\n"
+                    + "sw 6A82 fail 找不到應用\n"
+                    + "step balance 805C000204\n"
+                    + "field 餘額 int 0 4 /100 元\n"
+                    + "field raw hex 0 4\n"
+                    + "end\n";
+
+    private static ApduScript compileOne(String text) throws IOException {
+        List<ApduScript> scripts = ApduScriptParser.parse(new StringReader(text));
+        assertEquals(1, scripts.size());
+        return scripts.get(0);
+    }
+
+    private static ApduChannel open(int balance, SimulatedLink link) throws IOException {
+        return open(new SimEasyCardApplet(balance), link);
+    }
+
+    private static ApduChannel open(ApduHandler applet, SimulatedLink link) throws IOException {
+        IsoDepTransport iso = new SimIsoDepTag(UID, applet, false, link).isoDep();
+        iso.connect();
+        return new ApduChannel(iso);
+    }
+
+    @Test
+    public void compilesAndExtractsFields() throws IOException {
+        ApduScript script = compileOne(EASY_CARD);
+        assertEquals("easycard", script.getId());
+        assertEquals(2, script.getStepCount());
+        assertEquals(2, script.getFieldCount());
+
+        SimulatedLink link = SimulatedLink.instant();
+        ScriptRun run = script.newRun();
+        assertTrue(script.run(open(-1250, link), link::getRfNanos, run));
+        assertTrue(run.isOk());
+        assertEquals(2, run.getExecutedCount());
+        assertEquals(0x9000, run.getSw(1));
+        assertEquals(-1250, run.longValue(script.getField(0), 0));
+        String text = run.appendTo(new StringBuilder()).toString();
+        assertTrue(text, text.contains("餘額: -12.5 元"));
+        assertTrue(text, text.contains("raw: FF FF FB 1E"));
+    }
+
+    @Test
+    public void failRuleStopsWithMessage() throws IOException {
+        ApduScript script = compileOne(EASY_CARD.replace("5041592E5449434C", "5041592E54494300"));
+        SimulatedLink link = SimulatedLink.instant();
+        ScriptRun run = script.newRun();
+        assertFalse(script.run(open(100, link), link::getRfNanos, run));
+        assertEquals(1, run.getExecutedCount());
+        assertEquals("select: 找不到應用", run.failureMessage());
+        assertEquals(0, run.longValue(script.getField(0), 0));
+    }
+
+    @Test
+    public void gotoFollowsStatusWordBranches() throws IOException {
+        // 未選擇應用時讀餘額回 6985，跳回 select 再讀一次
+        ApduScript script = compileOne(
+                "script retry 重試\n"
+                        + "step balance 805C000204\n"
+                        + "sw 9000 end\n"
+                        + "sw 69XX goto select\n"
+                        + "step select 00A40400085041592E5449434C00\n"
+                        + "sw 9000 goto balance\n"
+                        + "field 餘額 uint 0 4\n"
+                        + "end\n");
+        SimulatedLink link = SimulatedLink.instant();
+        ScriptRun run = script.newRun();
+        assertTrue(script.run(open(500, link), link::getRfNanos, run));
+        assertEquals(3, run.getExecutedCount());
+        assertEquals(0, run.getExecutedStep(0));
+        assertEquals(1, run.getExecutedStep(1));
+        assertEquals(0, run.getExecutedStep(2));
+        assertEquals(0x9000, run.getSw(0));
+    }
+
+    @Test
+    public void recordsPerStepLatencyAndReusesRun() throws IOException {
+        ApduScript script = compileOne(EASY_CARD);
+        SimulatedLink link = SimulatedLink.virtual(LatencyModel.fixed(2_000_000));
+        ApduChannel channel = open(100, link);
+        ScriptRun run = script.newRun();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(script.run(channel, link::getRfNanos, run));
+            assertEquals(2_000_000, run.getStepNanos(0));
+            assertEquals(2_000_000, run.getStepNanos(1));
+            assertEquals(4_000_000, run.getTotalNanos());
+        }
+    }
+
+    @Test
+    public void stepHandlesWrongLengthAndGetResponse() throws IOException {
+        // 餘額指令 Le 不是 4 時回 6C04；Le 正確時先回 6104，資料以 GET RESPONSE 取回
+        SimEasyCardApplet card = new SimEasyCardApplet(-1250);
+        byte[][] pending = new byte[1][];
+        ApduHandler applet = apdu -> {
+            if (apdu[1] == (byte) 0x5C) {
+                if (apdu[apdu.length - 1] != 4) {
+                    return new byte[]{0x6C, 0x04};
+                }
+                byte[] response = card.process(apdu);
+                pending[0] = Arrays.copyOf(response, response.length - 2);
+                return new byte[]{0x61, 0x04};
+            }
+            if (apdu[1] == (byte) 0xC0) {
+                byte[] data = Arrays.copyOf(pending[0], pending[0].length + 2);
+                data[data.length - 2] = (byte) 0x90;
+                return data;
+            }
+            return card.process(apdu);
+        };
+        ApduScript script = compileOne(EASY_CARD.replace("805C000204", "805C000200"));
+        SimulatedLink link = SimulatedLink.virtual(LatencyModel.fixed(2_000_000));
+        ScriptRun run = script.newRun();
+        assertTrue(script.run(open(applet, link), link::getRfNanos, run));
+        assertEquals(2, run.getExecutedCount());
+        assertEquals(0x9000, run.getSw(1));
+        assertEquals(-1250, run.longValue(script.getField(0), 0));
+        // 重送與 GET RESPONSE 算在同一個邏輯步驟
+        assertEquals(2_000_000, run.getStepNanos(0));
+        assertEquals(6_000_000, run.getStepNanos(1));
+    }
+
+    @Test
+    public void reportsLineOfParseErrors() {
+        String[] broken = {
+                "step a 00A4\n",
+                "script x X\nstep a 00A40400\nsw 9000 goto nowhere\nend\n",
+                "script x X\nstep a 00A40400\nfield f float 0 4\nend\n",
+                "script x X\nstep a 00A4040Z\nend\n",
+                "script x X\nstep a 00A40400\n",
+                "script x X\nstep a 00A4040002A0\nend\n",
+        };
+        String[] lines = {"第 1 行", "第 3 行", "第 3 行", "第 2 行", "第 2 行", "第 2 行"};
+        for (int i = 0; i < broken.length; i++) {
+            try {
+                ApduScriptParser.parse(new StringReader(broken[i]));
+                fail("應拋出例外: " + broken[i]);
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith(lines[i]));
+            }
+        }
+    }
+}
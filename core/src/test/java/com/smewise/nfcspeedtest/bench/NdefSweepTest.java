@@ -0,0 +1,100 @@
+package com.smewise.nfcspeedtest.bench;
+
+import com.smewise.nfcspeedtest.ndef.NdefFormat;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.sim.LatencyModel;
+import com.smewise.nfcspeedtest.transport.sim.SimType2Tag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class NdefSweepTest {
+    private static final byte[] UID7 = {0x04, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66};
+
+    private static NdefTransport connect(SimType2Tag tag) throws IOException {
+        NdefTransport ndef = tag.ndef();
+        ndef.connect();
+        return ndef;
+    }
+
+    @Test
+    public void sizesEndAtCapacity() {
+        SweepConfig config = new SweepConfig().setMinSize(16).setStep(64);
+        assertArrayEquals(new int[]{16, 80, 142}, config.sizesFor(142));
+        assertArrayEquals(new int[]{16, 80, 144}, config.sizesFor(144));
+        assertArrayEquals(new int[]{10}, config.sizesFor(10));
+    }
+
+    @Test
+    public void payloadFitsMessageAcrossShortRecordLimit() {
+        for (PayloadKind kind : PayloadKind.values()) {
+            for (int size = 8; size < 600; size++) {
+                int payload = kind.payloadFor(size);
+                if (payload < 0) {
+                    continue;
+                }
+                byte[] message = kind.message(payload);
+                assertTrue(kind + " " + size, message.length <= size);
+                assertEquals(kind.messageLength(payload), message.length);
+                // 超過 255 時改用 4 bytes 長度欄位
+                assertEquals(payload <= NdefFormat.MAX_SHORT_PAYLOAD, (message[0] & NdefFormat.FLAG_SR) != 0);
+            }
+        }
+        assertEquals(-1, PayloadKind.URI.payloadFor(10));
+    }
+
+    @Test
+    public void sweepMeasuresCurvesAndRestoresContent() throws IOException {
+        SimulatedLink link = SimulatedLink.virtual(LatencyModel.fixed(1_000_000));
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG216, UID7, link);
+        NdefTransport ndef = connect(tag);
+        byte[] original = NdefFormat.singleRecord(NdefFormat.TNF_WELL_KNOWN, NdefFormat.RTD_TEXT, null,
+                new byte[]{0x02, 'e', 'n', 'h', 'i'});
+        ndef.writeNdefMessage(original);
+
+        SweepResult result = new NdefSweep(link::getRfNanos)
+                .run(ndef, new SweepConfig().setMinSize(32).setStep(128).setRepeats(2));
+        assertNull(result.getError());
+        assertEquals(ndef.getMaxSize(), result.getCapacity());
+        for (PayloadKind kind : PayloadKind.values()) {
+            SweepResult.Curve curve = result.getCurve(kind);
+            assertTrue(kind.toString(), curve.size() >= 7);
+            assertEquals(0, curve.getMismatches());
+            assertTrue(curve.getMessageBytes(curve.size() - 1) <= result.getCapacity());
+            // 每 4 bytes 一個 WRITE（1ms），每 16 bytes 一個 READ（1ms）
+            assertEquals(250_000, curve.writeFit().getSlope(), 10_000);
+            assertEquals(62_500, curve.readFit().getSlope(), 5_000);
+            assertEquals(4000, curve.writeFit().marginalBytesPerSecond(), 200);
+        }
+        assertTrue(result.isRestored());
+        assertArrayEquals(original, ndef.readNdefMessage());
+        assertTrue(result.summary().contains("External"));
+
+        StringWriter csv = new StringWriter();
+        result.writeCsv(csv);
+        assertTrue(csv.toString().startsWith("tag_type,kind,message_bytes,payload_bytes,write_ns,read_ns,verified\n"
+                + "org.nfcforum.ndef.type2,Text,32,"));
+    }
+
+    @Test
+    public void tagLostStopsWithoutRestore() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG213, UID7, link);
+        NdefTransport ndef = connect(tag);
+        int[] checks = {0};
+        SweepResult result = new NdefSweep(link::getRfNanos).run(ndef, new SweepConfig().setStep(16), () -> {
+            if (++checks[0] == 3) {
+                tag.remove();
+            }
+            return false;
+        });
+        assertNotNull(result.getError());
+        assertFalse(result.isRestored());
+        assertEquals(2, result.getCurve(PayloadKind.TEXT).size());
+    }
+}
@@ -0,0 +1,145 @@
+package com.smewise.nfcspeedtest.bench;
+
+import com.smewise.nfcspeedtest.session.TagSession;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+import com.smewise.nfcspeedtest.transport.sim.LatencyModel;
+import com.smewise.nfcspeedtest.transport.sim.SimType2Tag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class SoakBenchmarkTest {
+    private static final byte[] UID7 = {0x04, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66};
+
+    // 第 i 次耗時 (i + 1) ms 的假操作，時間直接推進虛擬時鐘
+    private static final class SteppedOperation implements BenchOperation {
+        final long[] now;
+        int calls;
+        int failEvery;
+        int loseAt = -1;
+
+        SteppedOperation(long[] now) {
+            this.now = now;
+        }
+
+        @Override
+        public String label() {
+            return "stepped";
+        }
+
+        @Override
+        public int run(TagSession tags) throws IOException {
+            int call = calls++;
+            now[0] += (call + 1) * 1_000_000L;
+            if (call == loseAt) {
+                throw new TagLostException();
+            }
+            if (failEvery > 0 && call % failEvery == failEvery - 1) {
+                throw new IOException("CRC error");
+            }
+            return 100;
+        }
+    }
+
+    private static TagSession session(SimulatedLink link) {
+        return new TagSession(new SimType2Tag(SimType2Tag.Model.NTAG213, UID7, link), null);
+    }
+
+    @Test
+    public void warmupExcludedAndPercentilesExact() {
+        long[] now = {0};
+        SteppedOperation op = new SteppedOperation(now);
+        SoakResult result = new SoakBenchmark(() -> now[0])
+                .run(session(SimulatedLink.instant()), op, new SoakConfig().setWarmup(10).setIterations(100));
+        assertEquals(110, result.getCount());
+        assertEquals(100, result.getMeasured());
+        assertTrue(result.isWarmup(9));
+        assertFalse(result.isWarmup(10));
+        // 量測的是第 11~110 次：11ms ~ 110ms
+        assertEquals(11_000_000, result.getMin());
+        assertEquals(60_000_000, result.getPercentile(50));
+        assertEquals(105_000_000, result.getPercentile(95));
+        assertEquals(109_000_000, result.getPercentile(99));
+        assertEquals(110_000_000, result.getMax());
+        assertEquals(10_000, result.getTotalBytes());
+        assertEquals(10_000 * 1e9 / result.getBusyNanos(), result.bytesPerSecond(), 1e-6);
+        assertEquals(0, result.errorRate(), 0);
+    }
+
+    @Test
+    public void errorsCountedAndRunContinues() {
+        long[] now = {0};
+        SteppedOperation op = new SteppedOperation(now);
+        op.failEvery = 10;
+        SoakResult result = new SoakBenchmark(() -> now[0])
+                .run(session(SimulatedLink.instant()), op, new SoakConfig().setWarmup(0).setIterations(50));
+        assertEquals(50, result.getCount());
+        assertEquals(5, result.getErrors());
+        assertEquals(45, result.getSuccesses());
+        assertEquals(0.1, result.errorRate(), 1e-9);
+        assertEquals(IterationStatus.ERROR, result.getStatus(9));
+        // 失敗的次數不列入延遲分位數
+        assertEquals(9_000_000, result.getPercentile(20));
+        assertTrue(result.summary().contains("CRC error"));
+    }
+
+    @Test
+    public void tagLostStopsRun() {
+        long[] now = {0};
+        SteppedOperation op = new SteppedOperation(now);
+        op.loseAt = 29;
+        SoakResult result = new SoakBenchmark(() -> now[0])
+                .run(session(SimulatedLink.instant()), op, new SoakConfig().setWarmup(0).setIterations(100));
+        assertEquals(30, result.getCount());
+        assertEquals(1, result.getTagLost());
+        assertEquals(1 / 30.0, result.tagLostRate(), 1e-9);
+        assertEquals(IterationStatus.TAG_LOST, result.getStatus(29));
+    }
+
+    @Test
+    public void ndefReadOnSimulatedTagUsesVirtualTime() throws IOException {
+        SimulatedLink link = SimulatedLink.virtual(LatencyModel.fixed(1_000_000));
+        TagSession tags = session(link);
+        byte[] message = {(byte) 0xD1, 0x01, 0x05, 0x54, 0x02, 0x65, 0x6E, 0x68, 0x69};
+        tags.ndef().writeNdefMessage(message);
+
+        SoakResult result = new SoakBenchmark(link::getRfNanos)
+                .run(tags, BenchOperations.ndefRead(), new SoakConfig().setWarmup(2).setIterations(20));
+        assertEquals(20, result.getSuccesses());
+        assertEquals(20L * message.length, result.getTotalBytes());
+        // 每次讀取的 READ 指令數固定，延遲不會變動
+        assertEquals(result.getMin(), result.getMax());
+        assertTrue(result.getMin() >= 1_000_000);
+        assertEquals(1, tags.getConnectCount());
+    }
+
+    @Test
+    public void prepareFailureReported() {
+        SoakResult result = new SoakBenchmark(System::nanoTime)
+                .run(session(SimulatedLink.instant()), BenchOperations.nfcVReadBlocks(0, 1, System::nanoTime), new SoakConfig());
+        assertEquals(0, result.getCount());
+        assertEquals("標籤不支援 NFC-V", result.getPrepareError());
+        assertTrue(result.summary().contains("準備失敗"));
+    }
+
+    @Test
+    public void csvHasOneRowPerIteration() throws IOException {
+        long[] now = {0};
+        SteppedOperation op = new SteppedOperation(now);
+        op.failEvery = 3;
+        SoakResult result = new SoakBenchmark(() -> now[0])
+                .run(session(SimulatedLink.instant()), op, new SoakConfig().setWarmup(1).setIterations(3));
+        StringWriter out = new StringWriter();
+        result.writeCsv(out);
+        assertEquals("iteration,phase,status,latency_ns,bytes\n"
+                + "0,warmup,ok,1000000,100\n"
+                + "1,measure,ok,2000000,100\n"
+                + "2,measure,error,3000000,0\n"
+                + "3,measure,ok,4000000,100\n", out.toString());
+    }
+}
@@ -0,0 +1,86 @@
+package com.smewise.nfcspeedtest.codec;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class HexCodecTest {
+    private static final byte[] BYTES = {0x00, 0x0A, (byte) 0xB1, (byte) 0xFF};
+
+    @Test
+    public void toHex_withAndWithoutSeparator() {
+        assertEquals("000AB1FF", HexCodec.toHex(BYTES));
+        assertEquals("00 0A B1 FF", HexCodec.toDisplayHex(BYTES));
+        assertEquals("00:0A:B1:FF", HexCodec.toHex(BYTES, ':'));
+        assertEquals("null", HexCodec.toDisplayHex(null));
+        assertEquals("", HexCodec.toDisplayHex(new byte[0]));
+    }
+
+    @Test
+    public void encode_intoCallerBuffers() {
+        char[] chars = new char[16];
+        int n = HexCodec.encode(BYTES, 1, 2, chars, 3, HexCodec.NO_SEPARATOR);
+        assertEquals(4, n);
+        assertEquals("0AB1", new String(chars, 3, n));
+
+        StringBuilder sb = new StringBuilder("UID: ");
+        HexCodec.encode(BYTES, sb, ' ');
+        assertEquals("UID: 00 0A B1 FF", sb.toString());
+
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        assertEquals(11, HexCodec.encode(BYTES, 0, BYTES.length, buffer, '-'));
+        assertEquals("00-0A-B1-FF", new String(buffer.array(), 0, 11, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void decode_strict() {
+        assertArrayEquals(BYTES, HexCodec.decode("000ab1FF"));
+        byte[] dst = new byte[3];
+        assertEquals(2, HexCodec.decode("xx805C", 2, 6, dst, 1));
+        assertEquals((byte) 0x80, dst[1]);
+        assertEquals(0x5C, dst[2]);
+    }
+
+    @Test
+    public void parse_acceptsSeparatorsBetweenBytes() {
+        assertArrayEquals(BYTES, HexCodec.parse(" 00 0a:B1-ff\n"));
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        assertEquals(4, HexCodec.parse("00 0A B1 FF", buffer));
+        assertArrayEquals(BYTES, buffer.array());
+    }
+
+    @Test
+    public void parse_reportsPositionOfInvalidInput() {
+        try {
+            HexCodec.parse("01 0G");
+            fail();
+        } catch (HexFormatException e) {
+            assertEquals(4, e.getIndex());
+        }
+        try {
+            HexCodec.parse("01 2 3");
+            fail();
+        } catch (HexFormatException e) {
+            assertEquals(4, e.getIndex());
+        }
+        try {
+            HexCodec.decode("ABC");
+            fail();
+        } catch (HexFormatException e) {
+            assertEquals(3, e.getIndex());
+        }
+    }
+
+    @Test
+    public void roundTripAllByteValues() {
+        byte[] all = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            all[i] = (byte) i;
+        }
+        assertArrayEquals(all, HexCodec.parse(HexCodec.toHex(all, ' ')));
+        assertArrayEquals(all, HexCodec.decode(HexCodec.toHex(all)));
+    }
+}
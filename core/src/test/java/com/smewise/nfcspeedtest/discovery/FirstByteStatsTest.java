@@ -0,0 +1,30 @@
+package com.smewise.nfcspeedtest.discovery;
+
+import com.smewise.nfcspeedtest.trace.LatencyTracer;
+import com.smewise.nfcspeedtest.trace.Phase;
+import com.smewise.nfcspeedtest.trace.SessionTrace;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FirstByteStatsTest {
+
+    @Test
+    public void firstByteStatsArePerMode() {
+        LatencyTracer tracer = new LatencyTracer();
+        FirstByteStats stats = new FirstByteStats();
+        SessionTrace dispatch = tracer.newSession(0);
+        dispatch.add(Phase.INTENT_DELIVERY, 0, 40_000_000);
+        dispatch.add(Phase.TRANSCEIVE, 45_000_000, 5_000_000);
+        SessionTrace reader = tracer.newSession(100_000_000);
+        reader.add(Phase.TRANSCEIVE, 102_000_000, 5_000_000);
+        SessionTrace noRf = tracer.newSession(200_000_000);
+
+        assertEquals(50_000_000, stats.record(DiscoveryMode.FOREGROUND_DISPATCH, dispatch));
+        assertEquals(7_000_000, stats.record(DiscoveryMode.READER_MODE, reader));
+        assertEquals(-1, stats.record(DiscoveryMode.READER_MODE, noRf));
+        assertEquals(1, stats.histogram(DiscoveryMode.READER_MODE).getCount());
+        assertTrue(stats.summary().contains("Reader Mode: n=1"));
+    }
+}
@@ -0,0 +1,104 @@
+package com.smewise.nfcspeedtest.felica;
+
+import com.smewise.nfcspeedtest.transport.NfcFTransport;
+import com.smewise.nfcspeedtest.transport.sim.LatencyModel;
+import com.smewise.nfcspeedtest.transport.sim.SimFeliCaTag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class FeliCaClientTest {
+    private static final byte[] IDM = {0x01, 0x2E, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66};
+    private static final byte[] PMM = {0x03, 0x01, 0x4B, 0x02, 0x4F, 0x49, (byte) 0x93, (byte) 0xFF};
+
+    private static byte[] pattern(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 5 + 1);
+        }
+        return data;
+    }
+
+    private static FeliCaClient open(SimFeliCaTag tag, SimulatedLink link) throws IOException {
+        NfcFTransport nfcf = tag.nfcF();
+        nfcf.connect();
+        return new FeliCaClient(nfcf, tag.getId(), link::getRfNanos);
+    }
+
+    @Test
+    public void discoversServices() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimFeliCaTag tag = new SimFeliCaTag(IDM, PMM, 0x12FC, link)
+                .addService(0x000B, 4, false)
+                .addService(0x1009, 8, true);
+        FeliCaClient felica = open(tag, link);
+        assertArrayEquals(new int[]{0x000B, 0x1009}, felica.searchServiceCodes(16));
+        // 0x1009 超過一個 byte，舊的 byte serviceCode1 會被截斷
+        assertArrayEquals(new int[]{0x0000, 0xFFFF, 0x0000}, felica.requestService(0x1009, 0x0009, 0x000B));
+        assertTrue(felica.hasService(0x1009));
+    }
+
+    @Test
+    public void readsServiceUntilLastBlockInFewCommands() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimFeliCaTag tag = new SimFeliCaTag(IDM, PMM, 0x12FC, link).addService(0x000B, 20, false);
+        byte[] expected = pattern(20 * 16);
+        for (int block = 0; block < 20; block++) {
+            tag.pokeBlock(0x000B, block, Arrays.copyOfRange(expected, block * 16, block * 16 + 16));
+        }
+
+        FeliCaClient felica = open(tag, link);
+        byte[] content = felica.readService(0x000B, 64);
+        assertArrayEquals(expected, content);
+        // 15 區塊 + 15 區塊（第 6 個元素超出範圍）+ 重讀有效的 5 區塊
+        assertEquals(3, felica.getReadCommands());
+        assertEquals(15, felica.getReadChunk());
+    }
+
+    @Test
+    public void writeBatchesConvergeOnCardLimit() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimFeliCaTag tag = new SimFeliCaTag(IDM, PMM, 0x12FC, link).addService(0x1009, 64, true);
+        byte[] data = pattern(60 * 16);
+
+        FeliCaClient felica = open(tag, link);
+        felica.write(0x1009, 2, data, 0, 60);
+        for (int block = 0; block < 60; block++) {
+            assertArrayEquals(Arrays.copyOfRange(data, block * 16, block * 16 + 16), tag.peekBlock(0x1009, block + 2));
+        }
+        // 上限 11：12 被拒後 6 → 9 → 10 → 11
+        assertEquals(11, felica.getWriteChunk());
+        byte[] readBack = new byte[60 * 16];
+        felica.read(0x1009, 2, 60, readBack, 0);
+        assertArrayEquals(data, readBack);
+    }
+
+    @Test
+    public void batchedTransferTakesFewRoundTrips() throws IOException {
+        SimulatedLink link = SimulatedLink.virtual(LatencyModel.linear(3_000_000, 10_000));
+        SimFeliCaTag tag = new SimFeliCaTag(IDM, PMM, 0x12FC, link).addService(0x1009, 30, true);
+        FeliCaClient felica = open(tag, link);
+        felica.read(0x1009, 0, 30, new byte[30 * 16], 0);
+        assertEquals(2, felica.getReadCommands());
+        assertEquals(2, link.getExchanges());
+        assertTrue(felica.readBytesPerSecond() > 0);
+    }
+
+    @Test
+    public void unknownServiceFails() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimFeliCaTag tag = new SimFeliCaTag(IDM, PMM, 0x12FC, link).addService(0x000B, 4, false);
+        FeliCaClient felica = open(tag, link);
+        try {
+            felica.read(0x1009, 0, 1, new byte[16], 0);
+            fail();
+        } catch (FeliCaException e) {
+            assertEquals(0xA6, e.getStatusFlag2());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.smewise.nfcspeedtest.iso15693;
+
+import com.smewise.nfcspeedtest.transport.NfcVTransport;
+import com.smewise.nfcspeedtest.transport.sim.LatencyModel;
+import com.smewise.nfcspeedtest.transport.sim.SimIso15693Tag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class Iso15693MemoryTest {
+    // getId() 的順序：LSB 在前，E0 在最後
+    private static final byte[] UID = {0x44, 0x33, 0x22, 0x11, 0x50, 0x01, 0x04, (byte) 0xE0};
+
+    private static byte[] pattern(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 7 + 3);
+        }
+        return data;
+    }
+
+    private static Iso15693Memory open(SimIso15693Tag tag, SimulatedLink link) throws IOException {
+        NfcVTransport nfcv = tag.nfcV();
+        nfcv.connect();
+        return new Iso15693Memory(nfcv, tag.getId(), link::getRfNanos);
+    }
+
+    @Test
+    public void readsSystemInfo() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimIso15693Tag tag = new SimIso15693Tag(UID, 32, 64, link);
+        SystemInfo info = open(tag, link).getSystemInfo();
+        assertEquals(32, info.getBlockSize());
+        assertEquals(64, info.getBlockCount());
+        assertEquals(2048, info.getMemorySize());
+        assertArrayEquals(UID, info.getUid());
+    }
+
+    @Test
+    public void readsWholeMemoryWithShrinkingChunks() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimIso15693Tag tag = new SimIso15693Tag(UID, 4, 256, link);
+        byte[] expected = pattern(1024);
+        tag.poke(0, expected);
+
+        Iso15693Memory memory = open(tag, link);
+        // (253 - 1) / 4 = 63 區塊，但標籤一次最多 32 區塊，減半後改用 31
+        assertEquals(63, memory.getReadChunk());
+        assertArrayEquals(expected, memory.readAll());
+        assertEquals(31, memory.getReadChunk());
+        assertEquals(BlockStrategy.MULTIPLE, memory.getStrategy());
+        assertEquals(1024, memory.getBytes(BlockStrategy.MULTIPLE));
+        // 1 次被拒 + ceil(256 / 31) = 9 次
+        assertEquals(10, memory.getCommands(BlockStrategy.MULTIPLE));
+    }
+
+    @Test
+    public void fallsBackToSingleBlockWhenUnsupported() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimIso15693Tag tag = new SimIso15693Tag(UID, 4, 16, link);
+        tag.setMultiBlockSupported(false);
+        byte[] data = pattern(64);
+
+        Iso15693Memory memory = open(tag, link);
+        memory.write(0, data, 0, 16);
+        assertEquals(BlockStrategy.SINGLE, memory.getStrategy());
+        assertArrayEquals(data, tag.peek(0, 64));
+        assertArrayEquals(data, memory.readAll());
+        assertEquals(32, memory.getCommands(BlockStrategy.SINGLE));
+    }
+
+    @Test
+    public void writesMultipleBlocksAddressedWithUidAsIs() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimIso15693Tag tag = new SimIso15693Tag(UID, 4, 64, link);
+        byte[] data = pattern(40);
+
+        Iso15693Memory memory = open(tag, link);
+        memory.write(2, data, 0, 10);
+        assertArrayEquals(data, tag.peek(8, 40));
+        assertEquals(1, memory.getCommands(BlockStrategy.MULTIPLE));
+    }
+
+    @Test
+    public void reversedUidDoesNotAddressTag() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimIso15693Tag tag = new SimIso15693Tag(UID, 4, 16, link);
+        NfcVTransport nfcv = tag.nfcV();
+        nfcv.connect();
+        byte[] reversed = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            reversed[i] = UID[7 - i];
+        }
+        // 舊的 writeNfcVTag 反轉 UID，標籤不會回應
+        try {
+            new Iso15693Memory(nfcv, reversed, link::getRfNanos).getSystemInfo();
+            fail();
+        } catch (Iso15693Exception e) {
+            fail("標籤不應回應錯誤碼");
+        } catch (IOException expected) {
+            // 逾時無回應
+        }
+    }
+
+    @Test
+    public void multiBlockIsFasterPerByte() throws IOException {
+        SimulatedLink link = SimulatedLink.virtual(LatencyModel.linear(5_000_000, 100_000));
+        SimIso15693Tag tag = new SimIso15693Tag(UID, 4, 64, link);
+        Iso15693Memory memory = open(tag, link);
+        memory.readAll();
+        memory.setStrategy(BlockStrategy.SINGLE);
+        memory.readAll();
+
+        double multi = memory.bytesPerSecond(BlockStrategy.MULTIPLE);
+        double single = memory.bytesPerSecond(BlockStrategy.SINGLE);
+        assertTrue("multi " + multi + " single " + single, multi > single * 5);
+        assertTrue(memory.summary().contains("bytes/s"));
+    }
+}
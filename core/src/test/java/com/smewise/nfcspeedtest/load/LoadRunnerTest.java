@@ -0,0 +1,74 @@
+package com.smewise.nfcspeedtest.load;
+
+import com.smewise.nfcspeedtest.analytics.MeasurementQuery;
+import com.smewise.nfcspeedtest.session.PipelineStage;
+import com.smewise.nfcspeedtest.store.MeasurementOp;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LoadRunnerTest {
+
+    @Test
+    public void parsesArgumentsAndRejectsBadValues() {
+        LoadConfig config = LoadConfig.parse(new String[]{
+                "--sessions=500", "--warmup=0", "--readers=8", "--virtual", "--scenario=felica", "--rf-us=250"});
+        assertEquals(500, config.getSessions());
+        assertEquals(0, config.getWarmup());
+        assertEquals(8, config.getReaders());
+        assertTrue(config.isVirtualThreads());
+        assertEquals(LoadScenario.FELICA, config.getScenario());
+        assertEquals(250, config.getRfMicros());
+
+        String[][] bad = {{"--sessions=0"}, {"--readers=x"}, {"--warmup"}, {"--scenario=iso15693"}, {"--fast"}};
+        for (String[] args : bad) {
+            try {
+                LoadConfig.parse(args);
+                fail(args[0]);
+            } catch (IllegalArgumentException expected) {
+                // 預期
+            }
+        }
+    }
+
+    @Test
+    public void mixedRunCoversEveryTagTypeWithoutFailures() throws Exception {
+        LoadConfig config = new LoadConfig().setSessions(90).setWarmup(9).setReaders(3);
+        LoadReport report = new LoadRunner(config).run();
+
+        // 暖機不列入統計
+        assertEquals(90, report.getSessions());
+        assertEquals(0, report.getFailures());
+        assertNull(report.getFirstFailure());
+        for (PipelineStage stage : PipelineStage.values()) {
+            assertEquals(stage.name(), 90, report.getStages().wall(stage).getCount());
+        }
+        // 每個讀卡機三張標籤輪流，三種標籤各 30 次
+        assertEquals(30, report.getAnalytics().query(new MeasurementQuery().tech(TagTech.NFC_A)).getSuccesses());
+        assertEquals(30, report.getAnalytics().query(new MeasurementQuery()
+                .tech(TagTech.MIFARE_CLASSIC).op(MeasurementOp.MIFARE_DUMP)).getSuccesses());
+        assertEquals(30, report.getAnalytics().query(new MeasurementQuery().tech(TagTech.NFC_F)).getSuccesses());
+        assertTrue(report.getAnalytics().query(new MeasurementQuery().tech(TagTech.NFC_F)).getBytes() > 0);
+        assertTrue(report.summary().contains("失敗 0"));
+    }
+
+    @Test
+    public void virtualThreadsFallBackToFixedPoolOnOlderJdk() throws Exception {
+        boolean supported;
+        try {
+            java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            supported = true;
+        } catch (NoSuchMethodException e) {
+            supported = false;
+        }
+        LoadConfig config = new LoadConfig().setSessions(12).setWarmup(0).setReaders(4)
+                .setVirtualThreads(true).setScenario(LoadScenario.TYPE2);
+        LoadReport report = new LoadRunner(config).run();
+
+        assertEquals(supported, report.isVirtualThreads());
+        assertEquals(12, report.getSessions());
+        assertEquals(0, report.getFailures());
+    }
+}
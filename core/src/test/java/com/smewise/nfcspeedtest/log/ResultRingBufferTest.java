@@ -0,0 +1,85 @@
+package com.smewise.nfcspeedtest.log;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class ResultRingBufferTest {
+
+    @Test
+    public void capacityRoundsUpToPowerOfTwo() {
+        assertEquals(8, new ResultRingBuffer(5).capacity());
+        assertEquals(8, new ResultRingBuffer(8).capacity());
+        assertEquals(1024, new ResultRingBuffer(1000).capacity());
+    }
+
+    @Test
+    public void appendThenRead() {
+        ResultRingBuffer log = new ResultRingBuffer(4);
+        assertEquals(0, log.publishedEnd(0));
+        assertEquals(0, log.append("a", 1000, 10));
+        assertEquals(1, log.append("b", 2000, 20));
+        assertEquals(2, log.publishedEnd(0));
+
+        ResultRingBuffer.Entry e = new ResultRingBuffer.Entry();
+        assertTrue(log.read(1, e));
+        assertEquals("b", e.text);
+        assertEquals(2000, e.wallTimeMillis);
+        assertEquals(20, e.appendNanos);
+        assertFalse(log.read(2, e));
+    }
+
+    @Test
+    public void oldestEntriesAreOverwritten() {
+        ResultRingBuffer log = new ResultRingBuffer(4);
+        for (int i = 0; i < 10; i++) {
+            log.append("#" + i, i, i);
+        }
+        ResultRingBuffer.Entry e = new ResultRingBuffer.Entry();
+        assertFalse(log.read(5, e));
+        assertTrue(log.read(6, e));
+        assertEquals("#6", e.text);
+        // 讀取端落後超過容量時直接跳到仍存在的範圍
+        assertEquals(10, log.publishedEnd(0));
+    }
+
+    @Test
+    public void concurrentProducersPublishEverySequence() throws Exception {
+        final int threads = 4;
+        final int perThread = 5000;
+        final ResultRingBuffer log = new ResultRingBuffer(threads * perThread);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    log.append(id + ":" + i);
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread w : workers) {
+            w.join();
+        }
+
+        assertEquals(threads * perThread, log.publishedEnd(0));
+        int[] next = new int[threads];
+        ResultRingBuffer.Entry e = new ResultRingBuffer.Entry();
+        for (long seq = 0; seq < threads * perThread; seq++) {
+            assertTrue(log.read(seq, e));
+            String[] parts = e.text.split(":");
+            int id = Integer.parseInt(parts[0]);
+            // 同一個執行緒的紀錄保持順序
+            assertEquals(next[id]++, Integer.parseInt(parts[1]));
+        }
+    }
+}
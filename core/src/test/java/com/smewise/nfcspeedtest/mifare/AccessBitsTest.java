@@ -0,0 +1,68 @@
+package com.smewise.nfcspeedtest.mifare;
+
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.sim.SimMifareClassicTag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class AccessBitsTest {
+    // 尾塊條件 C1C2C3 → 用 Key A / Key B 認證後能否讀取尾塊（存取位元），依 MF1S50 存取條件表
+    private static final int[][] TRAILER_READ = {
+            {0b000, 1, 0},
+            {0b010, 1, 0},
+            {0b100, 1, 1},
+            {0b110, 1, 1},
+            {0b001, 1, 0},
+            {0b011, 1, 1},
+            {0b101, 1, 1},
+            {0b111, 1, 1},
+    };
+
+    @Test
+    public void roundTripsAndRejectsBrokenInversion() {
+        assertEquals(AccessBits.TRANSPORT, AccessBits.parse(SimMifareClassicTag.ACCESS_TRANSPORT, 0));
+        int packed = AccessBits.pack(0b000, 0b011, 0b111, 0b011);
+        assertEquals(packed, AccessBits.parse(AccessBits.encode(packed), 0));
+        byte[] broken = AccessBits.encode(packed);
+        broken[0] ^= 0x01;
+        assertEquals(AccessBits.INVALID, AccessBits.parse(broken, 0));
+        assertFalse(AccessBits.canRead(packed, 1, KeyType.A));
+        assertTrue(AccessBits.canRead(packed, 1, KeyType.B));
+        // 出廠設定 Key B 可被讀出，不能用來讀資料
+        assertFalse(AccessBits.canRead(AccessBits.TRANSPORT, 0, KeyType.B));
+    }
+
+    @Test
+    public void trailerReadMatchesAccessTable() {
+        assertEquals(8, TRAILER_READ.length);
+        for (int[] row : TRAILER_READ) {
+            int packed = AccessBits.pack(0, 0, 0, row[0]);
+            String name = Integer.toBinaryString(8 | row[0]).substring(1);
+            assertEquals(name + " Key A", row[1] == 1, AccessBits.canRead(packed, AccessBits.GROUP_TRAILER, KeyType.A));
+            assertEquals(name + " Key B", row[2] == 1, AccessBits.canRead(packed, AccessBits.GROUP_TRAILER, KeyType.B));
+        }
+    }
+
+    @Test
+    public void simulatorLetsKeyBReadTrailerUnderCondition100() throws IOException {
+        byte[] uid = {1, 2, 3, 4};
+        byte[] keyB = {(byte) 0xD3, (byte) 0xF7, (byte) 0xD3, (byte) 0xF7, (byte) 0xD3, (byte) 0xF7};
+        SimMifareClassicTag tag = new SimMifareClassicTag(uid, false, SimulatedLink.instant());
+        byte[] access = AccessBits.encode(AccessBits.pack(0b000, 0b000, 0b000, 0b100));
+        tag.setSectorTrailer(1, SimMifareClassicTag.KEY_DEFAULT,
+                new byte[]{access[0], access[1], access[2], 0x69}, keyB);
+        MifareClassicTransport mifare = tag.mifareClassic();
+        mifare.connect();
+        assertTrue(mifare.authenticateSectorWithKeyB(1, keyB));
+        byte[] trailer = mifare.readBlock(7);
+        assertArrayEquals(access, Arrays.copyOfRange(trailer, 6, 9));
+        // 兩把金鑰都讀不出來
+        assertArrayEquals(new byte[6], Arrays.copyOfRange(trailer, 10, 16));
+    }
+}
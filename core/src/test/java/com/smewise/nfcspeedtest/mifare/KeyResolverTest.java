@@ -0,0 +1,133 @@
+package com.smewise.nfcspeedtest.mifare;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.sim.SimMifareClassicTag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class KeyResolverTest {
+    private static final byte[] UID = {1, 2, 3, 4};
+    private static final String KEYS = "# 測試字典\n"
+            + "FFFFFFFFFFFF\n"
+            + "A0A1A2A3A4A5  # MAD\n"
+            + "\n"
+            + "00 00 00 00 00 00\n"
+            + "D3F7D3F7D3F7\n"
+            + "ffffffffffff\n";
+
+    private static KeyDictionary dictionary() throws IOException {
+        return KeyDictionary.parse(new StringReader(KEYS));
+    }
+
+    @Test
+    public void parsesDictionaryAndDropsDuplicates() throws IOException {
+        KeyDictionary dictionary = dictionary();
+        assertEquals(4, dictionary.size());
+        assertEquals(3, dictionary.rankOf(HexCodec.decode("D3F7D3F7D3F7")));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsMalformedKeys() throws IOException {
+        KeyDictionary.parse(new StringReader("FFFFFFFFFFFF\nFFFF\n"));
+    }
+
+    @Test
+    public void hitsReorderDictionary() throws IOException {
+        KeyDictionary dictionary = dictionary();
+        int rank = dictionary.rankOf(HexCodec.decode("D3F7D3F7D3F7"));
+        assertEquals(0, dictionary.recordHit(rank));
+        assertEquals(3, dictionary.fileIndexAt(0));
+        // 次數相同時維持檔案順序
+        assertEquals(0, dictionary.fileIndexAt(1));
+    }
+
+    @Test
+    public void knownCardAuthenticatesOnFirstAttempt() throws IOException {
+        byte[] keyB = HexCodec.decode("D3F7D3F7D3F7");
+        SimMifareClassicTag tag = new SimMifareClassicTag(UID, false, SimulatedLink.instant());
+        tag.setSectorKeys(1, HexCodec.decode("112233445566"), keyB);
+        KeyResolver resolver = new KeyResolver(dictionary(), new SectorKeyCache());
+        MifareClassicTransport mifare = tag.mifareClassic();
+        mifare.connect();
+
+        // 第一次：前三組 A/B 都失敗，第四組 Key A 失敗、Key B 成功
+        SectorKey key = resolver.authenticate(mifare, UID, 1);
+        assertEquals(KeyType.B, key.getType());
+        assertArrayEquals(keyB, key.getKey());
+        assertEquals(8, resolver.getAttempts());
+        assertEquals(0, resolver.getAttemptsSaved());
+
+        // 第二次：快取命中，一次成功，省下 7 次
+        assertNotNull(resolver.authenticate(mifare, UID, 1));
+        assertEquals(9, resolver.getAttempts());
+        assertEquals(7, resolver.getAttemptsSaved());
+        assertEquals(1, resolver.getCacheHits());
+
+        // 另一張卡同樣用這組金鑰：字典已把它排到最前面
+        byte[] otherUid = {9, 9, 9, 9};
+        SimMifareClassicTag other = new SimMifareClassicTag(otherUid, false, SimulatedLink.instant());
+        other.setSectorKeys(1, HexCodec.decode("112233445566"), keyB);
+        MifareClassicTransport otherMifare = other.mifareClassic();
+        otherMifare.connect();
+        assertNotNull(resolver.authenticate(otherMifare, otherUid, 1));
+        assertEquals(11, resolver.getAttempts());
+        assertEquals(13, resolver.getAttemptsSaved());
+    }
+
+    @Test
+    public void staleCacheEntryFallsBackToDictionary() throws IOException {
+        SimMifareClassicTag tag = new SimMifareClassicTag(UID, false, SimulatedLink.instant());
+        SectorKeyCache cache = new SectorKeyCache();
+        cache.put(UID, 0, new SectorKey(HexCodec.decode("A0A1A2A3A4A5"), KeyType.A));
+        KeyResolver resolver = new KeyResolver(dictionary(), cache);
+        MifareClassicTransport mifare = tag.mifareClassic();
+        mifare.connect();
+
+        SectorKey key = resolver.authenticate(mifare, UID, 0);
+        assertArrayEquals(SimMifareClassicTag.KEY_DEFAULT, key.getKey());
+        assertEquals(1, resolver.getCacheMisses());
+        assertArrayEquals(SimMifareClassicTag.KEY_DEFAULT, cache.get(UID, 0).getKey());
+    }
+
+    @Test
+    public void unknownSectorFailsAfterWholeDictionary() throws IOException {
+        SimMifareClassicTag tag = new SimMifareClassicTag(UID, false, SimulatedLink.instant());
+        tag.setSectorKeys(2, HexCodec.decode("010203040506"), HexCodec.decode("010203040506"));
+        KeyResolver resolver = new KeyResolver(dictionary(), new SectorKeyCache());
+        MifareClassicTransport mifare = tag.mifareClassic();
+        mifare.connect();
+        assertNull(resolver.authenticate(mifare, UID, 2));
+        assertEquals(8, resolver.getAttempts());
+        assertEquals(1, resolver.getFailures());
+    }
+
+    @Test
+    public void persistsHitsAndCacheAcrossRestarts() throws IOException {
+        SimMifareClassicTag tag = new SimMifareClassicTag(UID, false, SimulatedLink.instant());
+        tag.setSectorKeys(3, HexCodec.decode("000000000000"), HexCodec.decode("000000000000"));
+        KeyResolver resolver = new KeyResolver(dictionary(), new SectorKeyCache());
+        MifareClassicTransport mifare = tag.mifareClassic();
+        mifare.connect();
+        resolver.authenticate(mifare, UID, 3);
+
+        StringWriter saved = new StringWriter();
+        resolver.writeTo(saved);
+        KeyResolver restored = new KeyResolver(dictionary(), new SectorKeyCache());
+        restored.readFrom(new StringReader(saved + "garbage line\nK bad\n"));
+
+        assertEquals(2, restored.getDictionary().fileIndexAt(0));
+        assertEquals(1, restored.getDictionary().hitsAt(0));
+        SectorKey cached = restored.getCache().get(UID, 3);
+        assertEquals(KeyType.A, cached.getType());
+        assertNotNull(restored.authenticate(mifare, UID, 3));
+        assertEquals(1, restored.getAttempts());
+    }
+}
@@ -0,0 +1,112 @@
+package com.smewise.nfcspeedtest.mifare;
+
+import com.smewise.nfcspeedtest.codec.HexCodec;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.sim.LatencyModel;
+import com.smewise.nfcspeedtest.transport.sim.SimMifareClassicTag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MifareDumpEngineTest {
+    private static final byte[] UID = {1, 2, 3, 4};
+    private static final byte[] KEY_B = HexCodec.decode("D3F7D3F7D3F7");
+
+    private static KeyResolver resolver() throws IOException {
+        return new KeyResolver(KeyDictionary.parse(new StringReader("FFFFFFFFFFFF\nD3F7D3F7D3F7\n")),
+                new SectorKeyCache());
+    }
+
+    // RF 時間當作時鐘，讀取速度與 RF 時間可以精確驗證
+    private static MifareDump dump(SimMifareClassicTag tag, SimulatedLink link) throws IOException {
+        MifareClassicTransport mifare = tag.mifareClassic();
+        mifare.connect();
+        return new MifareDumpEngine(resolver(), link::getRfNanos).dump(mifare, UID);
+    }
+
+    @Test
+    public void dumps1KWithBlockRateAndRfTime() throws IOException {
+        SimulatedLink link = SimulatedLink.virtual(LatencyModel.fixed(1_000_000));
+        SimMifareClassicTag tag = new SimMifareClassicTag(UID, false, link);
+        tag.pokeBlock(1, new byte[]{7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7});
+
+        MifareDump dump = dump(tag, link);
+        assertEquals(1024, dump.getSize());
+        assertEquals(64, dump.getBlocksRead());
+        assertEquals(7, dump.getBlock(1)[0]);
+        // 16 次認證 + 64 次讀取，每次 1ms
+        assertEquals(80_000_000, dump.getRfNanos());
+        assertEquals(16_000_000, dump.getAuthNanos());
+        assertEquals(800.0, dump.blocksPerSecond(), 0.001);
+    }
+
+    @Test
+    public void dumps4K() throws IOException {
+        SimulatedLink link = SimulatedLink.virtual(LatencyModel.fixed(1_000_000));
+        MifareDump dump = dump(new SimMifareClassicTag(UID, true, link), link);
+        assertEquals(4096, dump.getSize());
+        assertEquals(40, dump.getSectorCount());
+        assertEquals(256, dump.getBlocksRead());
+        assertEquals((40 + 256) * 1_000_000L, dump.getRfNanos());
+    }
+
+    @Test
+    public void skipsBlocksForbiddenByAccessBits() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimMifareClassicTag tag = new SimMifareClassicTag(UID, false, link);
+        byte[] access = Arrays.copyOf(AccessBits.encode(AccessBits.pack(0b000, 0b011, 0b111, 0b011)), 4);
+        tag.setSectorTrailer(2, SimMifareClassicTag.KEY_DEFAULT, access, KEY_B);
+
+        MifareDump dump = dump(tag, link);
+        assertEquals(BlockStatus.READ, dump.getStatus(8));
+        assertEquals(BlockStatus.DENIED, dump.getStatus(9));
+        assertEquals(BlockStatus.DENIED, dump.getStatus(10));
+        assertEquals(BlockStatus.READ, dump.getStatus(11));
+        assertEquals(2, dump.getBlocksDenied());
+        // 沒有送出任何會失敗的讀取：16 次認證 + 62 次讀取
+        assertEquals(0, dump.countStatus(BlockStatus.READ_FAILED));
+        assertEquals(16 + 62, link.getExchanges());
+    }
+
+    @Test
+    public void readsKeyBOnlyBlocksWhenKeyAUnknown() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimMifareClassicTag tag = new SimMifareClassicTag(UID, false, link);
+        byte[] access = Arrays.copyOf(AccessBits.encode(AccessBits.pack(0b000, 0b011, 0b111, 0b011)), 4);
+        byte[] keyA = HexCodec.decode("112233445566");
+        tag.setSectorTrailer(3, keyA, access, KEY_B);
+        tag.pokeBlock(13, new byte[]{5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5});
+
+        MifareDump dump = dump(tag, link);
+        assertEquals(KeyType.B, dump.getKey(3).getType());
+        assertEquals(BlockStatus.READ, dump.getStatus(13));
+        assertEquals(5, dump.getBlock(13)[0]);
+        assertEquals(BlockStatus.DENIED, dump.getStatus(14));
+    }
+
+    @Test
+    public void mfdFillsKnownKeysAndFormatsAfterRead() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimMifareClassicTag tag = new SimMifareClassicTag(UID, false, link);
+        MifareDump dump = dump(tag, link);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        dump.writeMfd(out);
+        byte[] mfd = out.toByteArray();
+        assertEquals(1024, mfd.length);
+        // 尾塊讀不到的 Key A 由認證用的金鑰補上
+        assertArrayEquals(tag.peekBlock(3), Arrays.copyOfRange(mfd, 48, 64));
+        assertEquals(0, dump.getBlock(3)[0]);
+
+        String text = dump.appendBlocks(new StringBuilder()).toString();
+        assertTrue(text.startsWith("區段 00 區塊 00: 01 02 03 04 04"));
+        assertEquals(64, text.split("\n").length);
+    }
+}
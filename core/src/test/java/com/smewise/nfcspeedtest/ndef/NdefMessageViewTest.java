@@ -0,0 +1,216 @@
+package com.smewise.nfcspeedtest.ndef;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class NdefMessageViewTest {
+    private static final byte[] VCARD = NdefFormat.ascii("text/vcard");
+
+    private static byte[] text(String lang, String text, boolean utf16) {
+        byte[] l = NdefFormat.ascii(lang);
+        byte[] t = text.getBytes(utf16 ? StandardCharsets.UTF_16BE : StandardCharsets.UTF_8);
+        byte[] payload = new byte[1 + l.length + t.length];
+        payload[0] = (byte) ((utf16 ? 0x80 : 0) | l.length);
+        System.arraycopy(l, 0, payload, 1, l.length);
+        System.arraycopy(t, 0, payload, 1 + l.length, t.length);
+        return payload;
+    }
+
+    private static byte[] pattern(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 7);
+        }
+        return data;
+    }
+
+    // 依序串接多個 record，自動加上 MB / ME
+    private static byte[] message(Object[]... records) {
+        int length = 0;
+        for (Object[] r : records) {
+            length += NdefFormat.recordLength(((byte[]) r[1]).length, r[2] == null ? 0 : ((byte[]) r[2]).length,
+                    ((byte[]) r[3]).length);
+        }
+        byte[] out = new byte[length];
+        int pos = 0;
+        for (int i = 0; i < records.length; i++) {
+            Object[] r = records[i];
+            byte[] payload = (byte[]) r[3];
+            pos = NdefFormat.writeRecord(out, pos, (Integer) r[0], (byte[]) r[1], (byte[]) r[2],
+                    payload, 0, payload.length, i == 0, i == records.length - 1);
+        }
+        return out;
+    }
+
+    private static Object[] record(int tnf, byte[] type, byte[] id, byte[] payload) {
+        return new Object[]{tnf, type, id, payload};
+    }
+
+    @Test
+    public void walksMixedRecordTypes() {
+        byte[] raw = message(
+                record(NdefFormat.TNF_WELL_KNOWN, NdefFormat.RTD_TEXT, null, text("zh-TW", "悠遊卡", false)),
+                record(NdefFormat.TNF_WELL_KNOWN, NdefFormat.RTD_URI, NdefFormat.ascii("u1"), NdefFormat.ascii("\u0004example.com")),
+                record(NdefFormat.TNF_MIME_MEDIA, VCARD, null, pattern(300)),
+                record(NdefFormat.TNF_EXTERNAL_TYPE, NdefFormat.ascii("smewise.com:x"), null, new byte[]{1, 2}),
+                record(NdefFormat.TNF_ABSOLUTE_URI, NdefFormat.ascii("urn:nfc:sn:1"), null, new byte[0]),
+                record(NdefFormat.TNF_WELL_KNOWN, NdefFormat.RTD_TEXT, null, text("en", "wide", true)));
+        NdefRecordView r = NdefMessageView.wrap(raw).records();
+
+        assertTrue(r.next());
+        assertTrue(r.isText());
+        assertEquals("zh-TW", r.textLanguage());
+        assertEquals("悠遊卡", r.text());
+        assertNull(r.id());
+
+        assertTrue(r.next());
+        assertTrue(r.isUri());
+        assertEquals("https://example.com", r.uri());
+        assertEquals("u1", r.id());
+
+        assertTrue(r.next());
+        assertEquals("text/vcard", r.mimeType());
+        assertEquals(300, r.payloadLength());
+        assertArrayEquals(pattern(300), r.payloadBytes());
+
+        assertTrue(r.next());
+        assertEquals("smewise.com:x", r.externalType());
+        assertNull(r.mimeType());
+
+        assertTrue(r.next());
+        assertTrue(r.isUri());
+        assertEquals("urn:nfc:sn:1", r.uri());
+
+        assertTrue(r.next());
+        assertEquals("wide", r.text());
+        assertTrue(r.isLast());
+        assertFalse(r.next());
+        assertEquals(6, NdefMessageView.wrap(raw).recordCount());
+    }
+
+    @Test
+    public void payloadIsViewOverOriginalBytes() {
+        byte[] raw = NdefFormat.singleRecord(NdefFormat.TNF_MIME_MEDIA, VCARD, null, pattern(64));
+        ByteBuffer source = ByteBuffer.allocate(raw.length + 8);
+        source.position(4);
+        source.put(raw);
+        source.flip();
+        source.position(4);
+
+        NdefRecordView r = NdefMessageView.of(source).records();
+        assertTrue(r.next());
+        ByteBuffer payload = r.payload();
+        assertTrue(payload.isReadOnly());
+        assertEquals(64, payload.remaining());
+        // 修改原始資料會反映在 view 上，代表沒有複製
+        int payloadAt = 4 + raw.length - 64;
+        source.put(payloadAt, (byte) 0x55);
+        assertEquals(0x55, payload.get(0));
+        assertEquals(4, source.position());
+
+        // direct buffer 同樣可以走訪
+        ByteBuffer direct = ByteBuffer.allocateDirect(raw.length);
+        direct.put(raw).flip();
+        NdefRecordView d = NdefMessageView.of(direct).records();
+        assertTrue(d.next());
+        assertEquals("text/vcard", d.mimeType());
+        assertArrayEquals(pattern(64), d.payloadBytes());
+    }
+
+    @Test
+    public void chunkedRecordsAreJoined() {
+        byte[] t = text("en", "hello chunked world", false);
+        // 三段：第一段帶 type，後續段為 TNF_UNCHANGED
+        byte[] raw = new byte[3 + 1 + 5 + 3 + 6 + 3 + (t.length - 11)];
+        int pos = 0;
+        raw[pos++] = (byte) (NdefFormat.FLAG_MB | NdefFormat.FLAG_CF | NdefFormat.FLAG_SR | NdefFormat.TNF_WELL_KNOWN);
+        raw[pos++] = 1;
+        raw[pos++] = 5;
+        raw[pos++] = 'T';
+        System.arraycopy(t, 0, raw, pos, 5);
+        pos += 5;
+        raw[pos++] = (byte) (NdefFormat.FLAG_CF | NdefFormat.FLAG_SR | NdefFormat.TNF_UNCHANGED);
+        raw[pos++] = 0;
+        raw[pos++] = 6;
+        System.arraycopy(t, 5, raw, pos, 6);
+        pos += 6;
+        raw[pos++] = (byte) (NdefFormat.FLAG_ME | NdefFormat.FLAG_SR | NdefFormat.TNF_UNCHANGED);
+        raw[pos++] = 0;
+        raw[pos++] = (byte) (t.length - 11);
+        System.arraycopy(t, 11, raw, pos, t.length - 11);
+
+        NdefRecordView r = NdefMessageView.wrap(raw).records();
+        assertTrue(r.next());
+        assertTrue(r.isChunked());
+        assertEquals(3, r.chunkCount());
+        assertEquals(t.length, r.payloadLength());
+        assertArrayEquals(t, r.payloadBytes());
+        assertEquals("hello chunked world", r.text());
+        assertEquals(t.length, r.payload().remaining());
+        assertFalse(r.next());
+    }
+
+    @Test
+    public void smartPosterIsNestedView() {
+        byte[] inner = message(
+                record(NdefFormat.TNF_WELL_KNOWN, NdefFormat.RTD_URI, null, NdefFormat.ascii("\u0003nfc.example")),
+                record(NdefFormat.TNF_WELL_KNOWN, NdefFormat.RTD_TEXT, null, text("en", "Title", false)),
+                record(NdefFormat.TNF_WELL_KNOWN, NdefFormat.RTD_ACTION, null, new byte[]{0}));
+        byte[] raw = NdefFormat.singleRecord(NdefFormat.TNF_WELL_KNOWN, NdefFormat.RTD_SMART_POSTER, null, inner);
+
+        NdefRecordView r = NdefMessageView.wrap(raw).records();
+        assertTrue(r.next());
+        assertTrue(r.isSmartPoster());
+        NdefRecordView sp = r.smartPoster().records();
+        assertTrue(sp.next());
+        assertEquals("http://nfc.example", sp.uri());
+        assertTrue(sp.next());
+        assertEquals("Title", sp.text());
+        assertTrue(sp.next());
+        assertTrue(sp.isWellKnown(NdefFormat.RTD_ACTION));
+        assertFalse(sp.next());
+        // 重複使用游標走訪另一個訊息
+        assertTrue(sp.reset(NdefMessageView.wrap(raw)).next());
+        assertTrue(sp.isSmartPoster());
+    }
+
+    @Test
+    public void rejectsMalformedMessages() {
+        byte[] ok = NdefFormat.singleRecord(NdefFormat.TNF_WELL_KNOWN, NdefFormat.RTD_TEXT, null, text("en", "x", false));
+        byte[][] broken = {
+                // 缺少 MB
+                withHeader(ok, ok[0] & ~NdefFormat.FLAG_MB),
+                // 缺少 ME，訊息就結束
+                withHeader(ok, ok[0] & ~NdefFormat.FLAG_ME),
+                // 截斷
+                Arrays.copyOf(ok, ok.length - 1),
+                // long record 長度 0xFFFFFFFF
+                {(byte) (NdefFormat.FLAG_MB | NdefFormat.FLAG_ME | NdefFormat.TNF_MIME_MEDIA), 1,
+                        (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 'a'},
+                // 分段 record 沒有後續段落
+                withHeader(ok, (ok[0] | NdefFormat.FLAG_CF) & ~NdefFormat.FLAG_ME),
+                // 第一個 record 就是 TNF_UNCHANGED
+                withHeader(ok, (ok[0] & ~NdefFormat.TNF_MASK) | NdefFormat.TNF_UNCHANGED),
+        };
+        for (int i = 0; i < broken.length; i++) {
+            try {
+                NdefMessageView.wrap(broken[i]).recordCount();
+                fail("應拋出例外: #" + i);
+            } catch (NdefFormatException expected) {
+                assertTrue(expected.getOffset() >= 0 && expected.getOffset() <= broken[i].length);
+            }
+        }
+        assertEquals(0, NdefMessageView.wrap(new byte[0]).recordCount());
+    }
+
+    private static byte[] withHeader(byte[] message, int header) {
+        byte[] copy = message.clone();
+        copy[0] = (byte) header;
+        return copy;
+    }
+}
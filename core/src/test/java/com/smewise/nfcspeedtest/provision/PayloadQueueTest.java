@@ -0,0 +1,100 @@
+package com.smewise.nfcspeedtest.provision;
+
+import com.smewise.nfcspeedtest.ndef.NdefMessageView;
+import com.smewise.nfcspeedtest.ndef.NdefRecordView;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class PayloadQueueTest {
+    private static final String FILE = "# 產線批次\n"
+            + "uri:https://www.example.com/t?id=1#top\n"
+            + "seq 41 3 text:SN-%06d\n"
+            + "\n"
+            + "hex:D1 01 04 54 02 65 6E 41\n";
+
+    private static NdefRecordView firstRecord(ProvisioningPayload payload) {
+        NdefRecordView record = NdefMessageView.wrap(payload.getData()).records();
+        assertTrue(record.next());
+        return record;
+    }
+
+    @Test
+    public void preEncodesNdefMessagesInOrder() throws IOException {
+        PayloadQueue queue = PayloadQueue.parse(new StringReader(FILE), PayloadQueue.NDEF);
+        assertEquals(5, queue.size());
+
+        ProvisioningPayload uri = queue.peek();
+        assertEquals("https://www.example.com/t?id=1#top", firstRecord(uri).uri());
+        // "https://www." 縮寫成 0x02
+        assertEquals(0x02, uri.getData()[4]);
+        queue.commit(uri, new byte[]{1});
+
+        for (int serial = 41; serial <= 43; serial++) {
+            ProvisioningPayload text = queue.peek();
+            assertEquals(String.format("SN-%06d", serial), firstRecord(text).text());
+            assertEquals("en", firstRecord(text).textLanguage());
+            queue.commit(text, new byte[]{(byte) serial});
+        }
+        assertEquals("A", firstRecord(queue.peek()).text());
+        assertEquals(1, queue.remaining());
+    }
+
+    @Test
+    public void padsBlockImagesAndRejectsUri() throws IOException {
+        PayloadQueue queue = PayloadQueue.parse(new StringReader("text:SN-1\nhex:0102030405\n"), 4);
+        assertArrayEquals(new byte[]{'S', 'N', '-', '1'}, queue.peek().getData());
+        queue.commit(queue.peek(), new byte[]{1});
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 0, 0, 0}, queue.peek().getData());
+
+        try {
+            PayloadQueue.parse(new StringReader("text:a\nuri:https://x\n"), 16);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("第 2 行"));
+        }
+    }
+
+    @Test
+    public void advancesOnlyOnCommitAndRemembersTags() throws IOException {
+        PayloadQueue queue = PayloadQueue.parse(new StringReader("seq 1 2 text:%d\n"), PayloadQueue.NDEF);
+        byte[] uid = {4, 5, 6, 7};
+        ProvisioningPayload first = queue.peek();
+        assertEquals(-1, queue.writtenIndex(uid));
+        // 寫入失敗沒有 commit，下一張卡仍拿到同一筆
+        assertSame(first, queue.peek());
+
+        queue.commit(first, uid);
+        assertEquals(0, queue.writtenIndex(uid));
+        assertEquals(1, queue.getPosition());
+        try {
+            queue.commit(first, new byte[]{8});
+            fail("同一筆不可確認兩次");
+        } catch (IllegalStateException expected) {
+            // 已前進
+        }
+        queue.commit(queue.peek(), new byte[]{8});
+        assertNull(queue.peek());
+    }
+
+    @Test
+    public void reportsTagsPerMinuteAndLatency() {
+        ProvisioningStats stats = new ProvisioningStats();
+        long second = 1_000_000_000L;
+        // 每 2 秒一張、每張 300 ms
+        for (int i = 0; i < 10; i++) {
+            stats.recordWritten(i * 2 * second, i * 2 * second + 300_000_000L);
+        }
+        stats.recordDuplicate(20 * second, 20 * second + 50_000_000L);
+        assertEquals(10, stats.getWritten());
+        assertEquals(1, stats.getDuplicates());
+        assertEquals(30.0, stats.recentTagsPerMinute(), 0.01);
+        assertEquals(10 * 60.0 / 20.05, stats.tagsPerMinute(), 0.01);
+        assertEquals(300, stats.getLatency().getPercentile(50) / 1_000_000);
+        assertTrue(stats.summary().contains("張/分"));
+    }
+}
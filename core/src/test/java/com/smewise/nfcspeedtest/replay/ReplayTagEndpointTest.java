@@ -0,0 +1,160 @@
+package com.smewise.nfcspeedtest.replay;
+
+import com.smewise.nfcspeedtest.apdu.ApduChannel;
+import com.smewise.nfcspeedtest.apdu.script.ApduScript;
+import com.smewise.nfcspeedtest.apdu.script.ApduScriptParser;
+import com.smewise.nfcspeedtest.apdu.script.ScriptRun;
+import com.smewise.nfcspeedtest.codec.HexCodec;
+import com.smewise.nfcspeedtest.mifare.KeyDictionary;
+import com.smewise.nfcspeedtest.mifare.KeyResolver;
+import com.smewise.nfcspeedtest.mifare.SectorKeyCache;
+import com.smewise.nfcspeedtest.trace.NanoClock;
+import com.smewise.nfcspeedtest.transport.IsoDepTransport;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.TagEndpoint;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+import com.smewise.nfcspeedtest.transport.TagTech;
+import com.smewise.nfcspeedtest.transport.sim.LatencyModel;
+import com.smewise.nfcspeedtest.transport.sim.SimEasyCardApplet;
+import com.smewise.nfcspeedtest.transport.sim.SimIsoDepTag;
+import com.smewise.nfcspeedtest.transport.sim.SimMifareClassicTag;
+import com.smewise.nfcspeedtest.transport.sim.SimType2Tag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+import com.smewise.nfcspeedtest.type2.Type2Command;
+import com.smewise.nfcspeedtest.type2.Type2Memory;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class ReplayTagEndpointTest {
+    private static final String EASY_CARD =
+            "script easycard 悠遊卡\n"
+                    + "step select 00A40400085041592E5449434C00\n"
+                    + "sw 9000\n"
+                    + "step balance 805C000204\n"
+                    + "field 餘額 int 0 4 /100 元\n"
+                    + "end\n";
+
+    private static TagTrace roundTrip(TagTrace trace) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trace.writeTo(out);
+        return TagTrace.readFrom(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static ScriptRun runEasyCard(TagEndpoint endpoint, ApduScript script, NanoClock clock) throws IOException {
+        IsoDepTransport iso = endpoint.isoDep();
+        iso.connect();
+        ScriptRun run = script.newRun();
+        assertTrue(script.run(new ApduChannel(iso), clock, run));
+        iso.close();
+        return run;
+    }
+
+    @Test
+    public void replaysIsoDepSessionWithOriginalTiming() throws IOException {
+        ApduScript script = ApduScriptParser.parse(new StringReader(EASY_CARD)).get(0);
+        SimulatedLink link = SimulatedLink.virtual(LatencyModel.linear(4_000_000, 20_000));
+        SimIsoDepTag tag = new SimIsoDepTag(new byte[]{8, 1, 2, 3}, new SimEasyCardApplet(1250), false, link);
+        RecordingTagEndpoint recorder = new RecordingTagEndpoint(tag, link::getRfNanos);
+        ScriptRun recorded = runEasyCard(recorder, script, link::getRfNanos);
+
+        TagTrace trace = roundTrip(recorder.getTrace());
+        // connect + 2 個 APDU + close
+        assertEquals(4, trace.size());
+        assertEquals(link.getRfNanos(), trace.getTotalNanos());
+        assertArrayEquals(tag.getId(), trace.getUid());
+
+        ReplayTagEndpoint replay = new ReplayTagEndpoint(trace, ReplayTiming.ORIGINAL);
+        assertTrue(replay.supports(TagTech.ISO_DEP));
+        ScriptRun replayed = runEasyCard(replay, script, replay::getRfNanos);
+        assertTrue(replay.isComplete());
+        assertEquals(1250, replayed.longValue(script.getField(0), 0));
+        assertEquals(recorded.getTotalNanos(), replayed.getTotalNanos());
+        assertEquals(recorded.getStepNanos(1), replayed.getStepNanos(1));
+        assertTrue(trace.summary().contains("transceive: 2 次"));
+    }
+
+    @Test
+    public void zeroLatencyReplayDetectsProtocolChanges() throws IOException {
+        SimulatedLink link = SimulatedLink.virtual(LatencyModel.linear(1_000_000, 10_000));
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG215, new byte[]{4, 1, 2, 3, 4, 5, 6}, link);
+        NdefTransport ndef = tag.ndef();
+        ndef.connect();
+        byte[] message = HexCodec.decode("D1010A5402656E68656C6C6F2121");
+        ndef.writeNdefMessage(message);
+        ndef.close();
+
+        RecordingTagEndpoint recorder = new RecordingTagEndpoint(tag, link::getRfNanos);
+        NfcATransport nfca = recorder.nfcA();
+        nfca.connect();
+        assertArrayEquals(message, new Type2Memory(nfca, link::getRfNanos).readNdefMessage());
+        TagTrace trace = roundTrip(recorder.getTrace());
+
+        ReplayTagEndpoint replay = new ReplayTagEndpoint(trace, ReplayTiming.ZERO);
+        NfcATransport replayed = replay.nfcA();
+        assertArrayEquals(tag.nfcA().getAtqa(), replayed.getAtqa());
+        replayed.connect();
+        assertArrayEquals(message, new Type2Memory(replayed, replay::getRfNanos).readNdefMessage());
+        assertEquals(0, replay.getRfNanos());
+
+        // 改用 READ 指令時與錄製的 FAST_READ 不一致，不會被當成標籤不支援而吞掉
+        replay.rewind();
+        replayed = replay.nfcA();
+        replayed.connect();
+        Type2Memory changed = new Type2Memory(replayed, replay::getRfNanos);
+        changed.setReadCommand(Type2Command.READ);
+        try {
+            changed.readNdefMessage();
+            fail();
+        } catch (ReplayMismatchException e) {
+            assertEquals(1, e.getPosition());
+            assertTrue(e.getMessage(), e.getMessage().contains("3A"));
+        }
+    }
+
+    @Test
+    public void replaysAuthenticationFailuresAndTagLoss() throws IOException {
+        byte[] uid = {1, 2, 3, 4};
+        SimMifareClassicTag tag = new SimMifareClassicTag(uid, false, SimulatedLink.instant());
+        tag.setSectorKeys(1, HexCodec.decode("D3F7D3F7D3F7"), HexCodec.decode("112233445566"));
+        KeyDictionary dictionary = KeyDictionary.parse(new StringReader("FFFFFFFFFFFF\nD3F7D3F7D3F7\n"));
+
+        RecordingTagEndpoint recorder = new RecordingTagEndpoint(tag, () -> 0L);
+        MifareClassicTransport mifare = recorder.mifareClassic();
+        mifare.connect();
+        assertNotNull(new KeyResolver(dictionary, new SectorKeyCache()).authenticate(mifare, uid, 1));
+        byte[] block = mifare.readBlock(4);
+        tag.remove();
+        try {
+            mifare.readBlock(5);
+            fail();
+        } catch (TagLostException expected) {
+            // 標籤已移開
+        }
+
+        ReplayTagEndpoint replay = new ReplayTagEndpoint(roundTrip(recorder.getTrace()), ReplayTiming.ZERO);
+        MifareClassicTransport replayed = replay.mifareClassic();
+        assertEquals(16, replayed.getSectorCount());
+        assertEquals(4, replayed.sectorToBlock(1));
+        replayed.connect();
+        // 認證的嘗試順序與錄製相同：FFFF… 的 A、B 都失敗，D3F7… 的 A 成功
+        KeyResolver resolver = new KeyResolver(KeyDictionary.parse(new StringReader("FFFFFFFFFFFF\nD3F7D3F7D3F7\n")),
+                new SectorKeyCache());
+        assertNotNull(resolver.authenticate(replayed, uid, 1));
+        assertArrayEquals(block, replayed.readBlock(4));
+        try {
+            replayed.readBlock(5);
+            fail();
+        } catch (TagLostException expected) {
+            assertTrue(replay.isComplete());
+        }
+    }
+}
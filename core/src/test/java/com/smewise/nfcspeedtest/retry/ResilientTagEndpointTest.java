@@ -0,0 +1,257 @@
+package com.smewise.nfcspeedtest.retry;
+
+import com.smewise.nfcspeedtest.trace.NanoClock;
+import com.smewise.nfcspeedtest.transport.IsoDepTransport;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.TagEndpoint;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+import com.smewise.nfcspeedtest.transport.TagTech;
+import com.smewise.nfcspeedtest.transport.sim.LatencyModel;
+import com.smewise.nfcspeedtest.transport.sim.SimIsoDepTag;
+import com.smewise.nfcspeedtest.transport.sim.SimType2Tag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedTag;
+import com.smewise.nfcspeedtest.type2.Type2Memory;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ResilientTagEndpointTest {
+    private static final byte[] UID = {0x04, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66};
+    private static final byte[] READ_PAGE_4 = {0x30, 0x04};
+    // 約 1 ms 起跳，每 byte 10 µs
+    private static final LatencyModel TYPE2_LATENCY = LatencyModel.linear(1_000_000, 10_000);
+
+    private static byte[] message(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 5 + 1);
+        }
+        return data;
+    }
+
+    private static SimType2Tag newTag(SimulatedLink link, byte[] message) {
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG215, UID, link);
+        // 連線可能掉 frame，寫到成功為止
+        for (boolean written = false; !written; ) {
+            try {
+                NdefTransport ndef = tag.ndef();
+                ndef.connect();
+                ndef.writeNdefMessage(message);
+                ndef.close();
+                written = true;
+            } catch (IOException e) {
+                // 重寫
+            }
+        }
+        // 寫入內容不列入比較
+        link.reset();
+        return tag;
+    }
+
+    // 與 MainActivity.readTag 相同的流程：各技術各自處理錯誤，失敗後繼續嘗試下一個
+    private static final class ReadAllTechs implements LossyLinkComparison.Scenario {
+        private final byte[] message = message(120);
+        private final int removeEvery;
+
+        ReadAllTechs(int removeEvery) {
+            this.removeEvery = removeEvery;
+        }
+
+        @Override
+        public SimulatedTag newTag(SimulatedLink link) {
+            return ResilientTagEndpointTest.newTag(link, message);
+        }
+
+        @Override
+        public boolean run(TagEndpoint endpoint, SimulatedTag tag, int session) throws IOException {
+            boolean ok = true;
+            NdefTransport ndef = endpoint.ndef();
+            try {
+                ndef.connect();
+                ok = Arrays.equals(message, ndef.readNdefMessage());
+            } catch (IOException e) {
+                ok = false;
+            } finally {
+                ndef.close();
+            }
+            NfcATransport nfca = endpoint.nfcA();
+            try {
+                nfca.connect();
+                Type2Memory memory = new Type2Memory(nfca, NanoClock.SYSTEM);
+                memory.getVersion();
+                if (removeEvery > 0 && session % removeEvery == removeEvery - 1) {
+                    tag.remove();
+                }
+                ok &= Arrays.equals(message, memory.readNdefMessage());
+            } catch (IOException e) {
+                ok = false;
+            } finally {
+                nfca.close();
+            }
+            // 另外以單頁讀取確認 NDEF 區開頭（對應 readTag 之後的其他技術）
+            nfca = endpoint.nfcA();
+            try {
+                nfca.connect();
+                ok &= nfca.transceive(READ_PAGE_4).length == 16;
+            } catch (IOException e) {
+                ok = false;
+            } finally {
+                nfca.close();
+            }
+            return ok;
+        }
+    }
+
+    @Test
+    public void savesTimeOnLossyLink() {
+        LossyLinkComparison.Result result = new LossyLinkComparison(TYPE2_LATENCY, 0.05, new RetryPolicy())
+                .setSessions(300)
+                .run(new ReadAllTechs(10));
+        String summary = result.summary();
+        assertTrue(summary, result.getSavedNanos() > 0);
+        assertTrue(summary, result.getResilientCompleted() >= result.getBaselineCompleted());
+        assertTrue(summary, result.getResilientTaps() < result.getBaselineTaps());
+        RetryStats stats = result.getRetryStats();
+        assertTrue(summary, stats.getRecovered() > 0);
+        assertTrue(summary, stats.getTagLost() > 0);
+        assertTrue(summary, stats.getSkipped() > 0);
+        // 學到的 READ 逾時遠低於 Android 預設
+        assertTrue(summary, result.getTimeouts().timeoutFor(TagTech.NFC_A, 0x30) < 100);
+    }
+
+    @Test
+    public void addsNoTimeWithoutLoss() {
+        LossyLinkComparison.Result result = new LossyLinkComparison(TYPE2_LATENCY, 0, new RetryPolicy())
+                .setSessions(50)
+                .run(new ReadAllTechs(0));
+        assertEquals(0, result.getSavedNanos());
+        assertEquals(50, result.getResilientCompleted());
+        assertEquals(0, result.getRetryStats().getRetries());
+    }
+
+    @Test
+    public void abortsWithoutRfAfterTagLost() throws IOException {
+        SimulatedLink link = SimulatedLink.virtual(TYPE2_LATENCY);
+        SimType2Tag tag = newTag(link, message(16));
+        RetryStats stats = new RetryStats();
+        ResilientTagEndpoint endpoint = new ResilientTagEndpoint(tag, new AdaptiveTimeouts(new RetryPolicy()),
+                stats, link::getRfNanos, nanos -> fail("不應重試"));
+        NfcATransport nfca = endpoint.nfcA();
+        nfca.connect();
+        nfca.transceive(READ_PAGE_4);
+        tag.remove();
+        try {
+            nfca.transceive(READ_PAGE_4);
+            fail();
+        } catch (TagLostException expected) {
+            // 第一次要等到逾時才知道
+        }
+        long exchanges = link.getExchanges();
+        assertTrue(endpoint.isTagLost());
+        try {
+            endpoint.ndef().connect();
+            fail();
+        } catch (TagLostException expected) {
+            // 直接失敗
+        }
+        try {
+            endpoint.checkPresent();
+            fail();
+        } catch (TagLostException expected) {
+            // 讀取流程在技術之間檢查
+        }
+        assertEquals(exchanges, link.getExchanges());
+        assertEquals(1, stats.getTagLost());
+        assertEquals(1, stats.getSkipped());
+    }
+
+    @Test
+    public void derivesTimeoutsFromObservedLatency() throws IOException {
+        SimulatedLink link = SimulatedLink.virtual(LatencyModel.fixed(30_000_000));
+        SimType2Tag tag = newTag(link, message(16));
+        RetryPolicy policy = new RetryPolicy().setMinSamples(10);
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts(policy);
+        RetryStats stats = new RetryStats();
+        ResilientTagEndpoint endpoint = new ResilientTagEndpoint(tag, timeouts, stats, link::getRfNanos,
+                nanos -> { });
+        NfcATransport nfca = endpoint.nfcA();
+        nfca.connect();
+        assertEquals(618, timeouts.timeoutFor(TagTech.NFC_A, 0x30));
+        for (int i = 0; i < 10; i++) {
+            nfca.transceive(READ_PAGE_4);
+        }
+        // p99 30 ms × 2
+        assertEquals(60, timeouts.timeoutFor(TagTech.NFC_A, 0x30));
+        nfca.transceive(READ_PAGE_4);
+        assertEquals(60, nfca.getTimeout());
+        // 沒量過的指令先用技術層級的最大延遲；其他技術仍用預設
+        assertEquals(60, timeouts.timeoutFor(TagTech.NFC_A, 0xA2));
+        assertEquals(255, timeouts.timeoutFor(TagTech.NFC_F, 0x06));
+
+        // 從未成功過的指令（不支援）失敗時不重試
+        try {
+            nfca.transceive(new byte[]{0x1B, 0, 0, 0, 0});
+            fail();
+        } catch (IOException expected) {
+            // PWD_AUTH 不支援
+        }
+        assertEquals(0, stats.getRetries());
+    }
+
+    @Test
+    public void doesNotResendNonIdempotentApdusAfterLostResponse() throws IOException {
+        // 卡片收到並執行指令，但回應在 RF 上遺失
+        int[] executed = new int[256];
+        boolean[] dropNext = new boolean[1];
+        LatencyModel latency = (command, requestLength, responseLength) -> {
+            if (dropNext[0]) {
+                dropNext[0] = false;
+                return LatencyModel.LOST;
+            }
+            return 1_000_000;
+        };
+        SimulatedLink link = SimulatedLink.virtual(latency);
+        SimIsoDepTag tag = new SimIsoDepTag(UID, apdu -> {
+            executed[apdu[1] & 0xFF]++;
+            return new byte[]{(byte) 0x90, 0x00};
+        }, false, link);
+        RetryStats stats = new RetryStats();
+        ResilientTagEndpoint endpoint = new ResilientTagEndpoint(tag, new AdaptiveTimeouts(new RetryPolicy()),
+                stats, link::getRfNanos, nanos -> { });
+        IsoDepTransport iso = endpoint.isoDep();
+        iso.connect();
+
+        byte[][] unsafe = {
+                {0x10, (byte) 0xD6, 0x00, 0x00, 0x02, 0x11, 0x22},       // chained UPDATE BINARY 片段
+                {(byte) 0x90, 0x54, 0x00, 0x00, 0x04, 0x00, 0x00, 0x00, 0x0A}, // 扣款
+                {0x00, (byte) 0xC0, 0x00, 0x00, 0x00},                     // GET RESPONSE
+        };
+        for (byte[] apdu : unsafe) {
+            // 先成功一次，確認不是因為「從未成功過」才不重試
+            iso.transceive(apdu);
+            dropNext[0] = true;
+            try {
+                iso.transceive(apdu);
+                fail();
+            } catch (IOException expected) {
+                // 回應遺失直接回報，由呼叫端決定
+            }
+            assertEquals(2, executed[apdu[1] & 0xFF]);
+        }
+        assertEquals(0, stats.getRetries());
+
+        // SELECT 重送沒有副作用，照常重試
+        byte[] select = {0x00, (byte) 0xA4, 0x04, 0x00, 0x02, 0x3F, 0x00};
+        iso.transceive(select);
+        dropNext[0] = true;
+        iso.transceive(select);
+        assertEquals(3, executed[0xA4]);
+        assertEquals(1, stats.getRecovered());
+    }
+}
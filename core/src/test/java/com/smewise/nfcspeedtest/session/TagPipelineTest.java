@@ -0,0 +1,152 @@
+package com.smewise.nfcspeedtest.session;
+
+import com.smewise.nfcspeedtest.trace.LatencyTracer;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.sim.SimType2Tag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TagPipelineTest {
+    private static final byte[] UID7 = {0x04, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66};
+
+    private final List<String> published = Collections.synchronizedList(new ArrayList<String>());
+    private final TagPipeline pipeline = new TagPipeline(published::add);
+    private final LatencyTracer tracer = new LatencyTracer();
+
+    @After
+    public void tearDown() {
+        pipeline.close();
+    }
+
+    // 記錄每個階段被呼叫的順序與執行緒
+    private static class RecordingJob extends TagJob {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        volatile Thread thread;
+        NdefTransport ndef;
+
+        @Override
+        protected void detect(SessionContext session) {
+            thread = Thread.currentThread();
+            calls.add("detect");
+        }
+
+        @Override
+        protected void connect(SessionContext session) throws IOException {
+            calls.add("connect");
+            ndef = session.tag().ndef();
+            ndef.connect();
+        }
+
+        @Override
+        protected void exchange(SessionContext session) throws IOException {
+            calls.add("exchange");
+            ndef.writeNdefMessage(new byte[]{(byte) 0xD1, 0x01, 0x01, 0x54, 0x00});
+        }
+
+        @Override
+        protected void decode(SessionContext session) {
+            calls.add("decode");
+        }
+
+        @Override
+        protected void publish(SessionContext session) {
+            calls.add("publish");
+            session.publish("done");
+        }
+    }
+
+    @Test
+    public void stagesRunInOrderOnIoThread() throws Exception {
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG213, UID7, SimulatedLink.instant());
+        RecordingJob job = new RecordingJob();
+        SessionContext session = pipeline.submit(tag, tracer.newSession(), job);
+
+        assertTrue(session.awaitDone(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("detect", "connect", "exchange", "decode", "publish"), job.calls);
+        assertNotSame(Thread.currentThread(), job.thread);
+        assertEquals(PipelineStage.PUBLISH, session.stage());
+        assertEquals(Collections.singletonList("done"), published);
+    }
+
+    @Test
+    public void newTagCancelsPreviousSession() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        SimType2Tag first = new SimType2Tag(SimType2Tag.Model.NTAG213, UID7, SimulatedLink.instant());
+        SessionContext blocked = pipeline.submit(first, tracer.newSession(), new TagJob() {
+            @Override
+            protected void exchange(SessionContext session) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            protected void publish(SessionContext session) {
+                session.publish("first");
+            }
+        });
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        SimType2Tag second = new SimType2Tag(SimType2Tag.Model.NTAG213, UID7, SimulatedLink.instant());
+        RecordingJob job = new RecordingJob();
+        SessionContext next = pipeline.submit(second, tracer.newSession(), job);
+        assertTrue(blocked.isCancelled());
+        release.countDown();
+
+        assertTrue(next.awaitDone(5, TimeUnit.SECONDS));
+        assertTrue(blocked.isDone());
+        // 被取消的工作階段不再輸出結果
+        assertEquals(Collections.singletonList("done"), published);
+    }
+
+    @Test
+    public void tagLostAbortsRemainingStages() throws Exception {
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG213, UID7, SimulatedLink.instant());
+        RecordingJob job = new RecordingJob() {
+            @Override
+            protected void connect(SessionContext session) throws IOException {
+                super.connect(session);
+                tag.remove();
+            }
+        };
+        SessionContext session = pipeline.submit(tag, tracer.newSession(), job);
+
+        assertTrue(session.awaitDone(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("detect", "connect", "exchange", "publish"), job.calls);
+        assertEquals(2, published.size());
+        assertTrue(published.get(0).startsWith("標籤已移開"));
+    }
+
+    @Test
+    public void runInlineUsesCallerThreadAndKeepsOtherSessions() throws Exception {
+        SimType2Tag first = new SimType2Tag(SimType2Tag.Model.NTAG213, UID7, SimulatedLink.instant());
+        SimType2Tag second = new SimType2Tag(SimType2Tag.Model.NTAG213, UID7, SimulatedLink.instant());
+        RecordingJob a = new RecordingJob();
+        RecordingJob b = new RecordingJob();
+        SessionContext one = pipeline.runInline(first, tracer.newSession(), a);
+        SessionContext two = pipeline.runInline(second, tracer.newSession(), b);
+
+        assertTrue(one.isDone());
+        assertFalse(one.isCancelled());
+        assertSame(Thread.currentThread(), a.thread);
+        assertEquals(Arrays.asList("detect", "connect", "exchange", "decode", "publish"), b.calls);
+        assertEquals(Arrays.asList("done", "done"), published);
+        assertTrue(two.isDone());
+    }
+}
@@ -0,0 +1,89 @@
+package com.smewise.nfcspeedtest.session;
+
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.TagTech;
+import com.smewise.nfcspeedtest.transport.sim.SimMifareClassicTag;
+import com.smewise.nfcspeedtest.transport.sim.SimType2Tag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class TagSessionTest {
+    private static final byte[] UID4 = {1, 2, 3, 4};
+    private static final byte[] UID7 = {0x04, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66};
+
+    @Test
+    public void techListParsedIntoMask() {
+        int mask = TagSession.maskOf(new String[]{
+                "android.nfc.tech.NfcA", "android.nfc.tech.MifareClassic", "android.nfc.tech.Unknown"});
+        assertEquals(TagSession.bitOf(TagTech.NFC_A) | TagSession.bitOf(TagTech.MIFARE_CLASSIC), mask);
+
+        TagSession session = new TagSession(
+                new SimType2Tag(SimType2Tag.Model.NTAG213, UID7, SimulatedLink.instant()), null);
+        assertTrue(session.has(TagTech.NDEF));
+        assertTrue(session.has(TagTech.NFC_A));
+        assertFalse(session.has(TagTech.MIFARE_CLASSIC));
+    }
+
+    @Test
+    public void reusesLiveConnectionAndSwitchesOnlyWhenNeeded() throws IOException {
+        SimMifareClassicTag tag = new SimMifareClassicTag(UID4, false, SimulatedLink.instant());
+        TagSession session = new TagSession(tag, null);
+
+        MifareClassicTransport mifare = session.mifareClassic();
+        assertTrue(mifare.authenticateSectorWithKeyA(0, SimMifareClassicTag.KEY_DEFAULT));
+        mifare.readBlock(1);
+        assertSame(mifare, session.mifareClassic());
+        assertEquals(1, session.getConnectCount());
+
+        NfcATransport nfca = session.nfcA();
+        assertTrue(nfca.isConnected());
+        assertFalse(mifare.isConnected());
+        assertEquals(2, session.getConnectCount());
+
+        assertNull(session.nfcF());
+        session.close();
+        assertFalse(nfca.isConnected());
+    }
+
+    @Test
+    public void knownCardSkipsProbing() throws IOException {
+        CardProfileCache cache = new CardProfileCache();
+        SimMifareClassicTag tag = new SimMifareClassicTag(UID4, false, SimulatedLink.instant());
+
+        TagSession first = new TagSession(tag, cache);
+        assertFalse(first.isKnown());
+        assertTrue(first.shouldTry(TagTech.NFC_A));
+        first.markUseful(TagTech.MIFARE_CLASSIC);
+        first.close();
+        // 沒有呼叫 saveProfile（例如中途移開）時不快取
+        assertEquals(0, cache.size());
+        first.saveProfile();
+        assertEquals(1, cache.size());
+
+        TagSession second = new TagSession(tag, cache);
+        assertTrue(second.isKnown());
+        assertTrue(second.shouldTry(TagTech.MIFARE_CLASSIC));
+        assertFalse(second.shouldTry(TagTech.NFC_A));
+        assertTrue(second.shouldTry(TagTech.NFC_A, TagTech.MIFARE_CLASSIC));
+        assertEquals("MifareClassic", second.getKnownProfile().describeUseful());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void cacheEvictsLeastRecentlyUsed() {
+        CardProfileCache cache = new CardProfileCache(2);
+        cache.put(new CardProfile(new byte[]{1}, 1, 1));
+        cache.put(new CardProfile(new byte[]{2}, 1, 1));
+        assertNotNull(cache.get(new byte[]{1}));
+        cache.put(new CardProfile(new byte[]{3}, 1, 1));
+        assertNull(cache.get(new byte[]{2}));
+        assertNotNull(cache.get(new byte[]{1}));
+        assertNotNull(cache.get(new byte[]{3}));
+    }
+}
@@ -0,0 +1,188 @@
+package com.smewise.nfcspeedtest.store;
+
+import com.smewise.nfcspeedtest.trace.Phase;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MeasurementStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static MeasurementRecord sample(MeasurementRecord r, int i) {
+        r.clear().setOp(i % 2 == 0 ? MeasurementOp.READ : MeasurementOp.WRITE).setTech(TagTech.NFC_A);
+        r.timestampMillis = 1_700_000_000_000L + i;
+        r.uidHash = MeasurementRecord.uidHash(new byte[]{0x04, (byte) i});
+        r.totalNanos = 1_000_000L + i;
+        r.bytes = i;
+        r.result = i % 10 == 0 ? MeasurementRecord.RESULT_TAG_LOST : MeasurementRecord.RESULT_OK;
+        r.phaseNanos[Phase.TRANSCEIVE.ordinal()] = 500L * i;
+        r.setTagModel(i % 3 == 0 ? "NTAG215" : "NTAG213");
+        return r;
+    }
+
+    private static void assertSample(MeasurementRecord r, int i) {
+        MeasurementRecord expected = sample(new MeasurementRecord(), i);
+        assertEquals(expected.timestampMillis, r.timestampMillis);
+        assertEquals(expected.uidHash, r.uidHash);
+        assertEquals(expected.totalNanos, r.totalNanos);
+        assertEquals(i, r.bytes);
+        assertEquals(TagTech.NFC_A, r.tagTech());
+        assertEquals(expected.op(), r.op());
+        assertEquals(expected.result, r.result);
+        assertArrayEquals(expected.phaseNanos, r.phaseNanos);
+        assertEquals(expected.tagModel(), r.tagModel());
+    }
+
+    private static int readAll(File dir, int from) throws IOException {
+        int n = 0;
+        try (MeasurementCursor cursor = MeasurementCursor.open(dir)) {
+            while (cursor.next()) {
+                assertSample(cursor.record(), from + n);
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Test
+    public void writesInBatchesAcrossSegments() throws Exception {
+        File dir = folder.newFolder();
+        StoreConfig config = new StoreConfig().setSegmentRecords(300).setBatchRecords(64).setLingerMillis(50);
+        MeasurementRecord r = new MeasurementRecord();
+        try (MeasurementStore store = new MeasurementStore(dir, config)) {
+            for (int i = 0; i < 1000; i++) {
+                assertTrue(store.append(sample(r, i)));
+            }
+            assertTrue(store.flush(5, TimeUnit.SECONDS));
+            assertEquals(1000, store.getWritten());
+            // group commit：每批最多 64 筆
+            assertTrue(store.getBatches() >= 1000 / 64);
+            assertTrue(store.getBatches() < 1000);
+            assertEquals(1000, readAll(dir, 0));
+        }
+        assertEquals(4, MeasurementStore.segmentIndexes(dir).length);
+        File first = MeasurementStore.segmentFile(dir, 1);
+        assertEquals(MeasurementStore.HEADER_SIZE + 300L * MeasurementRecord.SIZE, first.length());
+    }
+
+    @Test
+    public void reopenDropsTornRecordAndAppends() throws Exception {
+        File dir = folder.newFolder();
+        MeasurementRecord r = new MeasurementRecord();
+        try (MeasurementStore store = new MeasurementStore(dir, new StoreConfig())) {
+            for (int i = 0; i < 10; i++) {
+                store.append(sample(r, i));
+            }
+        }
+        // 模擬寫到一半斷電
+        try (FileOutputStream out = new FileOutputStream(MeasurementStore.segmentFile(dir, 1), true)) {
+            out.write(new byte[]{1, 2, 3, 4, 5});
+        }
+        assertEquals(10, readAll(dir, 0));
+
+        try (MeasurementStore store = new MeasurementStore(dir, new StoreConfig())) {
+            store.append(sample(r, 10));
+        }
+        assertEquals(11, readAll(dir, 0));
+        assertEquals(1, MeasurementStore.segmentIndexes(dir).length);
+    }
+
+    @Test
+    public void rejectsAppendAfterClose() throws Exception {
+        File dir = folder.newFolder();
+        MeasurementStore store = new MeasurementStore(dir, new StoreConfig());
+        store.close();
+        assertFalse(store.append(sample(new MeasurementRecord(), 0)));
+        assertEquals(1, store.getDropped());
+        assertEquals(0, store.getAccepted());
+    }
+
+    @Test
+    public void skipsSegmentWithBadHeader() throws Exception {
+        File dir = folder.newFolder();
+        try (FileOutputStream out = new FileOutputStream(MeasurementStore.segmentFile(dir, 1))) {
+            out.write(new byte[MeasurementStore.HEADER_SIZE]);
+        }
+        try (MeasurementStore store = new MeasurementStore(dir, new StoreConfig())) {
+            store.append(sample(new MeasurementRecord(), 0));
+        }
+        assertEquals(2, MeasurementStore.segmentIndexes(dir).length);
+        try (MeasurementCursor cursor = MeasurementCursor.open(dir)) {
+            assertTrue(cursor.next());
+            assertSample(cursor.record(), 0);
+            assertFalse(cursor.next());
+            assertEquals(1, cursor.getSkippedSegments());
+        }
+    }
+
+    @Test
+    public void ignoresStrayFilesAndMissingSegments() throws Exception {
+        File dir = folder.newFolder();
+        StoreConfig config = new StoreConfig().setSegmentRecords(2);
+        MeasurementRecord r = new MeasurementRecord();
+        try (MeasurementStore store = new MeasurementStore(dir, config)) {
+            for (int i = 0; i < 4; i++) {
+                store.append(sample(r, i));
+            }
+        }
+        String[] stray = {"seg-backup.mrec", "seg-1.mrec", "seg--00001.mrec", "seg-000002.mrec.tmp"};
+        for (String name : stray) {
+            assertTrue(name, new File(dir, name).createNewFile());
+        }
+        assertArrayEquals(new int[]{1, 2}, MeasurementStore.segmentIndexes(dir));
+        assertEquals(4, readAll(dir, 0));
+
+        // 開啟後才被刪除的 segment 直接略過
+        try (MeasurementCursor cursor = MeasurementCursor.open(dir)) {
+            assertTrue(MeasurementStore.segmentFile(dir, 1).delete());
+            assertTrue(cursor.next());
+            assertSample(cursor.record(), 2);
+            assertTrue(cursor.next());
+            assertFalse(cursor.next());
+            assertEquals(0, cursor.getSkippedSegments());
+        }
+    }
+
+    @Test
+    public void exportsCsvAndJson() throws Exception {
+        File dir = folder.newFolder();
+        MeasurementRecord r = new MeasurementRecord();
+        try (MeasurementStore store = new MeasurementStore(dir, new StoreConfig().setDeviceModel("Pixel 8"))) {
+            for (int i = 0; i < 3; i++) {
+                store.append(sample(r, i));
+            }
+        }
+        StringWriter csv = new StringWriter();
+        try (MeasurementCursor cursor = MeasurementCursor.open(dir)) {
+            assertEquals(3, MeasurementExport.writeCsv(cursor, csv));
+        }
+        String[] lines = csv.toString().split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("timestamp_ms,uid_hash,device,tag_model,tech,operation,result,bytes,total_ns,intent_delivery_ns"));
+        assertTrue(lines[1].startsWith("1700000000000,"));
+        assertTrue(lines[1].contains(",Pixel 8,NTAG215,NfcA,read,tag_lost,0,1000000,"));
+        assertEquals(9 + Phase.values().length, lines[1].split(",").length);
+
+        StringWriter json = new StringWriter();
+        try (MeasurementCursor cursor = MeasurementCursor.open(dir)) {
+            assertEquals(3, MeasurementExport.writeJson(cursor, json));
+        }
+        String text = json.toString();
+        assertTrue(text.startsWith("[\n{\"timestamp_ms\":1700000000000,"));
+        assertTrue(text.contains("\"operation\":\"write\""));
+        assertTrue(text.contains("\"device\":\"Pixel 8\",\"tag_model\":\"NTAG213\""));
+        assertTrue(text.contains("\"transceive\":1000"));
+        assertTrue(text.endsWith("}\n]\n"));
+    }
+}
@@ -0,0 +1,50 @@
+package com.smewise.nfcspeedtest.trace;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketBoundsContainValue() {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 1000, 123_456, 5_000_000, 1L << 40, Long.MAX_VALUE};
+        for (long v : values) {
+            int bucket = LatencyHistogram.bucketOf(v);
+            assertTrue(bucket < LatencyHistogram.BUCKET_COUNT);
+            assertTrue(v + " >= lower", v >= LatencyHistogram.lowerBoundOf(bucket));
+            assertTrue(v + " <= upper", v <= LatencyHistogram.upperBoundOf(bucket));
+        }
+    }
+
+    @Test
+    public void percentilesWithinRelativeError() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i * 1_000_000L);
+        }
+        assertEquals(1000, h.getCount());
+        assertEquals(1_000_000L, h.getMin());
+        assertEquals(1_000_000_000L, h.getMax());
+        assertEquals(500_000_000, h.getPercentile(50), 500_000_000 * 0.035);
+        assertEquals(990_000_000, h.getPercentile(99), 990_000_000 * 0.035);
+        assertEquals(h.getMax(), h.getPercentile(100));
+        assertEquals(500_500_000.0, h.getMean(), 1);
+    }
+
+    @Test
+    public void mergeCombinesCounts() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10);
+        b.record(5);
+        b.record(20_000);
+        a.merge(b);
+        assertEquals(3, a.getCount());
+        assertEquals(5, a.getMin());
+        assertEquals(20_000, a.getMax());
+        a.reset();
+        assertEquals(0, a.getCount());
+        assertEquals(0, a.getPercentile(50));
+    }
+}
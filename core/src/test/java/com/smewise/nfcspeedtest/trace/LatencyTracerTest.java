@@ -0,0 +1,97 @@
+package com.smewise.nfcspeedtest.trace;
+
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.TagEndpoint;
+import com.smewise.nfcspeedtest.transport.sim.SimMifareClassicTag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class LatencyTracerTest {
+
+    // 每次讀取時間前進固定值的假時鐘
+    private static final class StepClock implements NanoClock {
+        long now;
+        long step;
+
+        @Override
+        public long nanoTime() {
+            now += step;
+            return now;
+        }
+    }
+
+    @Test
+    public void spansAreRecordedPerPhase() {
+        StepClock clock = new StepClock();
+        clock.step = 1_000;
+        LatencyTracer tracer = new LatencyTracer(clock);
+        SessionTrace trace = tracer.newSession();
+        long t = trace.start();
+        trace.end(Phase.CONNECT, t);
+        t = trace.start();
+        trace.end(Phase.TRANSCEIVE, t);
+        t = trace.start();
+        trace.end(Phase.TRANSCEIVE, t);
+
+        assertEquals(3, trace.spanCount());
+        assertEquals(2, trace.count(Phase.TRANSCEIVE));
+        assertEquals(2_000, trace.totalNanos(Phase.TRANSCEIVE));
+        assertEquals(1, tracer.histogram(Phase.CONNECT).getCount());
+        assertEquals(2, tracer.histogram(Phase.TRANSCEIVE).getCount());
+        assertEquals("連線 0.001ms / 傳輸×2 0.002ms", trace.breakdown());
+
+        trace.finish();
+        trace.finish();
+        assertEquals(1, tracer.sessionTotals().getCount());
+    }
+
+    @Test
+    public void tracingEndpointRecordsConnectAuthAndReads() throws IOException {
+        LatencyTracer tracer = new LatencyTracer();
+        SessionTrace trace = tracer.newSession();
+        SimMifareClassicTag tag = new SimMifareClassicTag(new byte[]{1, 2, 3, 4}, false, SimulatedLink.instant());
+        TagEndpoint endpoint = new TracingTagEndpoint(tag, trace);
+
+        MifareClassicTransport mifare = endpoint.mifareClassic();
+        mifare.connect();
+        assertTrue(mifare.authenticateSectorWithKeyA(0, SimMifareClassicTag.KEY_DEFAULT));
+        mifare.readBlock(0);
+        mifare.readBlock(1);
+        mifare.close();
+
+        assertEquals(1, trace.count(Phase.CONNECT));
+        assertEquals(1, trace.count(Phase.AUTHENTICATE));
+        assertEquals(2, trace.count(Phase.TRANSCEIVE));
+        assertTrue(tracer.summary().contains("認證 n=1"));
+    }
+
+    @Test
+    public void firstByteIncludesIntentDeliveryAndEndsAtFirstResponse() {
+        StepClock clock = new StepClock();
+        clock.step = 1_000;
+        LatencyTracer tracer = new LatencyTracer(clock);
+        SessionTrace trace = tracer.newSession(10_000);
+        trace.add(Phase.INTENT_DELIVERY, 4_000, 6_000);
+        trace.add(Phase.CONNECT, 11_000, 2_000);
+        assertEquals(-1, trace.firstByteNanos());
+        trace.add(Phase.TRANSCEIVE, 13_000, 5_000);
+        trace.add(Phase.TRANSCEIVE, 18_000, 5_000);
+        // 4µs 起算，到第一次傳輸結束 18µs
+        assertEquals(14_000, trace.firstByteNanos());
+    }
+
+    @Test
+    public void appendMillisUsesMicrosecondPrecision() {
+        StringBuilder sb = new StringBuilder();
+        SessionTrace.appendMillis(sb, 12_345_678);
+        assertEquals("12.345ms", sb.toString());
+        sb.setLength(0);
+        SessionTrace.appendMillis(sb, 7_000);
+        assertEquals("0.007ms", sb.toString());
+    }
+}
@@ -0,0 +1,143 @@
+package com.smewise.nfcspeedtest.transport.sim;
+
+import com.smewise.nfcspeedtest.transport.IsoDepTransport;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.NfcFTransport;
+import com.smewise.nfcspeedtest.transport.NfcVTransport;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+import com.smewise.nfcspeedtest.transport.TagTech;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class SimulatedTagTest {
+    private static final byte[] UID7 = {0x04, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66};
+
+    @Test
+    public void type2_readWriteAndVersion() throws IOException {
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG215, UID7, SimulatedLink.instant());
+        assertTrue(tag.supports(TagTech.NDEF));
+        NfcATransport nfca = tag.nfcA();
+        nfca.connect();
+        byte[] version = nfca.transceive(new byte[]{0x60});
+        assertEquals(0x11, version[6]);
+        assertArrayEquals(new byte[]{0x0A}, nfca.transceive(new byte[]{(byte) 0xA2, 5, 1, 2, 3, 4}));
+        byte[] pages = nfca.transceive(new byte[]{0x3A, 5, 5});
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, pages);
+        nfca.close();
+    }
+
+    @Test
+    public void type2_ndefRoundTrip() throws IOException {
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG213, UID7, SimulatedLink.instant());
+        NdefTransport ndef = tag.ndef();
+        ndef.connect();
+        assertNull(ndef.readNdefMessage());
+        byte[] message = {(byte) 0xD1, 0x01, 0x03, 0x54, 0x02, 0x65, 0x6E};
+        ndef.writeNdefMessage(message);
+        assertArrayEquals(message, ndef.readNdefMessage());
+        assertEquals(142, ndef.getMaxSize());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void onlyOneTechnologyConnectedAtATime() throws IOException {
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG213, UID7, SimulatedLink.instant());
+        tag.nfcA().connect();
+        tag.ndef().connect();
+    }
+
+    @Test
+    public void mifareClassic_authAndRead() throws IOException {
+        SimulatedLink link = SimulatedLink.virtual(new PerCommandLatency(LatencyModel.fixed(1_000_000))
+                .set(SimMifareClassicTag.CMD_REQA, LatencyModel.fixed(5_000_000)));
+        SimMifareClassicTag tag = new SimMifareClassicTag(new byte[]{1, 2, 3, 4}, false, link);
+        byte[] keyA = {(byte) 0xA0, (byte) 0xA1, (byte) 0xA2, (byte) 0xA3, (byte) 0xA4, (byte) 0xA5};
+        tag.setSectorKeys(1, keyA, SimMifareClassicTag.KEY_DEFAULT);
+        tag.pokeBlock(5, new byte[]{9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9});
+
+        MifareClassicTransport mifare = tag.mifareClassic();
+        mifare.connect();
+        assertEquals(16, mifare.getSectorCount());
+        assertFalse(mifare.authenticateSectorWithKeyA(1, SimMifareClassicTag.KEY_DEFAULT));
+        assertTrue(mifare.authenticateSectorWithKeyA(1, keyA));
+        assertEquals(9, mifare.readBlock(5)[0]);
+        // 失敗認證 1ms + 重新選取 5ms，成功認證 1ms，讀取 1ms
+        assertEquals(8_000_000, link.getRfNanos());
+        assertEquals(4, link.getExchanges());
+    }
+
+    @Test(expected = IOException.class)
+    public void mifareClassic_readWithoutAuthFails() throws IOException {
+        SimMifareClassicTag tag = new SimMifareClassicTag(new byte[]{1, 2, 3, 4}, true, SimulatedLink.instant());
+        MifareClassicTransport mifare = tag.mifareClassic();
+        mifare.connect();
+        mifare.readBlock(4);
+    }
+
+    @Test
+    public void feliCa_readWithoutEncryption() throws IOException {
+        byte[] idm = {0x01, 0x2E, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66};
+        SimFeliCaTag tag = new SimFeliCaTag(idm, new byte[8], 0x88B4, SimulatedLink.instant());
+        tag.addService(0x000B, 4, false);
+        tag.pokeBlock(0x000B, 2, new byte[]{7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7});
+        NfcFTransport nfcf = tag.nfcF();
+        nfcf.connect();
+        byte[] cmd = {16, 0x06, 0x01, 0x2E, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 1, 0x0B, 0x00, 1, (byte) 0x80, 2};
+        byte[] resp = nfcf.transceive(cmd);
+        assertEquals(0x07, resp[1]);
+        assertEquals(0, resp[10]);
+        assertEquals(1, resp[12]);
+        assertEquals(7, resp[13]);
+    }
+
+    @Test
+    public void iso15693_addressedWriteThenRead() throws IOException {
+        byte[] uid = {0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x07, (byte) 0xE0};
+        SimIso15693Tag tag = new SimIso15693Tag(uid, 4, 64, SimulatedLink.instant());
+        NfcVTransport nfcv = tag.nfcV();
+        nfcv.connect();
+        byte[] write = {0x22, 0x21, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x07, (byte) 0xE0, 3, 1, 2, 3, 4};
+        assertArrayEquals(new byte[]{0x00}, nfcv.transceive(write));
+        byte[] read = {0x02, 0x20, 3};
+        assertArrayEquals(new byte[]{0x00, 1, 2, 3, 4}, nfcv.transceive(read));
+        byte[] info = nfcv.transceive(new byte[]{0x02, 0x2B});
+        assertEquals(63, info[12]);
+    }
+
+    @Test
+    public void isoDep_easyCardBalance() throws IOException {
+        SimIsoDepTag tag = new SimIsoDepTag(new byte[]{1, 2, 3, 4}, new SimEasyCardApplet(12345), false,
+                SimulatedLink.instant());
+        IsoDepTransport iso = tag.isoDep();
+        iso.connect();
+        byte[] select = {0x00, (byte) 0xA4, 0x04, 0x00, 0x08, 0x50, 0x41, 0x59, 0x2E, 0x54, 0x49, 0x43, 0x4C, 0x00};
+        assertArrayEquals(new byte[]{(byte) 0x90, 0x00}, iso.transceive(select));
+        byte[] balance = iso.transceive(new byte[]{(byte) 0x80, 0x5C, 0x00, 0x02, 0x04});
+        assertEquals(6, balance.length);
+        assertEquals(12345, java.nio.ByteBuffer.wrap(balance, 0, 4).getInt());
+    }
+
+    @Test(expected = TagLostException.class)
+    public void removedTagThrowsTagLost() throws IOException {
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG213, UID7, SimulatedLink.instant());
+        NfcATransport nfca = tag.nfcA();
+        nfca.connect();
+        tag.remove();
+        nfca.transceive(new byte[]{0x30, 4});
+    }
+
+    @Test(expected = IOException.class)
+    public void latencyAboveTimeoutFails() throws IOException {
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG213, UID7,
+                SimulatedLink.virtual(LatencyModel.fixed(50_000_000)));
+        NfcATransport nfca = tag.nfcA();
+        nfca.connect();
+        nfca.setTimeout(20);
+        nfca.transceive(new byte[]{0x30, 4});
+    }
+}
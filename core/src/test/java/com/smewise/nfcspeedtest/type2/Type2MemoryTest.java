@@ -0,0 +1,205 @@
+package com.smewise.nfcspeedtest.type2;
+
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.TagTech;
+import com.smewise.nfcspeedtest.transport.sim.LatencyModel;
+import com.smewise.nfcspeedtest.transport.sim.SimType2Tag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class Type2MemoryTest {
+    private static final byte[] UID = {0x04, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66};
+
+    private static byte[] pattern(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 7 + 3);
+        }
+        return data;
+    }
+
+    private static Type2Memory open(NfcATransport nfca, SimulatedLink link) throws IOException {
+        nfca.connect();
+        return new Type2Memory(nfca, link::getRfNanos);
+    }
+
+    private static void writeWithNdef(SimType2Tag tag, byte[] message) throws IOException {
+        NdefTransport ndef = tag.ndef();
+        ndef.connect();
+        ndef.writeNdefMessage(message);
+        ndef.close();
+    }
+
+    @Test
+    public void identifiesChipWithGetVersion() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG215, UID, link);
+        Type2Version version = open(tag.nfcA(), link).getVersion();
+        assertEquals("NTAG215", version.getModel());
+        assertEquals(135, version.getTotalPages());
+        assertEquals(Type2Version.VENDOR_NXP, version.getVendor());
+    }
+
+    @Test
+    public void readsMessageWrittenByNdefPathInTwoCommands() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG216, UID, link);
+        byte[] message = pattern(200);
+        writeWithNdef(tag, message);
+
+        Type2Memory memory = open(tag.nfcA(), link);
+        assertArrayEquals(message, memory.readNdefMessage());
+        assertEquals(SimType2Tag.Model.NTAG216.dataPages() * 4, memory.getDataAreaSize());
+        // CC + 開頭 12 bytes 一次，其餘 190 bytes 依 TLV 長度一次補讀
+        assertEquals(2, memory.getCommands(Type2Command.FAST_READ));
+        assertEquals(0, memory.getCommands(Type2Command.READ));
+    }
+
+    @Test
+    public void writtenMessageIsReadableByNdefPath() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG216, UID, link);
+        Type2Memory memory = open(tag.nfcA(), link);
+        // 超過 254 bytes 時使用 3 byte 長度欄位
+        byte[] message = pattern(300);
+        memory.writeNdefMessage(message);
+        assertArrayEquals(message, memory.readNdefMessage());
+        // 2 + 300 + 4 (FF xx xx + Terminator) = 305 → 77 頁，加上先寫長度 0 的第一頁
+        assertEquals(78, memory.getCommands(Type2Command.WRITE));
+
+        tag.nfcA().close();
+        NdefTransport ndef = tag.ndef();
+        ndef.connect();
+        assertArrayEquals(message, ndef.readNdefMessage());
+    }
+
+    @Test
+    public void skipsLockControlAndNullTlvs() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG213, UID, link);
+        byte[] data = new byte[32];
+        byte[] tlvs = {0x00, 0x01, 0x03, (byte) 0xA0, 0x0C, 0x34, 0x00, 0x03, 0x05, 1, 2, 3, 4, 5, (byte) 0xFE};
+        System.arraycopy(tlvs, 0, data, 0, tlvs.length);
+        tag.pokePages(SimType2Tag.FIRST_DATA_PAGE, data);
+
+        Type2Memory memory = open(tag.nfcA(), link);
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, memory.readNdefMessage());
+
+        tag.pokePages(SimType2Tag.FIRST_DATA_PAGE, new byte[]{0x03, 0x00, (byte) 0xFE, 0x00});
+        assertNull(memory.readNdefMessage());
+    }
+
+    @Test
+    public void fallsBackToReadWhenFastReadIsRejected() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG213, UID, link);
+        byte[] message = pattern(40);
+        writeWithNdef(tag, message);
+        NfcATransport plain = tag.nfcA();
+        // 模擬不支援 FAST_READ 的原始 Ultralight
+        NfcATransport noFastRead = new NfcATransport() {
+            @Override
+            public byte[] getAtqa() {
+                return plain.getAtqa();
+            }
+
+            @Override
+            public short getSak() {
+                return plain.getSak();
+            }
+
+            @Override
+            public TagTech tech() {
+                return plain.tech();
+            }
+
+            @Override
+            public void connect() throws IOException {
+                plain.connect();
+            }
+
+            @Override
+            public boolean isConnected() {
+                return plain.isConnected();
+            }
+
+            @Override
+            public byte[] transceive(byte[] data) throws IOException {
+                if ((data[0] & 0xFF) == Type2Memory.CMD_FAST_READ) {
+                    throw new IOException("Transceive failed");
+                }
+                return plain.transceive(data);
+            }
+
+            @Override
+            public int getMaxTransceiveLength() {
+                return plain.getMaxTransceiveLength();
+            }
+
+            @Override
+            public void setTimeout(int timeoutMs) {
+                plain.setTimeout(timeoutMs);
+            }
+
+            @Override
+            public int getTimeout() {
+                return plain.getTimeout();
+            }
+
+            @Override
+            public void close() throws IOException {
+                plain.close();
+            }
+        };
+
+        Type2Memory memory = open(noFastRead, link);
+        assertArrayEquals(message, memory.readNdefMessage());
+        assertEquals(Type2Command.READ, memory.getReadCommand());
+        assertEquals(1, memory.getCommands(Type2Command.FAST_READ));
+        // CC 一次 + 40 bytes 訊息剩下的 30 bytes 需 8 頁，READ 兩次
+        assertEquals(3, memory.getCommands(Type2Command.READ));
+    }
+
+    @Test
+    public void rejectsWriteWhenCapabilityContainerIsReadOnly() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG213, UID, link);
+        tag.pokePages(SimType2Tag.FIRST_DATA_PAGE - 1, new byte[]{(byte) 0xE1, 0x10, 0x12, 0x0F});
+        Type2Memory memory = open(tag.nfcA(), link);
+        try {
+            memory.writeNdefMessage(pattern(10));
+            fail();
+        } catch (IOException expected) {
+            assertTrue(memory.isReadOnly());
+        }
+        assertEquals(0, memory.getCommands(Type2Command.WRITE));
+    }
+
+    @Test
+    public void spendsLessRfTimeThanNdefPath() throws IOException {
+        SimulatedLink link = SimulatedLink.virtual(LatencyModel.linear(500_000, 75_000));
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG215, UID, link);
+        byte[] message = pattern(200);
+        writeWithNdef(tag, message);
+
+        NdefTransport ndef = tag.ndef();
+        ndef.connect();
+        long start = link.getRfNanos();
+        assertArrayEquals(message, ndef.readNdefMessage());
+        long ndefNanos = link.getRfNanos() - start;
+        ndef.close();
+
+        Type2Memory memory = open(tag.nfcA(), link);
+        start = link.getRfNanos();
+        assertArrayEquals(message, memory.readNdefMessage());
+        long rawNanos = link.getRfNanos() - start;
+        assertTrue(rawNanos + " vs " + ndefNanos, rawNanos < ndefNanos);
+        assertEquals(rawNanos, memory.getNanos(Type2Command.FAST_READ));
+    }
+}
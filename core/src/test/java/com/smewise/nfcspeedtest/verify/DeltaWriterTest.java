@@ -0,0 +1,217 @@
+package com.smewise.nfcspeedtest.verify;
+
+import com.smewise.nfcspeedtest.iso15693.Iso15693Memory;
+import com.smewise.nfcspeedtest.mifare.KeyDictionary;
+import com.smewise.nfcspeedtest.mifare.KeyResolver;
+import com.smewise.nfcspeedtest.mifare.SectorKeyCache;
+import com.smewise.nfcspeedtest.transport.MifareClassicTransport;
+import com.smewise.nfcspeedtest.transport.NdefTransport;
+import com.smewise.nfcspeedtest.transport.NfcATransport;
+import com.smewise.nfcspeedtest.transport.NfcVTransport;
+import com.smewise.nfcspeedtest.transport.TagLostException;
+import com.smewise.nfcspeedtest.transport.sim.LatencyModel;
+import com.smewise.nfcspeedtest.transport.sim.SimIso15693Tag;
+import com.smewise.nfcspeedtest.transport.sim.SimMifareClassicTag;
+import com.smewise.nfcspeedtest.transport.sim.SimType2Tag;
+import com.smewise.nfcspeedtest.transport.sim.SimulatedLink;
+import com.smewise.nfcspeedtest.type2.Type2Memory;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class DeltaWriterTest {
+    private static final byte[] NTAG_UID = {0x04, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66};
+    private static final byte[] NFCV_UID = {0x44, 0x33, 0x22, 0x11, 0x50, 0x01, 0x04, (byte) 0xE0};
+
+    private static byte[] pattern(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 7 + 3);
+        }
+        return data;
+    }
+
+    private static Type2Memory type2(SimType2Tag tag, SimulatedLink link) throws IOException {
+        NfcATransport nfca = tag.nfcA();
+        nfca.connect();
+        return new Type2Memory(nfca, link::getRfNanos);
+    }
+
+    @Test
+    public void unchangedType2ReencodeSkipsEveryPage() throws IOException {
+        SimulatedLink link = SimulatedLink.virtual(LatencyModel.linear(1_000_000, 10_000));
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG216, NTAG_UID, link);
+        byte[] message = pattern(200);
+        DeltaWriter writer = new DeltaWriter(null, link::getRfNanos);
+
+        long start = link.getRfNanos();
+        DeltaReport first = writer.writeType2Ndef(type2(tag, link), NTAG_UID, message);
+        long firstRf = link.getRfNanos() - start;
+        assertTrue(first.isVerified());
+        assertEquals(first.getBlocks(), first.getWrittenBlocks());
+        tag.nfcA().close();
+
+        start = link.getRfNanos();
+        DeltaReport second = writer.writeType2Ndef(type2(tag, link), NTAG_UID, message);
+        long secondRf = link.getRfNanos() - start;
+        assertTrue(second.isVerified());
+        assertEquals(0, second.getWrittenBlocks());
+        assertEquals(second.getBlocks(), second.getSkippedBlocks());
+        assertEquals(0, second.getVerifyBlocks());
+        assertTrue("first " + firstRf + " second " + secondRf, secondRf * 10 < firstRf);
+        assertEquals(second.getExpectedCrc(), second.getActualCrc());
+    }
+
+    @Test
+    public void changedByteWritesOnlyItsPage() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG215, NTAG_UID, link);
+        byte[] message = pattern(100);
+        DeltaWriter writer = new DeltaWriter(null, link::getRfNanos);
+        writer.writeType2Ndef(type2(tag, link), NTAG_UID, message);
+        tag.nfcA().close();
+
+        message[50]++;
+        DeltaReport report = writer.writeType2Ndef(type2(tag, link), NTAG_UID, message);
+        assertTrue(report.isVerified());
+        // 改變的頁面加上長度頁：長度先寫成 0、寫入該頁、再寫回真正的長度
+        assertEquals(2, report.getWrittenBlocks());
+        assertEquals(3, report.getWriteCommands());
+        assertEquals(2, report.getVerifyBlocks());
+        tag.nfcA().close();
+        assertArrayEquals(message, type2(tag, link).readNdefMessage());
+    }
+
+    @Test
+    public void tornType2WriteShowsOldEmptyOrNewMessageOnly() throws IOException {
+        byte[] before = pattern(100);
+        // 長度不變只改內容（長度頁不變），以及長度也改變
+        byte[] sameLength = before.clone();
+        for (int i = 10; i < sameLength.length; i++) {
+            sameLength[i] ^= 0x5A;
+        }
+        for (byte[] after : new byte[][]{sameLength, pattern(140)}) {
+            int total = tearAfter(Integer.MAX_VALUE, before, after);
+            assertTrue(total > 2);
+            for (int writes = 0; writes < total; writes++) {
+                tearAfter(writes, before, after);
+            }
+        }
+    }
+
+    // 第 writes 次頁面寫入完成後標籤離開，接著重新靠卡讀取；回傳完整寫入所需的頁面寫入次數
+    private static int tearAfter(int writes, byte[] before, byte[] after) throws IOException {
+        SimType2Tag[] holder = new SimType2Tag[1];
+        int[] count = new int[1];
+        boolean[] armed = new boolean[1];
+        SimulatedLink link = SimulatedLink.virtual((command, requestLength, responseLength) -> {
+            if (armed[0] && command == Type2Memory.CMD_WRITE && ++count[0] >= writes) {
+                holder[0].remove();
+            }
+            return 0L;
+        });
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG215, NTAG_UID, link);
+        holder[0] = tag;
+        type2(tag, link).writeNdefMessage(before);
+        tag.nfcA().close();
+
+        armed[0] = true;
+        if (writes == 0) {
+            tag.remove();
+        }
+        try {
+            assertTrue(new DeltaWriter(null, link::getRfNanos).writeType2Ndef(type2(tag, link), NTAG_UID, after)
+                    .isVerified());
+        } catch (TagLostException e) {
+            // 寫入中途離開
+        }
+        armed[0] = false;
+        tag.reenter();
+        byte[] read = type2(tag, link).readNdefMessage();
+        assertTrue("撕裂於第 " + writes + " 次寫入後讀到混合內容",
+                read == null || Arrays.equals(before, read) || Arrays.equals(after, read));
+        return count[0];
+    }
+
+    @Test
+    public void staleCachedImageIsCaughtByReadBack() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimIso15693Tag tag = new SimIso15693Tag(NFCV_UID, 4, 64, link);
+        NfcVTransport nfcv = tag.nfcV();
+        nfcv.connect();
+        BlockDevice device = BlockDevices.nfcV(new Iso15693Memory(nfcv, NFCV_UID, link::getRfNanos));
+        ImageCache cache = new ImageCache();
+        DeltaWriter writer = new DeltaWriter(cache, link::getRfNanos);
+        byte[] data = pattern(32);
+
+        DeltaReport first = writer.write(device, NFCV_UID, 2, data);
+        assertFalse(first.isFromCache());
+        assertEquals(8, first.getWrittenBlocks());
+        assertEquals(1, cache.size());
+
+        // 其他讀寫器改掉了第 4 個區塊
+        tag.poke((2 + 3) * 4, new byte[]{0, 0, 0, 0});
+        DeltaReport second = writer.write(device, NFCV_UID, 2, data);
+        assertTrue(second.isFromCache());
+        assertEquals(0, second.getReadBlocks());
+        assertEquals(0, second.getWrittenBlocks());
+        assertEquals(1, second.getRewrittenBlocks());
+        assertEquals(8 + 1, second.getVerifyBlocks());
+        assertTrue(second.isVerified());
+        assertArrayEquals(data, tag.peek(2 * 4, 32));
+    }
+
+    @Test
+    public void mifareWritesDataBlocksAndRefusesTrailer() throws IOException {
+        byte[] uid = {1, 2, 3, 4};
+        SimMifareClassicTag tag = new SimMifareClassicTag(uid, false, SimulatedLink.instant());
+        MifareClassicTransport mifare = tag.mifareClassic();
+        mifare.connect();
+        KeyResolver keys = new KeyResolver(KeyDictionary.parse(new StringReader("FFFFFFFFFFFF\n")), new SectorKeyCache());
+        BlockDevice device = BlockDevices.mifareClassic(mifare, keys, uid);
+        DeltaWriter writer = new DeltaWriter(null, () -> 0L);
+
+        byte[] data = pattern(32);
+        DeltaReport report = writer.write(device, uid, 1, data);
+        assertTrue(report.isVerified());
+        assertEquals(2, report.getWrittenBlocks());
+        assertArrayEquals(data, concat(tag.peekBlock(1), tag.peekBlock(2)));
+
+        try {
+            writer.write(device, uid, 2, pattern(32));
+            fail("Block 3 是 sector trailer");
+        } catch (IllegalArgumentException expected) {
+            // 不可寫入
+        }
+    }
+
+    @Test
+    public void ndefPathSkipsEqualMessage() throws IOException {
+        SimulatedLink link = SimulatedLink.instant();
+        SimType2Tag tag = new SimType2Tag(SimType2Tag.Model.NTAG213, NTAG_UID, link);
+        NdefTransport ndef = tag.ndef();
+        ndef.connect();
+        DeltaWriter writer = new DeltaWriter(null, link::getRfNanos);
+        byte[] message = pattern(40);
+
+        DeltaReport first = writer.writeNdef(ndef, message);
+        assertEquals(1, first.getWrittenBlocks());
+        assertTrue(first.isVerified());
+        DeltaReport second = writer.writeNdef(ndef, message);
+        assertEquals(0, second.getWrittenBlocks());
+        assertEquals(0, second.getVerifyBlocks());
+        assertTrue(second.isVerified());
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] out = new byte[a.length + b.length];
+        System.arraycopy(a, 0, out, 0, a.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+}